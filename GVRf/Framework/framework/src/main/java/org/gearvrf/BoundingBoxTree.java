@@ -0,0 +1,641 @@
+/* Copyright 2015 Samsung Electronics Co., LTD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gearvrf;
+
+import java.util.List;
+
+import org.joml.FrustumCuller;
+
+/**
+ * A dynamic tree of axis-aligned boxes, each holding one object.
+ *
+ * Boxes are stored slightly enlarged, so small movements do not change the
+ * tree, and insertions keep the tree balanced: insert, move and remove take
+ * O(log n) time. Each box is identified by the leaf number {@link #insert}
+ * returns. Boxes are given as {@code minX, minY, minZ, maxX, maxY, maxZ}.
+ *
+ * This is the structure behind {@link GVRSpatialIndex}; it knows nothing
+ * about scene objects. Not thread-safe.
+ *
+ * @param <T>
+ *            type of the objects
+ */
+final class BoundingBoxTree<T> {
+    /** Most rays a single {@link #intersectRays} call accepts */
+    static final int MAX_RAYS = 32;
+
+    private static final int NULL_NODE = -1;
+    // Fraction of its largest extent added to each side of a stored box
+    private static final float MARGIN = 0.1f;
+    // Margin of point-sized boxes
+    private static final float MIN_MARGIN = 0.01f;
+
+    /** Receives the objects of {@link BoundingBoxTree#intersectRays}. */
+    interface RayVisitor<T> {
+        /**
+         * Called for each object whose box a ray hits.
+         *
+         * @param object
+         *            the object
+         * @param ray
+         *            index of the ray in the query
+         */
+        void visit(T object, int ray);
+    }
+
+    private int mRoot = NULL_NODE;
+    private int mNodeCount;
+    private int mFreeList = NULL_NODE;
+    private int mSize;
+    // Per node: minX, minY, minZ, maxX, maxY, maxZ
+    private float[] mBounds = new float[0];
+    // mParent links the free list of unused nodes
+    private int[] mParent = new int[0];
+    private int[] mChild1 = new int[0];
+    private int[] mChild2 = new int[0];
+    // 0 for leaves, -1 for free nodes
+    private int[] mHeight = new int[0];
+    private Object[] mObjects = new Object[0];
+
+    private int[] mStack = new int[64];
+    private int[] mStackMasks = new int[64];
+    private final float[] mInverse = new float[3 * MAX_RAYS];
+
+    /**
+     * Adds a box.
+     *
+     * @param object
+     *            the object the box bounds
+     * @param box
+     *            the exact box
+     * @return the leaf that holds the box
+     */
+    int insert(T object, float[] box) {
+        int leaf = allocateNode();
+        mObjects[leaf] = object;
+        setFatBounds(leaf, box);
+        insertLeaf(leaf);
+        ++mSize;
+        return leaf;
+    }
+
+    /**
+     * Changes the box of a leaf. The tree is only changed if the new box is
+     * not inside the enlarged one stored.
+     *
+     * @param leaf
+     *            a leaf from {@link #insert}
+     * @param box
+     *            the new exact box
+     * @return true if the leaf was moved in the tree
+     */
+    boolean move(int leaf, float[] box) {
+        int b = leaf * 6;
+        if (mBounds[b] <= box[0] && mBounds[b + 1] <= box[1] && mBounds[b + 2] <= box[2]
+                && mBounds[b + 3] >= box[3] && mBounds[b + 4] >= box[4]
+                && mBounds[b + 5] >= box[5]) {
+            return false;
+        }
+        removeLeaf(leaf);
+        setFatBounds(leaf, box);
+        insertLeaf(leaf);
+        return true;
+    }
+
+    /**
+     * Removes a box.
+     *
+     * @param leaf
+     *            a leaf from {@link #insert}
+     */
+    void remove(int leaf) {
+        removeLeaf(leaf);
+        freeNode(leaf);
+        --mSize;
+    }
+
+    /**
+     * @param leaf
+     *            a leaf from {@link #insert}
+     * @return the object of the leaf
+     */
+    @SuppressWarnings("unchecked")
+    T getObject(int leaf) {
+        return (T) mObjects[leaf];
+    }
+
+    /**
+     * @return number of boxes in the tree
+     */
+    int size() {
+        return mSize;
+    }
+
+    /**
+     * Removes all boxes.
+     */
+    void clear() {
+        mRoot = NULL_NODE;
+        mNodeCount = 0;
+        mFreeList = NULL_NODE;
+        mSize = 0;
+        for (int i = 0; i < mObjects.length; ++i) {
+            mObjects[i] = null;
+        }
+    }
+
+    /**
+     * Adds the objects whose boxes a ray hits to {@code result}.
+     */
+    void intersectRay(float ox, float oy, float oz, float dx, float dy, float dz,
+            List<T> result) {
+        float[] origin = { ox, oy, oz };
+        float[] direction = { dx, dy, dz };
+        int top = push(0, mRoot);
+        while (top > 0) {
+            int node = mStack[--top];
+            if (!rayHits(node * 6, origin, direction)) {
+                continue;
+            }
+            top = visit(node, top, result);
+        }
+    }
+
+    /**
+     * Finds the objects whose boxes any of several rays with the same origin
+     * hit, visiting each node once for all of them. The directions need not
+     * be normalized.
+     *
+     * @param directions
+     *            packed x, y, z direction of each ray
+     * @param rayCount
+     *            number of rays, at most {@link #MAX_RAYS}
+     * @param visitor
+     *            called for each ray and object whose box it hits
+     */
+    void intersectRays(float ox, float oy, float oz, float[] directions, int rayCount,
+            RayVisitor<T> visitor) {
+        if (mRoot == NULL_NODE || rayCount <= 0) {
+            return;
+        }
+        if (rayCount > MAX_RAYS) {
+            throw new IllegalArgumentException("At most " + MAX_RAYS + " rays per query");
+        }
+        for (int i = 0; i < rayCount * 3; ++i) {
+            mInverse[i] = 1.0f / directions[i];
+        }
+
+        int top = push(0, mRoot);
+        mStackMasks[0] = rayCount == MAX_RAYS ? -1 : (1 << rayCount) - 1;
+        while (top > 0) {
+            --top;
+            int node = mStack[top];
+            int mask = rayHits(node * 6, ox, oy, oz, directions, mStackMasks[top]);
+            if (mask == 0) {
+                continue;
+            }
+            if (mHeight[node] > 0) {
+                top = push(top, mChild1[node]);
+                mStackMasks[top - 1] = mask;
+                top = push(top, mChild2[node]);
+                mStackMasks[top - 1] = mask;
+                continue;
+            }
+            for (int ray = 0; mask != 0; ++ray, mask >>>= 1) {
+                if ((mask & 1) != 0) {
+                    visitor.visit(getObject(node), ray);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the objects whose boxes touch a sphere to {@code result}.
+     */
+    void intersectSphere(float cx, float cy, float cz, float radius, List<T> result) {
+        float radiusSquared = radius * radius;
+        int top = push(0, mRoot);
+        while (top > 0) {
+            int node = mStack[--top];
+            if (distanceSquared(node * 6, cx, cy, cz) > radiusSquared) {
+                continue;
+            }
+            top = visit(node, top, result);
+        }
+    }
+
+    /**
+     * Adds the objects whose boxes touch a box to {@code result}.
+     */
+    void intersectBox(float minX, float minY, float minZ, float maxX, float maxY, float maxZ,
+            List<T> result) {
+        int top = push(0, mRoot);
+        while (top > 0) {
+            int node = mStack[--top];
+            int b = node * 6;
+            if (mBounds[b] > maxX || mBounds[b + 3] < minX
+                    || mBounds[b + 1] > maxY || mBounds[b + 4] < minY
+                    || mBounds[b + 2] > maxZ || mBounds[b + 5] < minZ) {
+                continue;
+            }
+            top = visit(node, top, result);
+        }
+    }
+
+    /**
+     * Adds the objects whose boxes touch a frustum to {@code result}.
+     */
+    void intersectFrustum(FrustumCuller culler, List<T> result) {
+        int top = push(0, mRoot);
+        while (top > 0) {
+            int node = mStack[--top];
+            int b = node * 6;
+            if (culler.isAabInsideFrustum(mBounds[b], mBounds[b + 1], mBounds[b + 2],
+                    mBounds[b + 3], mBounds[b + 4], mBounds[b + 5]) != -1) {
+                continue;
+            }
+            top = visit(node, top, result);
+        }
+    }
+
+    /**
+     * @return the object whose box is nearest to a point, or {@code null} if
+     *         there is none within {@code maxDistance}
+     */
+    T findNearest(float x, float y, float z, float maxDistance) {
+        T nearest = null;
+        float best = maxDistance * maxDistance;
+        int top = push(0, mRoot);
+        while (top > 0) {
+            int node = mStack[--top];
+            float distance = distanceSquared(node * 6, x, y, z);
+            if (distance > best) {
+                continue;
+            }
+            if (mHeight[node] == 0) {
+                nearest = getObject(node);
+                best = distance;
+                continue;
+            }
+            // Visit the nearer child first, so more of the farther is pruned
+            int near = mChild1[node];
+            int far = mChild2[node];
+            if (distanceSquared(far * 6, x, y, z) < distanceSquared(near * 6, x, y, z)) {
+                near = mChild2[node];
+                far = mChild1[node];
+            }
+            top = push(top, far);
+            top = push(top, near);
+        }
+        return nearest;
+    }
+
+    /*
+     * Adds the object of a leaf to the result, or pushes the children of an
+     * inner node.
+     */
+    private int visit(int node, int top, List<T> result) {
+        if (mHeight[node] == 0) {
+            result.add(getObject(node));
+            return top;
+        }
+        top = push(top, mChild1[node]);
+        return push(top, mChild2[node]);
+    }
+
+    private int push(int top, int node) {
+        if (node == NULL_NODE) {
+            return top;
+        }
+        if (top == mStack.length) {
+            mStack = grow(mStack, top * 2);
+            mStackMasks = grow(mStackMasks, top * 2);
+        }
+        mStack[top] = node;
+        return top + 1;
+    }
+
+    private boolean rayHits(int b, float[] origin, float[] direction) {
+        float near = 0.0f;
+        float far = Float.POSITIVE_INFINITY;
+        for (int axis = 0; axis < 3; ++axis) {
+            float min = mBounds[b + axis];
+            float max = mBounds[b + axis + 3];
+            if (direction[axis] == 0.0f) {
+                if (origin[axis] < min || origin[axis] > max) {
+                    return false;
+                }
+                continue;
+            }
+            float t0 = (min - origin[axis]) / direction[axis];
+            float t1 = (max - origin[axis]) / direction[axis];
+            if (t0 > t1) {
+                float t = t0;
+                t0 = t1;
+                t1 = t;
+            }
+            near = Math.max(near, t0);
+            far = Math.min(far, t1);
+            if (near > far) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /*
+     * Returns the subset of mask whose rays hit the box at mBounds[b].
+     */
+    private int rayHits(int b, float ox, float oy, float oz, float[] directions, int mask) {
+        int result = 0;
+        for (int ray = 0, m = mask; m != 0; ++ray, m >>>= 1) {
+            if ((m & 1) == 0) {
+                continue;
+            }
+            float near = 0.0f;
+            float far = Float.POSITIVE_INFINITY;
+            boolean hit = true;
+            for (int axis = 0; axis < 3 && hit; ++axis) {
+                float origin = axis == 0 ? ox : axis == 1 ? oy : oz;
+                float min = mBounds[b + axis];
+                float max = mBounds[b + axis + 3];
+                if (directions[ray * 3 + axis] == 0.0f) {
+                    hit = origin >= min && origin <= max;
+                    continue;
+                }
+                float inverse = mInverse[ray * 3 + axis];
+                float t0 = (min - origin) * inverse;
+                float t1 = (max - origin) * inverse;
+                if (t0 > t1) {
+                    float t = t0;
+                    t0 = t1;
+                    t1 = t;
+                }
+                near = Math.max(near, t0);
+                far = Math.min(far, t1);
+                hit = near <= far;
+            }
+            if (hit) {
+                result |= 1 << ray;
+            }
+        }
+        return result;
+    }
+
+    private float distanceSquared(int b, float x, float y, float z) {
+        float dx = Math.max(0.0f, Math.max(mBounds[b] - x, x - mBounds[b + 3]));
+        float dy = Math.max(0.0f, Math.max(mBounds[b + 1] - y, y - mBounds[b + 4]));
+        float dz = Math.max(0.0f, Math.max(mBounds[b + 2] - z, z - mBounds[b + 5]));
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    private void setFatBounds(int leaf, float[] tight) {
+        float extent = Math.max(tight[3] - tight[0],
+                Math.max(tight[4] - tight[1], tight[5] - tight[2]));
+        float margin = Math.max(MIN_MARGIN, extent * MARGIN);
+        int b = leaf * 6;
+        for (int axis = 0; axis < 3; ++axis) {
+            mBounds[b + axis] = tight[axis] - margin;
+            mBounds[b + axis + 3] = tight[axis + 3] + margin;
+        }
+    }
+
+    private int allocateNode() {
+        if (mFreeList == NULL_NODE) {
+            int capacity = Math.max(16, mHeight.length * 2);
+            if (mNodeCount == mHeight.length) {
+                mBounds = grow(mBounds, capacity * 6);
+                mParent = grow(mParent, capacity);
+                mChild1 = grow(mChild1, capacity);
+                mChild2 = grow(mChild2, capacity);
+                mHeight = grow(mHeight, capacity);
+                Object[] objects = new Object[capacity];
+                System.arraycopy(mObjects, 0, objects, 0, mObjects.length);
+                mObjects = objects;
+            }
+            mFreeList = mNodeCount++;
+            mParent[mFreeList] = NULL_NODE;
+        }
+        int node = mFreeList;
+        mFreeList = mParent[node];
+        mParent[node] = NULL_NODE;
+        mChild1[node] = NULL_NODE;
+        mChild2[node] = NULL_NODE;
+        mHeight[node] = 0;
+        return node;
+    }
+
+    private void freeNode(int node) {
+        mObjects[node] = null;
+        mHeight[node] = -1;
+        mParent[node] = mFreeList;
+        mFreeList = node;
+    }
+
+    private static float[] grow(float[] array, int length) {
+        float[] grown = new float[length];
+        System.arraycopy(array, 0, grown, 0, array.length);
+        return grown;
+    }
+
+    private static int[] grow(int[] array, int length) {
+        int[] grown = new int[length];
+        System.arraycopy(array, 0, grown, 0, array.length);
+        return grown;
+    }
+
+    /*
+     * Walks down to the sibling whose box grows the least (by surface area)
+     * when it takes the leaf, and pairs the two under a new node.
+     */
+    private void insertLeaf(int leaf) {
+        if (mRoot == NULL_NODE) {
+            mRoot = leaf;
+            mParent[leaf] = NULL_NODE;
+            return;
+        }
+
+        int lb = leaf * 6;
+        int index = mRoot;
+        while (mHeight[index] > 0) {
+            int child1 = mChild1[index];
+            int child2 = mChild2[index];
+            float area = area(index * 6);
+            float combinedArea = combinedArea(index * 6, lb);
+            // Cost of a new parent for this node and the leaf
+            float cost = 2.0f * combinedArea;
+            // Least cost of pushing the leaf further down
+            float inheritanceCost = 2.0f * (combinedArea - area);
+            float cost1 = descendCost(child1, lb) + inheritanceCost;
+            float cost2 = descendCost(child2, lb) + inheritanceCost;
+            if (cost < cost1 && cost < cost2) {
+                break;
+            }
+            index = cost1 < cost2 ? child1 : child2;
+        }
+
+        int sibling = index;
+        int oldParent = mParent[sibling];
+        int newParent = allocateNode();
+        mParent[newParent] = oldParent;
+        mHeight[newParent] = mHeight[sibling] + 1;
+        union(newParent, sibling, leaf);
+        if (oldParent != NULL_NODE) {
+            if (mChild1[oldParent] == sibling) {
+                mChild1[oldParent] = newParent;
+            } else {
+                mChild2[oldParent] = newParent;
+            }
+        } else {
+            mRoot = newParent;
+        }
+        mChild1[newParent] = sibling;
+        mChild2[newParent] = leaf;
+        mParent[sibling] = newParent;
+        mParent[leaf] = newParent;
+
+        fixUpwards(mParent[leaf]);
+    }
+
+    private float descendCost(int child, int lb) {
+        float combinedArea = combinedArea(child * 6, lb);
+        return mHeight[child] == 0 ? combinedArea : combinedArea - area(child * 6);
+    }
+
+    private void removeLeaf(int leaf) {
+        if (leaf == mRoot) {
+            mRoot = NULL_NODE;
+            return;
+        }
+
+        int parent = mParent[leaf];
+        int grandParent = mParent[parent];
+        int sibling = mChild1[parent] == leaf ? mChild2[parent] : mChild1[parent];
+        if (grandParent != NULL_NODE) {
+            if (mChild1[grandParent] == parent) {
+                mChild1[grandParent] = sibling;
+            } else {
+                mChild2[grandParent] = sibling;
+            }
+            mParent[sibling] = grandParent;
+            freeNode(parent);
+            fixUpwards(grandParent);
+        } else {
+            mRoot = sibling;
+            mParent[sibling] = NULL_NODE;
+            freeNode(parent);
+        }
+    }
+
+    /*
+     * Rebalances and refits the nodes from index up to the root.
+     */
+    private void fixUpwards(int index) {
+        while (index != NULL_NODE) {
+            index = balance(index);
+            int child1 = mChild1[index];
+            int child2 = mChild2[index];
+            mHeight[index] = 1 + Math.max(mHeight[child1], mHeight[child2]);
+            union(index, child1, child2);
+            index = mParent[index];
+        }
+    }
+
+    /*
+     * If one subtree of a is more than one level taller than the other,
+     * rotates it up. Returns the node now in a's place.
+     */
+    private int balance(int a) {
+        if (mHeight[a] < 2) {
+            return a;
+        }
+        int b = mChild1[a];
+        int c = mChild2[a];
+        int difference = mHeight[c] - mHeight[b];
+        if (difference > 1) {
+            rotateUp(a, c, b, false);
+            return c;
+        }
+        if (difference < -1) {
+            rotateUp(a, b, c, true);
+            return b;
+        }
+        return a;
+    }
+
+    /*
+     * Makes the child "up" of a the parent of a. a keeps its other child
+     * "other" and takes the shorter child of up; up keeps the taller one.
+     */
+    private void rotateUp(int a, int up, int other, boolean upIsChild1) {
+        int f = mChild1[up];
+        int g = mChild2[up];
+
+        mChild1[up] = a;
+        mParent[up] = mParent[a];
+        mParent[a] = up;
+        int parent = mParent[up];
+        if (parent != NULL_NODE) {
+            if (mChild1[parent] == a) {
+                mChild1[parent] = up;
+            } else {
+                mChild2[parent] = up;
+            }
+        } else {
+            mRoot = up;
+        }
+
+        int taller = mHeight[f] > mHeight[g] ? f : g;
+        int shorter = taller == f ? g : f;
+        mChild2[up] = taller;
+        if (upIsChild1) {
+            mChild1[a] = shorter;
+        } else {
+            mChild2[a] = shorter;
+        }
+        mParent[shorter] = a;
+        union(a, other, shorter);
+        mHeight[a] = 1 + Math.max(mHeight[other], mHeight[shorter]);
+        union(up, a, taller);
+        mHeight[up] = 1 + Math.max(mHeight[a], mHeight[taller]);
+    }
+
+    private void union(int node, int first, int second) {
+        int n = node * 6;
+        int b1 = first * 6;
+        int b2 = second * 6;
+        for (int axis = 0; axis < 3; ++axis) {
+            mBounds[n + axis] = Math.min(mBounds[b1 + axis], mBounds[b2 + axis]);
+            mBounds[n + axis + 3] = Math.max(mBounds[b1 + axis + 3], mBounds[b2 + axis + 3]);
+        }
+    }
+
+    private float area(int b) {
+        float dx = mBounds[b + 3] - mBounds[b];
+        float dy = mBounds[b + 4] - mBounds[b + 1];
+        float dz = mBounds[b + 5] - mBounds[b + 2];
+        return dx * dy + dy * dz + dz * dx;
+    }
+
+    private float combinedArea(int b1, int b2) {
+        float dx = Math.max(mBounds[b1 + 3], mBounds[b2 + 3]) - Math.min(mBounds[b1], mBounds[b2]);
+        float dy = Math.max(mBounds[b1 + 4], mBounds[b2 + 4])
+                - Math.min(mBounds[b1 + 1], mBounds[b2 + 1]);
+        float dz = Math.max(mBounds[b1 + 5], mBounds[b2 + 5])
+                - Math.min(mBounds[b1 + 2], mBounds[b2 + 2]);
+        return dx * dy + dy * dz + dz * dx;
+    }
+}
@@ -23,6 +23,7 @@ import android.util.TypedValue;
 import org.gearvrf.asynchronous.CompressedTexture;
 import org.gearvrf.asynchronous.GVRCompressedTextureLoader;
 import org.gearvrf.utility.Log;
+import org.gearvrf.utility.MappedZipFile;
 import org.gearvrf.utility.MarkingFileInputStream;
 
 import java.io.BufferedInputStream;
@@ -53,7 +54,7 @@ public class GVRAndroidResource {
     }
 
     private enum ResourceType {
-        ANDROID_ASSETS, ANDROID_RESOURCE, LINUX_FILESYSTEM, NETWORK, INPUT_STREAM
+        ANDROID_ASSETS, ANDROID_RESOURCE, LINUX_FILESYSTEM, NETWORK, INPUT_STREAM, ZIP_ENTRY
     }
 
     /*
@@ -75,6 +76,7 @@ public class GVRAndroidResource {
     private Context context = null;
     private ResourceType resourceType;
     private String inputStreamName;
+    private MappedZipFile zipFile;
 
     /**
      * Open any file you have permission to read.
@@ -221,6 +223,28 @@ public class GVRAndroidResource {
         resourceType = ResourceType.INPUT_STREAM;
     }
 
+    /**
+     * Create a resource for an entry of a zip archive. The entry is read, and
+     * inflated if it is compressed, each time the stream is opened.
+     *
+     * Used by {@link GVRZipResourceVolume} and the {@link ZipLoader}.
+     *
+     * @param zipFile   the archive
+     * @param entryName name of the entry in the archive
+     */
+    GVRAndroidResource(MappedZipFile zipFile, String entryName) {
+        this.zipFile = zipFile;
+        inputStreamName = entryName;
+        streamState = StreamStates.NEW;
+
+        filePath = null;
+        resourceId = 0; // No R.whatever field will ever be 0
+        assetPath = null;
+        resourceFilePath = null;
+        url = null;
+        resourceType = ResourceType.ZIP_ENTRY;
+    }
+
     /*
      * A {@link URLBufferedInputStream} that supports {@link
      * InputStream#mark(int)} and {@link InputStream#reset()}
@@ -368,6 +392,11 @@ public class GVRAndroidResource {
             //input stream is already open
             streamState = StreamStates.OPEN;
             break;
+
+        case ZIP_ENTRY:
+            stream = zipFile.openStream(inputStreamName);
+            streamState = StreamStates.OPEN;
+            break;
         default:
             stream = null;
         }
@@ -448,6 +477,8 @@ public class GVRAndroidResource {
             return url.getPath().substring(url.getPath().lastIndexOf("/") + 1);
 
         case INPUT_STREAM:
+        case ZIP_ENTRY:
+            // The full entry path, as for the streams ZipLoader creates
             return inputStreamName;
 
         default:
@@ -455,6 +486,31 @@ public class GVRAndroidResource {
         }
     }
 
+    /**
+     * Identifies the current content of the resource, for caches that keep
+     * resource data across loads.
+     *
+     * @return the modification time and length of a file, combined; 0 for
+     *         assets, resources and zip entries, which do not change while
+     *         the application runs; -1 for network resources and streams,
+     *         whose content cannot be checked without reading it
+     */
+    long getContentStamp() {
+        switch (resourceType) {
+        case LINUX_FILESYSTEM:
+            File file = new File(filePath);
+            return file.lastModified() * 31 + file.length();
+
+        case ANDROID_ASSETS:
+        case ANDROID_RESOURCE:
+        case ZIP_ENTRY:
+            return 0;
+
+        default:
+            return -1;
+        }
+    }
+
     /*
      * Auto-generated hashCode() and equals(), for container support &c.
      * 
@@ -507,6 +563,10 @@ public class GVRAndroidResource {
         case INPUT_STREAM:
             return inputStreamName.equals(other.inputStreamName);
 
+        case ZIP_ENTRY:
+            return zipFile == other.zipFile
+                    && inputStreamName.equals(other.inputStreamName);
+
         default:
             return false;
         }
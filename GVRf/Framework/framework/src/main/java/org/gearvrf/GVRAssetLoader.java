@@ -15,16 +15,20 @@
 
 package org.gearvrf;
 
-import java.io.BufferedInputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.EnumSet;
-import java.util.UUID;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Future;
 
 import org.gearvrf.GVRAndroidResource.TextureCallback;
@@ -35,10 +39,12 @@ import org.gearvrf.jassimp.GVROldWrapperProvider;
 import org.gearvrf.jassimp2.GVRJassimpAdapter;
 import org.gearvrf.jassimp2.Jassimp;
 import org.gearvrf.jassimp2.JassimpFileIO;
+import org.gearvrf.jassimp2.JassimpSceneCache;
 import org.gearvrf.scene_objects.GVRModelSceneObject;
 import org.gearvrf.utility.FileNameUtils;
 import org.gearvrf.utility.GVRByteArray;
 import org.gearvrf.utility.Log;
+import org.gearvrf.utility.NetworkAssetCache;
 import org.gearvrf.x3d.ShaderSettings;
 import org.gearvrf.x3d.X3Dobject;
 import org.gearvrf.x3d.X3DparseLights;
@@ -406,11 +412,75 @@ public final class GVRAssetLoader {
         }
     }
 
+    /** Default budget of the {@linkplain #getFileCache() file cache}: 8 MB. */
+    public static final long DEFAULT_FILE_CACHE_SIZE = 8 * 1024 * 1024;
+
+    /** Default budget of the {@linkplain #getNetworkCache(Context) network cache}: 64 MB. */
+    public static final long DEFAULT_NETWORK_CACHE_SIZE = 64 * 1024 * 1024;
+
+    /** Default limit on simultaneous downloads into the network cache. */
+    public static final int DEFAULT_NETWORK_DOWNLOADS = 4;
+
+    private static final String NETWORK_CACHE_DIRECTORY = "gvrf_network";
+    private static NetworkAssetCache sNetworkCache;
+
     protected GVRContext mContext;
+    private volatile File mModelCacheDirectory;
+    private final ResourceCacheBase<GVRByteArray> mFileCache = new ResourceCacheBase<GVRByteArray>(
+            DEFAULT_FILE_CACHE_SIZE, ResourceCacheBase.BYTE_ARRAY_SIZE);
+
     public GVRAssetLoader(GVRContext context) {
         mContext = context;
     }
 
+    /**
+     * Enables the on-disk model cache.
+     *
+     * Once a directory is set, each model imported through Assimp is saved
+     * there in a binary form that is memory-mapped on later loads instead of
+     * being imported again. Entries are keyed by the model's path and import
+     * settings, and are only used while the content of every file the import
+     * read is unchanged: the model file and the files it refers to, such as
+     * material libraries. X3D models are not cached.
+     *
+     * @param directory
+     *            directory for the cache files, for example under
+     *            {@link Context#getCacheDir()}; {@code null} disables the
+     *            cache
+     */
+    public void setModelCacheDirectory(File directory) {
+        if ((directory != null) && !directory.isDirectory() && !directory.mkdirs()) {
+            throw new IllegalArgumentException("Cannot create model cache directory " + directory);
+        }
+        mModelCacheDirectory = directory;
+    }
+
+    /**
+     * Get the cache of model files read through Assimp, including the
+     * files a model refers to (material libraries, for example). The most
+     * recently used files are kept in memory up to
+     * {@link #DEFAULT_FILE_CACHE_SIZE} bytes unless the budget is
+     * {@linkplain ResourceCacheBase#setMaxSize(long) changed}. A file that
+     * changed on disk is read again; network resources are not kept here,
+     * they are revalidated by the network cache. Imports that write the
+     * {@linkplain #setModelCacheDirectory(File) model cache} do not use this
+     * cache.
+     *
+     * @return the file cache
+     */
+    public ResourceCacheBase<GVRByteArray> getFileCache() {
+        return mFileCache;
+    }
+
+    /**
+     * @return the directory of the on-disk model cache, or {@code null} if
+     *         the cache is disabled
+     * @see #setModelCacheDirectory(File)
+     */
+    public File getModelCacheDirectory() {
+        return mModelCacheDirectory;
+    }
+
     /** @since 1.6.2 */
     GVRAssimpImporter readFileFromResources(GVRContext gvrContext,
             GVRAndroidResource resource, EnumSet<GVRImportSettings> settings) {
@@ -494,19 +564,34 @@ public final class GVRAssetLoader {
         protected ResourceCacheBase<GVRByteArray> cache;
 
         public CachedVolumeIO(ResourceVolumeIO uncachedIO) {
+            this(uncachedIO, new ResourceCacheBase<GVRByteArray>());
+        }
+
+        CachedVolumeIO(ResourceVolumeIO uncachedIO, ResourceCacheBase<GVRByteArray> cache) {
             this.uncachedIO = uncachedIO;
-            cache = new ResourceCacheBase<GVRByteArray>();
+            this.cache = cache;
         }
 
+        /**
+         * Reads a file through the cache. Files are cached with their
+         * {@linkplain GVRAndroidResource#getContentStamp() content stamp},
+         * so a file that changed on disk is read again. Network resources
+         * and streams are never cached here.
+         */
         @Override
         public byte[] read(String path) {
             try {
                 GVRAndroidResource resource = uncachedIO.getResourceVolume().openResource(path);
-                GVRByteArray byteArray = cache.get(resource);
+                long stamp = resource.getContentStamp();
+                if (stamp == -1) {
+                    resource.closeStream();
+                    return uncachedIO.read(path);
+                }
+                GVRByteArray byteArray = cache.get(resource, stamp);
                 if (byteArray == null) {
                     resource.closeStream(); // needed to avoid hanging
                     byteArray = GVRByteArray.wrap(uncachedIO.read(path));
-                    cache.put(resource, byteArray);
+                    cache.put(resource, byteArray, stamp);
                 }
                 return byteArray.getByteArray();
             } catch (IOException e) {
@@ -773,20 +858,67 @@ public final class GVRAssetLoader {
 
         model.setName(filePath);
         GVRResourceVolume volume = request.getVolume();
-        try
+        File cacheDirectory = mModelCacheDirectory;
+        File cacheFile = null;
+        if (cacheDirectory != null)
         {
-            assimpScene = Jassimp.importFileEx(FileNameUtils.getFilename(filePath),
-                    GVRJassimpAdapter.get().toJassimpSettings(settings),
-                    new CachedVolumeIO(new ResourceVolumeIO(volume)));
+            try
+            {
+                cacheFile = new File(cacheDirectory, getModelCacheName(request, settings));
+                List<String> sources = JassimpSceneCache.readSources(cacheFile);
+                if (sources != null)
+                {
+                    assimpScene = JassimpSceneCache.read(cacheFile, hashResources(volume, sources));
+                }
+            }
+            catch (IOException ex)
+            {
+                Log.w(TAG, "Cannot use model cache for %s: %s", filePath, ex);
+            }
         }
-        catch (IOException ex)
+        if (assimpScene == null)
         {
-            assimpScene = null;
-            mContext.getEventManager().sendEvent(mContext,
-                    IAssetEvents.class,
-                    "onModelError", new Object[] { mContext, ex.getMessage(), filePath });
-            throw ex;
-       }
+            JassimpFileIO io;
+            HashingVolumeIO hashingIO = null;
+            if (cacheFile != null)
+            {
+                /*
+                 * The scene written to the model cache must come from the
+                 * files as they are now, so this import only shares what
+                 * it reads itself, not the loader's file cache
+                 */
+                io = hashingIO = new HashingVolumeIO(new CachedVolumeIO(new ResourceVolumeIO(volume)));
+            }
+            else
+            {
+                io = new CachedVolumeIO(new ResourceVolumeIO(volume), mFileCache);
+            }
+            try
+            {
+                assimpScene = Jassimp.importFileEx(FileNameUtils.getFilename(filePath),
+                        GVRJassimpAdapter.get().toJassimpSettings(settings), io);
+            }
+            catch (IOException ex)
+            {
+                assimpScene = null;
+                mContext.getEventManager().sendEvent(mContext,
+                        IAssetEvents.class,
+                        "onModelError", new Object[] { mContext, ex.getMessage(), filePath });
+                throw ex;
+            }
+            if ((assimpScene != null) && (hashingIO != null))
+            {
+                try
+                {
+                    JassimpSceneCache.write(assimpScene, cacheFile, hashingIO.getSources(),
+                            hashingIO.getSourceHash());
+                }
+                catch (IOException ex)
+                {
+                    Log.w(TAG, "Cannot write model cache for %s: %s", filePath, ex);
+                }
+            }
+        }
 
         if (assimpScene == null) {
             String errmsg = "Cannot load model from path " + filePath;
@@ -797,7 +929,10 @@ public final class GVRAssetLoader {
         }
         try
         {
-            GVRJassimpAdapter.get().processScene(request, model, assimpScene, volume);
+            GVRJassimpAdapter.get().processScene(request, model, assimpScene, volume, settings);
+            // Generate the shader sources now, so that adding the model only compiles them
+            GVRShaderTemplate.prepareShaders(mContext, model,
+                    (scene != null) ? scene : mContext.getMainScene());
             mContext.getEventManager().sendEvent(mContext,
                     IAssetEvents.class,
                     "onModelLoaded", new Object[]{mContext, model, filePath});
@@ -814,6 +949,116 @@ public final class GVRAssetLoader {
     }
     
 
+    /**
+     * Passes the files Assimp reads through and hashes them, so the model
+     * cache entry written after the import is keyed by exactly the content
+     * the import used. Files Assimp asked for but could not open are
+     * recorded too, so the entry is not used once they appear.
+     */
+    static class HashingVolumeIO implements JassimpFileIO {
+        private final JassimpFileIO mIO;
+        private final Map<String, byte[]> mHashes = new LinkedHashMap<String, byte[]>();
+
+        HashingVolumeIO(JassimpFileIO io) {
+            mIO = io;
+        }
+
+        @Override
+        public byte[] read(String path) {
+            byte[] data = mIO.read(path);
+            synchronized (mHashes) {
+                if (!mHashes.containsKey(path)) {
+                    mHashes.put(path, (data != null) ? newDigest().digest(data) : null);
+                }
+            }
+            return data;
+        }
+
+        /**
+         * @return the paths of the files read so far, in the order they
+         *         were first read
+         */
+        List<String> getSources() {
+            synchronized (mHashes) {
+                return new ArrayList<String>(mHashes.keySet());
+            }
+        }
+
+        /**
+         * @return the hash of the content of {@link #getSources()}
+         */
+        byte[] getSourceHash() {
+            synchronized (mHashes) {
+                return combineHashes(mHashes);
+            }
+        }
+    }
+
+    /**
+     * Hashes the current content of the files a model cache entry was
+     * written from, the way {@link HashingVolumeIO} hashed them during the
+     * import.
+     */
+    private static byte[] hashResources(GVRResourceVolume volume, List<String> fileNames)
+    {
+        Map<String, byte[]> hashes = new LinkedHashMap<String, byte[]>();
+        ResourceVolumeIO io = new ResourceVolumeIO(volume);
+        for (String fileName : fileNames)
+        {
+            byte[] data = io.read(fileName);
+            hashes.put(fileName, (data != null) ? newDigest().digest(data) : null);
+        }
+        return combineHashes(hashes);
+    }
+
+    private static byte[] combineHashes(Map<String, byte[]> hashes)
+    {
+        MessageDigest digest = newDigest();
+        Charset utf8 = Charset.forName("UTF-8");
+        for (Map.Entry<String, byte[]> entry : hashes.entrySet())
+        {
+            byte[] name = entry.getKey().getBytes(utf8);
+            byte[] hash = entry.getValue();
+            digest.update(ByteBuffer.allocate(4).putInt(name.length).array());
+            digest.update(name);
+            // A missing file hashes differently from every existing one
+            digest.update((byte) ((hash != null) ? 1 : 0));
+            if (hash != null)
+            {
+                digest.update(hash);
+            }
+        }
+        return digest.digest();
+    }
+
+    /**
+     * Names the cache file for a model path and set of import settings.
+     */
+    private static String getModelCacheName(AssetRequest request, EnumSet<GVRImportSettings> settings)
+    {
+        MessageDigest digest = newDigest();
+        String key = request.mFileName + ":" + GVRImportSettings.getAssimpImportFlags(settings);
+        StringBuilder name = new StringBuilder();
+        for (byte b : digest.digest(key.getBytes(Charset.forName("UTF-8"))))
+        {
+            name.append(Character.forDigit((b >> 4) & 0xF, 16));
+            name.append(Character.forDigit(b & 0xF, 16));
+        }
+        return name.append(".model").toString();
+    }
+
+    private static MessageDigest newDigest()
+    {
+        try
+        {
+            return MessageDigest.getInstance("SHA-1");
+        }
+        catch (NoSuchAlgorithmException ex)
+        {
+            throw new IllegalStateException(ex);
+        }
+    }
+
     GVRSceneObject loadX3DModel(GVRAssetLoader.AssetRequest assetRequest,
             GVRSceneObject root, EnumSet<GVRImportSettings> settings,
             boolean cacheEnabled, GVRScene scene) throws IOException {
@@ -855,63 +1100,52 @@ public final class GVRAssetLoader {
         return root;
     }
 
+    /**
+     * Get the cache of downloaded network assets, creating it on first use.
+     * The cache is shared by the whole application and lives in
+     * {@link Context#getCacheDir()}. It holds up to
+     * {@link #DEFAULT_NETWORK_CACHE_SIZE} bytes unless the budget is
+     * {@linkplain NetworkAssetCache#setMaxSize(long) changed}.
+     *
+     * @param context
+     *            an Android context
+     * @return the network asset cache
+     */
+    public static NetworkAssetCache getNetworkCache(Context context) {
+        synchronized (GVRAssetLoader.class) {
+            if (sNetworkCache == null) {
+                sNetworkCache = new NetworkAssetCache(
+                        new File(context.getCacheDir(), NETWORK_CACHE_DIRECTORY),
+                        DEFAULT_NETWORK_CACHE_SIZE, DEFAULT_NETWORK_DOWNLOADS);
+            }
+            return sNetworkCache;
+        }
+    }
+
+    /**
+     * Get a local copy of a network asset through the
+     * {@linkplain #getNetworkCache(Context) network cache}.
+     *
+     * @return the local copy, or {@code null} if the asset cannot be
+     *         downloaded
+     */
     public static File downloadFile(Context context, String urlString) {
         URL url = null;
         try {
             url = new URL(urlString);
         } catch (IOException e) {
-            Log.e(TAG, "URL error: ", urlString);
+            Log.e(TAG, "URL error: %s", urlString);
             return null;
         }
 
-        String directoryPath = context.getCacheDir().getAbsolutePath();
-        // add a uuid value for the url to prevent aliasing from files sharing
-        // same name inside one given app
-        String outputFilename = directoryPath + File.separator
-                + UUID.nameUUIDFromBytes(urlString.getBytes()).toString()
-                + FileNameUtils.getURLFilename(urlString);
-
-        Log.d(TAG, "URL filename: %s", outputFilename);
-
-        File localCopy = new File(outputFilename);
-        if (localCopy.exists()) {
-            return localCopy;
-        }
-
-        InputStream input = null;
-        // Output stream to write file
-        OutputStream output = null;
-
         try {
-            input = new BufferedInputStream(url.openStream(), 8192);
-            output = new FileOutputStream(outputFilename);
-
-            byte data[] = new byte[1024];
-            int count;
-            while ((count = input.read(data)) != -1) {
-                // writing data to file
-                output.write(data, 0, count);
-            }
+            File localCopy = getNetworkCache(context).get(url);
+            Log.d(TAG, "URL filename: %s", localCopy);
+            return localCopy;
         } catch (IOException e) {
-            Log.e(TAG, "Failed to download: ", urlString);
+            Log.e(TAG, "Failed to download %s: %s", urlString, e);
             return null;
-        } finally {
-            if (input != null) {
-                try {
-                    input.close();
-                } catch (IOException e) {
-                }
-            }
-
-            if (output != null) {
-                try {
-                    output.close();
-                } catch (IOException e) {
-                }
-            }
         }
-
-        return new File(outputFilename);
     }
 
     GVRModelSceneObject loadX3DModel(GVRAssetLoader.AssetRequest assetRequest,
@@ -62,6 +62,7 @@ public class GVRBitmapTexture extends GVRTexture {
         super(gvrContext, NativeBaseTexture.bareConstructor(textureParameters.getCurrentValuesArray()));
         NativeBaseTexture.setJavaOwner(getNative(), this);
         mBitmap = bitmap;
+        setSizeEstimate(bitmap.getByteCount());
     }
 
     /**
@@ -163,6 +164,7 @@ public class GVRBitmapTexture extends GVRTexture {
         mWidth = width;
         mHeight = height;
         mGrayscaleData = grayscaleData;
+        setSizeEstimate((long) width * height);
     }
 
     /**
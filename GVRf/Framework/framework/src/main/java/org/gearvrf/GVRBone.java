@@ -79,6 +79,7 @@ public final class GVRBone extends GVRComponent implements PrettyPrint {
 
     public void setOffsetMatrix(float[] offsetMatrix) {
         NativeBone.setOffsetMatrix(getNative(), offsetMatrix);
+        mOffsetMatrix = null;
     }
 
     /**
@@ -133,6 +134,23 @@ public final class GVRBone extends GVRComponent implements PrettyPrint {
         return offsetMatrix;
     }
 
+    /**
+     * Copies the offset matrix into {@code dest}.<p>
+     *
+     * The matrix is read from native code once and cached, so repeated
+     * calls during animation do not allocate.
+     *
+     * @param dest the matrix to receive the offset matrix
+     *
+     * @return {@code dest}
+     */
+    public Matrix4f getOffsetMatrix(Matrix4f dest) {
+        if (mOffsetMatrix == null) {
+            mOffsetMatrix = getOffsetMatrix();
+        }
+        return dest.set(mOffsetMatrix);
+    }
+
     /**
      * Gets the scene object of this bone.
      *
@@ -210,6 +228,11 @@ public final class GVRBone extends GVRComponent implements PrettyPrint {
      * bone.
      */
     private GVRSceneObject mSceneObject;
+
+    /**
+     * Cached copy of the native offset matrix.
+     */
+    private Matrix4f mOffsetMatrix;
 }
 
 class NativeBone {
@@ -114,6 +114,12 @@ public class GVRCameraRig extends GVRComponent implements PrettyPrint {
         headTransformObject.addChildObject(leftCameraObject);
         headTransformObject.addChildObject(rightCameraObject);
         headTransformObject.addChildObject(centerCameraObject);
+
+        // Native code moves the head and the cameras, bypassing GVRTransform
+        headTransformObject.setNativeTransform();
+        leftCameraObject.setNativeTransform();
+        rightCameraObject.setNativeTransform();
+        centerCameraObject.setNativeTransform();
     }
 
     protected void addHeadTransformObject() {
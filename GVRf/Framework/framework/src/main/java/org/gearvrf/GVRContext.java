@@ -1043,7 +1043,22 @@ public abstract class GVRContext implements IEventReceiver {
         return texture;
     }
 
-    private final ResourceCache<GVRTexture> textureCache = new ResourceCache<GVRTexture>();
+    private final ResourceCache<GVRTexture> textureCache = new ResourceCache<GVRTexture>(0,
+            ResourceCache.TEXTURE_SIZE);
+
+    /**
+     * Get the cache of textures loaded from {@link GVRAndroidResource}s.
+     *
+     * By default the cache only holds weak references, so a texture is
+     * reloaded once nothing uses it. Give it a
+     * {@linkplain ResourceCache#setMaxSize(long) size budget} to keep recently
+     * used textures in GPU memory; its counters tell how well it is doing.
+     *
+     * @return the texture cache
+     */
+    public ResourceCache<GVRTexture> getTextureCache() {
+        return textureCache;
+    }
 
     /**
      * Loads a cube map texture synchronously.
@@ -2481,6 +2496,18 @@ public abstract class GVRContext implements IEventReceiver {
      */
     public abstract void runOnGlThreadPostRender(int delayFrames, Runnable runnable);
 
+    /**
+     * The scheduler behind {@link #runOnGlThread(Runnable)} and
+     * {@link #runOnGlThreadPostRender(int, Runnable)}.
+     *
+     * Use it to queue GL thread work at a different priority, to change how
+     * much time queued work may take per frame, or to read queue depth and
+     * timing metrics.
+     *
+     * @return The {@linkplain GVRGlTaskScheduler GL task scheduler}.
+     */
+    public abstract GVRGlTaskScheduler getGlTaskScheduler();
+
     /**
      * Subscribes a {@link GVRDrawFrameListener}.
      * 
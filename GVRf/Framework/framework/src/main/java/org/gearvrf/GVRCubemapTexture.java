@@ -60,6 +60,11 @@ public class GVRCubemapTexture extends GVRTexture {
             GVRTextureParameters textureParameters) {
         super(gvrContext, NativeCubemapTexture.bitmapArrayConstructor(
                 bitmapArray, textureParameters.getCurrentValuesArray()));
+        long size = 0;
+        for (Bitmap bitmap : bitmapArray) {
+            size += bitmap.getByteCount();
+        }
+        setSizeEstimate(size);
     }
 
     /**
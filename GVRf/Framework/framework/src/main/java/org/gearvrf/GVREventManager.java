@@ -17,11 +17,8 @@ package org.gearvrf;
 
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
-import java.util.TreeMap;
-import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.gearvrf.script.GVRScriptFile;
 import org.gearvrf.script.IScriptable;
@@ -59,8 +56,9 @@ public class GVREventManager {
     private static final String TAG = GVREventManager.class.getSimpleName();
     private GVRContext mGvrContext;
 
-    // Cache for Java handler methods; keys *must* be weakly referenced
-    private final WeakHashMap<Object, Map<String, Method>> mHandlerMethodCache;
+    // Handler invokers by event interface, then by event name. The handler
+    // method only depends on the interface, so every target shares one entry.
+    private final ConcurrentHashMap<Class<?>, ConcurrentHashMap<String, EventInvoker>> mInvokerCache;
 
     protected static final int SEND_MASK_OBJECT = 0x1;
     protected static final int SEND_MASK_LISTENERS = 0x2;
@@ -69,7 +67,7 @@ public class GVREventManager {
 
     GVREventManager(GVRContext gvrContext) {
         mGvrContext = gvrContext;
-        mHandlerMethodCache = new WeakHashMap<Object, Map<String, Method>>();
+        mInvokerCache = new ConcurrentHashMap<Class<?>, ConcurrentHashMap<String, EventInvoker>>();
     }
 
     /**
@@ -119,11 +117,11 @@ public class GVREventManager {
         boolean handledSuccessful = false;
 
         // Verify the event name and parameters (cached)
-        Method method = findHandlerMethod(target, eventsClass, eventName, params);
+        EventInvoker invoker = findInvoker(eventsClass, eventName, params);
         if ((sendMask & SEND_MASK_OBJECT) != 0) {
             // Invoke the method if the target implements the interface
             if (eventsClass.isInstance(target)) {
-                invokeMethod(target, method, params);
+                invokeMethod(target, invoker, params);
                 handledSuccessful = true;
             }
         }
@@ -141,12 +139,9 @@ public class GVREventManager {
                     if (!eventsClass.isInstance(listener) || receiver.getOwner() != target)
                         continue;
 
-                    Method listenerMethod = findHandlerMethod(listener, eventsClass, eventName, params);
-                    if (listenerMethod != null) {
-                        // This may throw RuntimeException if the handler does so.
-                        invokeMethod(listener, listenerMethod, params);
-                        handledSuccessful = true;
-                    }
+                    // This may throw RuntimeException if the handler does so.
+                    invokeMethod(listener, invoker, params);
+                    handledSuccessful = true;
                 }
             }
         }
@@ -162,19 +157,41 @@ public class GVREventManager {
     }
 
     /*
-     * Return the method in eventsClass by checking the signature.
+     * Return the invoker for an event in eventsClass, resolving it on first use.
      * RuntimeException is thrown if the event is not found in the eventsClass interface,
      * or the parameter types don't match.
      */
-    private Method findHandlerMethod(Object target, Class<? extends IEvents> eventsClass,
+    private EventInvoker findInvoker(Class<? extends IEvents> eventsClass,
             String eventName, Object[] params) {
-        // Use cached method if available. Note: no further type checking is done if the
-        // method has been cached. It will be checked by JRE when the method is invoked.
-        Method cachedMethod = getCachedMethod(target, eventName);
-        if (cachedMethod != null) {
-            return cachedMethod;
+        // Use cached invoker if available. Note: no further type checking is done if the
+        // invoker has been cached. Mismatched parameters fail when the handler is invoked.
+        ConcurrentHashMap<String, EventInvoker> classCache = mInvokerCache.get(eventsClass);
+        if (classCache != null) {
+            EventInvoker cachedInvoker = classCache.get(eventName);
+            if (cachedInvoker != null) {
+                return cachedInvoker;
+            }
+        } else {
+            classCache = new ConcurrentHashMap<String, EventInvoker>();
+            ConcurrentHashMap<String, EventInvoker> existing = mInvokerCache.putIfAbsent(eventsClass, classCache);
+            if (existing != null) {
+                classCache = existing;
+            }
         }
 
+        // Racing threads may both resolve the event; either result is fine
+        EventInvoker invoker = compileInvoker(eventsClass, findHandlerMethod(eventsClass, eventName, params));
+        classCache.put(eventName, invoker);
+        return invoker;
+    }
+
+    /*
+     * Return the method in eventsClass by checking the signature.
+     * RuntimeException is thrown if the event is not found in the eventsClass interface,
+     * or the parameter types don't match.
+     */
+    private Method findHandlerMethod(Class<? extends IEvents> eventsClass,
+            String eventName, Object[] params) {
         // Check the event and params against the eventsClass interface object.
         Method nameMatch = null;
         Method signatureMatch = null;
@@ -214,10 +231,6 @@ public class GVREventManager {
                     + "parameters don't match", eventName));
         }
 
-        // Cache the method for the target, even if it doesn't implement the interface. This is
-        // to avoid always verifying the event.
-        addCachedMethod(target, eventName, signatureMatch);
-
         return signatureMatch;
     }
 
@@ -268,31 +281,6 @@ public class GVREventManager {
         return false;
     }
 
-    private Method getCachedMethod(Object target, String eventName) {
-        // Lock the whole cache for both first- and second-level lookup
-        synchronized (mHandlerMethodCache) {
-            Map<String, Method> targetCache = mHandlerMethodCache.get(target);
-            if (targetCache == null) {
-                return null;
-            }
-
-            return targetCache.get(eventName);
-        }
-    }
-
-    private void addCachedMethod(Object target, String eventName, Method method) {
-        // Lock the whole cache for both first- and second-level lookup
-        synchronized (mHandlerMethodCache) {
-            Map<String, Method> targetCache = mHandlerMethodCache.get(target);
-            if (targetCache == null) {
-                targetCache = new TreeMap<String, Method>();
-                mHandlerMethodCache.put(target, targetCache);
-            }
-
-            targetCache.put(eventName, method);
-        }
-    }
-
     private boolean tryInvokeScript(IScriptable target, String eventName,
             Object[] params) {
         GVRScriptFile script = mGvrContext.getScriptManager().getScriptFile(target);
@@ -302,13 +290,19 @@ public class GVREventManager {
         return script.invokeFunction(eventName, params);
     }
 
-    private void invokeMethod(Object target, Method method, Object[] params) {
+    private void invokeMethod(Object target, EventInvoker invoker, Object[] params) {
         try {
-            method.invoke(target, params);
+            invoker.invoke(target, params);
         } catch (IllegalAccessException e) {
             e.printStackTrace();
             mGvrContext.logError(e.getMessage(), target);
         } catch (IllegalArgumentException e) {
+            // Direct invokers call the handler itself: this is the
+            // application's exception, as InvocationTargetException's
+            // cause would be below
+            if (!(invoker instanceof ReflectiveInvoker)) {
+                throw e;
+            }
             e.printStackTrace();
             mGvrContext.logError(e.getMessage(), target);
         } catch (InvocationTargetException e) {
@@ -322,4 +316,125 @@ public class GVREventManager {
             }
         }
     }
+
+    /*
+     * Return an invoker that calls the handler method directly for the
+     * framework's per-frame event interfaces, or through reflection otherwise.
+     */
+    private static EventInvoker compileInvoker(Class<? extends IEvents> eventsClass, Method method) {
+        final String name = method.getName();
+        if (eventsClass == IPickEvents.class) {
+            if (name.equals("onPick")) {
+                return new PickEventInvoker(PickEventInvoker.ON_PICK);
+            } else if (name.equals("onNoPick")) {
+                return new PickEventInvoker(PickEventInvoker.ON_NO_PICK);
+            } else if (name.equals("onEnter")) {
+                return new PickEventInvoker(PickEventInvoker.ON_ENTER);
+            } else if (name.equals("onExit")) {
+                return new PickEventInvoker(PickEventInvoker.ON_EXIT);
+            } else if (name.equals("onInside")) {
+                return new PickEventInvoker(PickEventInvoker.ON_INSIDE);
+            }
+        } else if (eventsClass == ISceneEvents.class) {
+            if (name.equals("onInit")) {
+                return new SceneEventInvoker(SceneEventInvoker.ON_INIT);
+            } else if (name.equals("onAfterInit")) {
+                return new SceneEventInvoker(SceneEventInvoker.ON_AFTER_INIT);
+            }
+        } else if (eventsClass == ISensorEvents.class) {
+            return new SensorEventInvoker();
+        }
+        return new ReflectiveInvoker(method);
+    }
+
+    /*
+     * Calls one event handler method. Direct invokers cast the parameters and
+     * call the interface method; exceptions thrown by the handler propagate
+     * unchanged.
+     */
+    private static abstract class EventInvoker {
+        abstract void invoke(Object handler, Object[] params)
+                throws IllegalAccessException, InvocationTargetException;
+    }
+
+    private static final class ReflectiveInvoker extends EventInvoker {
+        private final Method mMethod;
+
+        ReflectiveInvoker(Method method) {
+            mMethod = method;
+        }
+
+        @Override
+        void invoke(Object handler, Object[] params)
+                throws IllegalAccessException, InvocationTargetException {
+            mMethod.invoke(handler, params);
+        }
+    }
+
+    private static final class PickEventInvoker extends EventInvoker {
+        static final int ON_PICK = 0;
+        static final int ON_NO_PICK = 1;
+        static final int ON_ENTER = 2;
+        static final int ON_EXIT = 3;
+        static final int ON_INSIDE = 4;
+
+        private final int mEvent;
+
+        PickEventInvoker(int event) {
+            mEvent = event;
+        }
+
+        @Override
+        void invoke(Object handler, Object[] params) {
+            final IPickEvents events = (IPickEvents) handler;
+            switch (mEvent) {
+            case ON_PICK:
+                events.onPick((GVRPicker) params[0]);
+                break;
+            case ON_NO_PICK:
+                events.onNoPick((GVRPicker) params[0]);
+                break;
+            case ON_ENTER:
+                events.onEnter((GVRSceneObject) params[0], (GVRPicker.GVRPickedObject) params[1]);
+                break;
+            case ON_EXIT:
+                events.onExit((GVRSceneObject) params[0]);
+                break;
+            case ON_INSIDE:
+                events.onInside((GVRSceneObject) params[0], (GVRPicker.GVRPickedObject) params[1]);
+                break;
+            }
+        }
+    }
+
+    private static final class SceneEventInvoker extends EventInvoker {
+        static final int ON_INIT = 0;
+        static final int ON_AFTER_INIT = 1;
+
+        private final int mEvent;
+
+        SceneEventInvoker(int event) {
+            mEvent = event;
+        }
+
+        @Override
+        void invoke(Object handler, Object[] params) {
+            final ISceneEvents events = (ISceneEvents) handler;
+            switch (mEvent) {
+            case ON_INIT:
+                events.onInit((GVRContext) params[0], (GVRScene) params[1]);
+                break;
+            case ON_AFTER_INIT:
+                events.onAfterInit();
+                break;
+            }
+        }
+    }
+
+    private static final class SensorEventInvoker extends EventInvoker {
+        @Override
+        void invoke(Object handler, Object[] params) {
+            ((ISensorEvents) handler).onSensorEvent((SensorEvent) params[0]);
+        }
+    }
 }
@@ -0,0 +1,308 @@
+/* Copyright 2015 Samsung Electronics Co., LTD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gearvrf;
+
+import java.util.ArrayList;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.gearvrf.utility.Log;
+
+/**
+ * Runs {@linkplain GVRContext#runOnGlThread(Runnable) GL thread tasks} within
+ * a per-frame time budget.
+ *
+ * Tasks are queued by priority. Each frame, {@link #PRIORITY_HIGH} tasks all
+ * run; {@link #PRIORITY_NORMAL} and then {@link #PRIORITY_LOW} tasks run until
+ * the {@linkplain #setFrameBudget(long) frame budget} is used up. Whatever is
+ * left over stays queued, in order, for the next frame, so a burst of tasks
+ * (from asset loading, for example) is spread over several frames instead of
+ * stalling one. At least one budgeted task runs every frame.
+ *
+ * <p>
+ * {@linkplain GVRContext#runOnGlThreadPostRender(int, Runnable) Post-render
+ * tasks} are also kept here. They are not budgeted, because they are tied to
+ * a specific frame.
+ *
+ * <p>
+ * Tasks can be posted from any thread. The {@code run} methods and the
+ * per-frame metrics belong to the GL thread.
+ */
+public final class GVRGlTaskScheduler {
+    private static final String TAG = Log.tag(GVRGlTaskScheduler.class);
+
+    /** Runs every frame, regardless of the frame budget. */
+    public static final int PRIORITY_HIGH = 0;
+    /** Default priority, used by {@link GVRContext#runOnGlThread(Runnable)}. */
+    public static final int PRIORITY_NORMAL = 1;
+    /** Runs only after all {@link #PRIORITY_NORMAL} tasks, within budget. */
+    public static final int PRIORITY_LOW = 2;
+
+    private static final int PRIORITY_COUNT = 3;
+
+    /** Default frame budget: a quarter of a 60Hz frame. */
+    public static final long DEFAULT_FRAME_BUDGET_NANOS = 4000000L;
+
+    private final Queue<Runnable>[] mQueues;
+    private final AtomicInteger[] mQueueDepths;
+    private volatile long mFrameBudgetNanos = DEFAULT_FRAME_BUDGET_NANOS;
+
+    private final ArrayList<PostRenderTask> mPendingPostRender = new ArrayList<PostRenderTask>();
+    private final ArrayList<PostRenderTask> mPostRender = new ArrayList<PostRenderTask>();
+
+    private long mLastFrameNanos;
+    private int mLastFrameTaskCount;
+    private int mLastFrameDeferredCount;
+    private long mMaxFrameNanos;
+    private long mTotalTaskCount;
+
+    private static final class PostRenderTask {
+        final Runnable runnable;
+        int framesLeft;
+
+        PostRenderTask(Runnable runnable, int delayFrames) {
+            this.runnable = runnable;
+            this.framesLeft = delayFrames;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    GVRGlTaskScheduler() {
+        mQueues = new Queue[PRIORITY_COUNT];
+        mQueueDepths = new AtomicInteger[PRIORITY_COUNT];
+        for (int i = 0; i < PRIORITY_COUNT; ++i) {
+            mQueues[i] = new ConcurrentLinkedQueue<Runnable>();
+            mQueueDepths[i] = new AtomicInteger();
+        }
+    }
+
+    /**
+     * Queues a task to run on the GL thread at the start of a frame.
+     *
+     * @param runnable
+     *            the task
+     * @param priority
+     *            {@link #PRIORITY_HIGH}, {@link #PRIORITY_NORMAL} or
+     *            {@link #PRIORITY_LOW}
+     */
+    public void post(Runnable runnable, int priority) {
+        if (priority < PRIORITY_HIGH || priority > PRIORITY_LOW) {
+            throw new IllegalArgumentException("Invalid priority " + priority);
+        }
+        mQueueDepths[priority].incrementAndGet();
+        mQueues[priority].add(runnable);
+    }
+
+    /**
+     * Queues a task to run on the GL thread after a frame has been rendered.
+     *
+     * @param runnable
+     *            the task
+     * @param delayFrames
+     *            number of frames to delay the task; 0 means the current frame
+     */
+    public void postAfterRender(Runnable runnable, int delayFrames) {
+        synchronized (mPendingPostRender) {
+            mPendingPostRender.add(new PostRenderTask(runnable, delayFrames));
+        }
+    }
+
+    /**
+     * Sets how long budgeted tasks may run per frame.
+     *
+     * @param nanos
+     *            time budget in nanoseconds; 0 runs one budgeted task per
+     *            frame, {@link Long#MAX_VALUE} disables the budget
+     */
+    public void setFrameBudget(long nanos) {
+        if (nanos < 0) {
+            throw new IllegalArgumentException("Frame budget must not be negative");
+        }
+        mFrameBudgetNanos = nanos;
+    }
+
+    /**
+     * @return the per-frame time budget, in nanoseconds
+     */
+    public long getFrameBudget() {
+        return mFrameBudgetNanos;
+    }
+
+    /**
+     * @param priority
+     *            one of the {@code PRIORITY_} constants
+     * @return number of tasks waiting at that priority
+     */
+    public int getQueueDepth(int priority) {
+        return mQueueDepths[priority].get();
+    }
+
+    /**
+     * @return number of tasks waiting at all priorities, not counting
+     *         post-render tasks
+     */
+    public int getQueueDepth() {
+        int depth = 0;
+        for (AtomicInteger d : mQueueDepths) {
+            depth += d.get();
+        }
+        return depth;
+    }
+
+    /**
+     * @return time spent running tasks in the last frame, in nanoseconds
+     */
+    public long getLastFrameTime() {
+        return mLastFrameNanos;
+    }
+
+    /**
+     * @return the longest time spent running tasks in a single frame, in
+     *         nanoseconds
+     */
+    public long getMaxFrameTime() {
+        return mMaxFrameNanos;
+    }
+
+    /**
+     * @return number of tasks run in the last frame
+     */
+    public int getLastFrameTaskCount() {
+        return mLastFrameTaskCount;
+    }
+
+    /**
+     * @return number of tasks left queued at the end of the last frame because
+     *         the budget ran out
+     */
+    public int getLastFrameDeferredCount() {
+        return mLastFrameDeferredCount;
+    }
+
+    /**
+     * @return number of tasks run since the scheduler was created
+     */
+    public long getTotalTaskCount() {
+        return mTotalTaskCount;
+    }
+
+    /**
+     * Clears the per-frame maximum reported by {@link #getMaxFrameTime()}.
+     */
+    public void resetMaxFrameTime() {
+        mMaxFrameNanos = 0;
+    }
+
+    /**
+     * Runs the high priority tasks, then as many budgeted tasks as fit in the
+     * frame budget. Called on the GL thread before drawing a frame.
+     */
+    void runFrameTasks() {
+        final long start = System.nanoTime();
+        int count = runAll(PRIORITY_HIGH);
+
+        final long budget = mFrameBudgetNanos;
+        boolean outOfTime = false;
+        for (int priority = PRIORITY_NORMAL; priority < PRIORITY_COUNT && !outOfTime; ++priority) {
+            final Queue<Runnable> queue = mQueues[priority];
+            final AtomicInteger depth = mQueueDepths[priority];
+            Runnable runnable;
+            while (!outOfTime && (runnable = queue.poll()) != null) {
+                depth.decrementAndGet();
+                runTask(runnable);
+                ++count;
+                outOfTime = System.nanoTime() - start >= budget;
+            }
+        }
+        endFrame(start, count, outOfTime ? getQueueDepth() : 0);
+    }
+
+    /**
+     * Runs every queued task regardless of budget. Used before
+     * {@link GVRScript#onInit(GVRContext)}, where GL queries must be answered.
+     */
+    void runAllTasks() {
+        final long start = System.nanoTime();
+        int count = 0;
+        for (int priority = PRIORITY_HIGH; priority < PRIORITY_COUNT; ++priority) {
+            count += runAll(priority);
+        }
+        endFrame(start, count, 0);
+    }
+
+    /**
+     * Runs the post-render tasks that are due and counts down the others.
+     * Called on the GL thread after drawing a frame.
+     */
+    void runPostRenderTasks() {
+        synchronized (mPendingPostRender) {
+            mPostRender.addAll(mPendingPostRender);
+            mPendingPostRender.clear();
+        }
+
+        final ArrayList<PostRenderTask> tasks = mPostRender;
+        final int size = tasks.size();
+        int kept = 0;
+        for (int i = 0; i < size; ++i) {
+            final PostRenderTask task = tasks.get(i);
+            if (task.framesLeft <= 0) {
+                runTask(task.runnable);
+            } else {
+                --task.framesLeft;
+                tasks.set(kept++, task);
+            }
+        }
+        for (int i = size - 1; i >= kept; --i) {
+            tasks.remove(i);
+        }
+    }
+
+    private int runAll(int priority) {
+        final Queue<Runnable> queue = mQueues[priority];
+        final AtomicInteger depth = mQueueDepths[priority];
+        // Tasks posted while draining wait for the next frame
+        int n = depth.get();
+        int count = 0;
+        Runnable runnable;
+        while (n-- > 0 && (runnable = queue.poll()) != null) {
+            depth.decrementAndGet();
+            runTask(runnable);
+            ++count;
+        }
+        return count;
+    }
+
+    private void endFrame(long start, int count, int deferred) {
+        final long elapsed = System.nanoTime() - start;
+        mLastFrameNanos = elapsed;
+        mLastFrameTaskCount = count;
+        mLastFrameDeferredCount = deferred;
+        mTotalTaskCount += count;
+        if (elapsed > mMaxFrameNanos) {
+            mMaxFrameNanos = elapsed;
+        }
+    }
+
+    private static void runTask(Runnable runnable) {
+        try {
+            runnable.run();
+        } catch (final Exception exc) {
+            Log.e(TAG, "Runnable-on-GL %s threw %s", runnable, exc.toString());
+            exc.printStackTrace();
+        }
+    }
+}
@@ -42,6 +42,16 @@ public enum GVRImportSettings {
      */
     TRIANGULATE(0x8),
     
+    /**
+     * Split meshes with more than {@link GVRMesh#MAX_CHAR_INDEXED_VERTICES}
+     * vertices into several meshes that each fit 16-bit indices. Triangles
+     * keep their order, so each part covers a connected area of the mesh.
+     * Without this setting such meshes are imported with 32-bit indices.
+     * The split is done by GVRf after import, so this setting sets no
+     * Assimp flag.
+     */
+    SPLIT_LARGE_MESHES(0),
+
     /**
      * Tell Importer to calculate hard normals in case they are not present in imported model.
      */
@@ -98,8 +98,9 @@ class GVRInputManagerImpl extends GVRInputManager {
         this.scene = scene;
         for (GVRCursorController controller : controllers) {
             controller.setScene(scene);
-            sensorManager.processPick(scene, controller);
         }
+        // One traversal answers the rays of all the controllers
+        sensorManager.processPick(scene, controllers);
     }
 
     @Override
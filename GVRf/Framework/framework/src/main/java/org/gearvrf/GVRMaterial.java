@@ -15,9 +15,11 @@
 
 package org.gearvrf;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Future;
 
 import org.gearvrf.GVRAndroidResource.TextureCallback;
@@ -82,6 +84,11 @@ public class GVRMaterial extends GVRHybridObject implements
     private int mShaderFeatureSet;
     private GVRMaterialShaderId shaderId;
     final private Map<String, TextureInfo> textures = new HashMap();
+    // Uniforms set through this class; a new one, or a new texture, may
+    // change the shader variant GVRShaderTemplate picks for the material
+    final private Set<String> mUniformKeys = Collections.newSetFromMap(
+            new ConcurrentHashMap<String, Boolean>());
+    private volatile long mShaderVersion = GVRRenderData.nextShaderVersion();
 
     /** Pre-built shader ids. */
     public abstract static class GVRShaderType {
@@ -599,6 +606,7 @@ public class GVRMaterial extends GVRHybridObject implements
             tinfo = new TextureInfo();
             tinfo.Texture = texture;
             textures.put(key, tinfo);
+            mShaderVersion = GVRRenderData.nextShaderVersion();
         }
         else
         {
@@ -674,6 +682,7 @@ public class GVRMaterial extends GVRHybridObject implements
         }
         tinfo.TexCoordAttr = texCoordAttr;
         tinfo.ShaderVar = shaderVarName;
+        mShaderVersion = GVRRenderData.nextShaderVersion();
     }
 
     /**
@@ -727,6 +736,7 @@ public class GVRMaterial extends GVRHybridObject implements
      * @see GVRRenderData.setDrawMode
      */
     public void setLineWidth(float lineWidth) {
+        addUniformKey("line_width");
         NativeMaterial.setFloat(getNative(), "line_width", lineWidth);
     }
     
@@ -737,6 +747,7 @@ public class GVRMaterial extends GVRHybridObject implements
     public void setFloat(String key, float value) {
         checkStringNotNullOrEmpty("key", key);
         checkFloatNotNaNOrInfinity("value", value);
+        addUniformKey(key);
         NativeMaterial.setFloat(getNative(), key, value);
     }
 
@@ -746,6 +757,7 @@ public class GVRMaterial extends GVRHybridObject implements
 
     public void setVec2(String key, float x, float y) {
         checkStringNotNullOrEmpty("key", key);
+        addUniformKey(key);
         NativeMaterial.setVec2(getNative(), key, x, y);
     }
 
@@ -755,6 +767,7 @@ public class GVRMaterial extends GVRHybridObject implements
 
     public void setVec3(String key, float x, float y, float z) {
         checkStringNotNullOrEmpty("key", key);
+        addUniformKey(key);
         NativeMaterial.setVec3(getNative(), key, x, y, z);
     }
 
@@ -764,6 +777,7 @@ public class GVRMaterial extends GVRHybridObject implements
 
     public void setVec4(String key, float x, float y, float z, float w) {
         checkStringNotNullOrEmpty("key", key);
+        addUniformKey(key);
         NativeMaterial.setVec4(getNative(), key, x, y, z, w);
     }
 
@@ -777,10 +791,25 @@ public class GVRMaterial extends GVRHybridObject implements
             float x2, float y2, float z2, float w2, float x3, float y3,
             float z3, float w3, float x4, float y4, float z4, float w4) {
         checkStringNotNullOrEmpty("key", key);
+        addUniformKey(key);
         NativeMaterial.setMat4(getNative(), key, x1, y1, z1, w1, x2, y2, z2,
                 w2, x3, y3, z3, w3, x4, y4, z4, w4);
     }
     
+    private void addUniformKey(String key) {
+        if (mUniformKeys.add(key)) {
+            mShaderVersion = GVRRenderData.nextShaderVersion();
+        }
+    }
+
+    /**
+     * @return the shader input version of the uniform and texture names
+     * @see GVRRenderData#getShaderInputVersion(GVRScene)
+     */
+    long getShaderVersion() {
+        return mShaderVersion;
+    }
+
     /**
      * Determine whether a named uniform is defined
      * by this material.
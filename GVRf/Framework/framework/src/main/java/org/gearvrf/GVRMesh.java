@@ -17,10 +17,15 @@ package org.gearvrf;
 
 import static org.gearvrf.utility.Assert.*;
 
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.WeakHashMap;
 
 import org.gearvrf.utility.Exceptions;
 import org.gearvrf.utility.Log;
@@ -38,6 +43,12 @@ import org.gearvrf.utility.Log;
 public class GVRMesh extends GVRHybridObject implements PrettyPrint {
     private static final String TAG = GVRMesh.class.getSimpleName();
 
+    /**
+     * Number of vertices that {@code char} indices can address. Larger
+     * meshes need {@link #setIntIndices(int[])}.
+     */
+    public static final int MAX_CHAR_INDEXED_VERTICES = 65536;
+
     public GVRMesh(GVRContext gvrContext) {
         this(gvrContext, NativeMesh.ctor());
         mAttributeKeys = new HashSet<String>();
@@ -75,8 +86,32 @@ public class GVRMesh extends GVRHybridObject implements PrettyPrint {
      */
     public void setVertices(float[] vertices) {
         checkValidFloatArray("vertices", vertices, 3);
-        mAttributeKeys.add("a_position");
+        addAttributeKey("a_position");
         NativeMesh.setVertices(getNative(), vertices);
+        onBoundsChanged();
+    }
+
+    /**
+     * Sets the 3D vertices of the mesh from a buffer, in the same layout as
+     * {@link #setVertices(float[])}. The values between the buffer's position
+     * and limit are used; the position is not changed.
+     * <p>
+     * A direct buffer in native byte order (such as the buffers Assimp
+     * returns) is read in place by native code, without a Java heap copy.
+     * 
+     * @param vertices
+     *            Buffer containing the packed vertex data.
+     */
+    public void setVertices(FloatBuffer vertices) {
+        checkValidFloatBuffer("vertices", vertices, 3);
+        addAttributeKey("a_position");
+        if (isNativeBuffer(vertices)) {
+            NativeMesh.setVerticesBuffer(getNative(), vertices,
+                    vertices.position(), vertices.remaining() / 3);
+        } else {
+            NativeMesh.setVertices(getNative(), toArray(vertices));
+        }
+        onBoundsChanged();
     }
 
     /**
@@ -102,10 +137,28 @@ public class GVRMesh extends GVRHybridObject implements PrettyPrint {
      */
     public void setNormals(float[] normals) {
         checkValidFloatArray("normals", normals, 3);
-        mAttributeKeys.add("a_normal");
+        addAttributeKey("a_normal");
         NativeMesh.setNormals(getNative(), normals);
     }
 
+    /**
+     * Sets the normal vectors of the mesh from a buffer, like
+     * {@link #setVertices(FloatBuffer)}.
+     * 
+     * @param normals
+     *            Buffer containing the packed normal data.
+     */
+    public void setNormals(FloatBuffer normals) {
+        checkValidFloatBuffer("normals", normals, 3);
+        addAttributeKey("a_normal");
+        if (isNativeBuffer(normals)) {
+            NativeMesh.setNormalsBuffer(getNative(), normals,
+                    normals.position(), normals.remaining() / 3);
+        } else {
+            NativeMesh.setNormals(getNative(), toArray(normals));
+        }
+    }
+
     /**
      * Get the u,v texture coordinates for the mesh. Each texture coordinate is
      * represented as a packed {@code float} pair:
@@ -136,10 +189,45 @@ public class GVRMesh extends GVRHybridObject implements PrettyPrint {
 
         String key = (index > 0) ? ("a_texcoord" +index) : "a_texcoord";
         checkValidFloatArray(key, texCoords, 2);
-        mAttributeKeys.add(key);
+        addAttributeKey(key);
         NativeMesh.setVec2Vector(getNative(),key,texCoords);
     }
 
+    /**
+     * Sets a set of texture coordinates from a buffer, like
+     * {@link #setVertices(FloatBuffer)}. Each texture coordinate may have
+     * more than two components (Assimp stores three for some formats);
+     * only u and v are used.
+     * 
+     * @param texCoords
+     *            Buffer containing the packed texture coordinate data.
+     * @param components
+     *            number of floats per texture coordinate, at least 2
+     * @param index
+     *            index of the texture coordinate set
+     */
+    public void setTexCoords(FloatBuffer texCoords, int components, int index) {
+        String key = (index > 0) ? ("a_texcoord" +index) : "a_texcoord";
+        if (components < 2) {
+            throw Exceptions.IllegalArgument("Texture coordinates need at least 2 components, not %d", components);
+        }
+        checkValidFloatBuffer(key, texCoords, components);
+        addAttributeKey(key);
+        int count = texCoords.remaining() / components;
+        if (isNativeBuffer(texCoords)) {
+            NativeMesh.setVec2Buffer(getNative(), key, texCoords,
+                    texCoords.position(), count, components);
+        } else {
+            float[] uvs = new float[count * 2];
+            int position = texCoords.position();
+            for (int i = 0; i < count; ++i) {
+                uvs[i * 2] = texCoords.get(position + i * components);
+                uvs[i * 2 + 1] = texCoords.get(position + i * components + 1);
+            }
+            NativeMesh.setVec2Vector(getNative(), key, uvs);
+        }
+    }
+
     /**
      * Get the triangle vertex indices of the mesh. The indices for each
      * triangle are represented as a packed {@code char} triplet, where
@@ -149,6 +237,9 @@ public class GVRMesh extends GVRHybridObject implements PrettyPrint {
      * { t0[0], t0[1], t0[2], t1[0], t1[1], t1[2], ...}
      * </code>
      * 
+     * Returns the same data as {@link #getIndices()}, so 32-bit indices
+     * are truncated to 16 bits.
+     *
      * @return Array with the packed triangle index data.
      *
      * @deprecated use {@link #getIndices()} instead.
@@ -178,6 +269,11 @@ public class GVRMesh extends GVRHybridObject implements PrettyPrint {
     /**
      * Get the vertex indices of the mesh. The indices for each
      * vertex to be referenced.
+     * <p>
+     * If the mesh has {@linkplain #setIntIndices(int[]) 32-bit indices},
+     * they are truncated to 16 bits; use {@link #getIntIndices()} for
+     * meshes that may have more than {@link #MAX_CHAR_INDEXED_VERTICES}
+     * vertices.
      * 
      * @return Array with the packed index data.
      */
@@ -196,6 +292,66 @@ public class GVRMesh extends GVRHybridObject implements PrettyPrint {
         NativeMesh.setIndices(getNative(), indices);
     }
 
+    /**
+     * Sets the vertex indices of the mesh from a buffer. The values between
+     * the buffer's position and limit are used; the position is not changed.
+     * The mesh keeps 16-bit indices if every index fits, and switches to
+     * 32-bit indices otherwise.
+     * <p>
+     * A direct buffer in native byte order is read in place by native code.
+     * 
+     * @param indices
+     *            Buffer containing the packed index data.
+     */
+    public void setIndices(IntBuffer indices) {
+        if (indices.isDirect() && indices.order() == ByteOrder.nativeOrder()) {
+            NativeMesh.setIndicesBuffer(getNative(), indices,
+                    indices.position(), indices.remaining());
+            return;
+        }
+        int[] values = new int[indices.remaining()];
+        indices.duplicate().get(values);
+        boolean fitsChar = true;
+        for (int value : values) {
+            if (value > Character.MAX_VALUE) {
+                fitsChar = false;
+                break;
+            }
+        }
+        if (fitsChar) {
+            char[] charIndices = new char[values.length];
+            for (int i = 0; i < values.length; ++i) {
+                charIndices[i] = (char) values[i];
+            }
+            setIndices(charIndices);
+        } else {
+            setIntIndices(values);
+        }
+    }
+
+    /**
+     * Get the vertex indices of the mesh as {@code int}s. Works for both
+     * 16-bit and 32-bit indices.
+     * 
+     * @return Array with the packed index data.
+     */
+    public int[] getIntIndices() {
+        return NativeMesh.getIntIndices(getNative());
+    }
+
+    /**
+     * Sets 32-bit vertex indices, for meshes with more than
+     * {@link #MAX_CHAR_INDEXED_VERTICES} vertices. Replaces any indices
+     * set with {@link #setIndices(char[])}. Smaller meshes should keep
+     * using {@code char} indices, which take half the memory.
+     * 
+     * @param indices
+     *            Array containing the packed index data.
+     */
+    public void setIntIndices(int[] indices) {
+        NativeMesh.setIntIndices(getNative(), indices);
+    }
+
     /**
      * Get the array of {@code float} scalars bound to the shader attribute
      * {@code key}.
@@ -219,7 +375,7 @@ public class GVRMesh extends GVRHybridObject implements PrettyPrint {
      */
     public void setFloatVector(String key, float[] floatVector) {
         checkValidFloatVector("key", key, "floatVector", floatVector, 1);
-        mAttributeKeys.add(key);
+        addAttributeKey(key);
         NativeMesh.setFloatVector(getNative(), key, floatVector);
     }
 
@@ -247,7 +403,7 @@ public class GVRMesh extends GVRHybridObject implements PrettyPrint {
      */
     public void setVec2Vector(String key, float[] vec2Vector) {
         checkValidFloatVector("key", key, "vec2Vector", vec2Vector, 2);
-        mAttributeKeys.add(key);
+        addAttributeKey(key);
         NativeMesh.setVec2Vector(getNative(), key, vec2Vector);
     }
 
@@ -275,10 +431,33 @@ public class GVRMesh extends GVRHybridObject implements PrettyPrint {
      */
     public void setVec3Vector(String key, float[] vec3Vector) {
         checkValidFloatVector("key", key, "vec3Vector", vec3Vector, 3);
-        mAttributeKeys.add(key);
+        addAttributeKey(key);
         NativeMesh.setVec3Vector(getNative(), key, vec3Vector);
     }
 
+    /**
+     * Bind a buffer of three-component {@code float} vectors to the shader
+     * attribute {@code key}, like {@link #setVertices(FloatBuffer)}.
+     * 
+     * @param key
+     *            Name of the shader attribute
+     * @param vec3Vector
+     *            Three-component {@code float} vector data to bind to the
+     *            shader attribute.
+     */
+    public void setVec3Vector(String key, FloatBuffer vec3Vector) {
+        checkStringNotNullOrEmpty("key", key);
+        checkValidFloatBuffer("vec3Vector", vec3Vector, 3);
+        checkVectorLengthWithVertices("vec3Vector", vec3Vector.remaining(), 3);
+        addAttributeKey(key);
+        if (isNativeBuffer(vec3Vector)) {
+            NativeMesh.setVec3Buffer(getNative(), key, vec3Vector,
+                    vec3Vector.position(), vec3Vector.remaining() / 3);
+        } else {
+            NativeMesh.setVec3Vector(getNative(), key, toArray(vec3Vector));
+        }
+    }
+
     /**
      * Get the array of four-component {@code float} vectors bound to the shader
      * attribute {@code key}.
@@ -303,10 +482,57 @@ public class GVRMesh extends GVRHybridObject implements PrettyPrint {
      */
     public void setVec4Vector(String key, float[] vec4Vector) {
         checkValidFloatVector("key", key, "vec4Vector", vec4Vector, 4);
-        mAttributeKeys.add(key);
+        addAttributeKey(key);
         NativeMesh.setVec4Vector(getNative(), key, vec4Vector);
     }
     
+    /*
+     * Notes a vertex attribute; a new one may change the shader variant
+     * GVRShaderTemplate picks for the mesh.
+     */
+    private void addAttributeKey(String key) {
+        if (mAttributeKeys.add(key)) {
+            mShaderVersion = GVRRenderData.nextShaderVersion();
+        }
+    }
+
+    /*
+     * Notes a render data that renders this mesh, so the spatial index of its
+     * scene can be told when the bounds change.
+     */
+    void addUser(GVRRenderData renderData) {
+        synchronized (mUsers) {
+            mUsers.add(renderData);
+        }
+    }
+
+    void removeUser(GVRRenderData renderData) {
+        synchronized (mUsers) {
+            mUsers.remove(renderData);
+        }
+    }
+
+    private void onBoundsChanged() {
+        List<GVRRenderData> users;
+        synchronized (mUsers) {
+            users = new ArrayList<GVRRenderData>(mUsers);
+        }
+        for (GVRRenderData renderData : users) {
+            // It may have been given another mesh since
+            if (renderData.getMesh() == this) {
+                renderData.onBoundsChanged();
+            }
+        }
+    }
+
+    /**
+     * @return the shader input version of the mesh attributes
+     * @see GVRRenderData#getShaderInputVersion(GVRScene)
+     */
+    long getShaderVersion() {
+        return mShaderVersion;
+    }
+
     /**
      * Get the names of all the vertex attributes on this mesh.
      * @return array of string names
@@ -396,8 +622,8 @@ public class GVRMesh extends GVRHybridObject implements PrettyPrint {
             }
         }
         if (getVertexBoneData() != null) {
-            mAttributeKeys.add("a_bone_indices");
-            mAttributeKeys.add("a_bone_weights");
+            addAttributeKey("a_bone_indices");
+            addAttributeKey("a_bone_weights");
             getVertexBoneData().normalizeWeights();
         }
     }
@@ -458,9 +684,25 @@ public class GVRMesh extends GVRHybridObject implements PrettyPrint {
         checkDivisibleDataLength(parameterName, data, expectedComponents);
     }
 
+    private void checkValidFloatBuffer(String parameterName, FloatBuffer data,
+            int expectedComponents) {
+        checkNotNull(parameterName, data);
+        checkDivisibleDataLength(parameterName, data.remaining(), expectedComponents);
+    }
+
+    private static boolean isNativeBuffer(FloatBuffer buffer) {
+        return buffer.isDirect() && buffer.order() == ByteOrder.nativeOrder();
+    }
+
+    private static float[] toArray(FloatBuffer buffer) {
+        float[] array = new float[buffer.remaining()];
+        buffer.duplicate().get(array);
+        return array;
+    }
+
     private void checkVectorLengthWithVertices(String parameterName,
             int dataLength, int expectedComponents) {
-        int verticesNumber = getVertices().length / 3;
+        int verticesNumber = NativeMesh.getVertexCount(getNative());
         int numberOfElements = dataLength / expectedComponents;
         if (dataLength / expectedComponents != verticesNumber) {
             throw Exceptions
@@ -474,6 +716,10 @@ public class GVRMesh extends GVRHybridObject implements PrettyPrint {
     private List<GVRBone> mBones = new ArrayList<GVRBone>();
     private GVRVertexBoneData mVertexBoneData;
     private Set<String> mAttributeKeys;
+    private volatile long mShaderVersion = GVRRenderData.nextShaderVersion();
+    // Weak, so a mesh does not keep the render data it was once used by
+    private final Set<GVRRenderData> mUsers = Collections
+            .newSetFromMap(new WeakHashMap<GVRRenderData, Boolean>());
 }
 
 class NativeMesh {
@@ -499,6 +745,22 @@ class NativeMesh {
 
     static native void setIndices(long mesh, char[] indices);
 
+    static native int[] getIntIndices(long mesh);
+
+    static native int getVertexCount(long mesh);
+
+    static native void setVerticesBuffer(long mesh, FloatBuffer vertices, int offset, int count);
+
+    static native void setNormalsBuffer(long mesh, FloatBuffer normals, int offset, int count);
+
+    static native void setVec2Buffer(long mesh, String key, FloatBuffer vec2Buffer, int offset, int count, int stride);
+
+    static native void setVec3Buffer(long mesh, String key, FloatBuffer vec3Buffer, int offset, int count);
+
+    static native void setIndicesBuffer(long mesh, IntBuffer indices, int offset, int count);
+
+    static native void setIntIndices(long mesh, int[] indices);
+
     static native float[] getFloatVector(long mesh, String key);
 
     static native void setFloatVector(long mesh, String key, float[] floatVector);
@@ -17,6 +17,7 @@ package org.gearvrf;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.concurrent.locks.ReentrantLock;
 
@@ -71,6 +72,21 @@ public class GVRPicker extends GVRBehavior {
     protected GVRScene mScene;
     protected GVRPickedObject[] mPicked = null;
 
+    /*
+     * Pick state reused every frame so picking does not allocate:
+     * the colliders picked now and by the pick in progress, the array
+     * that becomes mPicked after the next pick, recycled hit objects and
+     * event parameter arrays.
+     */
+    private IdentityHashMap<GVRCollider, GVRPickedObject> mPickedColliders = new IdentityHashMap<GVRCollider, GVRPickedObject>();
+    private IdentityHashMap<GVRCollider, GVRPickedObject> mNextColliders = new IdentityHashMap<GVRCollider, GVRPickedObject>();
+    private GVRPickedObject[] mNextPicked = null;
+    private final ArrayList<GVRPickedObject> mHitPool = new ArrayList<GVRPickedObject>();
+    private final Object[] mEventParams1 = new Object[1];
+    private final Object[] mEventParams2 = new Object[2];
+    private final GVRPicker[] mSelf = { this };
+    private boolean mAutoPick = true;
+
     /**
      * Construct a picker which picks from a given scene.
      * Instantiating the picker will cause it to scan the scene
@@ -125,6 +141,11 @@ public class GVRPicker extends GVRBehavior {
      * of the collision geometry. The objects in the pick
      * list are sorted based on increasing distance
      * from the origin of the pick ray.
+     * <p>
+     * The array and the GVRPickedObjects in it belong to the
+     * picker and are reused by its next pick: copy them (for
+     * example with {@link GVRPickedObject#GVRPickedObject(GVRPickedObject)})
+     * to keep them beyond the current frame.
      * @return GVRPickedObject array with objects picked or null if nothing picked.
      * @see doPick
      * @see IPickEvents
@@ -166,9 +187,34 @@ public class GVRPicker extends GVRBehavior {
         mRayDirection.z = dz;
     }
     
+    /**
+     * Enables or disables picking every frame.
+     *
+     * The picker picks automatically every frame while it is
+     * enabled. Turn this off for pickers that are picked together
+     * with {@link #pickAll(GVRPicker...)}.
+     *
+     * @param autoPick true to pick every frame, false to only
+     *                 pick when asked to
+     * @see #pickAll(GVRPicker...)
+     */
+    public void setAutoPick(boolean autoPick)
+    {
+        mAutoPick = autoPick;
+    }
+
+    /**
+     * @return true if the picker picks every frame while enabled
+     * @see #setAutoPick(boolean)
+     */
+    public boolean isAutoPick()
+    {
+        return mAutoPick;
+    }
+
     public void onDrawFrame(float frameTime)
     {
-        if (isEnabled())
+        if (isEnabled() && mAutoPick)
         {
             doPick();
         }
@@ -181,19 +227,158 @@ public class GVRPicker extends GVRBehavior {
      * the picker every frame.
      * @see IPickEvents 
      * @see pickObjects
+     * @see pickAll
      */
     protected void doPick()
     {
-        GVRSceneObject owner = getOwnerObject();
-        GVRTransform trans = (owner != null) ? owner.getTransform() : null;
-        GVRPickedObject[] picked = pickObjects(mScene, trans,
-                mRayOrigin.x, mRayOrigin.y, mRayOrigin.z,
-                mRayDirection.x, mRayDirection.y, mRayDirection.z);
-        generatePickEvents(picked);
+        pickAll(mSelf);
+    }
+
+    /**
+     * Picks for several pickers with a single call into the scene
+     * graph and then generates the pick events of each picker, in order.
+     *
+     * All the pickers must pick from the same scene. Each one casts
+     * its own {@linkplain #setPickRay(float, float, float, float, float, float) pick ray}
+     * from its owner object (or the camera) exactly as {@link #doPick()}
+     * would. Typical use is a gaze picker and two controller pickers:
+     * turn off {@linkplain #setAutoPick(boolean) auto picking} for all of
+     * them and call this once per frame from a frame listener.
+     *
+     * <p>
+     * The hit objects and arrays reported by pickers that pick this way
+     * (including a single picker picking every frame) are reused from
+     * frame to frame. Copy any hit data you want to keep beyond the
+     * current frame.
+     *
+     * @param pickers pickers to pick for
+     * @see #setAutoPick(boolean)
+     * @see IPickEvents
+     */
+    public static void pickAll(GVRPicker... pickers)
+    {
+        final int numRays = pickers.length;
+        if (numRays == 0)
+        {
+            return;
+        }
+        final GVRScene scene = pickers[0].mScene;
+
+        sFindObjectsLock.lock();
+        try
+        {
+            if (sRayTransforms.length < numRays)
+            {
+                sRayTransforms = new long[numRays];
+                sRays = new float[numRays * RAY_SIZE];
+                sHitCounts = new int[numRays];
+            }
+            for (int i = 0; i < numRays; ++i)
+            {
+                final GVRPicker picker = pickers[i];
+                if (picker.mScene != scene)
+                {
+                    throw new IllegalArgumentException("All pickers must pick from the same scene");
+                }
+                final GVRSceneObject owner = picker.getOwnerObject();
+                final int r = i * RAY_SIZE;
+                sRayTransforms[i] = (owner != null) ? owner.getTransform().getNative() : 0L;
+                sRays[r] = picker.mRayOrigin.x;
+                sRays[r + 1] = picker.mRayOrigin.y;
+                sRays[r + 2] = picker.mRayOrigin.z;
+                sRays[r + 3] = picker.mRayDirection.x;
+                sRays[r + 4] = picker.mRayDirection.y;
+                sRays[r + 5] = picker.mRayDirection.z;
+            }
+
+            // Native replaces the hit buffers with larger ones if they are too small
+            NativePicker.pickObjectsBatch(scene.getNative(), sRayTransforms, sRays, numRays,
+                    sHitCounts, sHitBuffers);
+            final long[] hitColliders = (long[]) sHitBuffers[0];
+            final float[] hitData = (float[]) sHitBuffers[1];
+
+            int first = 0;
+            for (int i = 0; i < numRays; ++i)
+            {
+                pickers[i].collectHits(hitColliders, hitData, first, sHitCounts[i]);
+                first += sHitCounts[i];
+            }
+        }
+        finally
+        {
+            sFindObjectsLock.unlock();
+        }
+
+        for (GVRPicker picker : pickers)
+        {
+            picker.generatePickEvents(picker.mNextPicked, picker.mNextColliders, true);
+        }
+    }
+
+    /*
+     * Fill mNextPicked and mNextColliders from the hits of a batched pick,
+     * updating the hit objects of colliders that stay picked in place and
+     * taking new ones from the pool.
+     */
+    private void collectHits(long[] colliders, float[] hitData, int first, int count)
+    {
+        GVRPickedObject[] picked = mNextPicked;
+        if ((picked == null) || (picked.length != count) || (picked == mPicked))
+        {
+            picked = new GVRPickedObject[count];
+        }
+        mNextColliders.clear();
+
+        int n = 0;
+        for (int i = first, end = first + count; i < end; ++i)
+        {
+            final GVRCollider collider = GVRCollider.lookup(colliders[i]);
+            if (collider == null)
+            {
+                continue;
+            }
+            GVRPickedObject hit = mPickedColliders.get(collider);
+            if (hit == null)
+            {
+                final int poolSize = mHitPool.size();
+                hit = (poolSize > 0) ? mHitPool.remove(poolSize - 1) : new GVRPickedObject();
+            }
+            final int h = i * HIT_SIZE;
+            hit.set(collider, hitData[h], hitData[h + 1], hitData[h + 2], hitData[h + 3]);
+            mNextColliders.put(collider, hit);
+            picked[n++] = hit;
+        }
+        // Unknown colliders leave trailing nulls, like pickObjects does
+        while (n < count)
+        {
+            picked[n++] = null;
+        }
+        mNextPicked = picked;
     }
 
     protected void generatePickEvents(GVRPickedObject[] picked)
     {
+        mNextColliders.clear();
+        for (GVRPickedObject collision : picked)
+        {
+            if (collision != null)
+            {
+                mNextColliders.put(collision.hitCollider, collision);
+            }
+        }
+        generatePickEvents(picked, mNextColliders, false);
+    }
+
+    /*
+     * Compares the picked colliders against the ones picked last time,
+     * sends the pick events and makes picked the current pick list.
+     * If recycle is true, hit objects that are no longer picked go back
+     * to the pool.
+     */
+    private void generatePickEvents(GVRPickedObject[] picked,
+            IdentityHashMap<GVRCollider, GVRPickedObject> pickedColliders, boolean recycle)
+    {
+        final GVREventManager eventManager = getGVRContext().getEventManager();
         boolean selectionChanged = false;
 
         /*
@@ -209,10 +394,14 @@ public class GVRPicker extends GVRBehavior {
                     continue;
                 }
                 GVRCollider collider = collision.hitCollider;
-                if (!hasCollider(picked, collider))
+                if (!pickedColliders.containsKey(collider))
                 {
-                    getGVRContext().getEventManager().sendEvent(mScene, IPickEvents.class, "onExit", collider.getOwnerObject());
+                    sendPickEvent(eventManager, "onExit", collider.getOwnerObject());
                     selectionChanged = true;
+                    if (recycle)
+                    {
+                        mHitPool.add(collision);
+                    }
                 }
             }
         }
@@ -233,45 +422,61 @@ public class GVRPicker extends GVRBehavior {
             pickedCount++;
 
             GVRCollider collider = collision.hitCollider;
-            if (!hasCollider(mPicked, collider))
+            if (!mPickedColliders.containsKey(collider))
             {
-                getGVRContext().getEventManager().sendEvent(mScene, IPickEvents.class, "onEnter", collider.getOwnerObject(), collision);
+                sendPickEvent(eventManager, "onEnter", collider.getOwnerObject(), collision);
                 selectionChanged = true;
             }
             else
             {
-                getGVRContext().getEventManager().sendEvent(mScene, IPickEvents.class, "onInside", collider.getOwnerObject(), collision);
+                sendPickEvent(eventManager, "onInside", collider.getOwnerObject(), collision);
             }
         }
+
+        // The old pick list becomes the buffer for the next pick
+        final GVRPickedObject[] previous = mPicked;
+        mPicked = (pickedCount > 0) ? picked : null;
+        if (recycle)
+        {
+            mNextPicked = previous;
+        }
+        final IdentityHashMap<GVRCollider, GVRPickedObject> previousColliders = mPickedColliders;
+        mPickedColliders = pickedColliders;
+        mNextColliders = previousColliders;
+        mNextColliders.clear();
+
         if (selectionChanged)
         {
             if (pickedCount > 0)
             {
-                mPicked = picked;
-                getGVRContext().getEventManager().sendEvent(mScene, IPickEvents.class, "onPick", this);
+                sendPickEvent(eventManager, "onPick", this);
             }
             else
             {
-                mPicked = null;
-                getGVRContext().getEventManager().sendEvent(mScene, IPickEvents.class, "onNoPick", this);
+                sendPickEvent(eventManager, "onNoPick", this);
             }
         }
     }
 
-    private boolean hasCollider(GVRPickedObject[] pickList, GVRCollider findme)
+    /*
+     * Send a pick event to the scene, reusing the parameter arrays.
+     */
+    private void sendPickEvent(GVREventManager eventManager, String eventName, Object param)
     {
-        if (pickList == null)
-        {
-            return false;
-        }
-        for (GVRPickedObject hit : pickList)
-        {
-            if ((hit != null) && (hit.hitCollider == findme))
-            {
-                return true;
-            }
-        }
-        return false;
+        mEventParams1[0] = param;
+        eventManager.sendEventWithMaskParamArray(GVREventManager.SEND_MASK_ALL, mScene,
+                IPickEvents.class, eventName, mEventParams1);
+        mEventParams1[0] = null;
+    }
+
+    private void sendPickEvent(GVREventManager eventManager, String eventName, Object param1, Object param2)
+    {
+        mEventParams2[0] = param1;
+        mEventParams2[1] = param2;
+        eventManager.sendEventWithMaskParamArray(GVREventManager.SEND_MASK_ALL, mScene,
+                IPickEvents.class, eventName, mEventParams2);
+        mEventParams2[0] = null;
+        mEventParams2[1] = null;
     }
     
     /**
@@ -607,6 +812,16 @@ public class GVRPicker extends GVRBehavior {
      * 
      * When a pick request is performed, each collision is
      * described as a GVRPickedObject.
+     *
+     * <p>
+     * <b>Pickers reuse their GVRPickedObjects.</b> So that picking
+     * every frame does not allocate, the objects a picker reports
+     * (from {@link GVRPicker#getPicked()} and in {@link IPickEvents})
+     * are updated in place while their collider stays picked, and are
+     * recycled for other hits once it is no longer picked. Their fields
+     * are therefore only valid until the picker picks again. Use
+     * {@link #GVRPickedObject(GVRPickedObject)} to keep a hit.
+     * Objects returned by the static pick functions are not reused.
      * 
      * @since 1.6.6
      * @see GVRPicker.pickScene
@@ -614,10 +829,14 @@ public class GVRPicker extends GVRBehavior {
      * @see GVRPicker.pickObjects
      */
     public static final class GVRPickedObject {
-        public final GVRSceneObject hitObject;
-        public final GVRCollider hitCollider;
+        /** Scene object hit; updated in place by pickers, see above. */
+        public GVRSceneObject hitObject;
+        /** Collider hit; updated in place by pickers, see above. */
+        public GVRCollider hitCollider;
+        /** Hit location; updated in place by pickers, see above. */
         public final float[] hitLocation;
-        public final float hitDistance;
+        /** Distance from the ray origin; updated in place by pickers, see above. */
+        public float hitDistance;
 
         /**
          * Creates a new instance of {@link GVRPickedObject}.
@@ -640,6 +859,37 @@ public class GVRPicker extends GVRBehavior {
             this.hitLocation = hitLocation;
         }
 
+        /**
+         * Creates a copy of a hit that is not reused by any picker.
+         *
+         * @param hit the hit to copy
+         */
+        public GVRPickedObject(GVRPickedObject hit) {
+            hitObject = hit.hitObject;
+            hitCollider = hit.hitCollider;
+            hitDistance = hit.hitDistance;
+            hitLocation = Arrays.copyOf(hit.hitLocation, hit.hitLocation.length);
+        }
+
+        /*
+         * Creates an empty hit for the picker's pool.
+         */
+        GVRPickedObject() {
+            hitLocation = new float[3];
+        }
+
+        /*
+         * Reuses this object for a new hit.
+         */
+        void set(GVRCollider collider, float distance, float hitx, float hity, float hitz) {
+            hitCollider = collider;
+            hitObject = collider.getOwnerObject();
+            hitDistance = distance;
+            hitLocation[0] = hitx;
+            hitLocation[1] = hity;
+            hitLocation[2] = hitz;
+        }
+
         /**
          * The {@link GVRSceneObject} that the ray intersected.
          *
@@ -696,6 +946,17 @@ public class GVRPicker extends GVRBehavior {
     }
 
     static final ReentrantLock sFindObjectsLock = new ReentrantLock();
+
+    /*
+     * Batched pick buffers, guarded by sFindObjectsLock. A ray is
+     * origin and direction; a hit is distance and hit position.
+     */
+    private static final int RAY_SIZE = 6;
+    private static final int HIT_SIZE = 4;
+    private static long[] sRayTransforms = new long[4];
+    private static float[] sRays = new float[4 * RAY_SIZE];
+    private static int[] sHitCounts = new int[4];
+    private static final Object[] sHitBuffers = { new long[32], new float[32 * HIT_SIZE] };
 }
 
 final class NativePicker {
@@ -705,6 +966,9 @@ final class NativePicker {
     static native GVRPicker.GVRPickedObject[] pickObjects(long scene, long transform, float ox, float oy, float oz,
             float dx, float dy, float dz);
 
+    static native int pickObjectsBatch(long scene, long[] transforms, float[] rays, int numRays,
+            int[] counts, Object[] hitBuffers);
+
     static native float pickSceneObject(long sceneObject, long cameraRig);
 
     static native GVRPicker.GVRPickedObject[] pickVisible(long scene);
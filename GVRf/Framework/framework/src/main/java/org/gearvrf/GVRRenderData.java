@@ -27,6 +27,7 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static android.opengl.GLES30.GL_LINES;
 import static android.opengl.GLES30.GL_LINE_LOOP;
@@ -56,6 +57,20 @@ public class GVRRenderData extends GVRComponent implements PrettyPrint {
     private GVRShaderTemplate mShaderTemplate;
     private HashMap<String, Integer> mShaderFeatures = new HashMap<String, Integer>();
 
+    // Versions of what shader variants depend on, for incremental
+    // GVRScene.bindShaders(); see getShaderInputVersion()
+    private static final AtomicLong sShaderVersion = new AtomicLong();
+    // Settings of this render data that getRenderDefines() may read
+    private volatile long mShaderVersion = nextShaderVersion();
+    // What the shader was last bound with
+    private GVRShaderTemplate mBoundTemplate;
+    private GVRMaterial mBoundMaterial;
+    private GVRMesh mBoundMesh;
+    private GVRScene mBoundScene;
+    private boolean mBoundLit;
+    private boolean mBoundLightMap;
+    private long mBoundVersion = -1;
+
     /**
      * Rendering hints.
      * 
@@ -161,11 +176,28 @@ public class GVRRenderData extends GVRComponent implements PrettyPrint {
      *            The mesh to be rendered.
      */
     public void setMesh(GVRMesh mesh) {
+        GVRMesh previous;
         synchronized (this) {
+            previous = mMesh;
             mMesh = mesh;
             mFutureMesh = null;
         }
         NativeRenderData.setMesh(getNative(), mesh.getNative());
+        if (previous != null) {
+            previous.removeUser(this);
+        }
+        mesh.addUser(this);
+        onBoundsChanged();
+    }
+
+    /*
+     * Marks the owner for the spatial index of its scene.
+     */
+    void onBoundsChanged() {
+        GVRSceneObject owner = getOwnerObject();
+        if (owner != null) {
+            owner.onContentChanged();
+        }
     }
 
     /**
@@ -437,6 +469,10 @@ public class GVRRenderData extends GVRComponent implements PrettyPrint {
         isLightEnabled = true;
     }
 
+    GVRShaderTemplate getShaderTemplate() {
+        return mShaderTemplate;
+    }
+
     /**
      * Set the shader template to use for rendering the mesh.
      * 
@@ -488,10 +524,85 @@ public class GVRRenderData extends GVRComponent implements PrettyPrint {
      */
     public void bindShader(GVRScene scene) {
         if (mShaderTemplate != null) {
+            long version = getShaderInputVersion(scene);
             mShaderTemplate.bindShader(scene.getGVRContext(), this, scene);
+            setShaderBound(scene, version);
          }
     }
 
+    /**
+     * @return a new, larger shader input version
+     */
+    static long nextShaderVersion() {
+        return sShaderVersion.incrementAndGet();
+    }
+
+    /**
+     * Makes the next {@link GVRScene#bindShaders()} bind this render data's
+     * shader again. Call it after changing a setting that the
+     * {@link GVRShaderTemplate#getRenderDefines(GVRRenderData, GVRScene)
+     * getRenderDefines} of its shader template reads, other than the mesh,
+     * material, lighting and light map settings, which are tracked already.
+     */
+    public void invalidateShader() {
+        mShaderVersion = nextShaderVersion();
+    }
+
+    /*
+     * The newest version of what the shader variant of this render data
+     * depends on: its own settings, its shader template, the attributes of
+     * its mesh, the uniforms and textures of its material and, if it is lit,
+     * the lights of the scene.
+     */
+    private long getShaderInputVersion(GVRScene scene) {
+        long version = mShaderVersion;
+        GVRShaderTemplate template = mShaderTemplate;
+        if (template != null) {
+            version = Math.max(version, template.getShaderVersion());
+        }
+        GVRMaterial material = getMaterial();
+        if (material != null) {
+            version = Math.max(version, material.getShaderVersion());
+        }
+        GVRMesh mesh = getMesh();
+        if (mesh != null) {
+            version = Math.max(version, mesh.getShaderVersion());
+        }
+        if (isLightEnabled && (scene != null)) {
+            version = Math.max(version, scene.getLightsVersion());
+        }
+        return version;
+    }
+
+    private void setShaderBound(GVRScene scene, long version) {
+        mBoundTemplate = mShaderTemplate;
+        mBoundMaterial = getMaterial();
+        mBoundMesh = mMesh;
+        mBoundLit = isLightEnabled;
+        mBoundLightMap = mLightMapEnabled;
+        mBoundScene = scene;
+        mBoundVersion = version;
+    }
+
+    /**
+     * Tells whether {@link #bindShader(GVRScene)} would pick the same shader
+     * variant it picked last time, because nothing the variant depends on has
+     * changed since. Render data without a shader template never need
+     * binding.
+     */
+    boolean isShaderBound(GVRScene scene) {
+        if (mShaderTemplate == null) {
+            return true;
+        }
+        return (mBoundTemplate == mShaderTemplate)
+                && (mBoundMaterial == getMaterial())
+                && (mBoundMesh == getMesh())
+                && (mBoundLit == isLightEnabled)
+                && (mBoundLightMap == mLightMapEnabled)
+                && (!isLightEnabled || (mBoundScene == scene))
+                && (mBoundVersion >= getShaderInputVersion(scene));
+    }
+
     /**
      * @return The {@link GVRLight light} the {@link GVRMesh mesh} is being lit
      *         by.
@@ -536,7 +647,9 @@ public class GVRRenderData extends GVRComponent implements PrettyPrint {
             NativeRenderData.disableLight(getNative());
             isLightEnabled = false;
             if (mShaderTemplate != null) {
+                long version = getShaderInputVersion(null);
                 mShaderTemplate.bindShader(getGVRContext(),  this,  null);
+                setShaderBound(null, version);
             }
         }
     }
@@ -547,7 +660,10 @@ public class GVRRenderData extends GVRComponent implements PrettyPrint {
     public void enableLightMap() {
 
         NativeRenderData.enableLightMap(getNative());
-        mLightMapEnabled = true;
+        if (!mLightMapEnabled) {
+            mLightMapEnabled = true;
+            invalidateShader();
+        }
     }
 
     /**
@@ -556,7 +672,10 @@ public class GVRRenderData extends GVRComponent implements PrettyPrint {
     public void disableLightMap() {
 
         NativeRenderData.disableLightMap(getNative());
-        mLightMapEnabled = false;
+        if (mLightMapEnabled) {
+            mLightMapEnabled = false;
+            invalidateShader();
+        }
     }
 
     /**
@@ -63,10 +63,19 @@ public class GVRScene extends GVRHybridObject implements PrettyPrint, IScriptabl
     private GVRCameraRig mMainCameraRig;
     private StringBuilder mStatMessage = new StringBuilder();
     private Set<GVRLightBase> mLightList = new HashSet<GVRLightBase>();
+    // Bumped whenever the lights a lit shader variant depends on change
+    private volatile long mLightsVersion = GVRRenderData.nextShaderVersion();
+    private boolean mLightsCastShadow;
+    // What bindShaders() last collected, and the structure version then
+    private ArrayList<GVRLightBase> mCollectedLights;
+    private ArrayList<GVRRenderData> mCollectedRenderers;
+    private long mCollectedVersion = -1;
+    private volatile int mLastShaderRebindCount;
     private GVREventReceiver mEventReceiver = new GVREventReceiver(this);
     private GVRMaterial mShadowMaterial = null;
     private boolean mShadowMapDirty = true;
     private GVRSceneObject mSceneRoot;
+    private GVRSpatialIndex mSpatialIndex;
     /**
      * Constructs a scene with a camera rig holding left & right cameras in it.
      * 
@@ -149,7 +158,9 @@ public class GVRScene extends GVRHybridObject implements PrettyPrint, IScriptabl
         synchronized (mLightList)
         {
             mLightList.clear();
+            mLightsVersion = GVRRenderData.nextShaderVersion();
         }
+        mCollectedVersion = -1;
         mSceneRoot = new GVRSceneObject(getGVRContext());
         mSceneRoot.addChildObject(head);
         NativeScene.addSceneObject(getNative(), mSceneRoot.getNative());
@@ -261,6 +272,34 @@ public class GVRScene extends GVRHybridObject implements PrettyPrint, IScriptabl
         return mSceneRoot.getSceneObjectByName(name);
     }
 
+    /**
+     * Finds the scene objects whose tag equals {@code tag}.
+     *
+     * @param tag
+     * @return the matches in depth-first order; null if nothing was found or
+     *         tag was null
+     * @see GVRSceneObject#getSceneObjectsByTag(Object)
+     */
+    public GVRSceneObject[] getSceneObjectsByTag(final Object tag) {
+        return mSceneRoot.getSceneObjectsByTag(tag);
+    }
+
+    /**
+     * Gets the spatial index of this scene, which answers ray, sphere, box,
+     * frustum and nearest-object queries about all its scene objects. The
+     * index is built on the first call and kept current as objects are
+     * added, removed and moved.
+     *
+     * @return the spatial index
+     * @see GVRSpatialIndex
+     */
+    public synchronized GVRSpatialIndex getSpatialIndex() {
+        if (mSpatialIndex == null) {
+            mSpatialIndex = new GVRSpatialIndex(this);
+        }
+        return mSpatialIndex;
+    }
+
     /**
      * Enable / disable picking of visible objects.
      * Picking only visible objects is enabled by default.
@@ -410,26 +449,64 @@ public class GVRScene extends GVRHybridObject implements PrettyPrint, IScriptabl
      * If new assets are loaded that add lights to the scene after initialization,
      * bindShaders may need to be called again to regenerate the correct shaders
      * for the new lighting conditions.
+     *
+     * Only render data whose mesh, material, shader template or lights have
+     * changed since their shaders were last bound are rebuilt.
      * {@link GVRRenderData.bindShader GVRShaderTemplate }
+     * @see #getLastShaderRebindCount()
      */
     public void bindShaders() {
-        clearLights();
-
-        class AddLights implements GVRSceneObject.ComponentVisitor
+        long structureVersion = GVRSceneObject.getStructureVersion();
+        if (structureVersion != mCollectedVersion)
         {
-            @Override
-            public boolean visit(GVRComponent comp) {
-                addLight((GVRLightBase) comp);
-                return true;
-            }
+            mCollectedLights = mSceneRoot.getAllComponents(GVRLightBase.getComponentType());
+            mCollectedRenderers = mSceneRoot.getAllComponents(GVRRenderData.getComponentType());
+            mCollectedVersion = structureVersion;
         }
+        updateLights(mCollectedLights);
 
-        AddLights addLightCV = new AddLights();
-        mSceneRoot.forAllComponents(addLightCV, GVRLightBase.getComponentType());
+        int rebuilt = 0;
+        for (GVRRenderData rdata : mCollectedRenderers) {
+            if (!rdata.isShaderBound(this)) {
+                rdata.bindShader(this);
+                ++rebuilt;
+            }
+        }
+        if (rebuilt > 0) {
+            Log.d(TAG, "bindShaders: rebuilt %d of %d render data", rebuilt,
+                    mCollectedRenderers.size());
+        }
+        mLastShaderRebindCount = rebuilt;
+    }
 
-        ArrayList<GVRRenderData> renderers = mSceneRoot.getAllComponents(GVRRenderData.getComponentType());
-        for (GVRRenderData rdata : renderers) {
-            rdata.bindShader(this);
+    /*
+     * Makes the scene's lights the given ones. The native light list is only
+     * rebuilt, and lit shaders only invalidated, if the set of lights or
+     * whether any of them casts shadows has changed.
+     */
+    private void updateLights(List<GVRLightBase> lights) {
+        synchronized (mLightList)
+        {
+            boolean castShadow = false;
+            for (GVRLightBase light : lights) {
+                if (light.getCastShadow()) {
+                    castShadow = true;
+                    break;
+                }
+            }
+            if (castShadow != mLightsCastShadow) {
+                mLightsCastShadow = castShadow;
+                mLightsVersion = GVRRenderData.nextShaderVersion();
+            }
+            // Lights past MAX_LIGHTS are never added
+            List<GVRLightBase> used = lights.subList(0, Math.min(lights.size(), MAX_LIGHTS));
+            if ((used.size() == mLightList.size()) && mLightList.containsAll(used)) {
+                return;
+            }
+            clearLights();
+            for (GVRLightBase light : lights) {
+                addLight(light);
+            }
         }
     }
 
@@ -445,6 +522,7 @@ public class GVRScene extends GVRHybridObject implements PrettyPrint, IScriptabl
      * @see GVRRenderData.bindShader
      * @see GVRShaderTemplate
      * @see GVRScene.addSceneObject
+     * @see #getLastShaderRebindCount()
      */
     public void bindShaders(GVRSceneObject root) {
         ArrayList<GVRLightBase> lights = root.getAllComponents(GVRLightBase.getComponentType());
@@ -463,11 +541,26 @@ public class GVRScene extends GVRHybridObject implements PrettyPrint, IScriptabl
         {
             ArrayList<GVRRenderData> renderDataList = root.getAllComponents(GVRRenderData
                     .getComponentType());
+            int rebuilt = 0;
             for (GVRRenderData renderData : renderDataList) {
-                renderData.bindShader(this);
-            }           
+                if (!renderData.isShaderBound(this)) {
+                    renderData.bindShader(this);
+                    ++rebuilt;
+                }
+            }
+            mLastShaderRebindCount = rebuilt;
         }
     }
+
+    /**
+     * Tells how much work the last {@link #bindShaders()} or
+     * {@link #bindShaders(GVRSceneObject)} call did.
+     *
+     * @return how many render data had their shaders rebuilt by the last call
+     */
+    public int getLastShaderRebindCount() {
+        return mLastShaderRebindCount;
+    }
         
     /**
      * Add a light to the scene's light list.
@@ -489,6 +582,7 @@ public class GVRScene extends GVRHybridObject implements PrettyPrint, IScriptabl
             {
                 mLightList.add(light);
                 NativeLight.setLightID(light.getNative(), name);
+                mLightsVersion = GVRRenderData.nextShaderVersion();
                 return true;
             }
         }
@@ -504,11 +598,20 @@ public class GVRScene extends GVRHybridObject implements PrettyPrint, IScriptabl
             if(mLightList.size() != 0){
                 mLightList.clear();
                 NativeScene.clearLights(getNative());
+                mLightsVersion = GVRRenderData.nextShaderVersion();
             }
 
         }
     }
     
+    /**
+     * @return the version of the scene's lights, which changes whenever
+     *         shaders of lit render data need to be rebuilt
+     */
+    long getLightsVersion() {
+        return mLightsVersion;
+    }
+
     /**
      * Get the list of lights used by this scene.
      * 
@@ -16,13 +16,17 @@
 package org.gearvrf;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.gearvrf.GVRMaterial.GVRShaderType;
 import org.gearvrf.GVRMaterial.GVRShaderType.Texture;
@@ -67,6 +71,34 @@ public class GVRSceneObject extends GVRHybridObject implements PrettyPrint, IScr
     private final List<GVRSceneObject> mChildren = new CopyOnWriteArrayList<GVRSceneObject>();
     private final GVREventReceiver mEventReceiver = new GVREventReceiver(this);
 
+    /*
+     * Lets GVRScene.bindShaders() skip collecting lights and render data when
+     * no object, sensor or component was added or removed anywhere.
+     */
+    private static final AtomicLong sStructureVersion = new AtomicLong();
+
+    /*
+     * Marks for the spatial index of the scene: a transform change, or a
+     * change to the children, components, sensor or mesh of an object, marks
+     * the object, then its ancestors up to the first one already marked, so
+     * the index walks down the marked branches only, clearing the marks as it
+     * goes. Objects whose transform native code sets are polled instead.
+     */
+    private volatile boolean mTransformMarked;
+    private volatile boolean mContentMarked;
+    private volatile boolean mDescendantMarked;
+    private volatile boolean mNativeTransform;
+    private float[] mNativeMatrix;
+    private float[] mNativeMatrixScratch;
+
+    // Guards the child lists as seen by the name indices, and the indices
+    private static final Object sIndexLock = new Object();
+    // Names and tags of the whole tree; only an object without a parent has
+    // one, built on the first lookup in its tree
+    private SceneObjectIndex mIndex;
+    // Whether a class overrides getSceneObjectsByName(String, List)
+    private static final Map<Class<?>, Boolean> sNameLookupOverrides = new ConcurrentHashMap<Class<?>, Boolean>();
+
     /**
      * Constructs an empty scene object with a default {@link GVRTransform
      * transform}.
@@ -301,7 +333,13 @@ public class GVRSceneObject extends GVRHybridObject implements PrettyPrint, IScr
      *            Name of the object.
      */
     public void setName(String name) {
-        NativeSceneObject.setName(getNative(), name);
+        synchronized (sIndexLock) {
+            NativeSceneObject.setName(getNative(), name);
+            SceneObjectIndex index = getTreeRoot().mIndex;
+            if (index != null) {
+                index.rename(this, name);
+            }
+        }
     }
 
     /**
@@ -315,7 +353,13 @@ public class GVRSceneObject extends GVRHybridObject implements PrettyPrint, IScr
      * @see #getTag()
      */
     public void setTag(Object tag) {
-        mTag = tag;
+        synchronized (sIndexLock) {
+            SceneObjectIndex index = getTreeRoot().mIndex;
+            if (index != null) {
+                index.retag(this, mTag, tag);
+            }
+            mTag = tag;
+        }
     }
 
     /**
@@ -352,6 +396,8 @@ public class GVRSceneObject extends GVRHybridObject implements PrettyPrint, IScr
             if (!mComponents.containsKey(type)) {
                 mComponents.put(type, component);
                 component.setOwnerObject(this);
+                onContentChanged();
+                onStructureChanged();
                 return true;
             }
         }
@@ -376,6 +422,8 @@ public class GVRSceneObject extends GVRHybridObject implements PrettyPrint, IScr
             GVRComponent component = mComponents.remove(type);
             if (component != null) {
                 component.setOwnerObject(null);
+                onContentChanged();
+                onStructureChanged();
             }
             return component;
         }
@@ -753,9 +801,20 @@ public class GVRSceneObject extends GVRHybridObject implements PrettyPrint, IScr
         if (child.mParent != null) {
             throw new UnsupportedOperationException("GVRSceneObject cannot have multiple parents");
         }
-        mChildren.add(child);
-        child.mParent = this;
+        synchronized (sIndexLock) {
+            mChildren.add(child);
+            child.mParent = this;
+            // The child's tree is now part of this one
+            child.mIndex = null;
+            SceneObjectIndex index = getTreeRoot().mIndex;
+            if (index != null) {
+                index.addSubtree(child);
+            }
+        }
         NativeSceneObject.addChildObject(getNative(), child.getNative());
+        child.onTransformChanged();
+        onContentChanged();
+        onStructureChanged();
         return true;
     }
 
@@ -767,9 +826,20 @@ public class GVRSceneObject extends GVRHybridObject implements PrettyPrint, IScr
      *            object.
      */
     public void removeChildObject(GVRSceneObject child) {
-        mChildren.remove(child);
-        child.mParent = null;
+        synchronized (sIndexLock) {
+            if (mChildren.remove(child)) {
+                // The child builds an index of its own tree when asked
+                SceneObjectIndex index = getTreeRoot().mIndex;
+                if (index != null) {
+                    index.removeSubtree(child);
+                }
+            }
+            child.mParent = null;
+        }
         NativeSceneObject.removeChildObject(getNative(), child.getNative());
+        child.onTransformChanged();
+        onContentChanged();
+        onStructureChanged();
     }
     /**
      * Add the owner of {@code childComponent} as a child of this object. (owner object of the
@@ -902,9 +972,14 @@ public class GVRSceneObject extends GVRHybridObject implements PrettyPrint, IScr
             return null;
         }
 
-        final List<GVRSceneObject> matches = new ArrayList<GVRSceneObject>();
-        getSceneObjectsByName(name, matches);
-        return 0 != matches.size() ? matches.toArray(new GVRSceneObject[matches.size()]) : null;
+        if (usesNameLookupOverrides()) {
+            List<GVRSceneObject> matches = new ArrayList<GVRSceneObject>();
+            getSceneObjectsByName(name, matches);
+            return matches.isEmpty() ? null : matches.toArray(new GVRSceneObject[matches.size()]);
+        }
+        synchronized (sIndexLock) {
+            return toDepthFirstArray(inSubtree(getIndex().findByName(name)));
+        }
     }
 
     /**
@@ -918,18 +993,170 @@ public class GVRSceneObject extends GVRHybridObject implements PrettyPrint, IScr
         if (null == name || name.isEmpty()) {
             return null;
         }
-        if (getName().equals(name)) {
-            return this;
+
+        if (usesNameLookupOverrides()) {
+            List<GVRSceneObject> matches = new ArrayList<GVRSceneObject>();
+            getSceneObjectsByName(name, matches);
+            return matches.isEmpty() ? null : matches.get(0);
         }
-        for (GVRSceneObject child : mChildren) {
-            GVRSceneObject found = child.getSceneObjectByName(name);
-            if (found != null) {
-                return found;
+        synchronized (sIndexLock) {
+            List<GVRSceneObject> matches = inSubtree(getIndex().findByName(name));
+            GVRSceneObject first = null;
+            for (GVRSceneObject match : matches) {
+                if (first == null || comesBefore(match, first)) {
+                    first = match;
+                }
             }
+            return first;
         }
-        return null;
     }
 
+    /**
+     * Finds the scene objects in this subtree, including this one, whose tag
+     * {@linkplain Object#equals(Object) equals} {@code tag}. Like names, tags
+     * are indexed, so a tag's hash code must not change while it is set.
+     *
+     * @param tag
+     * @return the matches in depth-first order; null if nothing was found or
+     *         tag was null
+     * @see #setTag(Object)
+     */
+    public GVRSceneObject[] getSceneObjectsByTag(final Object tag) {
+        if (null == tag) {
+            return null;
+        }
+
+        synchronized (sIndexLock) {
+            return toDepthFirstArray(inSubtree(getIndex().findByTag(tag)));
+        }
+    }
+
+    /*
+     * The name and tag index of the tree this object is in; call with
+     * sIndexLock held.
+     */
+    private SceneObjectIndex getIndex() {
+        GVRSceneObject root = getTreeRoot();
+        if (root.mIndex == null) {
+            root.mIndex = new SceneObjectIndex();
+            root.mIndex.addSubtree(root);
+        }
+        return root.mIndex;
+    }
+
+    private GVRSceneObject getTreeRoot() {
+        GVRSceneObject root = this;
+        while (root.mParent != null) {
+            root = root.mParent;
+        }
+        return root;
+    }
+
+    /*
+     * The matches below this object, or all of them if this is the root.
+     */
+    private List<GVRSceneObject> inSubtree(List<GVRSceneObject> matches) {
+        if (mParent == null || matches.isEmpty()) {
+            return matches;
+        }
+        List<GVRSceneObject> result = new ArrayList<GVRSceneObject>(matches.size());
+        for (GVRSceneObject match : matches) {
+            for (GVRSceneObject o = match; o != null; o = o.mParent) {
+                if (o == this) {
+                    result.add(match);
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    /*
+     * Whether a subclass in this tree overrides
+     * getSceneObjectsByName(String, List), so name lookups must walk the
+     * subtree through it rather than use the index.
+     */
+    private boolean usesNameLookupOverrides() {
+        synchronized (sIndexLock) {
+            return getIndex().hasNameLookupOverrides();
+        }
+    }
+
+    /*
+     * Whether the class of an object overrides
+     * getSceneObjectsByName(String, List).
+     */
+    static boolean overridesNameLookup(GVRSceneObject object) {
+        Class<?> type = object.getClass();
+        Boolean overrides = sNameLookupOverrides.get(type);
+        if (overrides == null) {
+            overrides = false;
+            for (Class<?> c = type; c != GVRSceneObject.class; c = c.getSuperclass()) {
+                try {
+                    c.getDeclaredMethod("getSceneObjectsByName", String.class, List.class);
+                    overrides = true;
+                    break;
+                } catch (NoSuchMethodException e) {
+                    // Not in this class
+                }
+            }
+            sNameLookupOverrides.put(type, overrides);
+        }
+        return overrides;
+    }
+
+    private static GVRSceneObject[] toDepthFirstArray(List<GVRSceneObject> matches) {
+        if (matches.isEmpty()) {
+            return null;
+        }
+        GVRSceneObject[] array = matches.toArray(new GVRSceneObject[matches.size()]);
+        if (array.length > 1) {
+            Arrays.sort(array, new Comparator<GVRSceneObject>() {
+                @Override
+                public int compare(GVRSceneObject lhs, GVRSceneObject rhs) {
+                    return lhs == rhs ? 0 : comesBefore(lhs, rhs) ? -1 : 1;
+                }
+            });
+        }
+        return array;
+    }
+
+    /*
+     * Whether a depth-first walk of the graph reaches a before b.
+     */
+    private static boolean comesBefore(GVRSceneObject a, GVRSceneObject b) {
+        List<GVRSceneObject> pathA = pathFromRoot(a);
+        List<GVRSceneObject> pathB = pathFromRoot(b);
+        int i = 0;
+        while (i < pathA.size() && i < pathB.size() && pathA.get(i) == pathB.get(i)) {
+            ++i;
+        }
+        if (i == pathA.size() || i == pathB.size()) {
+            // One is an ancestor of the other
+            return pathA.size() < pathB.size();
+        }
+        List<GVRSceneObject> siblings = pathA.get(i - 1).mChildren;
+        return siblings.indexOf(pathA.get(i)) < siblings.indexOf(pathB.get(i));
+    }
+
+    private static List<GVRSceneObject> pathFromRoot(GVRSceneObject object) {
+        List<GVRSceneObject> path = new ArrayList<GVRSceneObject>();
+        for (GVRSceneObject o = object; o != null; o = o.mParent) {
+            path.add(o);
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    /**
+     * Adds the objects in this subtree named {@code name} to {@code list}, in
+     * depth-first order. Name lookups use an index instead, unless a subclass
+     * in the tree overrides this method; then they walk the subtree through
+     * it.
+     *
+     * @param name
+     * @param list
+     */
     protected void getSceneObjectsByName(final String name, List<GVRSceneObject> list) {
         if (name.equals(getName())) {
             list.add(this);
@@ -1148,6 +1375,123 @@ public class GVRSceneObject extends GVRHybridObject implements PrettyPrint, IScr
             sensor.setOwner(this);
         }
         mSensor = sensor;
+        onContentChanged();
+        onStructureChanged();
+    }
+
+    /**
+     * @return the current structure version; it changes whenever a scene
+     *         object, sensor or component is added or removed anywhere
+     */
+    static long getStructureVersion() {
+        return sStructureVersion.get();
+    }
+
+    static void onStructureChanged() {
+        sStructureVersion.incrementAndGet();
+    }
+
+    void onTransformChanged() {
+        mTransformMarked = true;
+        markAncestors();
+    }
+
+    /**
+     * Marks this object for the spatial index of its scene after a change to
+     * its children, its components, its sensor or its mesh.
+     */
+    void onContentChanged() {
+        mContentMarked = true;
+        markAncestors();
+    }
+
+    private void markAncestors() {
+        for (GVRSceneObject o = mParent; o != null && !o.mDescendantMarked; o = o.mParent) {
+            o.mDescendantMarked = true;
+        }
+    }
+
+    /**
+     * Clears the mark {@link #onTransformChanged()} set on this object.
+     *
+     * @return true if this object's transform changed since the last call
+     */
+    boolean clearTransformMark() {
+        if (!mTransformMarked) {
+            return false;
+        }
+        mTransformMarked = false;
+        return true;
+    }
+
+    /**
+     * Clears the mark {@link #onContentChanged()} set on this object. Clear it
+     * before reading the children.
+     *
+     * @return true if the children, components or mesh of this object changed
+     *         since the last call
+     */
+    boolean clearContentMark() {
+        if (!mContentMarked) {
+            return false;
+        }
+        mContentMarked = false;
+        return true;
+    }
+
+    /**
+     * Clears the mark {@link #onTransformChanged()} and
+     * {@link #onContentChanged()} set on the ancestors of a changed object.
+     * Clear it before visiting the children, so a change made during the
+     * visit is marked again.
+     *
+     * @return true if a descendant may have changed since the last call
+     */
+    boolean clearDescendantMark() {
+        if (!mDescendantMarked) {
+            return false;
+        }
+        mDescendantMarked = false;
+        return true;
+    }
+
+    /**
+     * Declares that native code sets this object's transform without going
+     * through {@link GVRTransform}, as it does for the head of a camera rig,
+     * so its changes must be found by {@link #checkNativeTransform()}.
+     */
+    void setNativeTransform() {
+        mNativeTransform = true;
+    }
+
+    /**
+     * @return true if native code sets this object's transform
+     */
+    boolean hasNativeTransform() {
+        return mNativeTransform;
+    }
+
+    /**
+     * Compares the local matrix of an object whose transform native code sets
+     * to the one seen last time, and calls {@link #onTransformChanged()} if it
+     * is different.
+     */
+    synchronized void checkNativeTransform() {
+        GVRTransform transform = getTransform();
+        if (transform == null) {
+            return;
+        }
+        if (mNativeMatrix == null) {
+            mNativeMatrix = new float[16];
+            mNativeMatrixScratch = new float[16];
+        }
+        transform.getLocalModelMatrix(mNativeMatrixScratch);
+        if (!Arrays.equals(mNativeMatrix, mNativeMatrixScratch)) {
+            float[] previous = mNativeMatrix;
+            mNativeMatrix = mNativeMatrixScratch;
+            mNativeMatrixScratch = previous;
+            onTransformChanged();
+        }
     }
 
     /**
@@ -26,12 +26,17 @@ import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import org.gearvrf.GVRLightBase;
+import org.gearvrf.utility.Threads;
 import org.mozilla.javascript.NativeGenerator.GeneratorClosedException;
 
 import android.os.Environment;
@@ -115,6 +120,7 @@ public class GVRShaderTemplate
     {
         mUniformDescriptor = descriptor;
         mShaderSegments = new HashMap<String, String>();
+        mShaderVariants = new ConcurrentHashMap<String, ShaderVariant>();
     }
 
     /**
@@ -129,6 +135,7 @@ public class GVRShaderTemplate
     {
         mUniformDescriptor = descriptor;
         mShaderSegments = new HashMap<String, String>();
+        mShaderVariants = new ConcurrentHashMap<String, ShaderVariant>();
         mGLSLVersion = glslVersion;
     }
 
@@ -161,6 +168,7 @@ public class GVRShaderTemplate
     public void setSegment(String segmentName, String shaderSource)
     {
         mShaderSegments.put(segmentName, shaderSource);
+        mSegmentsKey = null;
         if (shaderSource == null)
             throw new java.lang.IllegalArgumentException("Shader source is null for segment " + segmentName + " of shader");
         Pattern pattern = Pattern.compile("HAS_([a-zA-Z0-9_]+)");
@@ -203,29 +211,65 @@ public class GVRShaderTemplate
      */
     public String generateSignature(HashMap<String, Integer> defined, GVRLightBase[] lightlist)
     {
-        String sig = getClass().getSimpleName();
-        HashMap<Class<? extends GVRLightBase>, Integer> lightCount = new HashMap<Class<? extends GVRLightBase>, Integer>();
-
-        for (HashMap.Entry<String, Integer> entry : defined.entrySet())
-        {
-            if (entry.getValue() != 0)
-                sig += "$" + entry.getKey();
-        }
-        if (lightlist != null)
+        // Names are sorted, so the signature does not depend on map order
+        // and can key the persistent variant store
+        synchronized (mSignature)
         {
-            for (GVRLightBase light : lightlist)
+            StringBuilder sig = mSignature;
+            sig.setLength(0);
+            sig.append(getClass().getSimpleName());
+
+            int n = 0;
+            for (Map.Entry<String, Integer> entry : defined.entrySet())
             {
-                Integer n = lightCount.get(light.getClass());
+                if (entry.getValue() != 0)
+                    n = addSorted(entry.getKey(), n);
+            }
+            for (int i = 0; i < n; ++i)
+                sig.append('$').append(mSortedNames[i]);
 
-                if (n == null)
-                    lightCount.put(light.getClass(), 1);
-                else
-                    lightCount.put(light.getClass(), ++n);
+            if (lightlist != null)
+            {
+                n = 0;
+                for (GVRLightBase light : lightlist)
+                    n = addSorted(light.getClass().getSimpleName(), n);
+                for (int i = 0; i < n; )
+                {
+                    String lightClass = mSortedNames[i];
+                    int count = 0;
+                    while ((i < n) && mSortedNames[i].equals(lightClass))
+                    {
+                        ++count;
+                        ++i;
+                    }
+                    sig.append('$').append(lightClass).append(count);
+                }
             }
-            for (Map.Entry<Class<? extends GVRLightBase>, Integer> entry : lightCount.entrySet())
-                sig += "$" + entry.getKey().getSimpleName() + entry.getValue().toString();
+            for (int i = 0; i < mSortedNames.length; ++i)
+                mSortedNames[i] = null;
+            return sig.toString();
+        }
+    }
+
+    /*
+     * Inserts a name into the first n entries of mSortedNames, in order.
+     */
+    private int addSorted(String name, int n)
+    {
+        if (n == mSortedNames.length)
+        {
+            String[] names = new String[n * 2];
+            System.arraycopy(mSortedNames, 0, names, 0, n);
+            mSortedNames = names;
         }
-        return sig;
+        int i = n;
+        while ((i > 0) && (mSortedNames[i - 1].compareTo(name) > 0))
+        {
+            mSortedNames[i] = mSortedNames[i - 1];
+            --i;
+        }
+        mSortedNames[i] = name;
+        return n + 1;
     }
 
     /**
@@ -404,7 +448,7 @@ public class GVRShaderTemplate
         HashMap<String, Integer> variantDefines = getRenderDefines(rdata, scene);
         if (mShaderVariants == null)
         {
-            mShaderVariants = new HashMap<String, ShaderVariant>();
+            mShaderVariants = new ConcurrentHashMap<String, ShaderVariant>();
         }
         generateVariantDefines(variantDefines, mesh, material);
         String signature = generateSignature(variantDefines, lightlist);
@@ -420,19 +464,225 @@ public class GVRShaderTemplate
         }
         else
         {
-            Map<String, LightClass> lightClasses = scanLights(lightlist);
+            makeVariant(context, signature, variantDefines, lightlist, material, false);
+        }
+        generateGLShader(context, material, signature);
+    }
 
-            variant = new ShaderVariant();
+    /**
+     * Generates the vertex and fragment shader sources for a render data,
+     * without compiling them or binding them to its material. A later
+     * {@link #bindShader(GVRContext, GVRRenderData, GVRScene)} for the same
+     * variant then only has to compile and link the program on the GL thread.
+     *
+     * Call this off the GL thread, for example while loading assets.
+     *
+     * @param context
+     *            GVRContext
+     * @param rdata
+     *            GVRRenderData with mesh and material to use
+     * @param scene
+     *            scene the render data will be rendered in
+     * @return true if the sources were generated (or read from the variant
+     *         store), false if they already existed
+     */
+    public boolean prepareShader(GVRContext context, GVRRenderData rdata, GVRScene scene)
+    {
+        GVRMaterial material = rdata.getMaterial();
+        GVRLightBase[] lightlist = (scene != null) ? scene.getLightList() : null;
+
+        if (material == null)
+        {
+            return false;
+        }
+        if (!rdata.isLightEnabled())
+        {
+            scene = null;
+            lightlist = null;
+        }
+        HashMap<String, Integer> variantDefines = getRenderDefines(rdata, scene);
+        generateVariantDefines(variantDefines, rdata.getMesh(), material);
+        String signature = generateSignature(variantDefines, lightlist);
+        if (mShaderVariants.containsKey(signature))
+        {
+            return false;
+        }
+        makeVariant(context, signature, variantDefines, lightlist, material, true);
+        return true;
+    }
+
+    /**
+     * Generates, on a background thread, the shader sources for all the render
+     * data in a hierarchy that use a shader template, as they would be bound
+     * in the given scene. Asset loaders call this as soon as a model is built,
+     * so that adding the model to the scene only compiles and links programs.
+     *
+     * Nothing is generated if the hierarchy has lights of its own, since the
+     * light list the variants depend on is not known until they are added.
+     *
+     * @param context
+     *            GVRContext
+     * @param root
+     *            root of the hierarchy
+     * @param scene
+     *            scene the hierarchy will be added to
+     */
+    public static void prepareShaders(final GVRContext context, GVRSceneObject root, final GVRScene scene)
+    {
+        if (!root.getAllComponents(GVRLightBase.getComponentType()).isEmpty())
+        {
+            return;
+        }
+        final List<GVRRenderData> renderers = root.getAllComponents(GVRRenderData.getComponentType());
+        Threads.spawn(new Runnable()
+        {
+            @Override
+            public void run()
+            {
+                int count = 0;
+                for (GVRRenderData rdata : renderers)
+                {
+                    GVRShaderTemplate template = rdata.getShaderTemplate();
+                    try
+                    {
+                        if ((template != null) && template.prepareShader(context, rdata, scene))
+                        {
+                            ++count;
+                        }
+                    }
+                    catch (RuntimeException ex)
+                    {
+                        Log.w("GVRShaderTemplate", "Cannot prepare shader: " + ex);
+                    }
+                }
+                Log.d("gvrf", "SHADER: Prepared " + count + " shader variants");
+            }
+        });
+    }
+
+    /*
+     * Makes the sources of a variant and adds the variant to mShaderVariants.
+     * Only a background caller reads the variant store; on the GL thread the
+     * sources are generated, and hashed and stored on another thread.
+     */
+    private void makeVariant(final GVRContext context, final String signature, HashMap<String, Integer> variantDefines,
+                             GVRLightBase[] lightlist, GVRMaterial material, boolean readStore)
+    {
+        Map<String, LightClass> lightClasses = scanLights(lightlist);
+        final String lights = describeLights(lightlist);
+        final String texcoords = assignTexcoords(material);
+        final ShaderVariant variant = new ShaderVariant();
+        String key = null;
+        String[] sources = null;
+
+        if (readStore)
+        {
+            key = makeVariantKey(signature, lights, texcoords);
+            sources = ShaderVariantStore.get(context).read(key);
+        }
+        if (sources != null)
+        {
+            variant.VertexShaderSource = sources[0];
+            variant.FragmentShaderSource = sources[1];
+        }
+        else
+        {
             variant.VertexShaderSource = generateShaderVariant("Vertex", variantDefines, lightlist, lightClasses, material);
             variant.FragmentShaderSource = generateShaderVariant("Fragment", variantDefines, lightlist, lightClasses, material);
-            if (mWriteShadersToDisk)
+            if (readStore)
             {
-                writeShader(context, "V-" + signature + ".glsl", variant.VertexShaderSource);
-                writeShader(context, "F-" + signature + ".glsl", variant.FragmentShaderSource);
+                ShaderVariantStore.get(context).write(key, variant.VertexShaderSource, variant.FragmentShaderSource);
+            }
+            else
+            {
+                Threads.spawn(new Runnable()
+                {
+                    @Override
+                    public void run()
+                    {
+                        String storeKey = makeVariantKey(signature, lights, texcoords);
+                        ShaderVariantStore.get(context).write(storeKey, variant.VertexShaderSource,
+                                variant.FragmentShaderSource);
+                    }
+                });
             }
-            mShaderVariants.put(signature, variant);            
         }
-        generateGLShader(context, material, signature);
+        if (mWriteShadersToDisk)
+        {
+            writeShader(context, "V-" + signature + ".glsl", variant.VertexShaderSource);
+            writeShader(context, "F-" + signature + ".glsl", variant.FragmentShaderSource);
+        }
+        addVariant(signature, variant);
+    }
+
+    private String makeVariantKey(String signature, String lights, String texcoords)
+    {
+        return ShaderVariantStore.makeKey(getClass().getName(), mGLSLVersion.toString(),
+                getSegmentsKey(), signature, lights, texcoords);
+    }
+
+    /*
+     * Adds a variant unless another thread has made (and maybe compiled) one
+     * with the same signature first.
+     */
+    @SuppressWarnings("unchecked")
+    private void addVariant(String signature, ShaderVariant variant)
+    {
+        Map<String, ShaderVariant> variants = mShaderVariants;
+        if (variants instanceof ConcurrentMap)
+        {
+            ((ConcurrentMap<String, ShaderVariant>) variants).putIfAbsent(signature, variant);
+            return;
+        }
+        // A subclass set a map of its own
+        synchronized (variants)
+        {
+            if (!variants.containsKey(signature))
+            {
+                variants.put(signature, variant);
+            }
+        }
+    }
+
+    /*
+     * Key for the sources of all the segments, which the variants are made from.
+     */
+    private synchronized String getSegmentsKey()
+    {
+        if (mSegmentsKey == null)
+        {
+            TreeMap<String, String> segments = new TreeMap<String, String>(mShaderSegments);
+            StringBuilder all = new StringBuilder();
+            for (Map.Entry<String, String> entry : segments.entrySet())
+            {
+                all.append(entry.getKey()).append('\0').append(entry.getValue()).append('\0');
+            }
+            all.append(mShaderDefines);
+            mSegmentsKey = ShaderVariantStore.makeKey(all);
+        }
+        return mSegmentsKey;
+    }
+
+    /*
+     * Everything about the lights that the generated source depends on.
+     */
+    private static String describeLights(GVRLightBase[] lightlist)
+    {
+        if (lightlist == null)
+        {
+            return "";
+        }
+        StringBuilder desc = new StringBuilder();
+        for (GVRLightBase light : lightlist)
+        {
+            desc.append(light.getClass().getName()).append('\0')
+                .append(light.getLightID()).append('\0')
+                .append(light.getUniformDescriptor()).append('\0')
+                .append(light.getVertexDescriptor()).append('\0')
+                .append(light.getVertexShaderSource()).append('\0')
+                .append(light.getFragmentShaderSource()).append('\0');
+        }
+        return desc.toString();
     }
 
     private void writeShader(GVRContext context, String fileName, String sourceCode)
@@ -474,7 +724,7 @@ public class GVRShaderTemplate
         HashMap<String, Integer> variantDefines = new HashMap<String, Integer>();
         if (mShaderVariants == null)
         {
-            mShaderVariants = new HashMap<String, ShaderVariant>();
+            mShaderVariants = new ConcurrentHashMap<String, ShaderVariant>();
         }
         generateVariantDefines(variantDefines, null, material);
         String signature = generateSignature(variantDefines, null);
@@ -490,10 +740,7 @@ public class GVRShaderTemplate
         }
         else
         {
-            variant = new ShaderVariant();
-            variant.VertexShaderSource = generateShaderVariant("Vertex", variantDefines, null, null, material);
-            variant.FragmentShaderSource = generateShaderVariant("Fragment", variantDefines, null, null, material);
-            mShaderVariants.put(signature, variant);            
+            makeVariant(context, signature, variantDefines, null, material, false);
         }
         generateGLShader(context, material, signature);
     }
@@ -530,7 +777,10 @@ public class GVRShaderTemplate
     /**
      * Generate shader-specific defines from the rendering information.
      * You can override this function in your shader class to change which
-     * variant is generated depending on the GVRRenderData settings.
+     * variant is generated depending on the GVRRenderData settings. If it
+     * reads settings that {@link GVRScene#bindShaders()} does not track, call
+     * {@link GVRRenderData#invalidateShader()} when one of them changes, or
+     * {@link #invalidateShaders()} when a setting of the template does.
      * 
      * The base implementation LIGHTSOURCES as 0 if lighting is not enabled by the render data,
      * and it defines SHADOWS as 1 if any light source enables shadow casting. 
@@ -564,6 +814,25 @@ public class GVRShaderTemplate
         return defines;
     }
     
+    /**
+     * Makes the next {@link GVRScene#bindShaders()} bind the shaders of all
+     * render data using this template again, for example after a setting
+     * that {@link #getRenderDefines(GVRRenderData, GVRScene)} reads changed.
+     */
+    public void invalidateShaders()
+    {
+        mShaderVersion = GVRRenderData.nextShaderVersion();
+    }
+
+    /**
+     * @return the shader input version of the template settings
+     * @see #invalidateShaders()
+     */
+    long getShaderVersion()
+    {
+        return mShaderVersion;
+    }
+
     /**
      * Makes the material map for the shader.
      * The material map does not change any names, just maps
@@ -816,4 +1085,9 @@ public class GVRShaderTemplate
     protected Map<String, ShaderVariant> mShaderVariants;
     protected Set<String> mShaderDefines;
     protected String mUniformDescriptor;
+    // Scratch space of generateSignature, guarded by mSignature
+    private final StringBuilder mSignature = new StringBuilder();
+    private String[] mSortedNames = new String[16];
+    private String mSegmentsKey;
+    private volatile long mShaderVersion = GVRRenderData.nextShaderVersion();
 }
@@ -0,0 +1,492 @@
+/* Copyright 2015 Samsung Electronics Co., LTD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gearvrf;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.joml.FrustumCuller;
+
+/**
+ * Answers "what is along this ray / inside this volume / nearest to this
+ * point" for a set of {@link GVRSceneObject}s without visiting all of them.
+ *
+ * The index is a dynamic tree of world-space axis-aligned boxes. An object
+ * with a mesh is bounded by a box around the mesh's bounding sphere; an
+ * object without one is a point at its world position. Each box is stored
+ * slightly enlarged, so small movements do not change the tree, and
+ * insertions keep the tree balanced. Insert, update and remove take
+ * O(log n) time.
+ *
+ * An index made with {@link #GVRSpatialIndex()} holds only the objects given
+ * to {@link #insert(GVRSceneObject)}; call {@link #update(GVRSceneObject)}
+ * after moving one. The index of a scene, from
+ * {@link GVRScene#getSpatialIndex()}, holds every object of the scene and
+ * keeps itself current: before each query it walks down the branches of the
+ * scene graph where objects moved, were added or removed, or had their mesh
+ * changed, so the cost follows the number of changes, not the size of the
+ * scene. The index of a scene also keeps the {@link SensorBVH} that
+ * {@link SensorManager} picks from, in the same walk.
+ *
+ * Queries test the stored boxes, so they return every object the volume
+ * touches and possibly a few near ones; test the results precisely (for
+ * example with {@link GVRPicker}) if that matters. Thread-safe.
+ */
+public class GVRSpatialIndex {
+    /*
+     * An indexed object: its leaf, and for the index of a scene, the parent
+     * and children it had when last seen, to find removed objects, and its
+     * effective sensor.
+     */
+    private static final class Entry {
+        int leaf = -1;
+        GVRSceneObject parent;
+        GVRSceneObject[] children = NO_CHILDREN;
+        GVRBaseSensor sensor;
+    }
+
+    private static final GVRSceneObject[] NO_CHILDREN = new GVRSceneObject[0];
+
+    private final GVRScene mScene;
+    // The scene root the entries were built from
+    private GVRSceneObject mRoot;
+
+    private final BoundingBoxTree<GVRSceneObject> mTree = new BoundingBoxTree<GVRSceneObject>();
+    // The pickable objects, for the index of a scene
+    private final SensorBVH mSensors;
+    private final Map<GVRSceneObject, Entry> mEntries = new HashMap<GVRSceneObject, Entry>();
+    // Objects whose transform native code sets
+    private final List<GVRSceneObject> mNativeObjects = new ArrayList<GVRSceneObject>();
+    private final float[] mTight = new float[6];
+    private final float[] mMatrix = new float[16];
+    private final float[] mSphere = new float[4];
+
+    /**
+     * Creates an empty index, maintained with {@link #insert},
+     * {@link #update} and {@link #remove}.
+     */
+    public GVRSpatialIndex() {
+        this(null);
+    }
+
+    /*
+     * An index that follows the objects of a scene.
+     */
+    GVRSpatialIndex(GVRScene scene) {
+        mScene = scene;
+        mSensors = scene != null ? new SensorBVH() : null;
+    }
+
+    /**
+     * Adds an object to the index.
+     *
+     * @param object
+     *            the object
+     * @return false if the object was already in the index
+     */
+    public synchronized boolean insert(GVRSceneObject object) {
+        if (mEntries.containsKey(object)) {
+            return false;
+        }
+        Entry entry = new Entry();
+        fit(object, entry);
+        mEntries.put(object, entry);
+        return true;
+    }
+
+    /**
+     * Re-reads the bounds of an object that moved, or whose mesh changed.
+     *
+     * @param object
+     *            the object
+     * @return false if the object is not in the index
+     */
+    public synchronized boolean update(GVRSceneObject object) {
+        Entry entry = mEntries.get(object);
+        if (entry == null || entry.leaf < 0) {
+            return false;
+        }
+        fit(object, entry);
+        return true;
+    }
+
+    /**
+     * Removes an object from the index.
+     *
+     * @param object
+     *            the object
+     * @return false if the object was not in the index
+     */
+    public synchronized boolean remove(GVRSceneObject object) {
+        Entry entry = mEntries.get(object);
+        if (entry == null || entry.leaf < 0) {
+            return false;
+        }
+        mEntries.remove(object);
+        mTree.remove(entry.leaf);
+        if (mSensors != null) {
+            mSensors.remove(object);
+        }
+        return true;
+    }
+
+    /**
+     * Removes all objects from the index. The index of a scene is built
+     * again on the next query.
+     */
+    public synchronized void clear() {
+        mTree.clear();
+        mEntries.clear();
+        mNativeObjects.clear();
+        if (mSensors != null) {
+            mSensors.clear();
+        }
+        mRoot = null;
+    }
+
+    /**
+     * @return the number of objects in the index
+     */
+    public synchronized int size() {
+        sync();
+        return mTree.size();
+    }
+
+    /**
+     * Finds the objects a ray may hit.
+     *
+     * @param ox
+     *            'X' component of the ray origin
+     * @param oy
+     *            'Y' component of the ray origin
+     * @param oz
+     *            'Z' component of the ray origin
+     * @param dx
+     *            'X' component of the ray direction
+     * @param dy
+     *            'Y' component of the ray direction
+     * @param dz
+     *            'Z' component of the ray direction
+     * @param result
+     *            list to add the objects to, or {@code null} for a new list
+     * @return {@code result}
+     */
+    public synchronized List<GVRSceneObject> intersectRay(float ox, float oy, float oz,
+            float dx, float dy, float dz, List<GVRSceneObject> result) {
+        result = prepare(result);
+        mTree.intersectRay(ox, oy, oz, dx, dy, dz, result);
+        return result;
+    }
+
+    /**
+     * Finds the objects with a mesh and a sensor that several rays from the
+     * same origin may hit, visiting the {@link SensorBVH} once for all of
+     * them. Only for the index of a scene.
+     *
+     * @param ox
+     *            'X' component of the origin shared by all rays
+     * @param oy
+     *            'Y' component of the origin
+     * @param oz
+     *            'Z' component of the origin
+     * @param directions
+     *            packed x, y, z direction of each ray
+     * @param rayCount
+     *            number of rays, at most {@link SensorBVH#MAX_RAYS}
+     * @param visitor
+     *            called for each ray and object it may hit
+     */
+    synchronized void intersectSensors(float ox, float oy, float oz, float[] directions,
+            int rayCount, SensorBVH.Visitor visitor) {
+        sync();
+        mSensors.intersect(ox, oy, oz, directions, rayCount, visitor);
+    }
+
+    /**
+     * Finds the objects that may be inside or touch a sphere.
+     *
+     * @param cx
+     *            'X' component of the center
+     * @param cy
+     *            'Y' component of the center
+     * @param cz
+     *            'Z' component of the center
+     * @param radius
+     *            radius of the sphere
+     * @param result
+     *            list to add the objects to, or {@code null} for a new list
+     * @return {@code result}
+     */
+    public synchronized List<GVRSceneObject> intersectSphere(float cx, float cy, float cz,
+            float radius, List<GVRSceneObject> result) {
+        result = prepare(result);
+        mTree.intersectSphere(cx, cy, cz, radius, result);
+        return result;
+    }
+
+    /**
+     * Finds the objects that may be inside or touch an axis-aligned box.
+     *
+     * @param minX
+     *            the x-coordinate of the minimum corner
+     * @param minY
+     *            the y-coordinate of the minimum corner
+     * @param minZ
+     *            the z-coordinate of the minimum corner
+     * @param maxX
+     *            the x-coordinate of the maximum corner
+     * @param maxY
+     *            the y-coordinate of the maximum corner
+     * @param maxZ
+     *            the z-coordinate of the maximum corner
+     * @param result
+     *            list to add the objects to, or {@code null} for a new list
+     * @return {@code result}
+     */
+    public synchronized List<GVRSceneObject> intersectBox(float minX, float minY, float minZ,
+            float maxX, float maxY, float maxZ, List<GVRSceneObject> result) {
+        result = prepare(result);
+        mTree.intersectBox(minX, minY, minZ, maxX, maxY, maxZ, result);
+        return result;
+    }
+
+    /**
+     * Finds the objects that may be inside or touch a view frustum.
+     *
+     * @param culler
+     *            the world-space frustum, made from a view-projection matrix
+     * @param result
+     *            list to add the objects to, or {@code null} for a new list
+     * @return {@code result}
+     */
+    public synchronized List<GVRSceneObject> intersectFrustum(FrustumCuller culler,
+            List<GVRSceneObject> result) {
+        result = prepare(result);
+        mTree.intersectFrustum(culler, result);
+        return result;
+    }
+
+    /**
+     * Finds the object whose box is nearest to a point.
+     *
+     * @param x
+     *            'X' component of the point
+     * @param y
+     *            'Y' component of the point
+     * @param z
+     *            'Z' component of the point
+     * @param maxDistance
+     *            ignore objects farther than this
+     * @return the object, or {@code null} if there is none within
+     *         {@code maxDistance}
+     */
+    public synchronized GVRSceneObject findNearest(float x, float y, float z, float maxDistance) {
+        sync();
+        return mTree.findNearest(x, y, z, maxDistance);
+    }
+
+    private List<GVRSceneObject> prepare(List<GVRSceneObject> result) {
+        sync();
+        return result != null ? result : new ArrayList<GVRSceneObject>();
+    }
+
+    /*
+     * Brings the index of a scene up to date by walking down the branches
+     * GVRSceneObject marked.
+     */
+    private void sync() {
+        if (mScene == null) {
+            return;
+        }
+        GVRSceneObject root = mScene.getRoot();
+        if (root != mRoot) {
+            clear();
+            mRoot = root;
+            addSubtree(root, null);
+            return;
+        }
+
+        for (GVRSceneObject object : mNativeObjects) {
+            object.checkNativeTransform();
+        }
+        syncObject(root, mEntries.get(root), false, false);
+    }
+
+    /*
+     * Re-bounds the object if it or an ancestor moved, or its mesh or
+     * effective sensor changed; picks up its added and removed children; and
+     * goes on down the marked branches. parentChanged asks to look at the
+     * effective sensor again, since the parent's or the parent itself
+     * changed.
+     */
+    private void syncObject(GVRSceneObject object, Entry entry, boolean moved,
+            boolean parentChanged) {
+        // Clear the marks before reading the children
+        moved = object.clearTransformMark() || moved;
+        boolean changed = object.clearContentMark();
+        boolean descendantChanged = object.clearDescendantMark();
+        boolean sensorChanged = false;
+        if (changed || parentChanged) {
+            GVRBaseSensor sensor = effectiveSensor(object, entry.parent);
+            sensorChanged = sensor != entry.sensor;
+            entry.sensor = sensor;
+        }
+        if ((moved || changed || sensorChanged) && object != mRoot) {
+            fit(object, entry);
+        }
+        if (changed) {
+            syncChildren(object, entry);
+        }
+        if (moved || changed || descendantChanged || sensorChanged) {
+            for (GVRSceneObject child : entry.children) {
+                Entry childEntry = mEntries.get(child);
+                if (childEntry != null && childEntry.parent == object) {
+                    syncObject(child, childEntry, moved, changed || sensorChanged);
+                }
+            }
+        }
+    }
+
+    private GVRBaseSensor effectiveSensor(GVRSceneObject object, GVRSceneObject parent) {
+        GVRBaseSensor sensor = object.getSensor();
+        if (sensor == null && parent != null) {
+            sensor = mEntries.get(parent).sensor;
+        }
+        return sensor;
+    }
+
+    private void syncChildren(GVRSceneObject object, Entry entry) {
+        for (GVRSceneObject child : entry.children) {
+            if (child.getParent() == object) {
+                continue;
+            }
+            // Unless a parent seen earlier in this walk has taken it
+            Entry childEntry = mEntries.get(child);
+            if (childEntry != null && childEntry.parent == object) {
+                removeSubtree(child, childEntry);
+            }
+        }
+        entry.children = object.getChildren().toArray(NO_CHILDREN);
+        for (GVRSceneObject child : entry.children) {
+            Entry childEntry = mEntries.get(child);
+            if (childEntry == null) {
+                addSubtree(child, object);
+            } else {
+                // Moved here from a parent this walk has not reached yet
+                childEntry.parent = object;
+            }
+        }
+    }
+
+    /*
+     * Indexes an object and its descendants. The scene root is followed but
+     * not put in the tree.
+     */
+    private void addSubtree(GVRSceneObject object, GVRSceneObject parent) {
+        object.clearTransformMark();
+        object.clearContentMark();
+        object.clearDescendantMark();
+        if (object.hasNativeTransform()) {
+            object.checkNativeTransform();
+            object.clearTransformMark();
+            mNativeObjects.add(object);
+        }
+
+        Entry entry = new Entry();
+        entry.parent = parent;
+        entry.sensor = effectiveSensor(object, parent);
+        if (parent != null) {
+            fit(object, entry);
+        }
+        entry.children = object.getChildren().toArray(NO_CHILDREN);
+        mEntries.put(object, entry);
+        for (GVRSceneObject child : entry.children) {
+            Entry childEntry = mEntries.get(child);
+            if (childEntry == null) {
+                addSubtree(child, object);
+            } else {
+                childEntry.parent = object;
+                syncObject(child, childEntry, true, true);
+            }
+        }
+    }
+
+    private void removeSubtree(GVRSceneObject object, Entry entry) {
+        mEntries.remove(object);
+        if (entry.leaf >= 0) {
+            mTree.remove(entry.leaf);
+            mSensors.remove(object);
+        }
+        if (object.hasNativeTransform()) {
+            mNativeObjects.remove(object);
+        }
+        for (GVRSceneObject child : entry.children) {
+            Entry childEntry = mEntries.get(child);
+            if (childEntry != null && childEntry.parent == object) {
+                removeSubtree(child, childEntry);
+            }
+        }
+    }
+
+    /*
+     * Adds the object to the tree, or moves it, and does the same in the
+     * pickable objects if it is one.
+     */
+    private void fit(GVRSceneObject object, Entry entry) {
+        computeBounds(object, mTight);
+        if (entry.leaf < 0) {
+            entry.leaf = mTree.insert(object, mTight);
+        } else {
+            mTree.move(entry.leaf, mTight);
+        }
+        if (mSensors != null) {
+            mSensors.update(object, entry.sensor, mTight);
+        }
+    }
+
+    private void computeBounds(GVRSceneObject object, float[] bounds) {
+        float[] m = mMatrix;
+        object.getTransform().getModelMatrix(m);
+
+        float x = 0.0f;
+        float y = 0.0f;
+        float z = 0.0f;
+        float radius = 0.0f;
+        GVRRenderData renderData = object.getRenderData();
+        GVRMesh mesh = renderData != null ? renderData.getMesh() : null;
+        if (mesh != null) {
+            mesh.getSphereBound(mSphere);
+            x = mSphere[0];
+            y = mSphere[1];
+            z = mSphere[2];
+            float scale = Math.max(m[0] * m[0] + m[1] * m[1] + m[2] * m[2],
+                    Math.max(m[4] * m[4] + m[5] * m[5] + m[6] * m[6],
+                            m[8] * m[8] + m[9] * m[9] + m[10] * m[10]));
+            radius = mSphere[3] * (float) Math.sqrt(scale);
+        }
+        float cx = m[0] * x + m[4] * y + m[8] * z + m[12];
+        float cy = m[1] * x + m[5] * y + m[9] * z + m[13];
+        float cz = m[2] * x + m[6] * y + m[10] * z + m[14];
+        bounds[0] = cx - radius;
+        bounds[1] = cy - radius;
+        bounds[2] = cz - radius;
+        bounds[3] = cx + radius;
+        bounds[4] = cy + radius;
+        bounds[5] = cz + radius;
+    }
+}
@@ -121,6 +121,27 @@ public class GVRTexture extends GVRHybridObject {
             && !mAtlasInformation.isEmpty();
     }
 
+    /**
+     * Estimates how much GPU memory this texture uses, for example to budget
+     * a {@link org.gearvrf.utility.ResourceCache}. The estimate is based on
+     * the source data and ignores mipmaps the driver may generate.
+     *
+     * @return the estimated size in bytes, or 0 if it is not known
+     */
+    public long getSizeEstimate() {
+        return mSizeEstimate;
+    }
+
+    /**
+     * Sets the value returned by {@link #getSizeEstimate()}.
+     *
+     * @param bytes
+     *            estimated size of the texture data
+     */
+    protected void setSizeEstimate(long bytes) {
+        mSizeEstimate = bytes;
+    }
+
     /**
      * Called from C++, on the GL thread; derived classes: call the super
      * implementation first always!
@@ -139,6 +160,7 @@ public class GVRTexture extends GVRHybridObject {
 
     private volatile FutureBase mFuture;
     private volatile int mTextureId;
+    private long mSizeEstimate;
 
     private class FutureBase implements Future<Integer> {
         @Override
@@ -15,6 +15,8 @@
 
 package org.gearvrf;
 
+import java.nio.FloatBuffer;
+
 import org.joml.Matrix4f;
 
 /**
@@ -89,6 +91,7 @@ public class GVRTransform extends GVRComponent {
      */
     public void setPosition(float x, float y, float z) {
         NativeTransform.setPosition(getNative(), x, y, z);
+        onChanged();
     }
 
     /**
@@ -101,6 +104,7 @@ public class GVRTransform extends GVRComponent {
      */
     public void setPositionX(float x) {
         NativeTransform.setPositionX(getNative(), x);
+        onChanged();
     }
 
     /**
@@ -113,6 +117,7 @@ public class GVRTransform extends GVRComponent {
      */
     public void setPositionY(float y) {
         NativeTransform.setPositionY(getNative(), y);
+        onChanged();
     }
 
     /**
@@ -125,6 +130,7 @@ public class GVRTransform extends GVRComponent {
      */
     public void setPositionZ(float z) {
         NativeTransform.setPositionZ(getNative(), z);
+        onChanged();
     }
 
     /**
@@ -215,6 +221,7 @@ public class GVRTransform extends GVRComponent {
      */
     public void setRotation(float w, float x, float y, float z) {
         NativeTransform.setRotation(getNative(), w, x, y, z);
+        onChanged();
     }
 
     /**
@@ -256,6 +263,7 @@ public class GVRTransform extends GVRComponent {
      */
     public void setScale(float x, float y, float z) {
         NativeTransform.setScale(getNative(), x, y, z);
+        onChanged();
     }
 
     /**
@@ -266,6 +274,7 @@ public class GVRTransform extends GVRComponent {
      */
     public void setScaleX(float x) {
         NativeTransform.setScaleX(getNative(), x);
+        onChanged();
     }
 
     /**
@@ -276,6 +285,7 @@ public class GVRTransform extends GVRComponent {
      */
     public void setScaleY(float y) {
         NativeTransform.setScaleY(getNative(), y);
+        onChanged();
     }
 
     /**
@@ -286,6 +296,7 @@ public class GVRTransform extends GVRComponent {
      */
     public void setScaleZ(float z) {
         NativeTransform.setScaleZ(getNative(), z);
+        onChanged();
     }
 
     /**
@@ -308,6 +319,37 @@ public class GVRTransform extends GVRComponent {
         return NativeTransform.getLocalModelMatrix(getNative());
     }
 
+    /**
+     * Copy the 4x4 single matrix into a caller-owned array. Unlike
+     * {@link #getModelMatrix()} this does not allocate a new array.
+     *
+     * @param mat
+     *            An array of at least 16 {@code float}s to receive the
+     *            matrix in OpenGL-compatible column-major format.
+     */
+    public void getModelMatrix(float[] mat) {
+        if (mat.length < 16) {
+            throw new IllegalArgumentException("Size less than 16.");
+        }
+        NativeTransform.copyModelMatrix(getNative(), mat);
+    }
+
+    /**
+     * Copy the 4x4 single local transform matrix into a caller-owned
+     * array. Unlike {@link #getLocalModelMatrix()} this does not allocate
+     * a new array.
+     *
+     * @param mat
+     *            An array of at least 16 {@code float}s to receive the
+     *            matrix in OpenGL-compatible column-major format.
+     */
+    public void getLocalModelMatrix(float[] mat) {
+        if (mat.length < 16) {
+            throw new IllegalArgumentException("Size less than 16.");
+        }
+        NativeTransform.copyLocalModelMatrix(getNative(), mat);
+    }
+
     /**
      * Get the 4x4 single matrix.
      *
@@ -345,6 +387,7 @@ public class GVRTransform extends GVRComponent {
             throw new IllegalArgumentException("Size not equal to 16.");
         }
         NativeTransform.setModelMatrix(getNative(), mat);
+        onChanged();
     }
 
     /**
@@ -374,6 +417,7 @@ public class GVRTransform extends GVRComponent {
      */
     public void translate(float x, float y, float z) {
         NativeTransform.translate(getNative(), x, y, z);
+        onChanged();
     }
 
     /**
@@ -398,6 +442,7 @@ public class GVRTransform extends GVRComponent {
      */
     public void setRotationByAxis(float angle, float x, float y, float z) {
         NativeTransform.setRotationByAxis(getNative(), angle * TO_RADIANS, x, y, z);
+        onChanged();
     }
 
     /**
@@ -414,6 +459,7 @@ public class GVRTransform extends GVRComponent {
      */
     public void rotate(float w, float x, float y, float z) {
         NativeTransform.rotate(getNative(), w, x, y, z);
+        onChanged();
     }
 
     /**
@@ -430,6 +476,7 @@ public class GVRTransform extends GVRComponent {
      */
     public void rotateByAxis(float angle, float x, float y, float z) {
         NativeTransform.rotateByAxis(getNative(), angle * TO_RADIANS, x, y, z);
+        onChanged();
     }
 
     /**
@@ -455,6 +502,7 @@ public class GVRTransform extends GVRComponent {
             float axisZ, float pivotX, float pivotY, float pivotZ) {
         NativeTransform.rotateByAxisWithPivot(getNative(), angle * TO_RADIANS, axisX, axisY,
                 axisZ, pivotX, pivotY, pivotZ);
+        onChanged();
     }
 
     /**
@@ -481,6 +529,7 @@ public class GVRTransform extends GVRComponent {
         getGVRContext().getMainScene().inValidateShadowMap();
         NativeTransform.rotateWithPivot(getNative(), quatW, quatX, quatY,
                 quatZ, pivotX, pivotY, pivotZ);
+        onChanged();
     }
 
 
@@ -496,6 +545,17 @@ public class GVRTransform extends GVRComponent {
         setScale(1, 1, 1);
     }
 
+    /*
+     * Tells the owner its world transform changed, so that the spatial index
+     * of its scene, and the sensor hierarchy in it, re-bound it.
+     */
+    void onChanged() {
+        GVRSceneObject owner = getOwnerObject();
+        if (owner != null) {
+            owner.onTransformChanged();
+        }
+    }
+
     @Override
     public String toString() {
         return "GVRTransform " + Integer.toHexString(hashCode()) + ", positionX = " + getPositionX()
@@ -561,6 +621,18 @@ class NativeTransform {
 
     static native float[] getLocalModelMatrix(long transform);
 
+    static native void copyModelMatrix(long transform, float[] mat);
+
+    static native void copyLocalModelMatrix(long transform, float[] mat);
+
+    static native void setTRSBatch(long[] transforms, int count, FloatBuffer data);
+
+    static native void setModelMatrixBatch(long[] transforms, int count, FloatBuffer data);
+
+    static native void getModelMatrixBatch(long[] transforms, int count, FloatBuffer data);
+
+    static native void getLocalModelMatrixBatch(long[] transforms, int count, FloatBuffer data);
+
     static native void setModelMatrix(long tranform, float[] mat);
 
     static native void translate(long transform, float x, float y, float z);
@@ -0,0 +1,201 @@
+/* Copyright 2015 Samsung Electronics Co., LTD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gearvrf;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.util.List;
+
+import org.joml.Matrix4f;
+
+/**
+ * Reads and writes many {@link GVRTransform}s with a single native call.
+ *
+ * Every {@code GVRTransform} setter and getter is a separate JNI call. Code
+ * that updates hundreds of transforms per frame (animation, cursors, physics)
+ * can instead fill the {@linkplain #getData() data buffer} of a batch and
+ * commit it in one call, or read back all model matrices in one call.
+ *
+ * <p>
+ * The data buffer is a direct {@code FloatBuffer} in native byte order with
+ * room for {@link #MATRIX_SIZE} floats per transform. Entry {@code i} starts
+ * at index {@code i * MATRIX_SIZE} for matrices and at
+ * {@code i * TRS_SIZE} for translation/rotation/scale data. The buffer's
+ * position and limit are ignored.
+ *
+ * <p>
+ * A batch is meant to be created once and reused every frame; it keeps its
+ * transforms alive. A batch is not thread-safe.
+ */
+public final class GVRTransformBatch {
+    /** Floats per transform for matrices, in OpenGL column-major order. */
+    public static final int MATRIX_SIZE = 16;
+
+    /**
+     * Floats per transform for TRS data: position (x, y, z), rotation
+     * quaternion (x, y, z, w) and scale (x, y, z).
+     */
+    public static final int TRS_SIZE = 10;
+
+    private final GVRTransform[] mTransforms;
+    private final long[] mNativeTransforms;
+    private final FloatBuffer mData;
+
+    /**
+     * Creates a batch for a list of transforms.
+     *
+     * @param transforms
+     *            the transforms, in the order their data appears in the
+     *            buffer
+     */
+    public GVRTransformBatch(List<GVRTransform> transforms) {
+        this(transforms.toArray(new GVRTransform[transforms.size()]));
+    }
+
+    /**
+     * Creates a batch for an array of transforms.
+     *
+     * @param transforms
+     *            the transforms, in the order their data appears in the
+     *            buffer
+     */
+    public GVRTransformBatch(GVRTransform... transforms) {
+        mTransforms = transforms.clone();
+        mNativeTransforms = new long[mTransforms.length];
+        for (int i = 0; i < mTransforms.length; ++i) {
+            mNativeTransforms[i] = mTransforms[i].getNative();
+        }
+        mData = ByteBuffer.allocateDirect(mTransforms.length * MATRIX_SIZE * 4)
+                .order(ByteOrder.nativeOrder()).asFloatBuffer();
+    }
+
+    /**
+     * @return number of transforms in the batch
+     */
+    public int size() {
+        return mTransforms.length;
+    }
+
+    /**
+     * @param index
+     *            index of the transform
+     * @return the transform at {@code index}
+     */
+    public GVRTransform getTransform(int index) {
+        return mTransforms[index];
+    }
+
+    /**
+     * @return the data buffer shared with native code
+     */
+    public FloatBuffer getData() {
+        return mData;
+    }
+
+    /**
+     * Writes a matrix into the data buffer.
+     *
+     * @param index
+     *            index of the transform
+     * @param matrix
+     *            the matrix to store
+     */
+    public void putMatrix(int index, Matrix4f matrix) {
+        matrix.get(index * MATRIX_SIZE, mData);
+    }
+
+    /**
+     * Reads a matrix from the data buffer.
+     *
+     * @param index
+     *            index of the transform
+     * @param dest
+     *            will receive the matrix
+     * @return {@code dest}
+     */
+    public Matrix4f getMatrix(int index, Matrix4f dest) {
+        mData.position(index * MATRIX_SIZE);
+        dest.set(mData);
+        mData.position(0);
+        return dest;
+    }
+
+    /**
+     * Writes translation, rotation and scale into the data buffer.
+     *
+     * @param index
+     *            index of the transform
+     */
+    public void putTRS(int index, float px, float py, float pz,
+            float qx, float qy, float qz, float qw,
+            float sx, float sy, float sz) {
+        final FloatBuffer data = mData;
+        final int i = index * TRS_SIZE;
+        data.put(i, px);
+        data.put(i + 1, py);
+        data.put(i + 2, pz);
+        data.put(i + 3, qx);
+        data.put(i + 4, qy);
+        data.put(i + 5, qz);
+        data.put(i + 6, qw);
+        data.put(i + 7, sx);
+        data.put(i + 8, sy);
+        data.put(i + 9, sz);
+    }
+
+    /**
+     * Sets position, rotation and scale of every transform from the TRS
+     * data in the buffer.
+     */
+    public void commitTRS() {
+        NativeTransform.setTRSBatch(mNativeTransforms, mNativeTransforms.length, mData);
+        onChanged();
+    }
+
+    /**
+     * Sets every transform from the matrices in the buffer, like
+     * {@link GVRTransform#setModelMatrix(float[])}.
+     */
+    public void commitModelMatrices() {
+        NativeTransform.setModelMatrixBatch(mNativeTransforms, mNativeTransforms.length, mData);
+        onChanged();
+    }
+
+    /*
+     * The native calls bypass the GVRTransform setters, so tell the owners
+     * here, as the setters would.
+     */
+    private void onChanged() {
+        for (GVRTransform transform : mTransforms) {
+            transform.onChanged();
+        }
+    }
+
+    /**
+     * Reads the model (world) matrix of every transform into the buffer.
+     */
+    public void readModelMatrices() {
+        NativeTransform.getModelMatrixBatch(mNativeTransforms, mNativeTransforms.length, mData);
+    }
+
+    /**
+     * Reads the local matrix of every transform into the buffer.
+     */
+    public void readLocalModelMatrices() {
+        NativeTransform.getLocalModelMatrixBatch(mNativeTransforms, mNativeTransforms.length, mData);
+    }
+}
@@ -0,0 +1,231 @@
+/* Copyright 2015 Samsung Electronics Co., LTD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gearvrf;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+
+import org.gearvrf.utility.Log;
+import org.gearvrf.utility.MappedZipFile;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.UUID;
+
+/**
+ * A {@link GVRResourceVolume} whose files are the entries of a zip archive.
+ *
+ * The archive is memory-mapped and its central directory is read once, when
+ * the volume is created. Opening a resource reads nothing; the entry is read
+ * (stored entries straight from the mapping, deflated entries inflated into a
+ * buffer of their size) when its stream is opened. This lets models and
+ * textures be loaded from large asset bundles without holding the whole
+ * bundle on the heap, and lets several loader threads read entries at the
+ * same time.
+ */
+public class GVRZipResourceVolume extends GVRResourceVolume {
+    private static final String TAG = GVRZipResourceVolume.class.getSimpleName();
+
+    private final MappedZipFile zipFile;
+
+    /**
+     * Creates a volume for a zip file in the {@code assets} directory.
+     *
+     * The archive is mapped in place if it is stored uncompressed in the APK
+     * ({@code .zip} files are, by default). Otherwise it is first copied to
+     * {@link Context#getCacheDir()}.
+     *
+     * @param gvrContext  the GVR Context
+     * @param zipFileName the name of the zip file, relative to the
+     *                    {@code assets} directory
+     * @throws IOException if the archive cannot be read
+     */
+    public GVRZipResourceVolume(GVRContext gvrContext, String zipFileName) throws IOException {
+        this(gvrContext, openAsset(gvrContext.getContext(), zipFileName), null);
+    }
+
+    /**
+     * Creates a volume for a zip file.
+     *
+     * @param gvrContext the GVR Context
+     * @param zipFile    the zip file
+     * @throws IOException if the archive cannot be read
+     */
+    public GVRZipResourceVolume(GVRContext gvrContext, File zipFile) throws IOException {
+        this(gvrContext, new MappedZipFile(zipFile), null);
+    }
+
+    /**
+     * Creates a volume for an opened archive.
+     *
+     * @param gvrContext  the GVR Context
+     * @param zipFile     the archive
+     * @param defaultPath the directory in the archive that file paths are
+     *                    relative to; {@code null} for the root
+     */
+    public GVRZipResourceVolume(GVRContext gvrContext, MappedZipFile zipFile, String defaultPath) {
+        super(gvrContext, VolumeType.ANDROID_ASSETS, defaultPath);
+        this.zipFile = zipFile;
+    }
+
+    /**
+     * @return the archive this volume reads from
+     */
+    public MappedZipFile getZipFile() {
+        return zipFile;
+    }
+
+    /**
+     * Opens an entry of the archive. The filePath is relative to the
+     * defaultPath; {@code '.'} and {@code '..'} are resolved.
+     *
+     * @param filePath
+     *            File path of the resource to open.
+     *
+     * @throws FileNotFoundException
+     *             if the archive has no such entry
+     */
+    @Override
+    public GVRAndroidResource openResource(String filePath) throws IOException {
+        String path = normalize(getFullPath(defaultPath, adaptFilePath(filePath)));
+        if (!zipFile.contains(path)) {
+            throw new FileNotFoundException(path + " not found in " + zipFile.getName());
+        }
+        return new GVRAndroidResource(zipFile, path);
+    }
+
+    @Override
+    protected String adaptFilePath(String filePath) {
+        return filePath.replace('\\', '/');
+    }
+
+    @Override
+    protected String getFullPath(String... path) {
+        StringBuilder fullPath = new StringBuilder();
+        for (String fileName : path) {
+            if (fileName == null || fileName.isEmpty()) {
+                continue;
+            }
+            if (fullPath.length() > 0) {
+                fullPath.append('/');
+            }
+            fullPath.append(fileName);
+        }
+        return fullPath.toString();
+    }
+
+    /*
+     * Zip entry names have no leading '/', and no '.' or '..' parts.
+     */
+    private static String normalize(String path) {
+        ArrayList<String> parts = new ArrayList<String>();
+        for (String part : path.split("/")) {
+            if (part.isEmpty() || part.equals(".")) {
+                continue;
+            }
+            if (part.equals("..")) {
+                if (!parts.isEmpty()) {
+                    parts.remove(parts.size() - 1);
+                }
+                continue;
+            }
+            parts.add(part);
+        }
+
+        StringBuilder normalized = new StringBuilder(path.length());
+        for (String part : parts) {
+            if (normalized.length() > 0) {
+                normalized.append('/');
+            }
+            normalized.append(part);
+        }
+        return normalized.toString();
+    }
+
+    static MappedZipFile openAsset(Context context, String zipFileName) throws IOException {
+        AssetFileDescriptor descriptor;
+        try {
+            descriptor = context.getAssets().openFd(zipFileName);
+        } catch (FileNotFoundException e) {
+            // Compressed in the APK, so it cannot be mapped in place
+            return new MappedZipFile(copyAsset(context, zipFileName));
+        }
+
+        FileInputStream in = descriptor.createInputStream();
+        try {
+            return new MappedZipFile(zipFileName, in.getChannel(),
+                    descriptor.getStartOffset(), descriptor.getLength());
+        } finally {
+            in.close();
+        }
+    }
+
+    /*
+     * Copies a compressed archive out of the APK so it can be mapped. The
+     * copy is stamped with the APK's modification time and reused as long as
+     * that and its size still match; each copy goes through its own temporary
+     * file, so volumes created at the same time do not write over each other.
+     */
+    private static File copyAsset(Context context, String zipFileName) throws IOException {
+        File file = new File(context.getCacheDir(),
+                UUID.nameUUIDFromBytes(zipFileName.getBytes()).toString() + ".zip");
+        long apkModified = new File(context.getApplicationInfo().sourceDir).lastModified();
+
+        InputStream in = context.getAssets().open(zipFileName);
+        try {
+            // The uncompressed length, for an asset stream that has not been read
+            long length = in.available();
+            if (file.length() == length && file.lastModified() == apkModified) {
+                return file;
+            }
+            Log.d(TAG, "Copying compressed asset %s to %s", zipFileName, file);
+
+            File temp = File.createTempFile(file.getName(), ".tmp", context.getCacheDir());
+            try {
+                ReadableByteChannel source = Channels.newChannel(in);
+                FileOutputStream out = new FileOutputStream(temp);
+                try {
+                    FileChannel channel = out.getChannel();
+                    long position = 0;
+                    long count;
+                    while ((count = channel.transferFrom(source, position, 64 * 1024)) > 0) {
+                        position += count;
+                    }
+                } finally {
+                    out.close();
+                }
+                temp.setLastModified(apkModified);
+                if (!temp.renameTo(file)) {
+                    throw new IOException("Cannot copy " + zipFileName + " to " + file);
+                }
+            } finally {
+                // Nothing left to delete after a successful rename
+                temp.delete();
+            }
+        } finally {
+            in.close();
+        }
+        return file;
+    }
+}
@@ -36,7 +36,8 @@ public interface IPickEvents extends IEvents {
     /**
      * Called when the pick ray first enters a scene object.
      * @param sceneObj scene object picked
-     * @param collision information about the collision
+     * @param collision information about the collision, reused by
+     *                  the picker after this frame
      */
     void onEnter(GVRSceneObject sceneObj, GVRPicker.GVRPickedObject collision);
     
@@ -49,7 +50,8 @@ public interface IPickEvents extends IEvents {
     /**
      * Called while the pick ray penetrates a scene object.
      * @param sceneObj scene object picked
-     * @param collision information about the collision
+     * @param collision information about the collision, reused by
+     *                  the picker after this frame
      */    
     void onInside(GVRSceneObject sceneObj, GVRPicker.GVRPickedObject collision);
 }
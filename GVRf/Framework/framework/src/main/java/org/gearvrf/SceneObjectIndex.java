@@ -0,0 +1,141 @@
+/* Copyright 2015 Samsung Electronics Co., LTD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gearvrf;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The names and tags of the scene objects in a tree, so that
+ * {@link GVRSceneObject#getSceneObjectByName(String)} and friends do not walk
+ * the tree.
+ *
+ * Only the root of a tree has an index, built on the first lookup anywhere
+ * in the tree; lookups below the root filter its matches. From then on
+ * {@link GVRSceneObject} keeps it current as objects are added, removed,
+ * renamed or re-tagged. Access is guarded by {@link GVRSceneObject}'s index
+ * lock.
+ */
+final class SceneObjectIndex {
+    private final Map<String, List<GVRSceneObject>> mByName = new HashMap<String, List<GVRSceneObject>>();
+    private final Map<Object, List<GVRSceneObject>> mByTag = new HashMap<Object, List<GVRSceneObject>>();
+    // What each object is filed under, to remove it without asking again
+    private final Map<GVRSceneObject, String> mNames = new HashMap<GVRSceneObject, String>();
+    // Objects whose class overrides GVRSceneObject.getSceneObjectsByName(String, List)
+    private int mNameLookupOverrides;
+
+    /**
+     * Adds an object and its descendants.
+     */
+    void addSubtree(GVRSceneObject object) {
+        String name = object.getName();
+        mNames.put(object, name);
+        add(mByName, name, object);
+        if (GVRSceneObject.overridesNameLookup(object)) {
+            ++mNameLookupOverrides;
+        }
+        if (object.getTag() != null) {
+            add(mByTag, object.getTag(), object);
+        }
+        for (GVRSceneObject child : object.getChildren()) {
+            addSubtree(child);
+        }
+    }
+
+    /**
+     * Removes an object and its descendants.
+     */
+    void removeSubtree(GVRSceneObject object) {
+        String name = mNames.remove(object);
+        if (name != null) {
+            remove(mByName, name, object);
+            if (GVRSceneObject.overridesNameLookup(object)) {
+                --mNameLookupOverrides;
+            }
+        }
+        if (object.getTag() != null) {
+            remove(mByTag, object.getTag(), object);
+        }
+        for (GVRSceneObject child : object.getChildren()) {
+            removeSubtree(child);
+        }
+    }
+
+    void rename(GVRSceneObject object, String name) {
+        String oldName = mNames.put(object, name);
+        if (oldName != null) {
+            remove(mByName, oldName, object);
+        }
+        add(mByName, name, object);
+    }
+
+    void retag(GVRSceneObject object, Object oldTag, Object tag) {
+        if (oldTag != null) {
+            remove(mByTag, oldTag, object);
+        }
+        if (tag != null) {
+            add(mByTag, tag, object);
+        }
+    }
+
+    /**
+     * @return true if name lookups must go through the overridden
+     *         {@code getSceneObjectsByName(String, List)} of an object in the
+     *         tree
+     */
+    boolean hasNameLookupOverrides() {
+        return mNameLookupOverrides > 0;
+    }
+
+    /**
+     * @return the objects with the name, in no particular order
+     */
+    List<GVRSceneObject> findByName(String name) {
+        return find(mByName, name);
+    }
+
+    /**
+     * @return the objects with the tag, in no particular order
+     */
+    List<GVRSceneObject> findByTag(Object tag) {
+        return find(mByTag, tag);
+    }
+
+    private static <K> List<GVRSceneObject> find(Map<K, List<GVRSceneObject>> map, K key) {
+        List<GVRSceneObject> list = map.get(key);
+        return list != null ? list : Collections.<GVRSceneObject> emptyList();
+    }
+
+    private static <K> void add(Map<K, List<GVRSceneObject>> map, K key, GVRSceneObject object) {
+        List<GVRSceneObject> list = map.get(key);
+        if (list == null) {
+            // Most names are unique
+            list = new ArrayList<GVRSceneObject>(1);
+            map.put(key, list);
+        }
+        list.add(object);
+    }
+
+    private static <K> void remove(Map<K, List<GVRSceneObject>> map, K key, GVRSceneObject object) {
+        List<GVRSceneObject> list = map.get(key);
+        if (list != null && list.remove(object) && list.isEmpty()) {
+            map.remove(key);
+        }
+    }
+}
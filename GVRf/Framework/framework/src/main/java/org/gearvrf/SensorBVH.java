@@ -0,0 +1,139 @@
+/* Copyright 2015 Samsung Electronics Co., LTD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gearvrf;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A bounding volume hierarchy over the scene objects of a {@link GVRScene}
+ * that have a mesh and a {@link GVRBaseSensor}, their own or an ancestor's.
+ *
+ * Each leaf is a world-space box around the mesh's bounding sphere, in a
+ * {@link BoundingBoxTree}. The scene's {@link GVRSpatialIndex} keeps it
+ * current: as it follows the scene, it passes every object it re-bounds, with
+ * its effective sensor, to {@link #update}. A query takes up to
+ * {@link #MAX_RAYS} rays at once and visits each node a single time for all
+ * of them.
+ *
+ * Not thread-safe; the owning {@link GVRSpatialIndex} serializes access.
+ */
+final class SensorBVH {
+    /** Most rays a single {@link #intersect} call accepts */
+    static final int MAX_RAYS = BoundingBoxTree.MAX_RAYS;
+
+    /** Receives the candidates of {@link SensorBVH#intersect}. */
+    interface Visitor {
+        /**
+         * Called for each object whose box a ray hits.
+         *
+         * @param object
+         *            the scene object
+         * @param sensor
+         *            its effective sensor
+         * @param ray
+         *            index of the ray in the query
+         */
+        void visit(GVRSceneObject object, GVRBaseSensor sensor, int ray);
+    }
+
+    private static final class Leaf {
+        final GVRSceneObject object;
+        GVRBaseSensor sensor;
+        int node;
+
+        Leaf(GVRSceneObject object) {
+            this.object = object;
+        }
+    }
+
+    private final BoundingBoxTree<Leaf> mTree = new BoundingBoxTree<Leaf>();
+    private final Map<GVRSceneObject, Leaf> mLeaves = new HashMap<GVRSceneObject, Leaf>();
+
+    private Visitor mVisitor;
+    private final BoundingBoxTree.RayVisitor<Leaf> mRayVisitor = new BoundingBoxTree.RayVisitor<Leaf>() {
+        @Override
+        public void visit(Leaf leaf, int ray) {
+            mVisitor.visit(leaf.object, leaf.sensor, ray);
+        }
+    };
+
+    /**
+     * Adds, moves or removes an object, depending on whether it is pickable.
+     *
+     * @param object
+     *            the scene object
+     * @param sensor
+     *            its effective sensor, or {@code null}
+     * @param box
+     *            its world-space box
+     */
+    void update(GVRSceneObject object, GVRBaseSensor sensor, float[] box) {
+        if (sensor == null || !object.hasMesh()) {
+            remove(object);
+            return;
+        }
+        Leaf leaf = mLeaves.get(object);
+        if (leaf == null) {
+            leaf = new Leaf(object);
+            leaf.node = mTree.insert(leaf, box);
+            mLeaves.put(object, leaf);
+        } else {
+            mTree.move(leaf.node, box);
+        }
+        leaf.sensor = sensor;
+    }
+
+    void remove(GVRSceneObject object) {
+        Leaf leaf = mLeaves.remove(object);
+        if (leaf != null) {
+            mTree.remove(leaf.node);
+        }
+    }
+
+    void clear() {
+        mTree.clear();
+        mLeaves.clear();
+    }
+
+    /**
+     * @return number of pickable objects
+     */
+    int size() {
+        return mTree.size();
+    }
+
+    /**
+     * Finds the objects whose boxes the rays hit. Each ray starts at
+     * {@code (ox, oy, oz)}; its direction need not be normalized.
+     *
+     * @param directions
+     *            packed x, y, z direction of each ray
+     * @param rayCount
+     *            number of rays, at most {@link #MAX_RAYS}
+     * @param visitor
+     *            called for each ray and object whose box it hits
+     */
+    void intersect(float ox, float oy, float oz, float[] directions, int rayCount,
+            Visitor visitor) {
+        mVisitor = visitor;
+        try {
+            mTree.intersectRays(ox, oy, oz, directions, rayCount, mRayVisitor);
+        } finally {
+            mVisitor = null;
+        }
+    }
+}
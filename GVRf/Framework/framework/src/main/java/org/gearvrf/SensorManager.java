@@ -15,7 +15,7 @@
 
 package org.gearvrf;
 
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -45,6 +45,17 @@ class SensorManager {
         return instance;
     }
 
+    // The rays of one pick, reused from pick to pick
+    private final GVRCursorController[] batch = new GVRCursorController[SensorBVH.MAX_RAYS];
+    private final boolean[] markActiveNodes = new boolean[SensorBVH.MAX_RAYS];
+    private final float[] directions = new float[SensorBVH.MAX_RAYS * 3];
+    private final SensorBVH.Visitor visitor = new SensorBVH.Visitor() {
+        @Override
+        public void visit(GVRSceneObject object, GVRBaseSensor sensor, int ray) {
+            pick(batch[ray], object, sensor, directions, ray, markActiveNodes[ray]);
+        }
+    };
+
     /**
      * Uses the GVR Picker for now .. but would need help from the renderer
      * later for efficiency.
@@ -52,67 +63,82 @@ class SensorManager {
      * We could possibly push this functionality to the native layer. But for
      * now we keep it here.
      */
-    void processPick(GVRScene scene, GVRCursorController controller) {
-        if (scene != null) {
-            boolean markActiveNodes = false;
-            if (controller.getActiveState() == ActiveState.ACTIVE_PRESSED) {
-                // active is true, trigger a search for active sensors
-                markActiveNodes = true;
-            } else if (controller
-                    .getActiveState() == ActiveState.ACTIVE_RELEASED) {
-                for (GVRBaseSensor sensor : sensors.keySet()) {
-                    sensor.setActive(controller, false);
-                }
-            }
+    synchronized void processPick(GVRScene scene, GVRCursorController controller) {
+        if (scene == null) {
+            return;
+        }
+        addRay(0, controller);
+        pickBatch(scene, 1);
+    }
+
+    /**
+     * Picks for several controllers at once. The candidates come from one
+     * traversal of the {@link SensorBVH} of the scene's
+     * {@link GVRSpatialIndex} for all of their rays; only those are tested
+     * against their bounding boxes.
+     */
+    synchronized void processPick(GVRScene scene, List<GVRCursorController> controllers) {
+        if (scene == null || controllers.isEmpty()) {
+            return;
+        }
 
-            for (GVRSceneObject object : scene.getSceneObjects()) {
-                recurseSceneObject(controller, object, null, markActiveNodes);
+        int count = controllers.size();
+        for (int first = 0; first < count; first += SensorBVH.MAX_RAYS) {
+            int rayCount = Math.min(SensorBVH.MAX_RAYS, count - first);
+            for (int ray = 0; ray < rayCount; ++ray) {
+                addRay(ray, controllers.get(first + ray));
             }
+            pickBatch(scene, rayCount);
+        }
+    }
+
+    private void addRay(int ray, GVRCursorController controller) {
+        batch[ray] = controller;
+        markActiveNodes[ray] = false;
+        if (controller.getActiveState() == ActiveState.ACTIVE_PRESSED) {
+            // active is true, trigger a search for active sensors
+            markActiveNodes[ray] = true;
+        } else if (controller
+                .getActiveState() == ActiveState.ACTIVE_RELEASED) {
             for (GVRBaseSensor sensor : sensors.keySet()) {
-                sensor.processList(controller);
+                sensor.setActive(controller, false);
             }
         }
+        Vector3f direction = controller.getRay();
+        directions[ray * 3] = direction.x;
+        directions[ray * 3 + 1] = direction.y;
+        directions[ray * 3 + 2] = direction.z;
     }
 
-    private void recurseSceneObject(GVRCursorController controller,
-                                    GVRSceneObject object, GVRBaseSensor sensor,
-                                    boolean markActiveNodes) {
-        GVRBaseSensor objectSensor = object.getSensor();
+    private void pickBatch(GVRScene scene, int rayCount) {
+        scene.getSpatialIndex().intersectSensors(ORIGIN[0], ORIGIN[1], ORIGIN[2], directions,
+                rayCount, visitor);
 
-        if (objectSensor == null) {
-            objectSensor = sensor;
+        for (int ray = 0; ray < rayCount; ++ray) {
+            for (GVRBaseSensor sensor : sensors.keySet()) {
+                sensor.processList(batch[ray]);
+            }
+            batch[ray] = null;
         }
-        /**
-         * Compare ray against the hierarchical bounding volume and then add
-         * the children accordingly.
-         */
-        Vector3f ray = controller.getRay();
-        if (false == object.intersectsBoundingVolume(ORIGIN[0], ORIGIN[1],
-                ORIGIN[2], ray.x, ray.y, ray.z)) {
+    }
+
+    private static void pick(GVRCursorController controller, GVRSceneObject object,
+            GVRBaseSensor sensor, float[] directions, int ray, boolean markActiveNodes) {
+        if (!sensor.isEnabled() || !object.isEnabled()) {
             return;
         }
+        float[] hitPoint = GVRPicker.pickSceneObjectAgainstBoundingBox(
+                object, ORIGIN[0], ORIGIN[1], ORIGIN[2], directions[ray * 3],
+                directions[ray * 3 + 1], directions[ray * 3 + 2]);
 
-        // Well at least we are not comparing against all scene objects.
-        if (objectSensor != null && objectSensor.isEnabled() && object.isEnabled()
-                & object.hasMesh()) {
-
-            float[] hitPoint = GVRPicker.pickSceneObjectAgainstBoundingBox(
-                    object, ORIGIN[0], ORIGIN[1], ORIGIN[2], ray.x, ray.y,
-                    ray.z);
+        if (hitPoint != null) {
+            sensor.addSceneObject(controller, object, hitPoint);
 
-            if (hitPoint != null) {
-                objectSensor.addSceneObject(controller, object, hitPoint);
-
-                // if we are doing an active search and we find one.
-                if (markActiveNodes) {
-                    objectSensor.setActive(controller, true);
-                }
+            // if we are doing an active search and we find one.
+            if (markActiveNodes) {
+                sensor.setActive(controller, true);
             }
         }
-        for (GVRSceneObject child : object.getChildren()) {
-            recurseSceneObject(controller, child, objectSensor,
-                    markActiveNodes);
-        }
     }
 
     void addSensor(GVRBaseSensor sensor) {
@@ -0,0 +1,280 @@
+/* Copyright 2015 Samsung Electronics Co., LTD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gearvrf;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.gearvrf.utility.Log;
+
+/**
+ * Keeps the vertex and fragment sources that {@link GVRShaderTemplate}
+ * generates in files, so that later launches can skip generating them.
+ *
+ * A variant is stored under a key made from everything its source depends
+ * on: the template segments, the variant signature, the light sources and the
+ * texture coordinate assignments. A changed template or light shader makes a
+ * new key, and files for old keys are no longer read. Once the files add up
+ * to more than {@link #MAX_SIZE} bytes, the least recently used ones are
+ * deleted, so those of old keys go first. Thread-safe.
+ */
+final class ShaderVariantStore {
+    private static final String TAG = Log.tag(ShaderVariantStore.class);
+    private static final String DIRECTORY = "gvrf_shaders";
+    private static final int FORMAT = 1;
+    private static final String SUFFIX = ".glsl";
+    private static final String TEMP_SUFFIX = ".tmp";
+    // A variant takes a few kilobytes
+    static final long MAX_SIZE = 2 * 1024 * 1024;
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static ShaderVariantStore sInstance;
+
+    private static final class Stored {
+        final String key;
+        final long size;
+        final long used;
+
+        Stored(String key, long size, long used) {
+            this.key = key;
+            this.size = size;
+            this.used = used;
+        }
+    }
+
+    private final File mDirectory;
+    private final long mMaxSize;
+    // Size of each file by key, least recently used first
+    private final LinkedHashMap<String, Long> mSizes = new LinkedHashMap<String, Long>(16,
+            0.75f, true);
+    private long mSize;
+    private boolean mLoaded;
+
+    ShaderVariantStore(File directory, long maxSize) {
+        mDirectory = directory;
+        mMaxSize = maxSize;
+    }
+
+    /**
+     * @return the store in the application's cache directory
+     */
+    static synchronized ShaderVariantStore get(GVRContext context) {
+        if (sInstance == null) {
+            File directory = new File(context.getContext().getCacheDir(), DIRECTORY);
+            if (!directory.isDirectory() && !directory.mkdirs()) {
+                Log.w(TAG, "Cannot create %s", directory);
+            }
+            sInstance = new ShaderVariantStore(directory, MAX_SIZE);
+        }
+        return sInstance;
+    }
+
+    /**
+     * Makes a key from the parts that determine a variant's source.
+     */
+    static String makeKey(CharSequence... parts) {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+        for (CharSequence part : parts) {
+            digest.update(String.valueOf(part).getBytes(UTF8));
+            digest.update((byte) 0);
+        }
+        StringBuilder key = new StringBuilder();
+        for (byte b : digest.digest()) {
+            key.append(Character.forDigit((b >> 4) & 0xF, 16));
+            key.append(Character.forDigit(b & 0xF, 16));
+        }
+        return key.toString();
+    }
+
+    /**
+     * @return the vertex and fragment source stored under the key, or
+     *         {@code null} if there are none
+     */
+    String[] read(String key) {
+        loadEntries();
+        File file = new File(mDirectory, key + SUFFIX);
+        DataInputStream in;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        } catch (FileNotFoundException ex) {
+            return null;
+        }
+        try {
+            if (in.readInt() != FORMAT) {
+                return null;
+            }
+            String[] sources = new String[] { readString(in), readString(in) };
+            synchronized (mSizes) {
+                mSizes.get(key);
+            }
+            // Keeps the order of use for the next launch
+            file.setLastModified(System.currentTimeMillis());
+            return sources;
+        } catch (IOException ex) {
+            Log.w(TAG, "Cannot read shader variant %s: %s", file, ex);
+            synchronized (mSizes) {
+                Long size = mSizes.remove(key);
+                if (size != null) {
+                    mSize -= size;
+                }
+                file.delete();
+            }
+            return null;
+        } finally {
+            close(in);
+        }
+    }
+
+    /**
+     * Stores the vertex and fragment source under the key.
+     */
+    void write(String key, String vertexSource, String fragmentSource) {
+        loadEntries();
+        File file = new File(mDirectory, key + SUFFIX);
+        File temp = new File(mDirectory, key + "." + Thread.currentThread().getId() + TEMP_SUFFIX);
+        try {
+            DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(new FileOutputStream(temp)));
+            try {
+                out.writeInt(FORMAT);
+                writeString(out, vertexSource);
+                writeString(out, fragmentSource);
+            } finally {
+                out.close();
+            }
+            synchronized (mSizes) {
+                if (!temp.renameTo(file)) {
+                    throw new IOException("cannot rename " + temp);
+                }
+                long size = file.length();
+                Long old = mSizes.put(key, size);
+                mSize += size - (old != null ? old : 0);
+                trim(key);
+            }
+        } catch (IOException ex) {
+            Log.w(TAG, "Cannot write shader variant %s: %s", file, ex);
+            temp.delete();
+        }
+    }
+
+    /**
+     * @return total size of the stored files, in bytes
+     */
+    long getSize() {
+        loadEntries();
+        synchronized (mSizes) {
+            return mSize;
+        }
+    }
+
+    /*
+     * Lists the stored files, least recently used first, and deletes those
+     * past the size limit and temporary files that an earlier process left.
+     */
+    private void loadEntries() {
+        synchronized (mSizes) {
+            if (mLoaded) {
+                return;
+            }
+            mLoaded = true;
+            File[] files = mDirectory.listFiles();
+            if (files == null) {
+                return;
+            }
+            List<Stored> stored = new ArrayList<Stored>();
+            for (File file : files) {
+                String name = file.getName();
+                if (name.endsWith(SUFFIX)) {
+                    stored.add(new Stored(name.substring(0, name.length() - SUFFIX.length()),
+                            file.length(), file.lastModified()));
+                } else if (name.endsWith(TEMP_SUFFIX)) {
+                    file.delete();
+                }
+            }
+            Collections.sort(stored, new Comparator<Stored>() {
+                @Override
+                public int compare(Stored lhs, Stored rhs) {
+                    return lhs.used < rhs.used ? -1 : (lhs.used == rhs.used ? 0 : 1);
+                }
+            });
+            for (Stored file : stored) {
+                mSizes.put(file.key, file.size);
+                mSize += file.size;
+            }
+            trim(null);
+        }
+    }
+
+    // Deletes least recently used files until the total size is within the
+    // limit. Keeps the file just written.
+    private void trim(String keep) {
+        Iterator<Map.Entry<String, Long>> it = mSizes.entrySet().iterator();
+        while (mSize > mMaxSize && it.hasNext()) {
+            Map.Entry<String, Long> entry = it.next();
+            if (entry.getKey().equals(keep)) {
+                continue;
+            }
+            it.remove();
+            mSize -= entry.getValue();
+            new File(mDirectory, entry.getKey() + SUFFIX).delete();
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            throw new IOException("bad length " + length);
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, UTF8);
+    }
+
+    private static void writeString(DataOutputStream out, String string) throws IOException {
+        byte[] bytes = string.getBytes(UTF8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static void close(DataInputStream in) {
+        try {
+            in.close();
+        } catch (IOException ex) {
+        }
+    }
+}
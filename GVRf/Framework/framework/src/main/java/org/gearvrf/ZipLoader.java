@@ -15,17 +15,12 @@
 
 package org.gearvrf;
 
-import android.content.Context;
+import org.gearvrf.utility.MappedZipFile;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Future;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
 
 /**
  * This is a small convenience class that makes it easy to unzip a file and load entries as
@@ -67,6 +62,11 @@ public abstract class ZipLoader {
      * {@link ZipLoader} and apply the {@link ZipEntryProcessor} to each entry. The result is a
      * list of all processed entries obtained from the zip file.
      *
+     * The zip file is memory-mapped and only its central directory is read here. Each
+     * {@link GVRAndroidResource} reads its entry when its stream is opened, so entries that
+     * the processor hands to asynchronous loaders are inflated on the loader threads, in
+     * parallel, and the archive is never buffered on the heap as a whole.
+     *
      * @param gvrContext  the GVRf context
      * @param zipFileName the name of the zip file. This must be a file in the assets folder.
      * @param processor   the {@link ZipEntryProcessor} to be applied to each zip entry in the file.
@@ -76,33 +76,28 @@ public abstract class ZipLoader {
      */
     public static <T> List<T> load(GVRContext gvrContext, String zipFileName, ZipEntryProcessor<T>
             processor) throws IOException {
-        Context context = gvrContext.getContext();
-        InputStream inputStream = context.getAssets().open(zipFileName);
-        ZipInputStream zipInputStream = new ZipInputStream(inputStream);
-        List<T> result = new ArrayList<T>();
-
-        try {
-            ZipEntry zipEntry;
-
-            while ((zipEntry = zipInputStream.getNextEntry()) != null) {
-                ByteArrayOutputStream baos = new ByteArrayOutputStream();
-                byte[] buffer = new byte[1024];
-                int count;
-                while ((count = zipInputStream.read(buffer)) != -1) {
-                    baos.write(buffer, 0, count);
-                }
-
-                byte[] bytes = baos.toByteArray();
+        return load(gvrContext, new GVRZipResourceVolume(gvrContext, zipFileName), processor);
+    }
 
-                InputStream resourceInputStream = new ByteArrayInputStream(bytes);
+    /**
+     * Apply the {@link ZipEntryProcessor} to each entry of a zip-backed volume, in the order of
+     * the archive's central directory.
+     *
+     * @param gvrContext the GVRf context
+     * @param volume     the volume holding the zip file
+     * @param processor  the {@link ZipEntryProcessor} to be applied to each zip entry in the file.
+     * @return a list of processed zip file entries.
+     */
+    public static <T> List<T> load(GVRContext gvrContext, GVRZipResourceVolume volume,
+            ZipEntryProcessor<T> processor) {
+        MappedZipFile zipFile = volume.getZipFile();
+        List<String> names = zipFile.getEntryNames();
+        List<T> result = new ArrayList<T>(names.size());
 
-                GVRAndroidResource androidResource = new GVRAndroidResource(zipEntry.getName(),
-                        resourceInputStream);
-                T item = processor.getItem(gvrContext, androidResource);
-                result.add(item);
-            }
-        } finally {
-            zipInputStream.close();
+        for (String name : names) {
+            GVRAndroidResource androidResource = new GVRAndroidResource(zipFile, name);
+            T item = processor.getItem(gvrContext, androidResource);
+            result.add(item);
         }
         return result;
     }
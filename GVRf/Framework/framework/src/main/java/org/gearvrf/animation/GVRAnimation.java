@@ -118,6 +118,9 @@ public abstract class GVRAnimation {
     
     private boolean isFinished = false;
 
+    // Set by the animation engine for animations it evaluates off the GL thread
+    private boolean mDeferred = false;
+
     /**
      * Base constructor.
      * 
@@ -460,6 +463,50 @@ public abstract class GVRAnimation {
         return mElapsedTime;
     }
 
+    /* package */ void setDeferred(boolean deferred) {
+        mDeferred = deferred;
+    }
+
+    /**
+     * Whether the {@linkplain GVRAnimationEngine animation engine} is
+     * splitting this frame into {@link #evaluate()} and {@link #apply()}.
+     * When this returns {@code true}, {@link #animate(GVRHybridObject, float)}
+     * should only record what it was asked to do.
+     * 
+     * @return {@code true} if the work of {@code animate()} is deferred
+     */
+    protected final boolean isDeferred() {
+        return mDeferred;
+    }
+
+    /**
+     * Override this to return {@code true} if the animation implements
+     * {@link #evaluate()} and {@link #apply()}. The animation engine may then
+     * run {@code evaluate()} on a worker thread, in parallel with other
+     * animations.
+     * 
+     * @return {@code true} if {@code evaluate()} may run off the GL thread
+     */
+    protected boolean isParallelizable() {
+        return false;
+    }
+
+    /**
+     * Computes the state recorded by the last deferred call to
+     * {@link #animate(GVRHybridObject, float)}. May be called on a worker
+     * thread, concurrently with other animations: implementations must not
+     * modify the scene graph.
+     */
+    protected void evaluate() {
+    }
+
+    /**
+     * Writes the state computed by {@link #evaluate()} to the scene graph.
+     * Always called on the GL thread.
+     */
+    protected void apply() {
+    }
+
     /**
      * Override this to create a new animation. Generally, you do this by
      * changing some property of the {@code mTarget}, and letting GVRF handle
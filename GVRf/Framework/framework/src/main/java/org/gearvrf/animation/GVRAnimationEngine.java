@@ -15,6 +15,7 @@
 
 package org.gearvrf.animation;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
 
@@ -44,6 +45,13 @@ import org.gearvrf.GVRSceneObject;
  * {@linkplain GVROnRepeat callback,} which allows you to terminate the
  * animation before the next loop.
  * </ul>
+ * 
+ * <p>
+ * By default every animation runs on the GL thread. Call
+ * {@link #setEvaluationThreads(int)} to let animations that support it (such
+ * as {@linkplain org.gearvrf.animation.keyframe.GVRKeyFrameAnimation keyframe
+ * animations}) compute their pose on worker threads; only the final writes to
+ * the scene graph then happen on the GL thread.
  */
 public class GVRAnimationEngine {
 
@@ -62,6 +70,10 @@ public class GVRAnimationEngine {
     private final List<GVRAnimation> mAnimations = new CopyOnWriteArrayList<GVRAnimation>();
     private final GVRDrawFrameListener mOnDrawFrame = new DrawFrame();
 
+    private volatile int mRequestedThreads = 0;
+    private ParallelAnimationEvaluator mEvaluator = null;
+    private final List<GVRAnimation> mDeferred = new ArrayList<GVRAnimation>();
+
     protected GVRAnimationEngine(GVRContext gvrContext) {
         gvrContext.registerDrawFrameListener(mOnDrawFrame);
     }
@@ -141,14 +153,85 @@ public class GVRAnimationEngine {
         mAnimations.remove(animation);
     }
 
+    /**
+     * Sets the number of worker threads used to evaluate animations in
+     * parallel. Only animations that {@linkplain GVRAnimation#isParallelizable()
+     * support it} are evaluated off the GL thread; their scene graph updates
+     * are still made on the GL thread, after all evaluation is done.
+     * 
+     * <p>
+     * The GL thread takes part in the evaluation, so {@code threadCount}
+     * should usually be one less than the number of cores. The change takes
+     * effect on the next frame.
+     * 
+     * <p>
+     * Note that {@linkplain GVROnFinish completion callbacks} of parallel
+     * animations run before the final frame of the animation is written to
+     * the scene graph.
+     * 
+     * @param threadCount
+     *            number of worker threads; 0 (the default) evaluates every
+     *            animation on the GL thread
+     */
+    public void setEvaluationThreads(int threadCount) {
+        if (threadCount < 0) {
+            throw new IllegalArgumentException("threadCount must not be negative");
+        }
+        mRequestedThreads = threadCount;
+    }
+
+    /**
+     * Gets the number of worker threads requested by
+     * {@link #setEvaluationThreads(int)}.
+     * 
+     * @return number of worker threads
+     */
+    public int getEvaluationThreads() {
+        return mRequestedThreads;
+    }
+
     private final class DrawFrame implements GVRDrawFrameListener {
 
         @Override
         public void onDrawFrame(float frameTime) {
+            updateEvaluator();
+            final boolean parallel = mEvaluator != null;
+
             for (GVRAnimation animation : mAnimations) {
+                final boolean deferred = parallel && animation.isParallelizable();
+                animation.setDeferred(deferred);
+
                 if (animation.onDrawFrame(frameTime) == false) {
                     mAnimations.remove(animation);
                 }
+                if (deferred) {
+                    mDeferred.add(animation);
+                }
+            }
+
+            if (mDeferred.isEmpty()) {
+                return;
+            }
+            try {
+                mEvaluator.evaluate(mDeferred);
+                for (int i = 0, n = mDeferred.size(); i < n; ++i) {
+                    GVRAnimation animation = mDeferred.get(i);
+                    animation.apply();
+                    animation.setDeferred(false);
+                }
+            } finally {
+                mDeferred.clear();
+            }
+        }
+
+        private void updateEvaluator() {
+            final int threads = mRequestedThreads;
+            final int current = mEvaluator == null ? 0 : mEvaluator.getThreadCount();
+            if (threads != current) {
+                if (mEvaluator != null) {
+                    mEvaluator.shutdown();
+                }
+                mEvaluator = threads > 0 ? new ParallelAnimationEvaluator(threads) : null;
             }
         }
     }
@@ -0,0 +1,134 @@
+/* Copyright 2015 Samsung Electronics Co., LTD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gearvrf.animation;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs {@link GVRAnimation#evaluate()} for a list of animations on a
+ * fixed pool of worker threads. The calling thread joins in, and the
+ * workers pull animations from a shared index, so a few expensive rigs do
+ * not leave the other threads idle.
+ */
+final class ParallelAnimationEvaluator {
+    private final int mThreadCount;
+    private final ExecutorService mExecutor;
+    private final AtomicInteger mNext = new AtomicInteger();
+    private final Runnable mWorker = new Runnable() {
+        @Override
+        public void run() {
+            Throwable error = drain();
+            synchronized (ParallelAnimationEvaluator.this) {
+                if (error != null && mError == null) {
+                    mError = error;
+                }
+                if (--mPending == 0) {
+                    ParallelAnimationEvaluator.this.notifyAll();
+                }
+            }
+        }
+    };
+
+    private List<GVRAnimation> mWork;
+    // Guarded by this
+    private int mPending;
+    private Throwable mError;
+
+    ParallelAnimationEvaluator(int threadCount) {
+        mThreadCount = threadCount;
+        mExecutor = Executors.newFixedThreadPool(threadCount, new ThreadFactory() {
+            private final AtomicInteger mCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "GVRAnimationEngine-" + mCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    int getThreadCount() {
+        return mThreadCount;
+    }
+
+    void shutdown() {
+        mExecutor.shutdown();
+    }
+
+    void evaluate(List<GVRAnimation> work) {
+        final int helpers = Math.min(mThreadCount, work.size() - 1);
+
+        mWork = work;
+        mNext.set(0);
+        synchronized (this) {
+            mPending = helpers;
+            mError = null;
+        }
+        for (int i = 0; i < helpers; ++i) {
+            mExecutor.execute(mWorker);
+        }
+
+        Throwable error = drain();
+
+        boolean interrupted = false;
+        synchronized (this) {
+            // The workers must be done before the GL thread touches the animations again
+            while (mPending > 0) {
+                try {
+                    wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (error == null) {
+                error = mError;
+            }
+            mError = null;
+        }
+        mWork = null;
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (error instanceof RuntimeException) {
+            throw (RuntimeException) error;
+        } else if (error instanceof Error) {
+            throw (Error) error;
+        } else if (error != null) {
+            throw new RuntimeException(error);
+        }
+    }
+
+    private Throwable drain() {
+        final List<GVRAnimation> work = mWork;
+        final int count = work.size();
+        try {
+            for (int i = mNext.getAndIncrement(); i < count; i = mNext.getAndIncrement()) {
+                work.get(i).evaluate();
+            }
+        } catch (Throwable t) {
+            // Let the other threads finish quickly
+            mNext.set(count);
+            return t;
+        }
+        return null;
+    }
+}
@@ -22,18 +22,23 @@ import org.joml.Vector3f;
 public final class GVRAnimationChannel implements PrettyPrint {
     private static final String TAG = GVRAnimationChannel.class.getSimpleName();
     protected static interface ValueInterpolator<T> {
-        T interpolate(T begin, T end, float factor);
+        /**
+         * Interpolates between two values, writing the result into
+         * {@code dest}. {@code dest} may not alias {@code begin} or
+         * {@code end}.
+         */
+        T interpolate(T begin, T end, float factor, T dest);
     }
 
     protected static ValueInterpolator<Vector3f> sInterpolatorVector3f = new ValueInterpolator<Vector3f>() {
-        public Vector3f interpolate(Vector3f begin, Vector3f end, float factor) {
-            return new Vector3f().set(end).sub(begin).mul(factor).add(begin);
+        public Vector3f interpolate(Vector3f begin, Vector3f end, float factor, Vector3f dest) {
+            return begin.lerp(end, factor, dest);
         }
     };
 
     protected static ValueInterpolator<Quaternionf> sInterpolatorQuaternion = new ValueInterpolator<Quaternionf>() {
-        public Quaternionf interpolate(Quaternionf begin, Quaternionf end, float factor) {
-            return new Quaternionf().set(begin).slerp(end, factor);
+        public Quaternionf interpolate(Quaternionf begin, Quaternionf end, float factor, Quaternionf dest) {
+            return begin.slerp(end, factor, dest);
         }
     };
 
@@ -43,13 +48,31 @@ public final class GVRAnimationChannel implements PrettyPrint {
 
         private int lastKeyIndex;
 
-        KeyFrameInterplator(GVRKeyFrame<T>[] keys, ValueInterpolator<T> interpolator) {
+        // Scratch values for the two keys surrounding the sample time
+        private final T start;
+        private final T end;
+
+        KeyFrameInterplator(GVRKeyFrame<T>[] keys, ValueInterpolator<T> interpolator, T start, T end) {
             this.keys = keys;
             this.interpolator = interpolator;
+            this.start = start;
+            this.end = end;
             lastKeyIndex = -1;
         }
 
-        protected T interpolate(float time) {
+        /**
+         * Samples the keys at {@code time} and writes the value into
+         * {@code dest}. No objects are allocated.
+         */
+        protected T interpolate(float time, T dest) {
+            // Clamp outside the keys without searching, so looping clips
+            // do not log (and allocate) on every frame past the last key
+            if (time <= keys[0].getTime()) {
+                return keys[0].getValue(dest);
+            } else if (time >= keys[keys.length - 1].getTime()) {
+                return keys[keys.length - 1].getValue(dest);
+            }
+
             int index = getKeyIndex(time);
             int nextIndex = index + 1;
 
@@ -58,24 +81,19 @@ public final class GVRAnimationChannel implements PrettyPrint {
                 float deltaTime = (float)(keys[nextIndex].getTime() - keys[index].getTime());
                 float factor = (float)((time - keys[index].getTime()) / deltaTime);
 
-                T start = keys[index].getValue();
-                T end = keys[nextIndex].getValue();
+                keys[index].getValue(start);
+                keys[nextIndex].getValue(end);
 
-                return interpolator.interpolate(start, end, factor);
+                return interpolator.interpolate(start, end, factor, dest);
             } else {
                 // time is out of range of animation time frame
                 float firstFrameTime = keys[0].getTime();
-                float lastFrameTime = keys[keys.length - 1].getTime();
-                T firstFrameValue = keys[0].getValue();
-                T lastFrameValue = keys[keys.length - 1].getValue();
 
                 if (time <= firstFrameTime) {
-                    return firstFrameValue;
-                } else if (time >= lastFrameTime) {
-                    return lastFrameValue;
+                    return keys[0].getValue(dest);
                 } else {
-                    // Shouldn't happen
-                    return lastFrameValue;
+                    // time >= last frame time, or interpolation failed
+                    return keys[keys.length - 1].getValue(dest);
                 }
             }
         }
@@ -150,11 +168,17 @@ public final class GVRAnimationChannel implements PrettyPrint {
         mPreState = preBehavior;
         mPostState = postBehavior;
 
-        mPositionInterpolator = new KeyFrameInterplator<Vector3f>(mPositionKeys, sInterpolatorVector3f);
-        mRotationInterpolator = new KeyFrameInterplator<Quaternionf>(mRotationKeys, sInterpolatorQuaternion);
-        mScaleInterpolator = new KeyFrameInterplator<Vector3f>(mScaleKeys, sInterpolatorVector3f);
+        mPositionInterpolator = new KeyFrameInterplator<Vector3f>(mPositionKeys, sInterpolatorVector3f,
+                new Vector3f(), new Vector3f());
+        mRotationInterpolator = new KeyFrameInterplator<Quaternionf>(mRotationKeys, sInterpolatorQuaternion,
+                new Quaternionf(), new Quaternionf());
+        mScaleInterpolator = new KeyFrameInterplator<Vector3f>(mScaleKeys, sInterpolatorVector3f,
+                new Vector3f(), new Vector3f());
 
         mCurrentTransform = new Matrix4f();
+        mCurrentPosition = new Vector3f();
+        mCurrentRotation = new Quaternionf();
+        mCurrentScale = new Vector3f();
     }
 
 
@@ -200,6 +224,18 @@ public final class GVRAnimationChannel implements PrettyPrint {
         return mPositionKeys[keyIndex].getValue();
     }
 
+    /**
+     * Copies the position of the specified key into {@code dest}.
+     *
+     * @param keyIndex the index of the position key
+     * @param dest vector to receive the position
+     *
+     * @return {@code dest}
+     */
+    public Vector3f getPosKeyVector(int keyIndex, Vector3f dest) {
+        return mPositionKeys[keyIndex].getValue(dest);
+    }
+
     public void setPosKeyVector(int keyIndex, float time, Vector3f pos) {
         mPositionKeys[keyIndex] = new GVRPositionKey(time, pos.x, pos.y, pos.z);
     }
@@ -237,6 +273,18 @@ public final class GVRAnimationChannel implements PrettyPrint {
         return mRotationKeys[keyIndex].getValue();
     } 
 
+    /**
+     * Copies the rotation of the specified key into {@code dest}.
+     *
+     * @param keyIndex the index of the rotation key
+     * @param dest quaternion to receive the rotation
+     *
+     * @return {@code dest}
+     */
+    public Quaternionf getRotKeyQuaternion(int keyIndex, Quaternionf dest) {
+        return mRotationKeys[keyIndex].getValue(dest);
+    }
+
     public void setRotKeyQuaternion(int keyIndex, float time, Quaternionf rot) {
         mRotationKeys[keyIndex] = new GVRRotationKey(time, rot.x, rot.y, rot.z, rot.w);
     }
@@ -258,7 +306,7 @@ public final class GVRAnimationChannel implements PrettyPrint {
      * @return the time component
      */
     public double getScaleKeyTime(int keyIndex) {
-        return mRotationKeys[keyIndex].getTime();
+        return mScaleKeys[keyIndex].getTime();
     }
 
 
@@ -273,6 +321,18 @@ public final class GVRAnimationChannel implements PrettyPrint {
         return mScaleKeys[keyIndex].getValue();
     }
 
+    /**
+     * Copies the scaling factor of the specified key into {@code dest}.
+     *
+     * @param keyIndex the index of the scale key
+     * @param dest vector to receive the scaling factor
+     *
+     * @return {@code dest}
+     */
+    public Vector3f getScaleKeyVector(int keyIndex, Vector3f dest) {
+        return mScaleKeys[keyIndex].getValue(dest);
+    }
+
     public void setScaleKeyVector(int keyIndex, float time, Vector3f scale) {
         mScaleKeys[keyIndex] = new GVRScaleKey(time, scale.x, scale.y, scale.z);
     }
@@ -308,15 +368,28 @@ public final class GVRAnimationChannel implements PrettyPrint {
      * 
      * @param animationTime The time in animation.
      * 
-     * @return The transform.
+     * @return The transform. The matrix is owned by the channel and is
+     *         overwritten by the next call.
      */
     public Matrix4f animate(float animationTime) {
-        Vector3f scale = getScale(animationTime);
-        Vector3f pos = getPosition(animationTime);
-        Quaternionf rot = getRotation(animationTime);
+        return animate(animationTime, mCurrentTransform);
+    }
+
+    /**
+     * Obtains the transform for a specific time in animation and writes
+     * it into a caller-owned matrix. No objects are allocated.
+     *
+     * @param animationTime The time in animation.
+     * @param mat The matrix to receive the transform.
+     *
+     * @return {@code mat}
+     */
+    public Matrix4f animate(float animationTime, Matrix4f mat) {
+        Vector3f scale = getScale(animationTime, mCurrentScale);
+        Vector3f pos = getPosition(animationTime, mCurrentPosition);
+        Quaternionf rot = getRotation(animationTime, mCurrentRotation);
 
-        // Allocation-free
-        Matrix4f mat = mCurrentTransform.set(rot);
+        mat.set(rot);
 
         mat.m00 *= scale.x;
         mat.m01 *= scale.x;
@@ -334,40 +407,47 @@ public final class GVRAnimationChannel implements PrettyPrint {
         return mat;
     }
 
-    protected Vector3f getPosition(float time) {
-        Vector3f defaultPosition = new Vector3f();
-        
+    /**
+     * Obtains the transform for a specific time in animation and writes
+     * it as 16 floats in column-major order into {@code dest}, starting
+     * at {@code offset}. No objects are allocated.
+     *
+     * @param animationTime The time in animation.
+     * @param dest The array to receive the transform.
+     * @param offset Index of the first element to write.
+     */
+    public void animate(float animationTime, float[] dest, int offset) {
+        animate(animationTime, mCurrentTransform).get(dest, offset);
+    }
+
+    protected Vector3f getPosition(float time, Vector3f dest) {
         if (mPositionKeys.length == 0) {
-            return defaultPosition;
+            return dest.set(0f, 0f, 0f);
         } else if (mPositionKeys.length == 1) {
-            return mPositionKeys[0].getValue();
+            return mPositionKeys[0].getValue(dest);
         }
 
-        return mPositionInterpolator.interpolate(time);
+        return mPositionInterpolator.interpolate(time, dest);
     }
 
-    protected Vector3f getScale(float time) {
-        Vector3f defaultScale = new Vector3f(1f, 1f, 1f);
-        
+    protected Vector3f getScale(float time, Vector3f dest) {
         if (mScaleKeys.length == 0) {
-            return defaultScale;
+            return dest.set(1f, 1f, 1f);
         } else if (mScaleKeys.length == 1) {
-            return mScaleKeys[0].getValue();
+            return mScaleKeys[0].getValue(dest);
         }
 
-        return mScaleInterpolator.interpolate(time);
+        return mScaleInterpolator.interpolate(time, dest);
     }
 
-    protected Quaternionf getRotation(float time) {
-        Quaternionf defaultRotation = new Quaternionf();
-
+    protected Quaternionf getRotation(float time, Quaternionf dest) {
         if (mRotationKeys.length == 0) {
-            return defaultRotation;
+            return dest.identity();
         } else if (mRotationKeys.length == 1) {
-            return mRotationKeys[0].getValue();
+            return mRotationKeys[0].getValue(dest);
         }
 
-        return mRotationInterpolator.interpolate(time);
+        return mRotationInterpolator.interpolate(time, dest);
     }
 
     @Override
@@ -404,6 +484,11 @@ public final class GVRAnimationChannel implements PrettyPrint {
 
     protected Matrix4f mCurrentTransform;
 
+    // Scratch values reused by every call to animate()
+    private final Vector3f mCurrentPosition;
+    private final Quaternionf mCurrentRotation;
+    private final Vector3f mCurrentScale;
+
     /**
      * Pre-animation behavior.
      */
@@ -13,6 +13,13 @@ public abstract class GVRAnimationController {
      * time to ticks and invokes {@link #animateImpl}.
      */
     public void animate(float timeInSeconds) {
+        animateImpl(getTick(timeInSeconds));
+    }
+
+    /**
+     * Converts {@code timeInSeconds} to a tick in the timeline.
+     */
+    protected float getTick(float timeInSeconds) {
         float ticksPerSecond;
         float timeInTicks;
 
@@ -23,8 +30,7 @@ public abstract class GVRAnimationController {
         }
         timeInTicks = timeInSeconds * ticksPerSecond;
 
-        float animationTick = timeInTicks % (animation.mDurationTicks + TOL); // auto-repeat
-        animateImpl(animationTick);
+        return timeInTicks % (animation.mDurationTicks + TOL); // auto-repeat
     }
 
     /**
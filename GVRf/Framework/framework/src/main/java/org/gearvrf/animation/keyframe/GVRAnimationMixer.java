@@ -0,0 +1,470 @@
+package org.gearvrf.animation.keyframe;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.gearvrf.GVRSceneObject;
+import org.gearvrf.GVRTransform;
+import org.gearvrf.animation.GVRRepeatMode;
+import org.joml.Matrix4f;
+
+/**
+ * Blends several {@link GVRKeyFrameAnimation} clips on the same target.<p>
+ *
+ * Each clip is added as a layer. Every frame the mixer samples the layers
+ * into preallocated pose buffers, blends them in layer order on top of the
+ * bind pose and then writes the node transforms and bone matrices of the
+ * target once, exactly like a single {@code GVRKeyFrameAnimation} does.
+ * The clips themselves are never started or prepared.<p>
+ *
+ * A layer either overrides the pose below it (blending towards its own
+ * pose by its weight) or is additive (adding its difference from its first
+ * frame). Layer weights can be faded over time with
+ * {@link #fadeTo(int, float, float)} and {@link #crossFade(int, int, float)},
+ * and every layer has a per-channel mask to restrict it to part of the
+ * skeleton.<p>
+ *
+ * The mixer repeats indefinitely by default; each layer loops its clip
+ * independently of the mixer duration.
+ *
+ * <pre>
+ * GVRAnimationMixer mixer = new GVRAnimationMixer("mixer", model, 1f);
+ * int walk = mixer.addLayer(walkClip);
+ * int wave = mixer.addLayer(waveClip);
+ * mixer.prepare();
+ * mixer.setWeight(wave, 0f);
+ * mixer.setSubtreeWeight(wave, "Hips", 0f);
+ * mixer.setSubtreeWeight(wave, "Spine", 1f);
+ * mixer.start(animationEngine);
+ * ...
+ * mixer.fadeTo(wave, 1f, 0.3f);
+ * </pre>
+ */
+public class GVRAnimationMixer extends GVRKeyFrameAnimation {
+    private static final float TOL = 1e-6f;
+    private static final int TRS = GVRPackedKeyFrames.TRS_SIZE;
+
+    private static final class Layer {
+        final GVRKeyFrameAnimation clip;
+        GVRPackedKeyFrames keys;
+        int[] channelMap;   // clip channel -> mixer channel
+        float[] pose;       // TRS per clip channel
+        float[] refPose;    // first frame of the clip, for additive layers
+        float[] mask;       // weight per mixer channel
+
+        boolean additive;
+        float speed = 1f;
+        float time;         // seconds into the clip
+        float weight = 1f;
+        float targetWeight = 1f;
+        float fadeRate;     // weight change per second, 0 when not fading
+
+        Layer(GVRKeyFrameAnimation clip, boolean additive) {
+            this.clip = clip;
+            this.additive = additive;
+        }
+    }
+
+    private final List<Layer> mLayers = new ArrayList<Layer>();
+    private final Map<String, Integer> mChannelIds = new LinkedHashMap<String, Integer>();
+
+    private float[] mBindPose;
+    private float[] mBlended;
+    private float mLastMixTime = Float.NaN;
+
+    /**
+     * Constructor.
+     *
+     * @param name The name of the mixer.
+     * @param target The target object the clips influence.
+     * @param duration Duration of one mixer cycle in seconds. It only
+     *                 matters for repeat callbacks; layers loop on their own.
+     */
+    public GVRAnimationMixer(String name, GVRSceneObject target, float duration) {
+        super(name, target, duration, 1f);
+        setRepeatMode(GVRRepeatMode.REPEATED);
+        setRepeatCount(-1);
+    }
+
+    /**
+     * Adds an overriding layer. Must be called before {@link #prepare()}.
+     *
+     * @param clip The clip to play in the layer. Its channels must already
+     *             have all their keys.
+     * @return The index of the layer.
+     */
+    public int addLayer(GVRKeyFrameAnimation clip) {
+        return addLayer(clip, false);
+    }
+
+    /**
+     * Adds a layer. Must be called before {@link #prepare()}.
+     *
+     * @param clip The clip to play in the layer.
+     * @param additive {@code true} to add the clip's motion relative to its
+     *                 first frame to the layers below instead of overriding
+     *                 them.
+     * @return The index of the layer.
+     */
+    public int addLayer(GVRKeyFrameAnimation clip, boolean additive) {
+        if (mBlended != null) {
+            throw new IllegalStateException("Layers must be added before prepare()");
+        }
+        mLayers.add(new Layer(clip, additive));
+        return mLayers.size() - 1;
+    }
+
+    /**
+     * Returns the number of layers.
+     */
+    public int getLayerCount() {
+        return mLayers.size();
+    }
+
+    /**
+     * Sets the weight of a layer immediately, cancelling any fade.
+     *
+     * @param layer Index of the layer.
+     * @param weight Blend weight in [0, 1].
+     */
+    public void setWeight(int layer, float weight) {
+        Layer l = mLayers.get(layer);
+        l.weight = l.targetWeight = clamp(weight);
+        l.fadeRate = 0f;
+    }
+
+    /**
+     * Returns the current weight of a layer.
+     *
+     * @param layer Index of the layer.
+     */
+    public float getWeight(int layer) {
+        return mLayers.get(layer).weight;
+    }
+
+    /**
+     * Fades the weight of a layer linearly to {@code weight}.
+     *
+     * @param layer Index of the layer.
+     * @param weight Target weight in [0, 1].
+     * @param seconds Duration of the fade. 0 sets the weight immediately.
+     */
+    public void fadeTo(int layer, float weight, float seconds) {
+        Layer l = mLayers.get(layer);
+        l.targetWeight = clamp(weight);
+        if (seconds <= 0f) {
+            l.weight = l.targetWeight;
+            l.fadeRate = 0f;
+        } else {
+            l.fadeRate = Math.abs(l.targetWeight - l.weight) / seconds;
+        }
+    }
+
+    /**
+     * Fades one layer out and another one in over the same time.
+     *
+     * @param from Index of the layer to fade out.
+     * @param to Index of the layer to fade in.
+     * @param seconds Duration of the crossfade.
+     */
+    public void crossFade(int from, int to, float seconds) {
+        fadeTo(from, 0f, seconds);
+        fadeTo(to, 1f, seconds);
+    }
+
+    /**
+     * Sets the playback speed of a layer's clip.
+     *
+     * @param layer Index of the layer.
+     * @param speed Speed factor; 1 is the clip's own speed.
+     */
+    public void setSpeed(int layer, float speed) {
+        mLayers.get(layer).speed = speed;
+    }
+
+    /**
+     * Restarts a layer's clip from its first frame.
+     *
+     * @param layer Index of the layer.
+     */
+    public void restartLayer(int layer) {
+        mLayers.get(layer).time = 0f;
+    }
+
+    /**
+     * Sets the mask weight of one channel of a layer. Must be called after
+     * {@link #prepare()}.
+     *
+     * @param layer Index of the layer.
+     * @param nodeName Name of the node animated by the channel.
+     * @param weight Mask weight in [0, 1]; 0 excludes the channel.
+     */
+    public void setChannelWeight(int layer, String nodeName, float weight) {
+        float[] mask = getMask(layer);
+        Integer id = mChannelIds.get(nodeName);
+        if (id != null) {
+            mask[id] = clamp(weight);
+        }
+    }
+
+    /**
+     * Sets the mask weight of the channels animating a node and all of its
+     * descendants in the target hierarchy. Must be called after
+     * {@link #prepare()}.
+     *
+     * @param layer Index of the layer.
+     * @param nodeName Name of the root of the subtree.
+     * @param weight Mask weight in [0, 1]; 0 excludes the subtree.
+     */
+    public void setSubtreeWeight(int layer, String nodeName, float weight) {
+        float[] mask = getMask(layer);
+        GVRSceneObject node = mTarget.getSceneObjectByName(nodeName);
+        if (node != null) {
+            setSubtreeWeight(mask, node, clamp(weight));
+        }
+    }
+
+    private void setSubtreeWeight(float[] mask, GVRSceneObject node, float weight) {
+        Integer id = mChannelIds.get(node.getName());
+        if (id != null) {
+            mask[id] = weight;
+        }
+        for (GVRSceneObject child : node.getChildren()) {
+            setSubtreeWeight(mask, child, weight);
+        }
+    }
+
+    private float[] getMask(int layer) {
+        Layer l = mLayers.get(layer);
+        if (l.mask == null) {
+            throw new IllegalStateException("Animation is not prepared. Call prepare() first.");
+        }
+        return l.mask;
+    }
+
+    /**
+     * Builds the channel table, pose buffers and controllers. Must be
+     * called after adding all layers.
+     */
+    @Override
+    public void prepare() {
+        for (Layer l : mLayers) {
+            for (GVRAnimationChannel channel : l.clip.mChannels) {
+                String name = channel.getNodeName();
+                if (!mChannelIds.containsKey(name)) {
+                    mChannelIds.put(name, mChannelIds.size());
+                }
+            }
+        }
+
+        // Packs the mixer's own (empty) channel list and builds the
+        // controllers, which look channels up through findChannel()
+        super.prepare();
+
+        final int numChannels = mChannelIds.size();
+        mBindPose = new float[numChannels * TRS];
+        mBlended = new float[numChannels * TRS];
+        mTransforms = new Matrix4f[numChannels];
+        for (int i = 0; i < numChannels; ++i) {
+            mTransforms[i] = new Matrix4f();
+        }
+
+        for (Map.Entry<String, Integer> ent : mChannelIds.entrySet()) {
+            readBindPose(mTarget.getSceneObjectByName(ent.getKey()), ent.getValue() * TRS);
+        }
+
+        for (Layer l : mLayers) {
+            List<GVRAnimationChannel> channels = l.clip.mChannels;
+            l.keys = new GVRPackedKeyFrames(channels);
+            l.channelMap = new int[channels.size()];
+            l.pose = new float[channels.size() * TRS];
+            l.refPose = new float[channels.size() * TRS];
+            l.mask = new float[numChannels];
+            for (int i = 0; i < channels.size(); ++i) {
+                int id = mChannelIds.get(channels.get(i).getNodeName());
+                l.channelMap[i] = id;
+                l.mask[id] = 1f;
+            }
+            l.keys.sampleTRS(0f, l.refPose);
+        }
+
+        mLastMixTime = Float.NaN;
+    }
+
+    private void readBindPose(GVRSceneObject node, int off) {
+        float[] pose = mBindPose;
+        if (node == null) {
+            pose[off + 6] = pose[off + 7] = pose[off + 8] = pose[off + 9] = 1f;
+            return;
+        }
+        GVRTransform t = node.getTransform();
+        pose[off] = t.getPositionX();
+        pose[off + 1] = t.getPositionY();
+        pose[off + 2] = t.getPositionZ();
+        pose[off + 3] = t.getRotationX();
+        pose[off + 4] = t.getRotationY();
+        pose[off + 5] = t.getRotationZ();
+        pose[off + 6] = t.getRotationW();
+        pose[off + 7] = t.getScaleX();
+        pose[off + 8] = t.getScaleY();
+        pose[off + 9] = t.getScaleZ();
+    }
+
+    @Override
+    public int findChannel(String nodeName) {
+        Integer id = nodeName != null ? mChannelIds.get(nodeName) : null;
+        return id != null ? id : -1;
+    }
+
+    /**
+     * Blends all layers at the current mixer time. The tick is ignored:
+     * every layer keeps its own clip time.
+     */
+    @Override
+    protected Matrix4f[] getTransforms(float animationTime) {
+        final float now = getElapsedTime();
+        if (now == mLastMixTime) {
+            return mTransforms;
+        }
+        final float dt = Float.isNaN(mLastMixTime) ? 0f : Math.max(0f, now - mLastMixTime);
+        mLastMixTime = now;
+
+        System.arraycopy(mBindPose, 0, mBlended, 0, mBlended.length);
+
+        for (int i = 0, n = mLayers.size(); i < n; ++i) {
+            Layer l = mLayers.get(i);
+            l.time += dt * l.speed;
+            updateFade(l, dt);
+            if (l.weight <= 0f) {
+                continue;
+            }
+
+            l.keys.sampleTRS(getClipTick(l), l.pose);
+
+            final int[] map = l.channelMap;
+            for (int k = 0; k < map.length; ++k) {
+                final int c = map[k];
+                final float w = l.weight * l.mask[c];
+                if (w <= 0f) {
+                    continue;
+                }
+                if (l.additive) {
+                    addPose(mBlended, c * TRS, l.pose, l.refPose, k * TRS, w);
+                } else {
+                    blendPose(mBlended, c * TRS, l.pose, k * TRS, w);
+                }
+            }
+        }
+
+        for (int c = 0; c < mTransforms.length; ++c) {
+            GVRPackedKeyFrames.composeTRS(mBlended, c * TRS, mTransforms[c]);
+        }
+        return mTransforms;
+    }
+
+    private static void updateFade(Layer l, float dt) {
+        if (l.fadeRate == 0f) {
+            return;
+        }
+        float step = l.fadeRate * dt;
+        if (Math.abs(l.targetWeight - l.weight) <= step) {
+            l.weight = l.targetWeight;
+            l.fadeRate = 0f;
+        } else {
+            l.weight += l.targetWeight > l.weight ? step : -step;
+        }
+    }
+
+    private static float getClipTick(Layer l) {
+        GVRKeyFrameAnimation clip = l.clip;
+        float ticksPerSecond = clip.mTicksPerSecond != 0 ? clip.mTicksPerSecond : 25.0f;
+        float duration = clip.mDurationTicks + TOL;
+        float tick = (l.time * ticksPerSecond) % duration;
+        return tick < 0f ? tick + duration : tick;
+    }
+
+    /*
+     * dst = lerp(dst, src, w) for translation and scale, normalized lerp
+     * along the shorter arc for rotation.
+     */
+    private static void blendPose(float[] dst, int d, float[] src, int s, float w) {
+        float iw = 1f - w;
+        dst[d] = dst[d] * iw + src[s] * w;
+        dst[d + 1] = dst[d + 1] * iw + src[s + 1] * w;
+        dst[d + 2] = dst[d + 2] * iw + src[s + 2] * w;
+
+        float dot = dst[d + 3] * src[s + 3] + dst[d + 4] * src[s + 4]
+                + dst[d + 5] * src[s + 5] + dst[d + 6] * src[s + 6];
+        float ws = dot < 0f ? -w : w;
+        float qx = dst[d + 3] * iw + src[s + 3] * ws;
+        float qy = dst[d + 4] * iw + src[s + 4] * ws;
+        float qz = dst[d + 5] * iw + src[s + 5] * ws;
+        float qw = dst[d + 6] * iw + src[s + 6] * ws;
+        float len = (float) Math.sqrt(qx * qx + qy * qy + qz * qz + qw * qw);
+        if (len > 0f) {
+            float inv = 1f / len;
+            dst[d + 3] = qx * inv;
+            dst[d + 4] = qy * inv;
+            dst[d + 5] = qz * inv;
+            dst[d + 6] = qw * inv;
+        }
+
+        dst[d + 7] = dst[d + 7] * iw + src[s + 7] * w;
+        dst[d + 8] = dst[d + 8] * iw + src[s + 8] * w;
+        dst[d + 9] = dst[d + 9] * iw + src[s + 9] * w;
+    }
+
+    /*
+     * Adds w times the difference between src and ref to dst: translation
+     * offsets are added, scale ratios multiplied and the rotation delta
+     * conjugate(ref) * src is applied after the current rotation.
+     */
+    private static void addPose(float[] dst, int d, float[] src, float[] ref, int s, float w) {
+        dst[d] += (src[s] - ref[s]) * w;
+        dst[d + 1] += (src[s + 1] - ref[s + 1]) * w;
+        dst[d + 2] += (src[s + 2] - ref[s + 2]) * w;
+
+        // delta = conjugate(ref) * src
+        float rx = -ref[s + 3], ry = -ref[s + 4], rz = -ref[s + 5], rw = ref[s + 6];
+        float sx = src[s + 3], sy = src[s + 4], sz = src[s + 5], sw = src[s + 6];
+        float ex = rw * sx + rx * sw + ry * sz - rz * sy;
+        float ey = rw * sy - rx * sz + ry * sw + rz * sx;
+        float ez = rw * sz + rx * sy - ry * sx + rz * sw;
+        float ew = rw * sw - rx * sx - ry * sy - rz * sz;
+
+        // Scale the delta by w: nlerp from identity along the shorter arc
+        float iw = 1f - w;
+        float ws = ew < 0f ? -w : w;
+        ex *= ws;
+        ey *= ws;
+        ez *= ws;
+        ew = iw + ew * ws;
+        float len = (float) Math.sqrt(ex * ex + ey * ey + ez * ez + ew * ew);
+        if (len > 0f) {
+            float inv = 1f / len;
+            ex *= inv;
+            ey *= inv;
+            ez *= inv;
+            ew *= inv;
+        }
+
+        // dst = dst * delta
+        float qx = dst[d + 3], qy = dst[d + 4], qz = dst[d + 5], qw = dst[d + 6];
+        dst[d + 3] = qw * ex + qx * ew + qy * ez - qz * ey;
+        dst[d + 4] = qw * ey - qx * ez + qy * ew + qz * ex;
+        dst[d + 5] = qw * ez + qx * ey - qy * ex + qz * ew;
+        dst[d + 6] = qw * ew - qx * ex - qy * ey - qz * ez;
+
+        for (int i = 7; i < TRS; ++i) {
+            if (ref[s + i] != 0f) {
+                dst[d + i] *= 1f + (src[s + i] / ref[s + i] - 1f) * w;
+            }
+        }
+    }
+
+    private static float clamp(float weight) {
+        return weight < 0f ? 0f : (weight > 1f ? 1f : weight);
+    }
+}
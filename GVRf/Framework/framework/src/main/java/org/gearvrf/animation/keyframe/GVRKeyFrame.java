@@ -3,5 +3,6 @@ package org.gearvrf.animation.keyframe;
 /*package*/ interface GVRKeyFrame<T> {
     float getTime();
     T getValue();
+    T getValue(T dest);
     void setValue(T value);
 }
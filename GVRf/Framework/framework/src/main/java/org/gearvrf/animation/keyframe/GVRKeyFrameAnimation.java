@@ -24,6 +24,11 @@ public class GVRKeyFrameAnimation extends GVRAnimation implements PrettyPrint {
 
     protected GVRSceneObject mTarget;
     protected Matrix4f[] mTransforms;
+    protected GVRPackedKeyFrames mPackedKeys;
+    private float mLastSampleTime;
+
+    // Animation time recorded by a deferred animate() call, NaN if none
+    private float mPendingTime = Float.NaN;
 
     /**
      * Constructor.
@@ -55,9 +60,13 @@ public class GVRKeyFrameAnimation extends GVRAnimation implements PrettyPrint {
     }
 
     /**
-     * Must be called after adding all channels.
+     * Must be called after adding all channels and setting all their keys.
+     * The keys are packed into a {@link GVRPackedKeyFrames} here.
      */
     public void prepare() {
+        mPackedKeys = new GVRPackedKeyFrames(mChannels);
+        mLastSampleTime = Float.NaN;
+
         mNodeAnimationController = new GVRNodeAnimationController(mTarget, this);
 
         mSkinningController = new GVRSkinningController(mTarget, this);
@@ -118,15 +127,58 @@ public class GVRKeyFrameAnimation extends GVRAnimation implements PrettyPrint {
             throw new RuntimeException("Animation is not prepared. Call prepare() before starting.");
         }
 
+        if (isDeferred()) {
+            mPendingTime = getDuration() * ratio;
+            return;
+        }
+
         mNodeAnimationController.animate(getDuration() * ratio);
 
         mSkinningController.animate(getDuration() * ratio);
     }
 
+    /**
+     * Keyframe animations sample their channels and walk the skeleton in
+     * {@link #evaluate()}, leaving only the transform and bone matrix writes
+     * to {@link #apply()}.
+     */
+    @Override
+    protected boolean isParallelizable() {
+        return true;
+    }
+
+    @Override
+    protected void evaluate() {
+        if (Float.isNaN(mPendingTime)) {
+            return;
+        }
+        float animationTick = mSkinningController.getTick(mPendingTime);
+        mSkinningController.evaluatePose(getTransforms(animationTick));
+    }
+
+    @Override
+    protected void apply() {
+        if (Float.isNaN(mPendingTime)) {
+            return;
+        }
+        mNodeAnimationController.applyTransforms(mTransforms);
+        mSkinningController.applyBones();
+        mPendingTime = Float.NaN;
+    }
+
+    /**
+     * Returns the packed keys of all channels. Only valid after
+     * {@link #prepare()}.
+     */
+    public GVRPackedKeyFrames getPackedKeyFrames() {
+        return mPackedKeys;
+    }
+
     protected Matrix4f[] getTransforms(float animationTime) {
-        int i = 0;
-        for (GVRAnimationChannel channel : mChannels) {
-            mTransforms[i++].set(channel.animate(animationTime));
+        // Both controllers sample the same tick every frame
+        if (animationTime != mLastSampleTime) {
+            mPackedKeys.sample(animationTime, mTransforms);
+            mLastSampleTime = animationTime;
         }
         return mTransforms;
     }
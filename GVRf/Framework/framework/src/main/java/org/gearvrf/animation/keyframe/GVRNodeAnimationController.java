@@ -4,6 +4,8 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.gearvrf.GVRSceneObject;
+import org.gearvrf.GVRTransform;
+import org.gearvrf.GVRTransformBatch;
 import org.joml.Matrix4f;
 
 /**
@@ -33,6 +35,9 @@ public class GVRNodeAnimationController extends GVRAnimationController {
 
     protected List<AnimationItem> animatedNodes;
 
+    // Commits the matrices of all animated nodes in one native call
+    private GVRTransformBatch mBatch;
+
     /**
      * Constructs a list of animated {@link GVRSceneObject}.
      *
@@ -48,6 +53,15 @@ public class GVRNodeAnimationController extends GVRAnimationController {
         if (animation != null) {
             scanTree(sceneRoot);
         }
+        createBatch();
+    }
+
+    private void createBatch() {
+        GVRTransform[] transforms = new GVRTransform[animatedNodes.size()];
+        for (int i = 0; i < transforms.length; ++i) {
+            transforms[i] = animatedNodes.get(i).target.getTransform();
+        }
+        mBatch = new GVRTransformBatch(transforms);
     }
 
     /* Returns true if subtree contains renderables */
@@ -74,10 +88,26 @@ public class GVRNodeAnimationController extends GVRAnimationController {
      */
     @Override
     protected void animateImpl(float animationTick) {
-        Matrix4f[] animationTransform = animation.getTransforms(animationTick);
+        applyTransforms(animation.getTransforms(animationTick));
+    }
 
-        for (AnimationItem item : animatedNodes) {
-            item.target.getTransform().setModelMatrix(animationTransform[item.channelId]);
+    /**
+     * Writes already sampled channel transforms to the animated nodes.
+     * Must be called on the GL thread.
+     *
+     * @param animationTransform The transforms of all channels.
+     */
+    protected void applyTransforms(Matrix4f[] animationTransform) {
+        final int n = animatedNodes.size();
+        if (n == 0) {
+            return;
+        }
+        if (mBatch.size() != n) {
+            createBatch();
+        }
+        for (int i = 0; i < n; ++i) {
+            mBatch.putMatrix(i, animationTransform[animatedNodes.get(i).channelId]);
         }
+        mBatch.commitModelMatrices();
     }
 }
\ No newline at end of file
@@ -0,0 +1,410 @@
+package org.gearvrf.animation.keyframe;
+
+import java.nio.FloatBuffer;
+import java.util.List;
+
+import org.joml.Matrix4f;
+import org.joml.Quaternionf;
+import org.joml.Vector3f;
+
+/**
+ * Structure-of-arrays storage for all the channels of a keyframe animation.<p>
+ *
+ * The keys of every channel are packed into contiguous primitive arrays:
+ * one array of key times and one array of values each for translations
+ * (3 floats per key), rotations (4 floats per key, x y z w) and scales
+ * (3 floats per key). Channel {@code i} owns the keys between
+ * {@code start[i]} and {@code start[i] + count[i]} of each track.<p>
+ *
+ * {@link #sample(float, float[])} evaluates every channel in one loop over
+ * the packed arrays, which is considerably cheaper for clips with many
+ * bones than walking the per-channel {@link GVRKeyFrame} objects.
+ * Sampling does not allocate.<p>
+ *
+ * The packed keys are a snapshot of the channels at construction time;
+ * later changes to a {@link GVRAnimationChannel} are not reflected.
+ */
+public final class GVRPackedKeyFrames {
+    /** Number of floats written per channel by {@link #sample(float, float[])}. */
+    public static final int MATRIX_SIZE = 16;
+
+    /**
+     * Number of floats written per channel by {@link #sampleTRS(float, float[])}:
+     * translation (x, y, z), rotation (x, y, z, w) and scale (x, y, z).
+     */
+    public static final int TRS_SIZE = 10;
+
+    private final int mNumChannels;
+
+    private final float[] mPosTimes;
+    private final float[] mPosValues;
+    private final int[] mPosStart;
+    private final int[] mPosCount;
+    private final int[] mPosLastKey;
+
+    private final float[] mRotTimes;
+    private final float[] mRotValues;
+    private final int[] mRotStart;
+    private final int[] mRotCount;
+    private final int[] mRotLastKey;
+
+    private final float[] mScaleTimes;
+    private final float[] mScaleValues;
+    private final int[] mScaleStart;
+    private final int[] mScaleCount;
+    private final int[] mScaleLastKey;
+
+    private final Matrix4f mTempMatrix = new Matrix4f();
+    private final float[] mTempTRS = new float[TRS_SIZE];
+
+    /**
+     * Packs the keys of a list of channels.
+     *
+     * @param channels The channels to pack, in channel id order.
+     */
+    public GVRPackedKeyFrames(List<GVRAnimationChannel> channels) {
+        mNumChannels = channels.size();
+
+        mPosStart = new int[mNumChannels];
+        mPosCount = new int[mNumChannels];
+        mPosLastKey = new int[mNumChannels];
+        mRotStart = new int[mNumChannels];
+        mRotCount = new int[mNumChannels];
+        mRotLastKey = new int[mNumChannels];
+        mScaleStart = new int[mNumChannels];
+        mScaleCount = new int[mNumChannels];
+        mScaleLastKey = new int[mNumChannels];
+
+        int numPos = 0, numRot = 0, numScale = 0;
+        for (int c = 0; c < mNumChannels; ++c) {
+            GVRAnimationChannel channel = channels.get(c);
+            mPosStart[c] = numPos;
+            mPosCount[c] = channel.getNumPosKeys();
+            numPos += mPosCount[c];
+            mRotStart[c] = numRot;
+            mRotCount[c] = channel.getNumRotKeys();
+            numRot += mRotCount[c];
+            mScaleStart[c] = numScale;
+            mScaleCount[c] = channel.getNumScaleKeys();
+            numScale += mScaleCount[c];
+        }
+
+        mPosTimes = new float[numPos];
+        mPosValues = new float[numPos * 3];
+        mRotTimes = new float[numRot];
+        mRotValues = new float[numRot * 4];
+        mScaleTimes = new float[numScale];
+        mScaleValues = new float[numScale * 3];
+
+        Vector3f v = new Vector3f();
+        Quaternionf q = new Quaternionf();
+        for (int c = 0; c < mNumChannels; ++c) {
+            GVRAnimationChannel channel = channels.get(c);
+
+            for (int k = 0, i = mPosStart[c]; k < mPosCount[c]; ++k, ++i) {
+                mPosTimes[i] = (float) channel.getPosKeyTime(k);
+                channel.getPosKeyVector(k, v);
+                mPosValues[i * 3] = v.x;
+                mPosValues[i * 3 + 1] = v.y;
+                mPosValues[i * 3 + 2] = v.z;
+            }
+
+            for (int k = 0, i = mRotStart[c]; k < mRotCount[c]; ++k, ++i) {
+                mRotTimes[i] = (float) channel.getRotKeyTime(k);
+                channel.getRotKeyQuaternion(k, q);
+                mRotValues[i * 4] = q.x;
+                mRotValues[i * 4 + 1] = q.y;
+                mRotValues[i * 4 + 2] = q.z;
+                mRotValues[i * 4 + 3] = q.w;
+            }
+
+            for (int k = 0, i = mScaleStart[c]; k < mScaleCount[c]; ++k, ++i) {
+                mScaleTimes[i] = (float) channel.getScaleKeyTime(k);
+                channel.getScaleKeyVector(k, v);
+                mScaleValues[i * 3] = v.x;
+                mScaleValues[i * 3 + 1] = v.y;
+                mScaleValues[i * 3 + 2] = v.z;
+            }
+
+            mPosLastKey[c] = mRotLastKey[c] = mScaleLastKey[c] = -1;
+        }
+    }
+
+    /**
+     * Returns the number of packed channels.
+     */
+    public int getNumChannels() {
+        return mNumChannels;
+    }
+
+    /**
+     * Returns a read-only view of the packed key times of all position
+     * tracks.
+     */
+    public FloatBuffer getPositionTimes() {
+        return FloatBuffer.wrap(mPosTimes).asReadOnlyBuffer();
+    }
+
+    /**
+     * Returns a read-only view of the packed positions (x, y, z per key).
+     */
+    public FloatBuffer getPositions() {
+        return FloatBuffer.wrap(mPosValues).asReadOnlyBuffer();
+    }
+
+    /**
+     * Returns a read-only view of the packed key times of all rotation
+     * tracks.
+     */
+    public FloatBuffer getRotationTimes() {
+        return FloatBuffer.wrap(mRotTimes).asReadOnlyBuffer();
+    }
+
+    /**
+     * Returns a read-only view of the packed rotations (x, y, z, w per key).
+     */
+    public FloatBuffer getRotations() {
+        return FloatBuffer.wrap(mRotValues).asReadOnlyBuffer();
+    }
+
+    /**
+     * Returns a read-only view of the packed key times of all scale tracks.
+     */
+    public FloatBuffer getScaleTimes() {
+        return FloatBuffer.wrap(mScaleTimes).asReadOnlyBuffer();
+    }
+
+    /**
+     * Returns a read-only view of the packed scales (x, y, z per key).
+     */
+    public FloatBuffer getScales() {
+        return FloatBuffer.wrap(mScaleValues).asReadOnlyBuffer();
+    }
+
+    /**
+     * Samples every channel at {@code time} and writes the resulting
+     * matrices into {@code dest}.
+     *
+     * @param time The time in animation ticks.
+     * @param dest Array of at least {@link #getNumChannels()} matrices.
+     */
+    public void sample(float time, Matrix4f[] dest) {
+        for (int c = 0; c < mNumChannels; ++c) {
+            sampleChannel(c, time, mTempTRS, 0);
+            composeTRS(mTempTRS, 0, dest[c]);
+        }
+    }
+
+    /**
+     * Samples every channel at {@code time} and writes the unmixed
+     * translation, rotation and scale into {@code dest}, {@link #TRS_SIZE}
+     * floats per channel. This is the form used to blend several clips.
+     *
+     * @param time The time in animation ticks.
+     * @param dest Array of at least {@code TRS_SIZE * getNumChannels()}
+     *             floats.
+     */
+    public void sampleTRS(float time, float[] dest) {
+        for (int c = 0; c < mNumChannels; ++c) {
+            sampleChannel(c, time, dest, c * TRS_SIZE);
+        }
+    }
+
+    /**
+     * Samples every channel at {@code time} and writes the resulting
+     * matrices into {@code dest}, {@link #MATRIX_SIZE} floats per channel
+     * in column-major order.
+     *
+     * @param time The time in animation ticks.
+     * @param dest Array of at least {@code MATRIX_SIZE * getNumChannels()}
+     *             floats.
+     */
+    public void sample(float time, float[] dest) {
+        Matrix4f m = mTempMatrix;
+        for (int c = 0; c < mNumChannels; ++c) {
+            sampleChannel(c, time, mTempTRS, 0);
+            composeTRS(mTempTRS, 0, m);
+            m.get(dest, c * MATRIX_SIZE);
+        }
+    }
+
+    /**
+     * Builds a transform matrix from {@link #TRS_SIZE} floats of
+     * translation, rotation and scale. The components are composed the same
+     * way as {@link GVRAnimationChannel#animate(float, Matrix4f)}.
+     *
+     * @param trs Array holding the translation, rotation and scale.
+     * @param off Index of the first float in {@code trs}.
+     * @param mat The matrix to receive the transform.
+     *
+     * @return {@code mat}
+     */
+    public static Matrix4f composeTRS(float[] trs, int off, Matrix4f mat) {
+        float px = trs[off], py = trs[off + 1], pz = trs[off + 2];
+        float qx = trs[off + 3], qy = trs[off + 4], qz = trs[off + 5], qw = trs[off + 6];
+        float sx = trs[off + 7], sy = trs[off + 8], sz = trs[off + 9];
+
+        // Rotation matrix (as Quaternionf.get(Matrix4f)) scaled per column
+        float q00 = 2.0f * qx * qx;
+        float q11 = 2.0f * qy * qy;
+        float q22 = 2.0f * qz * qz;
+        float q01 = 2.0f * qx * qy;
+        float q02 = 2.0f * qx * qz;
+        float q03 = 2.0f * qx * qw;
+        float q12 = 2.0f * qy * qz;
+        float q13 = 2.0f * qy * qw;
+        float q23 = 2.0f * qz * qw;
+
+        mat.m00 = (1.0f - q11 - q22) * sx;
+        mat.m01 = (q01 + q23) * sx;
+        mat.m02 = (q02 - q13) * sx;
+        mat.m03 = 0.0f;
+        mat.m10 = (q01 - q23) * sy;
+        mat.m11 = (1.0f - q22 - q00) * sy;
+        mat.m12 = (q12 + q03) * sy;
+        mat.m13 = 0.0f;
+        mat.m20 = (q02 + q13) * sz;
+        mat.m21 = (q12 - q03) * sz;
+        mat.m22 = (1.0f - q11 - q00) * sz;
+        mat.m23 = 0.0f;
+        mat.m30 = px;
+        mat.m31 = py;
+        mat.m32 = pz;
+        mat.m33 = 1.0f;
+        return mat;
+    }
+
+    /*
+     * Evaluates the translation, rotation and scale of one channel.
+     */
+    private void sampleChannel(int c, float time, float[] trs, int off) {
+        float px = 0f, py = 0f, pz = 0f;
+        float qx = 0f, qy = 0f, qz = 0f, qw = 1f;
+        float sx = 1f, sy = 1f, sz = 1f;
+
+        int count = mPosCount[c];
+        if (count > 0) {
+            int start = mPosStart[c];
+            int k = findKey(mPosTimes, start, count, mPosLastKey, c, time);
+            int i = (start + k) * 3;
+            if (k + 1 < count && mPosTimes[start + k] <= time) {
+                float f = factor(mPosTimes, start + k, time);
+                px = mPosValues[i] + (mPosValues[i + 3] - mPosValues[i]) * f;
+                py = mPosValues[i + 1] + (mPosValues[i + 4] - mPosValues[i + 1]) * f;
+                pz = mPosValues[i + 2] + (mPosValues[i + 5] - mPosValues[i + 2]) * f;
+            } else {
+                px = mPosValues[i];
+                py = mPosValues[i + 1];
+                pz = mPosValues[i + 2];
+            }
+        }
+
+        count = mScaleCount[c];
+        if (count > 0) {
+            int start = mScaleStart[c];
+            int k = findKey(mScaleTimes, start, count, mScaleLastKey, c, time);
+            int i = (start + k) * 3;
+            if (k + 1 < count && mScaleTimes[start + k] <= time) {
+                float f = factor(mScaleTimes, start + k, time);
+                sx = mScaleValues[i] + (mScaleValues[i + 3] - mScaleValues[i]) * f;
+                sy = mScaleValues[i + 1] + (mScaleValues[i + 4] - mScaleValues[i + 1]) * f;
+                sz = mScaleValues[i + 2] + (mScaleValues[i + 5] - mScaleValues[i + 2]) * f;
+            } else {
+                sx = mScaleValues[i];
+                sy = mScaleValues[i + 1];
+                sz = mScaleValues[i + 2];
+            }
+        }
+
+        count = mRotCount[c];
+        if (count > 0) {
+            int start = mRotStart[c];
+            int k = findKey(mRotTimes, start, count, mRotLastKey, c, time);
+            int i = (start + k) * 4;
+            qx = mRotValues[i];
+            qy = mRotValues[i + 1];
+            qz = mRotValues[i + 2];
+            qw = mRotValues[i + 3];
+            if (k + 1 < count && mRotTimes[start + k] <= time) {
+                // Same slerp as Quaternionf.slerp
+                float alpha = factor(mRotTimes, start + k, time);
+                float tx = mRotValues[i + 4], ty = mRotValues[i + 5];
+                float tz = mRotValues[i + 6], tw = mRotValues[i + 7];
+                float cosom = qx * tx + qy * ty + qz * tz + qw * tw;
+                float absCosom = Math.abs(cosom);
+                float scale0, scale1;
+                if (1.0f - absCosom > 1E-6f) {
+                    float sinSqr = 1.0f - absCosom * absCosom;
+                    float sinom = (float) (1.0 / Math.sqrt(sinSqr));
+                    float omega = (float) Math.atan2(sinSqr * sinom, absCosom);
+                    scale0 = (float) (Math.sin((1.0 - alpha) * omega) * sinom);
+                    scale1 = (float) (Math.sin(alpha * omega) * sinom);
+                } else {
+                    scale0 = 1.0f - alpha;
+                    scale1 = alpha;
+                }
+                scale1 = cosom >= 0.0f ? scale1 : -scale1;
+                qx = scale0 * qx + scale1 * tx;
+                qy = scale0 * qy + scale1 * ty;
+                qz = scale0 * qz + scale1 * tz;
+                qw = scale0 * qw + scale1 * tw;
+            }
+        }
+
+        trs[off] = px;
+        trs[off + 1] = py;
+        trs[off + 2] = pz;
+        trs[off + 3] = qx;
+        trs[off + 4] = qy;
+        trs[off + 5] = qz;
+        trs[off + 6] = qw;
+        trs[off + 7] = sx;
+        trs[off + 8] = sy;
+        trs[off + 9] = sz;
+    }
+
+    private static float factor(float[] times, int i, float time) {
+        return (time - times[i]) / (times[i + 1] - times[i]);
+    }
+
+    /*
+     * Returns the local index k of the key interval [time(k), time(k + 1))
+     * containing time. Returns 0 if time is before the first key and
+     * count - 1 if it is at or after the last key. The previous result is
+     * cached per channel since consecutive frames usually hit the same or
+     * the next interval.
+     */
+    private static int findKey(float[] times, int start, int count,
+            int[] lastKeys, int channel, float time) {
+        if (count == 1 || time < times[start + 1]) {
+            return 0;
+        }
+        int last = start + count - 1;
+        if (time >= times[last]) {
+            return count - 1;
+        }
+
+        int k = lastKeys[channel];
+        if (k != -1) {
+            int i = start + k;
+            if (times[i] <= time && time < times[i + 1]) {
+                return k;
+            }
+            if (i + 2 <= last && times[i + 1] <= time && time < times[i + 2]) {
+                return lastKeys[channel] = k + 1;
+            }
+        }
+
+        // Binary search for the last key not greater than time
+        int low = start + 1, high = last - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (times[mid] <= time) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return lastKeys[channel] = low - start;
+    }
+}
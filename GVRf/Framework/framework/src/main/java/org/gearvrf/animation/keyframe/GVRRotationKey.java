@@ -38,6 +38,16 @@ public class GVRRotationKey implements GVRKeyFrame<Quaternionf> {
         return new Quaternionf(mX, mY, mZ, mW);
     }
 
+    /**
+     * Copies the quaternion of the keyframe into {@code dest}.
+     *
+     * @param dest Quaternion to receive the value.
+     * @return {@code dest}
+     */
+    public Quaternionf getValue(Quaternionf dest) {
+        return dest.set(mX, mY, mZ, mW);
+    }
+
     /**
      * Sets the quaternion of the keyframe.
      */
@@ -2,6 +2,7 @@ package org.gearvrf.animation.keyframe;
 
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -12,11 +13,18 @@ import org.gearvrf.GVRBone;
 import org.gearvrf.GVRContext;
 import org.gearvrf.GVRMesh;
 import org.gearvrf.GVRSceneObject;
+import org.gearvrf.GVRTransform;
+import org.gearvrf.GVRTransformBatch;
 import org.gearvrf.utility.Log;
 import org.joml.Matrix4f;
 
 /**
- * Controls skeletal animation (skinning). 
+ * Controls skeletal animation (skinning).
+ *
+ * The skeleton is compiled once, at construction, into flat arrays in
+ * depth-first order (every parent precedes its children). Each frame is
+ * then a linear pass over those arrays followed by one pass over the bones,
+ * with one inverse per skinned mesh.
  */
 public class GVRSkinningController extends GVRAnimationController {
     private static final String TAG = GVRSkinningController.class.getSimpleName();
@@ -28,6 +36,30 @@ public class GVRSkinningController extends GVRAnimationController {
     protected Map<String, SceneAnimNode> nodeByName;
     protected Map<GVRSceneObject, List<GVRBone>> boneMap;
 
+    // Scratch state reused every frame so that skinning does not allocate
+    private final Matrix4f mFinalMatrix = new Matrix4f();
+    private final Matrix4f mGlobalInverse = new Matrix4f();
+    private final float[] mTempMatrix = new float[16];
+
+    // Compiled skeleton, one entry per node of the pruned animation tree
+    private int[] mParents;                 // index of the parent node, -1 for the root
+    private int[] mChannels;                // animation channel, -1 if not animated
+    private int[] mStaticIndex;             // index into mStaticBatch, -1 if animated
+    private GVRTransformBatch mStaticBatch; // local matrices of nodes that are not animated
+    private Matrix4f[] mLocals;
+    private Matrix4f[] mGlobals;
+
+    // Compiled bones, one entry per bone instance
+    private GVRBone[] mBones;
+    private int[] mBoneNodes;               // compiled node index, -1 if the node was pruned
+    private int[] mBoneMeshes;              // index into mMeshTransforms
+    private Matrix4f[] mBoneOffsets;
+    private Matrix4f[] mBonePoses;
+
+    // Skinned meshes and the inverse of their model matrix, updated once per frame
+    private GVRTransformBatch mMeshBatch;
+    private Matrix4f[] mMeshInverses;
+
     protected class SceneAnimNode {
         GVRSceneObject sceneObject;
         SceneAnimNode parent;
@@ -62,6 +94,96 @@ public class GVRSkinningController extends GVRAnimationController {
 
         animRoot = createAnimationTree(sceneRoot, null);
         pruneTree(animRoot);
+        compileSkeleton();
+    }
+
+    /*
+     * Flattens the pruned animation tree and the bone map into arrays.
+     */
+    private void compileSkeleton() {
+        List<SceneAnimNode> nodes = new ArrayList<SceneAnimNode>();
+        flatten(animRoot, nodes);
+
+        final int numNodes = nodes.size();
+        Map<SceneAnimNode, Integer> nodeIndex = new IdentityHashMap<SceneAnimNode, Integer>();
+        mParents = new int[numNodes];
+        mChannels = new int[numNodes];
+        mStaticIndex = new int[numNodes];
+        List<GVRTransform> staticTransforms = new ArrayList<GVRTransform>();
+        mLocals = new Matrix4f[numNodes];
+        mGlobals = new Matrix4f[numNodes];
+        for (int i = 0; i < numNodes; ++i) {
+            SceneAnimNode node = nodes.get(i);
+            nodeIndex.put(node, i);
+            mParents[i] = node.parent != null ? nodeIndex.get(node.parent) : -1;
+            mChannels[i] = node.channelId;
+            mStaticIndex[i] = -1;
+            if (node.channelId == -1) {
+                mStaticIndex[i] = staticTransforms.size();
+                staticTransforms.add(node.sceneObject.getTransform());
+            }
+            // Share the matrices so that the tree stays up to date
+            mLocals[i] = node.localTransform;
+            mGlobals[i] = node.globalTransform;
+        }
+
+        mStaticBatch = new GVRTransformBatch(staticTransforms);
+
+        List<GVRBone> bones = new ArrayList<GVRBone>();
+        List<SceneAnimNode> boneNodes = new ArrayList<SceneAnimNode>();
+        for (Entry<GVRSceneObject, List<GVRBone>> ent : boneMap.entrySet()) {
+            // Transform all bone splits (a bone can be split into multiple instances if they influence
+            // different meshes)
+            SceneAnimNode node = nodeByName.get(ent.getKey().getName());
+            for (GVRBone bone : ent.getValue()) {
+                bones.add(bone);
+                boneNodes.add(node);
+            }
+        }
+
+        final int numBones = bones.size();
+        Map<GVRSceneObject, Integer> meshIndex = new IdentityHashMap<GVRSceneObject, Integer>();
+        List<GVRTransform> meshTransforms = new ArrayList<GVRTransform>();
+        mBones = bones.toArray(new GVRBone[numBones]);
+        mBoneNodes = new int[numBones];
+        mBoneMeshes = new int[numBones];
+        mBoneOffsets = new Matrix4f[numBones];
+        mBonePoses = new Matrix4f[numBones];
+        for (int i = 0; i < numBones; ++i) {
+            GVRBone bone = mBones[i];
+            SceneAnimNode node = boneNodes.get(i);
+            Integer index = nodeIndex.get(node);
+
+            mBoneOffsets[i] = bone.getOffsetMatrix(new Matrix4f());
+            mBonePoses[i] = new Matrix4f();
+            mBoneNodes[i] = index != null ? index : -1;
+            if (index == null) {
+                // The node is not animated, its bind pose never changes
+                node.globalTransform.mul(mBoneOffsets[i], mBonePoses[i]);
+            }
+
+            GVRSceneObject mesh = bone.getSceneObject();
+            Integer m = meshIndex.get(mesh);
+            if (m == null) {
+                m = meshTransforms.size();
+                meshIndex.put(mesh, m);
+                meshTransforms.add(mesh.getTransform());
+            }
+            mBoneMeshes[i] = m;
+        }
+
+        mMeshBatch = new GVRTransformBatch(meshTransforms);
+        mMeshInverses = new Matrix4f[mMeshBatch.size()];
+        for (int i = 0; i < mMeshInverses.length; ++i) {
+            mMeshInverses[i] = new Matrix4f();
+        }
+    }
+
+    private static void flatten(SceneAnimNode node, List<SceneAnimNode> nodes) {
+        nodes.add(node);
+        for (SceneAnimNode child : node.children) {
+            flatten(child, nodes);
+        }
     }
 
     protected SceneAnimNode createAnimationTree(GVRSceneObject node, SceneAnimNode parent) {
@@ -121,44 +243,116 @@ public class GVRSkinningController extends GVRAnimationController {
      */
     @Override
     protected void animateImpl(float animationTick) {
-        Matrix4f[] animationTransform = animation.getTransforms(animationTick);
+        evaluatePose(animation.getTransforms(animationTick));
+        applyBones();
+    }
+
+    /**
+     * Walks the skeleton and computes the skeletal pose of every bone from
+     * already sampled channel transforms. Does not modify the scene graph,
+     * so it may run off the GL thread.
+     *
+     * @param animationTransform The transforms of all channels.
+     */
+    protected void evaluatePose(Matrix4f[] animationTransform) {
+        final int[] parents = mParents;
+        final int[] channels = mChannels;
+        final Matrix4f[] locals = mLocals;
+        final Matrix4f[] globals = mGlobals;
+
+        if (mStaticBatch.size() > 0) {
+            mStaticBatch.readLocalModelMatrices();
+        }
 
-        updateTransforms(animRoot, new Matrix4f(), animationTransform);
+        for (int i = 0; i < parents.length; ++i) {
+            Matrix4f local = locals[i];
+            if (channels[i] != -1) {
+                local.set(animationTransform[channels[i]]);
+            } else {
+                // Default local transform
+                mStaticBatch.getMatrix(mStaticIndex[i], local);
+            }
 
-        for (Entry<GVRSceneObject, List<GVRBone>> ent : boneMap.entrySet()) {
-            // Transform all bone splits (a bone can be split into multiple instances if they influence
-            // different meshes)
-            SceneAnimNode node = nodeByName.get(ent.getKey().getName());
-            for (GVRBone bone : ent.getValue()) {
-                updateBoneMatrices(bone, node);
+            if (parents[i] == -1) {
+                globals[i].set(local);
+            } else {
+                globals[parents[i]].mul(local, globals[i]);
             }
         }
+
+        for (int i = 0; i < mBones.length; ++i) {
+            int node = mBoneNodes[i];
+            if (node != -1) {
+                globals[node].mul(mBoneOffsets[i], mBonePoses[i]);
+            }
+        }
+    }
+
+    /**
+     * Computes the final bone matrices from the pose computed by
+     * {@link #evaluatePose(Matrix4f[])} and passes them to the bones.
+     * Must be called on the GL thread, after node transforms are updated.
+     */
+    protected void applyBones() {
+        if (mMeshBatch.size() > 0) {
+            mMeshBatch.readModelMatrices();
+        }
+        for (int i = 0; i < mMeshInverses.length; ++i) {
+            mMeshBatch.getMatrix(i, mMeshInverses[i]).invert();
+        }
+
+        for (int i = 0; i < mBones.length; ++i) {
+            mMeshInverses[mBoneMeshes[i]].mul(mBonePoses[i], mFinalMatrix);
+            mFinalMatrix.get(mTempMatrix);
+            mBones[i].setFinalTransformMatrix(mTempMatrix);
+        }
     }
 
+    /**
+     * Computes the local and global transforms of a node and its subtree
+     * from sampled channel transforms.
+     *
+     * @deprecated The skeleton is compiled into arrays and walked by
+     *             {@link #evaluatePose(Matrix4f[])}; this is no longer called
+     *             by the controller.
+     */
+    @Deprecated
     protected void updateTransforms(SceneAnimNode node, Matrix4f parentTransform, Matrix4f[] animationTransform) {
         if (node.channelId != -1) {
             node.localTransform.set(animationTransform[node.channelId]);
         } else {
             // Default local transform
-            node.localTransform.set(node.sceneObject.getTransform().getLocalModelMatrix4f());
+            node.sceneObject.getTransform().getLocalModelMatrix(mTempMatrix);
+            node.localTransform.set(mTempMatrix);
         }
 
         parentTransform.mul(node.localTransform, node.globalTransform);
 
-        for (SceneAnimNode child : node.children) {
-            updateTransforms(child, node.globalTransform, animationTransform);
+        for (int i = 0, n = node.children.size(); i < n; ++i) {
+            updateTransforms(node.children.get(i), node.globalTransform, animationTransform);
         }
     }
 
+    /**
+     * Computes the final matrix of one bone from the global transform of its
+     * node and passes it to the bone.
+     *
+     * @deprecated The final matrices of all bones are computed together by
+     *             {@link #applyBones()}; this is no longer called by the
+     *             controller.
+     */
+    @Deprecated
     protected void updateBoneMatrices(GVRBone bone, SceneAnimNode node) {
-        Matrix4f finalMatrix = new Matrix4f().set(bone.getOffsetMatrix());
+        Matrix4f finalMatrix = bone.getOffsetMatrix(mFinalMatrix);
 
         node.globalTransform.mul(finalMatrix, finalMatrix);
 
-        Matrix4f globalInverse = new Matrix4f().set(bone.getSceneObject().getTransform().getModelMatrix4f()).invert();
+        bone.getSceneObject().getTransform().getModelMatrix(mTempMatrix);
+        Matrix4f globalInverse = mGlobalInverse.set(mTempMatrix).invert();
         globalInverse.mul(finalMatrix, finalMatrix);
 
-        bone.setFinalTransformMatrix(finalMatrix);
+        finalMatrix.get(mTempMatrix);
+        bone.setFinalTransformMatrix(mTempMatrix);
     }
 
     /* Returns true if the subtree should be kept */
@@ -25,7 +25,6 @@ import java.io.FileDescriptor;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.nio.ByteBuffer;
 
 import org.gearvrf.GVRAndroidResource;
 import org.gearvrf.GVRAndroidResource.CancelableCallback;
@@ -34,6 +33,7 @@ import org.gearvrf.GVRContext;
 import org.gearvrf.asynchronous.Throttler.AsyncLoader;
 import org.gearvrf.asynchronous.Throttler.AsyncLoaderFactory;
 import org.gearvrf.asynchronous.Throttler.GlConverter;
+import org.gearvrf.utility.DirectBufferPool;
 import org.gearvrf.utility.Exceptions;
 import org.gearvrf.utility.Log;
 import org.gearvrf.utility.RecycleBin;
@@ -361,139 +361,22 @@ class AsyncBitmapTexture {
     }
 
     static Bitmap decodeStreamTGA(InputStream stream) {
-        Bitmap bitmap = null;
+        DirectBufferPool pool = AsyncManager.get().getBufferPool();
+        TgaDecoder.Image image;
         try {
-            byte[] headerTGA = new byte[18];
-
-            stream.read(headerTGA);
-            int type = headerTGA[2] & 0xFF;
-            // uncompressed RGB tga
-            if (type == 2) {
-                int depth = headerTGA[16] & 0xFF;
-                int descriptor = headerTGA[17] & 0xFF;
-                int width = (headerTGA[12] & 0xFF) | (headerTGA[13] & 0xFF) << 8;
-                int height = (headerTGA[14] & 0xFF) | (headerTGA[15] & 0xFF) << 8;
-                bitmap = decodeStreamRGB(stream, width, height, depth, descriptor);
-            } else {
-                Log.d(TAG, "TGA format not supported: type is not uncompressed RGB");
-            }
+            image = TgaDecoder.decode(stream, pool);
         } catch (IOException e) {
-            e.printStackTrace();
+            Log.d(TAG, "Cannot decode TGA: %s", e.getMessage());
+            return null;
         }
-        return bitmap;
-    }
-
-    private static final int RIGHT_ORIGIN = 0x10;
-    private static final int UPPER_ORIGIN = 0x20;
-
-    static Bitmap decodeStreamRGB(InputStream stream, int width, int height, int depth, int descriptor) {
-        Bitmap bitmap = null;
-        byte rgb[];
-        byte data[];
-        int currentHeight = 0;
 
         try {
-            switch (depth) {
-                case 24:
-                    rgb = new byte[width * height * 4];
-                    data = new byte[width * 3];
-
-                    while (stream.read(data) != -1) {
-                        for (int i = 0; i < width; i++) {
-                            byte r = data[i * 3 + 0];
-                            byte g = data[i * 3 + 1];
-                            byte b = data[i * 3 + 2];
-                            byte a = (byte)0xFF;
-                            if ((descriptor & RIGHT_ORIGIN) != 0) {
-                                if ((descriptor & UPPER_ORIGIN) != 0) {
-                                    // Upper Right
-                                    rgb[currentHeight * width * 4 + (width - i - 1) * 4 + 0] = b;
-                                    rgb[currentHeight * width * 4 + (width - i - 1) * 4 + 1] = g;
-                                    rgb[currentHeight * width * 4 + (width - i - 1) * 4 + 2] = r;
-                                    rgb[currentHeight * width * 4 + (width - i - 1) * 4 + 3] = a;
-                                } else {
-                                    // Lower Right
-                                    rgb[(height - currentHeight - 1) * width * 4 + (width - i - 1) * 4 + 0] = b;
-                                    rgb[(height - currentHeight - 1) * width * 4 + (width - i - 1) * 4 + 1] = g;
-                                    rgb[(height - currentHeight - 1) * width * 4 + (width - i - 1) * 4 + 2] = r;
-                                    rgb[(height - currentHeight - 1) * width * 4 + (width - i - 1) * 4 + 3] = a;
-                                }
-                            } else {
-                                if ((descriptor & UPPER_ORIGIN) != 0) {
-                                    // Upper Left
-                                    rgb[currentHeight * width * 4 + i * 4 + 0] = b;
-                                    rgb[currentHeight * width * 4 + i * 4 + 1] = g;
-                                    rgb[currentHeight * width * 4 + i * 4 + 2] = r;
-                                    rgb[currentHeight * width * 4 + i * 4 + 3] = a;
-                                } else {
-                                    // Lower Left
-                                    rgb[(height - currentHeight - 1) * width * 4 + i * 4 + 0] = b;
-                                    rgb[(height - currentHeight - 1) * width * 4 + i * 4 + 1] = g;
-                                    rgb[(height - currentHeight - 1) * width * 4 + i * 4 + 2] = r;
-                                    rgb[(height - currentHeight - 1) * width * 4 + i * 4 + 3] = a;
-                                }
-                            }
-                        }
-                        currentHeight++;
-                    }
-                    bitmap = Bitmap.createBitmap(width, height, Config.ARGB_8888);
-                    bitmap.copyPixelsFromBuffer(ByteBuffer.wrap(rgb));
-                    return bitmap;
-
-                case 32:
-                    rgb = new byte[width * height * 4];
-                    data = new byte[width * 4];
-
-                    while (stream.read(data) != -1) {
-                        for (int i = 0; i < width; i++) {
-                            byte r = data[i * 4 + 0];
-                            byte g = data[i * 4 + 1];
-                            byte b = data[i * 4 + 2];
-                            byte a = data[i * 4 + 3];
-                            if ((descriptor & RIGHT_ORIGIN) != 0) {
-                                if ((descriptor & UPPER_ORIGIN) != 0) {
-                                    // Upper Right
-                                    rgb[currentHeight * width * 4 + (width - i - 1) * 4 + 0] = b;
-                                    rgb[currentHeight * width * 4 + (width - i - 1) * 4 + 1] = g;
-                                    rgb[currentHeight * width * 4 + (width - i - 1) * 4 + 2] = r;
-                                    rgb[currentHeight * width * 4 + (width - i - 1) * 4 + 3] = a;
-                                } else {
-                                    // Lower Right
-                                    rgb[(height - currentHeight - 1) * width * 4 + (width - i - 1) * 4 + 0] = b;
-                                    rgb[(height - currentHeight - 1) * width * 4 + (width - i - 1) * 4 + 1] = g;
-                                    rgb[(height - currentHeight - 1) * width * 4 + (width - i - 1) * 4 + 2] = r;
-                                    rgb[(height - currentHeight - 1) * width * 4 + (width - i - 1) * 4 + 3] = a;
-                                }
-                            } else {
-                                if ((descriptor & UPPER_ORIGIN) != 0) {
-                                    // Upper Left
-                                    rgb[currentHeight * width * 4 + i * 4 + 0] = b;
-                                    rgb[currentHeight * width * 4 + i * 4 + 1] = g;
-                                    rgb[currentHeight * width * 4 + i * 4 + 2] = r;
-                                    rgb[currentHeight * width * 4 + i * 4 + 3] = a;
-                                } else {
-                                    // Lower Left
-                                    rgb[(height - currentHeight - 1) * width * 4 + i * 4 + 0] = b;
-                                    rgb[(height - currentHeight - 1) * width * 4 + i * 4 + 1] = g;
-                                    rgb[(height - currentHeight - 1) * width * 4 + i * 4 + 2] = r;
-                                    rgb[(height - currentHeight - 1) * width * 4 + i * 4 + 3] = a;
-                                }
-                            }
-                        }
-                        currentHeight++;
-                    }
-                    bitmap = Bitmap.createBitmap(width, height, Config.ARGB_8888);
-                    bitmap.copyPixelsFromBuffer(ByteBuffer.wrap(rgb));
-                    return bitmap;
-
-                default:
-                    return bitmap;
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
+            Bitmap bitmap = Bitmap.createBitmap(image.width, image.height, Config.ARGB_8888);
+            bitmap.copyPixelsFromBuffer(image.pixels);
+            return bitmap;
+        } finally {
+            pool.release(image.pixels);
         }
-
-        return bitmap;
     }
 
     /*
@@ -20,6 +20,7 @@ import java.util.Map;
 
 import org.gearvrf.GVRHybridObject;
 import org.gearvrf.asynchronous.Throttler.AsyncLoaderFactory;
+import org.gearvrf.utility.DirectBufferPool;
 
 public class AsyncManager {
     private static AsyncManager sInstance = new AsyncManager();
@@ -65,6 +66,15 @@ public class AsyncManager {
         mFactories.put(textureClass, asyncLoaderFactory);
     }
 
+    /**
+     * Gets the pool of direct buffers that texture decoders stage pixel data
+     * in before it is uploaded.
+     * @return The buffer pool.
+     */
+    public DirectBufferPool getBufferPool() {
+        return mBufferPool;
+    }
+
     Map<Class<? extends GVRHybridObject>, AsyncLoaderFactory<? extends GVRHybridObject, ?>> getFactories() {
         return mFactories;
     }
@@ -72,6 +82,9 @@ public class AsyncManager {
     // The resource loading scheduler
     private Scheduler mScheduler;
 
+    // Staging buffers for decoded textures; enough for one 4K RGBA texture
+    private final DirectBufferPool mBufferPool = new DirectBufferPool(64 * 1024 * 1024);
+
     // Factories
     private Map<Class<? extends GVRHybridObject>, AsyncLoaderFactory<? extends GVRHybridObject, ?>> mFactories;
 
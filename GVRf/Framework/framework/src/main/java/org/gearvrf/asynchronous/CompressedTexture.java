@@ -131,8 +131,9 @@ public class CompressedTexture {
     }
 
     /**
-     * Loads a file into memory; detects type, and calls the appropriate
-     * {@link GVRCompressedTextureLoader#parse(byte[], Reader)} method.
+     * Reads a compressed texture file; detects type, and calls the appropriate
+     * {@link GVRCompressedTextureLoader#parse(byte[], InputStream, int)}
+     * method with the file's header and the rest of the stream.
      * 
      * @param stream
      *            InputStream containing a compressed texture file
@@ -145,53 +146,46 @@ public class CompressedTexture {
      *         {@link CompressedTexture}, ready to be passed to EGL via
      *         {@link CompressedTexture#glCompressedTexImage2D(int, int)}. If no
      *         loaders recognize the file, or if multiple loaders recognize the
-     *         file, this method will return <code>null</null>.
+     *         file, this method will throw an {@link IllegalArgumentException}.
      * @throws IOException
      *             Does not catch any internal exceptions
      */
     static CompressedTexture load(InputStream stream, int maxLength,
                                   boolean closeStream)
             throws IOException {
-        byte[] data;
         try {
-            data = maxLength >= 0
-                ? readBytes(stream, maxLength)
-                : readBytes(stream);
-        } finally {
-            if (closeStream) {
-                stream.close();
+            int headerLength = GVRCompressedTextureLoader.maximumHeaderLength;
+            if (maxLength >= 0 && maxLength < headerLength) {
+                headerLength = maxLength;
             }
-        }
-
-        Reader reader = new Reader(data);
+            byte[] header = readHeader(stream, headerLength);
 
-        GVRCompressedTextureLoader valid = null;
-        List<GVRCompressedTextureLoader> loaders = GVRCompressedTextureLoader
-                .getLoaders();
-        synchronized (loaders) {
-            for (GVRCompressedTextureLoader loader : loaders) {
-                if (loader.sniff(data, reader)) {
-                    if (valid != null) {
-                        throw new IllegalArgumentException(
-                                "Multiple loaders think this smells right");
-                    }
-                    valid = loader;
-                }
-                reader.reset();
-            }
+            GVRCompressedTextureLoader valid = sniff(header);
             if (valid == null) {
                 throw new IllegalArgumentException(
                         "No loader thinks this smells right");
             }
-            return valid.parse(data, reader);
+            return valid.parse(header, stream,
+                    maxLength >= 0 ? maxLength - header.length : -1);
+        } finally {
+            if (closeStream) {
+                stream.close();
+            }
         }
     }
 
     public static GVRCompressedTextureLoader sniff(InputStream stream)
             throws IOException {
-        byte[] data = readBytes(stream,
+        byte[] data = readHeader(stream,
                 GVRCompressedTextureLoader.maximumHeaderLength);
+        return sniff(data);
+    }
 
+    private static GVRCompressedTextureLoader sniff(byte[] header) {
+        // Sniffers may look at their whole header length
+        byte[] data = header.length < GVRCompressedTextureLoader.maximumHeaderLength
+                ? Arrays.copyOf(header, GVRCompressedTextureLoader.maximumHeaderLength)
+                : header;
         Reader reader = new Reader(data);
 
         GVRCompressedTextureLoader valid = null;
@@ -214,59 +208,60 @@ public class CompressedTexture {
 
     static CompressedTexture parse(InputStream stream, boolean closeStream,
             GVRCompressedTextureLoader loader) throws IOException {
-        byte[] data;
         try {
-            data = readBytes(stream);
+            byte[] header = readHeader(stream, loader.headerLength());
+            return loader.parse(header, stream, -1);
         } finally {
             if (closeStream) {
                 stream.close();
             }
         }
-
-        return loader.parse(data, new Reader(data));
     }
 
-    private static byte[] readBytes(InputStream stream, final int bytes)
+    /*
+     * Reads up to {@code bytes} bytes; fewer only if the stream ends first.
+     */
+    private static byte[] readHeader(InputStream stream, int bytes)
             throws IOException {
-        byte[] result = new byte[bytes], buffer = new byte[bytes];
+        byte[] result = new byte[bytes];
         int length = 0;
-
-        for (int read = 0; read >= 0 && length < bytes; read = stream
-                .read(buffer)) {
-            if (read > 0) {
-                for (int index = 0; index < read && length < bytes;) {
-                    result[length++] = buffer[index++];
-                }
-            }
+        int read;
+        while (length < bytes
+                && (read = stream.read(result, length, bytes - length)) >= 0) {
+            length += read;
         }
-        buffer = null;
-
-        return result;
+        return length == bytes ? result : Arrays.copyOf(result, length);
     }
 
-    private static byte[] readBytes(InputStream stream) throws IOException {
-        byte[] result = new byte[INITIAL_CAPACITY];
-        int capacity = result.length, length = 0;
-
-        byte[] buffer = new byte[BUFFER_SIZE];
+    /*
+     * Returns {@code header} followed by the rest of the stream, reading
+     * straight into the result array.
+     */
+    static byte[] readRemaining(byte[] header, InputStream stream,
+            int maxLength) throws IOException {
+        int capacity = maxLength >= 0 ? header.length + maxLength
+                : Math.max(INITIAL_CAPACITY, header.length + stream.available());
+        byte[] result = Arrays.copyOf(header, capacity);
+        int length = header.length;
 
-        for (int read = 0; read >= 0; read = stream.read(buffer)) {
-            if (read > 0) {
-                if (length + read > capacity) {
-                    // copy to new array with double capacity
-                    capacity <<= 1;
-                    result = Arrays.copyOf(result, capacity);
-                }
-                for (int index = 0; index < read; ++index) {
-                    result[length++] = buffer[index];
+        for (;;) {
+            if (length == capacity) {
+                if (maxLength >= 0) {
+                    break;
                 }
+                // copy to new array with double capacity
+                capacity <<= 1;
+                result = Arrays.copyOf(result, capacity);
+            }
+            int read = stream.read(result, length, capacity - length);
+            if (read < 0) {
+                break;
             }
+            length += read;
         }
-        buffer = null;
 
         return capacity == length ? result : Arrays.copyOf(result, length);
     }
 
     private static final int INITIAL_CAPACITY = 4 * 1024;
-    private static final int BUFFER_SIZE = 4 * 1024;
 }
@@ -77,6 +77,7 @@ public class GVRCompressedTexture extends GVRTexture {
                 textureParameters.getCurrentValuesArray()));
         mLevels = levels;
         mQuality = GVRCompressedTexture.clamp(quality);
+        setSizeEstimate(imageSize);
 
         updateMinification();
     }
@@ -15,6 +15,7 @@
 
 package org.gearvrf.asynchronous;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
@@ -113,6 +114,35 @@ public abstract class GVRCompressedTextureLoader {
      */
     public abstract CompressedTexture parse(byte[] data, Reader reader);
 
+    /**
+     * Parse a compressed texture that is being read from a stream. The
+     * internal load methods call this, rather than
+     * {@link #parse(byte[], Reader)}, once this loader's
+     * {@link #sniff(byte[], Reader)} function has returned {@code true}.
+     * 
+     * <p>
+     * The default implementation reads the rest of the stream into one
+     * {@code byte[]} and calls {@link #parse(byte[], Reader)}. Loaders can
+     * override it to read the image data in pieces, straight into the buffers
+     * it will be uploaded from.
+     * 
+     * @param header
+     *            The first bytes of the file: at least {@link #headerLength()}
+     *            bytes, unless the file is shorter
+     * @param stream
+     *            The rest of the file
+     * @param maxLength
+     *            Max length to read from {@code stream}. -1 for unlimited.
+     * @return A {@code CompressedTexture}
+     * @throws IOException
+     *             If the stream cannot be read
+     */
+    public CompressedTexture parse(byte[] header, InputStream stream,
+            int maxLength) throws IOException {
+        byte[] data = CompressedTexture.readRemaining(header, stream, maxLength);
+        return parse(data, new Reader(data));
+    }
+
     /**
      * Provides external parsers access to the internal
      * {@code CompressedTexture} constructor.
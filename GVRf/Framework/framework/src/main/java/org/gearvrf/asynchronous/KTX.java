@@ -17,10 +17,19 @@ package org.gearvrf.asynchronous;
 
 import static android.opengl.GLES20.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
 
 import org.gearvrf.GVRContext;
+import org.gearvrf.GVRTextureParameters;
+import org.gearvrf.utility.DirectBufferPool;
 import org.gearvrf.utility.Log;
 import org.gearvrf.utility.RuntimeAssertion;
 
@@ -68,6 +77,87 @@ class KTX extends GVRCompressedTextureLoader {
 
     @Override
     public CompressedTexture parse(byte[] data, Reader reader) {
+        Header header = readHeader(reader);
+
+        // 13 UInt32 plus a Byte[12], plus any key-value pairs
+        int headerSize = headerLength() + header.bytesOfKeyValueData;
+
+        // Each level is a slice of the file; nothing is copied
+        ByteBuffer buffer = ByteBuffer.wrap(data, headerSize, data.length
+                - headerSize);
+        buffer.order(header.littleEndian ? ByteOrder.LITTLE_ENDIAN
+                : ByteOrder.BIG_ENDIAN);
+        ByteBuffer[] levels = new ByteBuffer[header.levels];
+        for (int level = 0; level < levels.length; ++level) {
+            int imageSize = buffer.getInt();
+            ByteBuffer image = buffer.slice();
+            image.limit(imageSize);
+            levels[level] = image;
+            buffer.position(buffer.position() + imageSize + padding(imageSize));
+        }
+
+        return new KtxCompressedTexture(header.glInternalFormat,
+                header.pixelWidth, header.pixelHeight, levels, null);
+    }
+
+    /**
+     * Reads each mipmap level from the stream straight into a direct buffer
+     * from the {@linkplain AsyncManager#getBufferPool() buffer pool}, so the
+     * file is never held in a {@code byte[]}. The buffers go back to the pool
+     * once the levels have been uploaded.
+     */
+    @Override
+    public CompressedTexture parse(byte[] data, InputStream stream,
+            int maxLength) throws IOException {
+        return parse(data, stream, AsyncManager.get().getBufferPool());
+    }
+
+    CompressedTexture parse(byte[] data, InputStream stream,
+            DirectBufferPool pool) throws IOException {
+        if (data.length < headerLength()) {
+            throw new EOFException("KTX header is truncated");
+        }
+        Header header = readHeader(new Reader(data));
+
+        // Bytes past the fixed header have already been read from the stream
+        InputStream in = stream;
+        if (data.length > headerLength()) {
+            in = new SequenceInputStream(new ByteArrayInputStream(data,
+                    headerLength(), data.length - headerLength()), stream);
+        }
+        skipFully(in, header.bytesOfKeyValueData);
+
+        ReadableByteChannel channel = Channels.newChannel(in);
+        ByteBuffer imageSizeBuffer = ByteBuffer.allocate(Reader.INTEGER_BYTES)
+                .order(header.littleEndian ? ByteOrder.LITTLE_ENDIAN
+                        : ByteOrder.BIG_ENDIAN);
+        ByteBuffer[] levels = new ByteBuffer[header.levels];
+        try {
+            for (int level = 0; level < levels.length; ++level) {
+                imageSizeBuffer.clear();
+                readFully(channel, imageSizeBuffer);
+                int imageSize = imageSizeBuffer.getInt(0);
+
+                ByteBuffer image = pool.acquire(imageSize);
+                levels[level] = image;
+                readFully(channel, image);
+                image.flip();
+                skipFully(in, padding(imageSize));
+            }
+        } catch (IOException e) {
+            for (ByteBuffer image : levels) {
+                if (image != null) {
+                    pool.release(image);
+                }
+            }
+            throw e;
+        }
+
+        return new KtxCompressedTexture(header.glInternalFormat,
+                header.pixelWidth, header.pixelHeight, levels, pool);
+    }
+
+    private Header readHeader(Reader reader) {
         reader.skip(SIGNATURE.length * Reader.INTEGER_BYTES);
 
         int endianness = reader.readLE(Reader.INTEGER_BYTES);
@@ -124,15 +214,57 @@ class KTX extends GVRCompressedTextureLoader {
                 glInternalFormat, glBaseInternalFormat, pixelWidth,
                 pixelHeight, numberOfMipmapLevels, bytesOfKeyValueData);
 
-        // 13 UInt32 plus a Byte[12], plus any key-value pairs
-        int headerSize = (SIGNATURE.length + 13) * Reader.INTEGER_BYTES
-                + bytesOfKeyValueData;
+        // Zero levels means the file holds level 0, and wants the rest
+        // generated
+        return new Header(littleEndian, glInternalFormat, pixelWidth,
+                pixelHeight, Math.max(1, numberOfMipmapLevels),
+                bytesOfKeyValueData);
+    }
 
-        ByteBuffer buffer = ByteBuffer.wrap(data, headerSize, data.length
-                - headerSize);
-        return new KtxCompressedTexture(
-        /* glBaseInternalFormat */glInternalFormat, pixelWidth, pixelHeight,
-                numberOfMipmapLevels, buffer, littleEndian);
+    // KTX pads each mipmap level to a multiple of four bytes
+    private static int padding(int imageSize) {
+        return (4 - (imageSize & 0x03)) & 0x03;
+    }
+
+    private static void readFully(ReadableByteChannel channel, ByteBuffer buffer)
+            throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("KTX file is truncated");
+            }
+        }
+    }
+
+    private static void skipFully(InputStream in, int bytes) throws IOException {
+        while (bytes > 0) {
+            long skipped = in.skip(bytes);
+            if (skipped <= 0) {
+                if (in.read() < 0) {
+                    throw new EOFException("KTX file is truncated");
+                }
+                skipped = 1;
+            }
+            bytes -= skipped;
+        }
+    }
+
+    private static class Header {
+        final boolean littleEndian;
+        final int glInternalFormat;
+        final int pixelWidth;
+        final int pixelHeight;
+        final int levels;
+        final int bytesOfKeyValueData;
+
+        Header(boolean littleEndian, int glInternalFormat, int pixelWidth,
+                int pixelHeight, int levels, int bytesOfKeyValueData) {
+            this.littleEndian = littleEndian;
+            this.glInternalFormat = glInternalFormat;
+            this.pixelWidth = pixelWidth;
+            this.pixelHeight = pixelHeight;
+            this.levels = levels;
+            this.bytesOfKeyValueData = bytesOfKeyValueData;
+        }
     }
 
     private static class KtxReader {
@@ -150,15 +282,23 @@ class KTX extends GVRCompressedTextureLoader {
         }
     }
 
-    private static class KtxCompressedTexture extends CompressedTexture {
+    static class KtxCompressedTexture extends CompressedTexture {
         private static final String TAG = Log.tag(KtxCompressedTexture.class);
 
-        private final boolean littleEndian;
+        private ByteBuffer[] levelData;
+        // Where the level buffers go after upload; null if not pooled
+        private final DirectBufferPool pool;
 
         private KtxCompressedTexture(int internalformat, int width, int height,
-                int levels, ByteBuffer data, boolean littleEndian) {
-            super(internalformat, width, height, -1, levels, data);
-            this.littleEndian = littleEndian;
+                ByteBuffer[] levelData, DirectBufferPool pool) {
+            super(internalformat, width, height, -1, levelData.length,
+                    levelData[0]);
+            this.levelData = levelData;
+            this.pool = pool;
+        }
+
+        ByteBuffer getLevel(int level) {
+            return levelData[level];
         }
 
         @Override
@@ -166,37 +306,41 @@ class KTX extends GVRCompressedTextureLoader {
             GVRCompressedTexture result = new GVRCompressedTexture(gvrContext,
                     GVRCompressedTexture.GL_TARGET, levels, quality);
 
-            ByteBuffer data = getData();
-            ByteOrder defaultOrder = data.order();
-            ByteOrder dataOrder = littleEndian ? ByteOrder.LITTLE_ENDIAN
-                    : ByteOrder.BIG_ENDIAN;
-
             result.rebind();
 
             for (int fileLevel = 0; fileLevel < levels; ++fileLevel) {
-                data.order(dataOrder);
-                int imageSize = data.getInt();
-                data.order(defaultOrder);
-
-                int imagePadding = (4 - (imageSize & 0x03)) & 0x03;
+                ByteBuffer data = levelData[fileLevel];
+                int imageSize = data.remaining();
 
                 Log.d(TAG,
-                        "Creating level %d as %dx%d, internalformat = %x; imageSize = %d (imagePadding = %d), position = %d",
+                        "Creating level %d as %dx%d, internalformat = %x; imageSize = %d",
                         fileLevel, //
                         width >>> fileLevel, height >>> fileLevel, //
-                        internalformat, imageSize, imagePadding, //
-                        data.position());
+                        internalformat, imageSize);
 
-                // Note that this call does NOT advance the Buffer position
                 GLES30.glCompressedTexImage2D(GL_TEXTURE_2D, fileLevel,
                         internalformat, Math.max(1, width >> fileLevel),
                         Math.max(1, height >> fileLevel), 0, imageSize, data);
-                data.position(data.position() + imageSize + imagePadding);
             }
 
             result.unbind();
+
+            // GL has copied the data
+            if (pool != null) {
+                for (ByteBuffer data : levelData) {
+                    pool.release(data);
+                }
+                levelData = null;
+            }
             return result;
         }
 
+        @Override
+        GVRCompressedTexture toTexture(GVRContext gvrContext, int quality,
+                GVRTextureParameters textureParameters) {
+            GVRCompressedTexture result = toTexture(gvrContext, quality);
+            result.updateTextureParameters(textureParameters);
+            return result;
+        }
     }
 }
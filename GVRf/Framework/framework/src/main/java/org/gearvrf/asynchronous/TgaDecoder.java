@@ -0,0 +1,259 @@
+/* Copyright 2015 Samsung Electronics Co., LTD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gearvrf.asynchronous;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+import org.gearvrf.utility.DirectBufferPool;
+
+/**
+ * Decodes TGA images into RGBA pixels, top row first, which is the layout
+ * {@code Bitmap.copyPixelsFromBuffer()} expects for {@code ARGB_8888}.
+ *
+ * The file is read in chunks and each row is converted as it arrives, into a
+ * direct buffer from a {@link DirectBufferPool}; the whole file is never held
+ * in memory. Supports uncompressed and run-length encoded true-color (24 and
+ * 32 bit) and grayscale (8 and 16 bit) images, in all four origins.
+ */
+final class TgaDecoder {
+    private static final int HEADER_SIZE = 18;
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private static final int TYPE_TRUE_COLOR = 2;
+    private static final int TYPE_GRAY = 3;
+    private static final int TYPE_RLE_TRUE_COLOR = 10;
+    private static final int TYPE_RLE_GRAY = 11;
+
+    private static final int RIGHT_ORIGIN = 0x10;
+    private static final int UPPER_ORIGIN = 0x20;
+
+    /** A decoded image. */
+    static final class Image {
+        final int width;
+        final int height;
+        /** {@code width * height} RGBA pixels, from the pool */
+        final ByteBuffer pixels;
+
+        private Image(int width, int height, ByteBuffer pixels) {
+            this.width = width;
+            this.height = height;
+            this.pixels = pixels;
+        }
+    }
+
+    private TgaDecoder() {
+    }
+
+    /**
+     * Decodes a TGA image. The caller releases {@link Image#pixels} to
+     * {@code pool} when done with them.
+     *
+     * @param stream
+     *            the TGA file, positioned at its start
+     * @param pool
+     *            where to get the pixel buffer
+     * @return the image
+     * @throws IOException
+     *             if the stream cannot be read, ends early, or is not a
+     *             supported kind of TGA
+     */
+    static Image decode(InputStream stream, DirectBufferPool pool) throws IOException {
+        Input in = new Input(stream);
+        byte[] header = new byte[HEADER_SIZE];
+        in.readFully(header, 0, HEADER_SIZE);
+
+        int idLength = header[0] & 0xFF;
+        int colorMapType = header[1] & 0xFF;
+        int type = header[2] & 0xFF;
+        int colorMapLength = readShort(header, 5);
+        int colorMapDepth = header[7] & 0xFF;
+        int width = readShort(header, 12);
+        int height = readShort(header, 14);
+        int depth = header[16] & 0xFF;
+        int descriptor = header[17] & 0xFF;
+
+        boolean gray;
+        boolean rle;
+        switch (type) {
+        case TYPE_TRUE_COLOR:
+        case TYPE_RLE_TRUE_COLOR:
+            if (depth != 24 && depth != 32) {
+                throw new IOException("TGA format not supported: " + depth + " bit color");
+            }
+            gray = false;
+            rle = type == TYPE_RLE_TRUE_COLOR;
+            break;
+        case TYPE_GRAY:
+        case TYPE_RLE_GRAY:
+            if (depth != 8 && depth != 16) {
+                throw new IOException("TGA format not supported: " + depth + " bit grayscale");
+            }
+            gray = true;
+            rle = type == TYPE_RLE_GRAY;
+            break;
+        default:
+            throw new IOException("TGA format not supported: image type " + type);
+        }
+
+        long skip = idLength;
+        if (colorMapType == 1) {
+            skip += colorMapLength * ((colorMapDepth + 7) / 8);
+        }
+        in.skip(skip);
+
+        if ((long) width * height * 4 > Integer.MAX_VALUE) {
+            throw new IOException("TGA image is too large: " + width + "x" + height);
+        }
+        int bytesPerPixel = depth / 8;
+        int rowBytes = width * 4;
+        boolean rightOrigin = (descriptor & RIGHT_ORIGIN) != 0;
+        boolean upperOrigin = (descriptor & UPPER_ORIGIN) != 0;
+
+        ByteBuffer pixels = pool.acquire(rowBytes * height);
+        boolean decoded = false;
+        try {
+            byte[] row = new byte[rowBytes];
+            byte[] raw = new byte[rle ? bytesPerPixel : width * bytesPerPixel];
+            byte[] run = new byte[4];
+            int packetCount = 0;
+            boolean packetIsRun = false;
+
+            for (int y = 0; y < height; ++y) {
+                if (!rle) {
+                    in.readFully(raw, 0, raw.length);
+                    for (int x = 0; x < width; ++x) {
+                        int column = rightOrigin ? width - x - 1 : x;
+                        toRGBA(raw, x * bytesPerPixel, bytesPerPixel, gray, row, column * 4);
+                    }
+                } else {
+                    // Packets may run on from one row into the next
+                    for (int x = 0; x < width; ++x) {
+                        if (packetCount == 0) {
+                            int packet = in.read();
+                            packetCount = (packet & 0x7F) + 1;
+                            packetIsRun = (packet & 0x80) != 0;
+                            if (packetIsRun) {
+                                in.readFully(raw, 0, bytesPerPixel);
+                                toRGBA(raw, 0, bytesPerPixel, gray, run, 0);
+                            }
+                        }
+                        int dest = (rightOrigin ? width - x - 1 : x) * 4;
+                        if (packetIsRun) {
+                            row[dest] = run[0];
+                            row[dest + 1] = run[1];
+                            row[dest + 2] = run[2];
+                            row[dest + 3] = run[3];
+                        } else {
+                            in.readFully(raw, 0, bytesPerPixel);
+                            toRGBA(raw, 0, bytesPerPixel, gray, row, dest);
+                        }
+                        --packetCount;
+                    }
+                }
+
+                int line = upperOrigin ? y : height - y - 1;
+                pixels.position(line * rowBytes);
+                pixels.put(row);
+            }
+            pixels.position(0);
+            decoded = true;
+            return new Image(width, height, pixels);
+        } finally {
+            if (!decoded) {
+                pool.release(pixels);
+            }
+        }
+    }
+
+    private static void toRGBA(byte[] src, int offset, int bytesPerPixel, boolean gray,
+            byte[] dest, int destOffset) {
+        if (gray) {
+            byte luminance = src[offset];
+            dest[destOffset] = luminance;
+            dest[destOffset + 1] = luminance;
+            dest[destOffset + 2] = luminance;
+            dest[destOffset + 3] = bytesPerPixel == 2 ? src[offset + 1] : (byte) 0xFF;
+        } else {
+            // TGA stores BGR(A)
+            dest[destOffset] = src[offset + 2];
+            dest[destOffset + 1] = src[offset + 1];
+            dest[destOffset + 2] = src[offset];
+            dest[destOffset + 3] = bytesPerPixel == 4 ? src[offset + 3] : (byte) 0xFF;
+        }
+    }
+
+    private static int readShort(byte[] data, int offset) {
+        return (data[offset] & 0xFF) | (data[offset + 1] & 0xFF) << 8;
+    }
+
+    /*
+     * Reads the stream a chunk at a time, so the per-pixel reads of RLE
+     * images do not go through the stream.
+     */
+    private static final class Input {
+        private final InputStream stream;
+        private final byte[] buffer = new byte[CHUNK_SIZE];
+        private int position;
+        private int limit;
+
+        Input(InputStream stream) {
+            this.stream = stream;
+        }
+
+        int read() throws IOException {
+            if (position == limit) {
+                fill();
+            }
+            return buffer[position++] & 0xFF;
+        }
+
+        void readFully(byte[] dest, int offset, int count) throws IOException {
+            while (count > 0) {
+                if (position == limit) {
+                    fill();
+                }
+                int n = Math.min(count, limit - position);
+                System.arraycopy(buffer, position, dest, offset, n);
+                position += n;
+                offset += n;
+                count -= n;
+            }
+        }
+
+        void skip(long count) throws IOException {
+            while (count > 0) {
+                if (position == limit) {
+                    fill();
+                }
+                int n = (int) Math.min(count, limit - position);
+                position += n;
+                count -= n;
+            }
+        }
+
+        private void fill() throws IOException {
+            int count = stream.read(buffer, 0, buffer.length);
+            if (count <= 0) {
+                throw new EOFException("TGA file is truncated");
+            }
+            position = 0;
+            limit = count;
+        }
+    }
+}
@@ -63,6 +63,18 @@ public final class AiBone {
     }
     
     
+    /**
+     * Constructor, used by {@link JassimpSceneCache}.
+     * 
+     * @param name the name of the bone
+     * @param offsetMatrix the wrapped offset matrix
+     */
+    AiBone(String name, Object offsetMatrix) {
+        m_name = name;
+        m_offsetMatrix = offsetMatrix;
+    }
+    
+    
     /**
      * Returns the name of the bone.
      * 
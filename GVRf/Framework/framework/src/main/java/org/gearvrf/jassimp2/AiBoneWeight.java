@@ -53,6 +53,18 @@ public final class AiBoneWeight {
     }
     
     
+    /**
+     * Constructor, used by {@link JassimpSceneCache}.
+     * 
+     * @param vertexId index of the influenced vertex
+     * @param weight strength of the influence
+     */
+    AiBoneWeight(int vertexId, float weight) {
+        m_vertexId = vertexId;
+        m_weight = weight;
+    }
+    
+    
     /**
      * Index of the vertex which is influenced by the bone.
      * 
@@ -292,6 +292,18 @@ public final class AiMaterial {
         }
 
 
+        /**
+         * Utility method for converting from java enums to c/c++ based 
+         * integer enums.<p>
+         * 
+         * @param type the type to convert, may not be null
+         * @return the rawValue corresponding to type
+         */
+        static int toRawValue(PropertyType type) {
+            return type.m_rawValue;
+        }
+
+
         /**
          * Constructor.
          * 
@@ -1177,13 +1189,13 @@ public final class AiMaterial {
     
     
     /**
-     * This method is used by JNI, do not call or modify.
+     * This method is used by JNI and {@link JassimpSceneCache}, do not call
+     * or modify.
      * 
      * @param type the type
      * @param number the number
      */
-    @SuppressWarnings("unused")
-    private void setTextureNumber(int type, int number) {
+    void setTextureNumber(int type, int number) {
         m_numTextures.put(AiTextureType.fromRawValue(type), number);
     }
     
@@ -161,6 +161,51 @@ public final class AiMesh {
     }
     
     
+    /**
+     * Creates a mesh from buffers that already hold its data, used by
+     * {@link JassimpSceneCache}. The buffers are used as they are, they
+     * must be in native byte order.
+     * 
+     * @param primitiveTypes the bitwise or'ed c/c++ aiPrimitiveType values
+     * @param numVertices the number of vertices
+     * @param numFaces the number of faces
+     * @param materialIndex the index of the material
+     * @param name the name of the mesh
+     * @param vertices vertex positions, may be null
+     * @param faces faces/ indices, may be null
+     * @param faceOffsets face index structure for meshes that are not pure
+     *              triangular, may be null
+     * @param normals normals, may be null
+     * @param tangents tangents, may be null
+     * @param bitangents bitangents, may be null
+     * @param colorsets vertex colors, entries may be null
+     * @param numUVComponents UV components of each texture coordinate set
+     * @param texcoords texture coordinates, entries may be null
+     */
+    AiMesh(int primitiveTypes, int numVertices, int numFaces, 
+            int materialIndex, String name, ByteBuffer vertices, 
+            ByteBuffer faces, ByteBuffer faceOffsets, ByteBuffer normals, 
+            ByteBuffer tangents, ByteBuffer bitangents, 
+            ByteBuffer[] colorsets, int[] numUVComponents, 
+            ByteBuffer[] texcoords) {
+        
+        setPrimitiveTypes(primitiveTypes);
+        m_numVertices = numVertices;
+        m_numFaces = numFaces;
+        m_materialIndex = materialIndex;
+        m_name = name;
+        m_vertices = vertices;
+        m_faces = faces;
+        m_faceOffsets = faceOffsets;
+        m_normals = normals;
+        m_tangents = tangents;
+        m_bitangents = bitangents;
+        m_colorsets = colorsets;
+        m_numUVComponents = numUVComponents;
+        m_texcoords = texcoords;
+    }
+    
+    
     /**
      * Returns the primitive types used by this mesh.
      * 
@@ -114,6 +114,36 @@ public final class AiNodeAnim {
     }
     
     
+    /**
+     * Creates a channel from buffers that already hold its keys, used by
+     * {@link JassimpSceneCache}. The buffers must be in native byte order.
+     * 
+     * @param nodeName name of corresponding scene graph node
+     * @param numPosKeys number of position keys
+     * @param numRotKeys number of rotation keys
+     * @param numScaleKeys number of scaling keys
+     * @param preBehavior behavior before animation start
+     * @param postBehavior behavior after animation end
+     * @param posKeys position keys
+     * @param rotKeys rotation keys
+     * @param scaleKeys scaling keys
+     */
+    AiNodeAnim(String nodeName, int numPosKeys, int numRotKeys, 
+            int numScaleKeys, int preBehavior, int postBehavior, 
+            ByteBuffer posKeys, ByteBuffer rotKeys, ByteBuffer scaleKeys) {
+        
+        m_nodeName = nodeName;
+        m_numPosKeys = numPosKeys;
+        m_numRotKeys = numRotKeys;
+        m_numScaleKeys = numScaleKeys;
+        m_preState = AiAnimBehavior.fromRawValue(preBehavior);
+        m_postState = AiAnimBehavior.fromRawValue(postBehavior);
+        m_posKeys = posKeys;
+        m_rotKeys = rotKeys;
+        m_scaleKeys = scaleKeys;
+    }
+    
+    
     /** 
      * Returns the name of the scene graph node affected by this animation.<p>
      * 
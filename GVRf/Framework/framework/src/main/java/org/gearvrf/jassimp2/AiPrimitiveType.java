@@ -96,6 +96,24 @@ public enum AiPrimitiveType {
     }
     
     
+    /**
+     * Utility method for converting from java enums to c/c++ based integer 
+     * enums.<p>
+     * 
+     * @param set the types to convert
+     * @return the bitwise or'ed rawValues of the types in set
+     */
+    static int toRawValue(Set<AiPrimitiveType> set) {
+        int rawValue = 0;
+        
+        for (AiPrimitiveType type : set) {
+            rawValue |= type.m_rawValue;
+        }
+        
+        return rawValue;
+    }
+    
+    
     /**
      * Constructor.
      * 
@@ -208,6 +208,16 @@ public final class AiScene {
     } 
 
 
+    /**
+     * Sets the scene graph root, used by {@link JassimpSceneCache}.
+     * 
+     * @param sceneRoot the wrapped root node
+     */
+    void setSceneRoot(Object sceneRoot) {
+        m_sceneRoot = sceneRoot;
+    }
+
+
     @Override
     public String toString() {
         return "AiScene (" + m_meshes.size() + " mesh/es)";
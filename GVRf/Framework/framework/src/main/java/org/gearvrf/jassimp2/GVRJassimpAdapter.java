@@ -1,19 +1,25 @@
 package org.gearvrf.jassimp2;
 
 import java.io.IOException;
-import java.nio.CharBuffer;
+import java.io.InterruptedIOException;
 import java.nio.FloatBuffer;
 import java.nio.IntBuffer;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Hashtable;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.gearvrf.FutureWrapper;
+import org.gearvrf.GVRAndroidResource;
 import org.gearvrf.GVRAssetLoader;
 import org.gearvrf.GVRBone;
 import org.gearvrf.GVRBoneWeight;
@@ -30,6 +36,7 @@ import org.gearvrf.GVRRenderData;
 import org.gearvrf.GVRResourceVolume;
 import org.gearvrf.GVRSceneObject;
 import org.gearvrf.GVRSpotLight;
+import org.gearvrf.GVRTexture;
 import org.gearvrf.GVRTextureParameters;
 import org.gearvrf.ISceneObjectEvents;
 import org.gearvrf.animation.GVRAnimation;
@@ -39,6 +46,8 @@ import org.gearvrf.animation.keyframe.GVRAnimationChannel;
 import org.gearvrf.animation.keyframe.GVRKeyFrameAnimation;
 import org.gearvrf.scene_objects.GVRModelSceneObject;
 import org.gearvrf.utility.Log;
+import org.gearvrf.utility.Threads;
+import org.gearvrf.utility.VertexWelder;
 import org.joml.Matrix4f;
 import org.joml.Quaternionf;
 import org.joml.Vector3f;
@@ -49,6 +58,7 @@ public class GVRJassimpAdapter {
     private static GVRJassimpAdapter sInstance;
     private List<INodeFactory> mNodeFactories;
     private static final int MAX_TEX_COORDS = 8;
+    private static final int IMPORT_THREADS = Runtime.getRuntime().availableProcessors();
 
     public interface INodeFactory {
         GVRSceneObject createSceneObject(GVRContext ctx, AiNode node);
@@ -75,75 +85,286 @@ public class GVRJassimpAdapter {
     }
 
     public GVRMesh createMesh(GVRContext ctx, AiMesh aiMesh) {
-        GVRMesh mesh = new GVRMesh(ctx);
+        MeshData data = prepareMesh(readMeshData(aiMesh), aiMesh.hasBones(), false).get(0);
+        return buildMesh(ctx, aiMesh, data);
+    }
 
-        // Vertices
-        FloatBuffer verticesBuffer = aiMesh.getPositionBuffer();
-        if (verticesBuffer != null) {
-            float[] verticesArray = new float[verticesBuffer.capacity()];
-            verticesBuffer.get(verticesArray, 0, verticesBuffer.capacity());
-            mesh.setVertices(verticesArray);
+    /**
+     * Creates the meshes for an Assimp mesh. If {@code splitLargeMeshes} is
+     * set, a mesh with more than {@link GVRMesh#MAX_CHAR_INDEXED_VERTICES}
+     * vertices is split into several meshes that each fit {@code char}
+     * indices; otherwise such a mesh gets 32-bit indices.
+     *
+     * @return one or more meshes
+     */
+    public List<GVRMesh> createMeshes(GVRContext ctx, AiMesh aiMesh, boolean splitLargeMeshes) {
+        List<MeshData> parts = prepareMesh(readMeshData(aiMesh), aiMesh.hasBones(), splitLargeMeshes);
+        List<GVRMesh> meshes = new ArrayList<GVRMesh>(parts.size());
+        for (MeshData part : parts) {
+            meshes.add(buildMesh(ctx, aiMesh, part));
         }
+        return meshes;
+    }
 
-        // Tangents
-        FloatBuffer tangetsBuffer = aiMesh.getTangentBuffer();
-        if(tangetsBuffer != null) {
-            float[] tangentsArray = new float[tangetsBuffer.capacity()];
-            tangetsBuffer.get(tangentsArray, 0, tangetsBuffer.capacity());
-            mesh.setVec3Vector("a_tangent", tangentsArray);
+    /**
+     * Does the Java side of converting a mesh: welds the vertices of meshes
+     * Assimp returned unindexed, and splits meshes that do not fit
+     * {@code char} indices if {@code splitLargeMeshes} is set. Creates no
+     * native objects, so meshes can be prepared on any thread.
+     *
+     * @param hasBones
+     *            whether the mesh is skinned; skinned meshes are not welded
+     *            because their bone weights refer to the original vertices
+     * @return one or more parts; {@code data} itself if it is not split
+     */
+    static List<MeshData> prepareMesh(MeshData data, boolean hasBones, boolean splitLargeMeshes) {
+        /*
+         * Without JOIN_IDENTICAL_VERTICES Assimp returns one vertex per
+         * triangle corner. Weld those here.
+         */
+        if (data.buffers[MeshData.POSITIONS] != null && data.indexBuffer != null
+                && !hasBones && data.indexBuffer.remaining() == data.numVertices) {
+            data.loadArrays();
+            weldVertices(data);
         }
-        
-        // Bitangents
-        FloatBuffer bitangentsBuffer = aiMesh.getBitangentBuffer();
-        if(bitangentsBuffer != null) {
-            float[] bitangentsArray = new float[bitangentsBuffer.capacity()];
-            bitangentsBuffer.get(bitangentsArray, 0, bitangentsBuffer.capacity());
-            mesh.setVec3Vector("a_bitangent", bitangentsArray);
+
+        List<MeshData> meshes = new ArrayList<MeshData>();
+        if (!splitLargeMeshes || data.numVertices <= GVRMesh.MAX_CHAR_INDEXED_VERTICES
+                || !data.hasIndices()) {
+            meshes.add(data);
+            return meshes;
         }
-        
-        // Normals
-        FloatBuffer normalsBuffer = aiMesh.getNormalBuffer();
-        if (normalsBuffer != null) {
-            float[] normalsArray = new float[normalsBuffer.capacity()];
-            normalsBuffer.get(normalsArray, 0, normalsBuffer.capacity());
-            mesh.setNormals(normalsArray);
+        data.loadArrays();
+
+        /*
+         * Walk the triangles in order and give each part the vertices its
+         * triangles use, numbered in order of first use. Triangles that are
+         * close in the index buffer stay in the same part and their vertices
+         * stay close in the vertex buffer.
+         */
+        final int[] indices = data.indices;
+        final int maxVertices = GVRMesh.MAX_CHAR_INDEXED_VERTICES;
+        int[] partOf = new int[data.numVertices];
+        int[] localIndex = new int[data.numVertices];
+        Arrays.fill(partOf, -1);
+        int[] partVertices = new int[maxVertices];
+        int part = 0;
+        int vertexCount = 0;
+        int start = 0;
+        for (int t = 0; t + 2 < indices.length; t += 3) {
+            int newVertices = 0;
+            for (int j = 0; j < 3; ++j) {
+                int v = indices[t + j];
+                if (partOf[v] != part && (j < 1 || indices[t] != v) && (j < 2 || indices[t + 1] != v)) {
+                    ++newVertices;
+                }
+            }
+            if (vertexCount + newVertices > maxVertices) {
+                meshes.add(extractPart(data, hasBones, start, t, partVertices, vertexCount, localIndex));
+                ++part;
+                vertexCount = 0;
+                start = t;
+            }
+            for (int j = 0; j < 3; ++j) {
+                int v = indices[t + j];
+                if (partOf[v] != part) {
+                    partOf[v] = part;
+                    localIndex[v] = vertexCount;
+                    partVertices[vertexCount++] = v;
+                }
+            }
+        }
+        meshes.add(extractPart(data, hasBones, start, indices.length, partVertices, vertexCount, localIndex));
+        return meshes;
+    }
+
+    /**
+     * Vertex data of an Assimp mesh. Attribute {@code i} has
+     * {@code ATTRIBUTE_SIZES[i]} floats per vertex, or is {@code null}.
+     *
+     * The data stays in Assimp's direct buffers, which GVRMesh reads
+     * without a Java heap copy, unless it has to be welded or split;
+     * {@link #loadArrays()} then copies it into Java arrays.
+     */
+    static final class MeshData {
+        static final int POSITIONS = 0;
+        static final int NORMALS = 1;
+        static final int TANGENTS = 2;
+        static final int BITANGENTS = 3;
+        static final int TEXCOORDS = 4;
+        static final int[] ATTRIBUTE_SIZES = { 3, 3, 3, 3, 2, 2, 2, 2, 2, 2, 2, 2 };
+
+        final FloatBuffer[] buffers = new FloatBuffer[TEXCOORDS + MAX_TEX_COORDS];
+        // Floats per vertex in each buffer; Assimp texture coordinates may have 3
+        final int[] components = new int[TEXCOORDS + MAX_TEX_COORDS];
+        IntBuffer indexBuffer;
+
+        float[][] attributes;
+        int[] indices;
+        int numVertices;
+
+        // New vertex id of each Assimp vertex id for bone weights, -1 to
+        // drop a weight, or null to keep the ids
+        int[] boneRemap;
+
+        boolean hasIndices() {
+            return indexBuffer != null || indices != null;
+        }
+
+        void loadArrays() {
+            if (attributes != null) {
+                return;
+            }
+            attributes = new float[buffers.length][];
+            for (int i = 0; i < buffers.length; ++i) {
+                FloatBuffer buffer = buffers[i];
+                if (buffer == null) {
+                    continue;
+                }
+                int size = ATTRIBUTE_SIZES[i];
+                int stride = components[i];
+                float[] array = new float[numVertices * size];
+                if (stride == size) {
+                    buffer.duplicate().get(array);
+                } else {
+                    for (int v = 0; v < numVertices; ++v) {
+                        for (int c = 0; c < size; ++c) {
+                            array[v * size + c] = buffer.get(v * stride + c);
+                        }
+                    }
+                }
+                attributes[i] = array;
+            }
+            if (indexBuffer != null) {
+                indices = new int[indexBuffer.remaining()];
+                indexBuffer.duplicate().get(indices);
+            }
+        }
+    }
+
+    private MeshData readMeshData(AiMesh aiMesh) {
+        MeshData data = new MeshData();
+        data.numVertices = aiMesh.getNumVertices();
+
+        data.buffers[MeshData.POSITIONS] = aiMesh.getPositionBuffer();
+        data.buffers[MeshData.NORMALS] = aiMesh.getNormalBuffer();
+        data.buffers[MeshData.TANGENTS] = aiMesh.getTangentBuffer();
+        data.buffers[MeshData.BITANGENTS] = aiMesh.getBitangentBuffer();
+        for (int i = MeshData.POSITIONS; i < MeshData.TEXCOORDS; ++i) {
+            data.components[i] = 3;
         }
 
         // TexCords
         for(int texIndex=0; texIndex< MAX_TEX_COORDS; texIndex++) {
             FloatBuffer fbuf = aiMesh.getTexCoordBuffer(texIndex);
             if (fbuf != null) {
-                FloatBuffer coords = FloatBuffer.allocate(aiMesh.getNumVertices() * 2);
-                if (aiMesh.getNumUVComponents(texIndex) == 2) {
-                    FloatBuffer coordsSource = aiMesh.getTexCoordBuffer(texIndex);
-                    coords.put(coordsSource);
-                } else {
-                    for (int i = 0; i < aiMesh.getNumVertices(); ++i) {
-                        float u = aiMesh.getTexCoordU(i, texIndex);
-                        float v = aiMesh.getTexCoordV(i, texIndex);
-                        coords.put(u);
-                        coords.put(v);
-                    }
-                }
-                mesh.setTexCoords(coords.array(), texIndex);
+                data.buffers[MeshData.TEXCOORDS + texIndex] = fbuf;
+                data.components[MeshData.TEXCOORDS + texIndex] = aiMesh.getNumUVComponents(texIndex);
             }
         }
 
         // Triangles
-        IntBuffer indexBuffer = aiMesh.getIndexBuffer();
-        if (indexBuffer != null) {
-            CharBuffer triangles = CharBuffer.allocate(indexBuffer.capacity());
-            for (int i = 0; i < indexBuffer.capacity(); ++i) {
-                triangles.put((char)indexBuffer.get());
+        data.indexBuffer = aiMesh.getIndexBuffer();
+        return data;
+    }
+
+    /**
+     * Merges vertices whose attributes are all identical and rewrites
+     * the indices to refer to the merged vertices.
+     */
+    private static void weldVertices(MeshData data) {
+        final float[][] attributes = data.attributes;
+        final int[] sizes = MeshData.ATTRIBUTE_SIZES;
+        int stride = 0;
+        for (int i = 0; i < attributes.length; ++i) {
+            if (attributes[i] != null) {
+                stride += sizes[i];
             }
-            mesh.setIndices(triangles.array());
+        }
+
+        VertexWelder welder = new VertexWelder(stride, data.numVertices / 2);
+        float[] vertex = new float[stride];
+        int[] remap = new int[data.numVertices];
+        for (int v = 0; v < data.numVertices; ++v) {
+            int offset = 0;
+            for (int i = 0; i < attributes.length; ++i) {
+                if (attributes[i] != null) {
+                    System.arraycopy(attributes[i], v * sizes[i], vertex, offset, sizes[i]);
+                    offset += sizes[i];
+                }
+            }
+            remap[v] = welder.add(vertex, 0);
+        }
+        final int[] indices = data.indices;
+        for (int i = 0; i < indices.length; ++i) {
+            indices[i] = remap[indices[i]];
+        }
+
+        int offset = 0;
+        for (int i = 0; i < attributes.length; ++i) {
+            if (attributes[i] != null) {
+                attributes[i] = welder.getAttribute(offset, sizes[i]);
+                offset += sizes[i];
+            }
+        }
+        data.numVertices = welder.size();
+    }
+
+    /**
+     * Copies one part of a split mesh, the triangles between
+     * {@code startIndex} and {@code endIndex}.
+     *
+     * @param vertices
+     *            the part's vertices, as indices into the whole mesh
+     * @param localIndex
+     *            index of each whole-mesh vertex within its part
+     */
+    private static MeshData extractPart(MeshData data, boolean hasBones,
+            int startIndex, int endIndex, int[] vertices, int vertexCount, int[] localIndex) {
+        MeshData part = new MeshData();
+        part.attributes = new float[data.attributes.length][];
+        for (int i = 0; i < data.attributes.length; ++i) {
+            float[] source = data.attributes[i];
+            if (source != null) {
+                int size = MeshData.ATTRIBUTE_SIZES[i];
+                float[] dest = new float[vertexCount * size];
+                for (int v = 0; v < vertexCount; ++v) {
+                    System.arraycopy(source, vertices[v] * size, dest, v * size, size);
+                }
+                part.attributes[i] = dest;
+            }
+        }
+        part.indices = new int[endIndex - startIndex];
+        for (int i = startIndex; i < endIndex; ++i) {
+            part.indices[i - startIndex] = localIndex[data.indices[i]];
+        }
+        part.numVertices = vertexCount;
+
+        // Bone weights move with their vertices; weights of other parts are dropped
+        if (hasBones) {
+            part.boneRemap = new int[data.numVertices];
+            Arrays.fill(part.boneRemap, -1);
+            for (int v = 0; v < vertexCount; ++v) {
+                part.boneRemap[vertices[v]] = v;
+            }
+        }
+        return part;
+    }
+
+    private GVRMesh buildMesh(GVRContext ctx, AiMesh aiMesh, MeshData data) {
+        GVRMesh mesh = new GVRMesh(ctx);
+
+        if (data.attributes != null) {
+            setAttributes(mesh, data);
+        } else {
+            setAttributeBuffers(mesh, data);
         }
 
         // Bones
         if (aiMesh.hasBones()) {
             List<GVRBone> bones = new ArrayList<GVRBone>();
             for (AiBone bone : aiMesh.getBones()) {
-                bones.add(createBone(ctx, bone));
+                bones.add(createBone(ctx, bone, data.boneRemap));
             }
             mesh.setBones(bones);
         }
@@ -151,7 +372,88 @@ public class GVRJassimpAdapter {
         return mesh;
     }
 
-    private GVRBone createBone(GVRContext ctx, AiBone aiBone) {
+    private void setAttributes(GVRMesh mesh, MeshData data) {
+        float[][] attributes = data.attributes;
+
+        // Vertices
+        if (attributes[MeshData.POSITIONS] != null) {
+            mesh.setVertices(attributes[MeshData.POSITIONS]);
+        }
+
+        // Tangents
+        if (attributes[MeshData.TANGENTS] != null) {
+            mesh.setVec3Vector("a_tangent", attributes[MeshData.TANGENTS]);
+        }
+
+        // Bitangents
+        if (attributes[MeshData.BITANGENTS] != null) {
+            mesh.setVec3Vector("a_bitangent", attributes[MeshData.BITANGENTS]);
+        }
+
+        // Normals
+        if (attributes[MeshData.NORMALS] != null) {
+            mesh.setNormals(attributes[MeshData.NORMALS]);
+        }
+
+        // TexCords
+        for(int texIndex=0; texIndex< MAX_TEX_COORDS; texIndex++) {
+            if (attributes[MeshData.TEXCOORDS + texIndex] != null) {
+                mesh.setTexCoords(attributes[MeshData.TEXCOORDS + texIndex], texIndex);
+            }
+        }
+
+        // Triangles; char indices cannot address more than 64k vertices
+        if (data.indices != null) {
+            if (data.numVertices > GVRMesh.MAX_CHAR_INDEXED_VERTICES) {
+                mesh.setIntIndices(data.indices);
+            } else {
+                char[] triangles = new char[data.indices.length];
+                for (int i = 0; i < triangles.length; ++i) {
+                    triangles[i] = (char) data.indices[i];
+                }
+                mesh.setIndices(triangles);
+            }
+        }
+    }
+
+    private void setAttributeBuffers(GVRMesh mesh, MeshData data) {
+        FloatBuffer[] buffers = data.buffers;
+
+        // Vertices
+        if (buffers[MeshData.POSITIONS] != null) {
+            mesh.setVertices(buffers[MeshData.POSITIONS]);
+        }
+
+        // Tangents
+        if (buffers[MeshData.TANGENTS] != null) {
+            mesh.setVec3Vector("a_tangent", buffers[MeshData.TANGENTS]);
+        }
+
+        // Bitangents
+        if (buffers[MeshData.BITANGENTS] != null) {
+            mesh.setVec3Vector("a_bitangent", buffers[MeshData.BITANGENTS]);
+        }
+
+        // Normals
+        if (buffers[MeshData.NORMALS] != null) {
+            mesh.setNormals(buffers[MeshData.NORMALS]);
+        }
+
+        // TexCords
+        for(int texIndex=0; texIndex< MAX_TEX_COORDS; texIndex++) {
+            int attribute = MeshData.TEXCOORDS + texIndex;
+            if (buffers[attribute] != null) {
+                mesh.setTexCoords(buffers[attribute], data.components[attribute], texIndex);
+            }
+        }
+
+        // Triangles; the mesh picks 16 or 32 bit indices
+        if (data.indexBuffer != null) {
+            mesh.setIndices(data.indexBuffer);
+        }
+    }
+
+    private GVRBone createBone(GVRContext ctx, AiBone aiBone, int[] vertexRemap) {
         GVRBone bone = new GVRBone(ctx);
 
         bone.setName(aiBone.getName());
@@ -159,18 +461,25 @@ public class GVRJassimpAdapter {
 
         List<GVRBoneWeight> weights = new ArrayList<GVRBoneWeight>();
         for (AiBoneWeight aiBoneWeight : aiBone.getBoneWeights()) {
-            weights.add(createBoneWeight(ctx, aiBoneWeight));
+            int vertexId = aiBoneWeight.getVertexId();
+            if (vertexRemap != null) {
+                vertexId = vertexRemap[vertexId];
+                if (vertexId < 0) {
+                    continue;
+                }
+            }
+            weights.add(createBoneWeight(ctx, vertexId, aiBoneWeight.getWeight()));
         }
         bone.setBoneWeights(weights);
 
         return bone;
     }
 
-    private GVRBoneWeight createBoneWeight(GVRContext ctx, AiBoneWeight aiBoneWeight) {
+    private GVRBoneWeight createBoneWeight(GVRContext ctx, int vertexId, float weight) {
         GVRBoneWeight boneWeight = new GVRBoneWeight(ctx);
 
-        boneWeight.setVertexId(aiBoneWeight.getVertexId());
-        boneWeight.setWeight(aiBoneWeight.getWeight());
+        boneWeight.setVertexId(vertexId);
+        boneWeight.setWeight(weight);
 
         return boneWeight;
     }
@@ -288,6 +597,9 @@ public class GVRJassimpAdapter {
                 return AiPostProcessSteps.OPTIMIZE_GRAPH;
             case FLIP_UV:
                 return AiPostProcessSteps.FLIP_UVS;
+            case SPLIT_LARGE_MESHES:
+                // Done by processScene, not by Assimp
+                return null;
             default:
                 // Unsupported setting
                 Log.e(TAG, "Unsupported setting %s", setting);
@@ -297,6 +609,21 @@ public class GVRJassimpAdapter {
 
     public void processScene(GVRAssetLoader.AssetRequest request, GVRSceneObject model, AiScene scene, GVRResourceVolume volume) throws IOException
     {
+        processScene(request, model, scene, volume, GVRImportSettings.getRecommendedSettings());
+    }
+
+    /**
+     * Builds the scene graph for an imported Assimp scene.
+     *
+     * @param settings
+     *            the settings the scene was imported with; if they include
+     *            {@link GVRImportSettings#SPLIT_LARGE_MESHES} meshes are
+     *            split to fit {@code char} indices
+     */
+    public void processScene(GVRAssetLoader.AssetRequest request, GVRSceneObject model, AiScene scene, GVRResourceVolume volume,
+            EnumSet<GVRImportSettings> settings) throws IOException
+    {
+        final boolean splitLargeMeshes = settings.contains(GVRImportSettings.SPLIT_LARGE_MESHES);
         List<AiLight> aiLights = scene.getLights();
         final GVRContext context = model.getGVRContext();
         Hashtable<String, GVRLightBase> lightList = new Hashtable<String, GVRLightBase>();
@@ -309,7 +636,15 @@ public class GVRJassimpAdapter {
         importLights(context, aiLights, lightList);
         if (scene != null)
         {
-            recurseAssimpNodes(request, model, scene, scene.getSceneRoot(sWrapperProvider), lightList);
+            /*
+             * Meshes are independent of each other and are converted in
+             * parallel. Materials are resolved once each, then the scene
+             * graph is assembled from the converted pieces.
+             */
+            List<AiMesh> aiMeshes = scene.getMeshes();
+            GVRMesh[][] meshes = convertMeshes(context, aiMeshes, splitLargeMeshes);
+            ResolvedMaterial[] materials = createMaterials(request, context, scene.getMaterials());
+            recurseAssimpNodes(model, scene.getSceneRoot(sWrapperProvider), aiMeshes, meshes, materials, lightList);
             List<AiAnimation> animations = scene.getAnimations();
             if (animations.size() > 0)
             {
@@ -362,13 +697,148 @@ public class GVRJassimpAdapter {
         return mainCamera;
     }
 
+    /**
+     * Converts every mesh of a scene in parallel.
+     *
+     * @return the converted parts of each mesh, indexed like {@code aiMeshes}
+     */
+    private GVRMesh[][] convertMeshes(final GVRContext context, final List<AiMesh> aiMeshes,
+            final boolean splitLargeMeshes) throws IOException {
+        final GVRMesh[][] meshes = new GVRMesh[aiMeshes.size()][];
+        runInParallel(aiMeshes.size(), new IndexedTask() {
+            @Override
+            public void run(int i) {
+                List<GVRMesh> parts = createMeshes(context, aiMeshes.get(i), splitLargeMeshes);
+                meshes[i] = parts.toArray(new GVRMesh[parts.size()]);
+            }
+        });
+        return meshes;
+    }
+
+    /** One step of an import that is run for each of several items. */
+    interface IndexedTask {
+        void run(int index) throws Exception;
+    }
+
+    /**
+     * Runs {@code task} for each index from 0 to {@code count - 1} on the
+     * {@linkplain Threads#spawn(Runnable) thread pool}, one thread per core,
+     * with the calling thread taking part. The threads pull indices from a
+     * shared counter so a few large items do not leave the other threads
+     * idle. The first exception stops the remaining work and is rethrown.
+     */
+    static void runInParallel(final int count, final IndexedTask task) throws IOException {
+        final AtomicInteger next = new AtomicInteger();
+        final CountDownLatch done = new CountDownLatch(count);
+        final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+        final Runnable worker = new Runnable() {
+            @Override
+            public void run() {
+                int i;
+                while ((i = next.getAndIncrement()) < count) {
+                    try {
+                        if (error.get() == null) {
+                            task.run(i);
+                        }
+                    } catch (Throwable t) {
+                        error.compareAndSet(null, t);
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }
+        };
+
+        final int helpers = Math.min(IMPORT_THREADS, count) - 1;
+        for (int i = 0; i < helpers; ++i) {
+            Threads.spawn(worker);
+        }
+        worker.run();
+        // Only wait for items a helper has started; idle helpers find no work
+        try {
+            done.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while importing");
+        }
+
+        Throwable t = error.get();
+        if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        } else if (t instanceof Error) {
+            throw (Error) t;
+        } else if (t instanceof IOException) {
+            throw (IOException) t;
+        } else if (t != null) {
+            throw new IOException(t);
+        }
+    }
+
+    /**
+     * Reads the properties of each Assimp material and starts loading its
+     * textures, once per material. Meshes using the same Assimp material
+     * get copies of the result.
+     */
+    private ResolvedMaterial[] createMaterials(GVRAssetLoader.AssetRequest assetRequest,
+            GVRContext context, List<AiMaterial> aiMaterials) throws IOException {
+        ResolvedMaterial[] materials = new ResolvedMaterial[aiMaterials.size()];
+        for (int i = 0; i < materials.length; ++i) {
+            materials[i] = createMaterial(assetRequest, context, aiMaterials.get(i));
+        }
+        return materials;
+    }
+
+    private ResolvedMaterial createMaterial(GVRAssetLoader.AssetRequest assetRequest,
+            GVRContext context, AiMaterial material) throws IOException {
+        final ResolvedMaterial meshMaterial = new ResolvedMaterial();
+
+        /* Diffuse color & Opacity */
+        AiColor diffuseColor = material.getDiffuseColor(sWrapperProvider);        /* Opacity */
+        float opacity = diffuseColor.getAlpha();
+        if (material.getOpacity() > 0) {
+            opacity *= material.getOpacity();
+        }
+        meshMaterial.setVec4("diffuse_color",diffuseColor.getRed(),
+                diffuseColor.getGreen(), diffuseColor.getBlue(), opacity);
+
+        /* Specular color */
+        AiColor specularColor = material.getSpecularColor(sWrapperProvider);
+        meshMaterial.setVec4("specular_color", specularColor.getRed(),
+                specularColor.getGreen(), specularColor.getBlue(),
+                specularColor.getAlpha());
+
+
+        /* Ambient color */
+        AiColor ambientColor = material.getAmbientColor(sWrapperProvider);
+        meshMaterial.setVec4("ambient_color", ambientColor.getRed(),
+                ambientColor.getGreen(), ambientColor.getBlue(),
+                ambientColor.getAlpha());
+
+
+        /* Emissive color */
+        AiColor emissiveColor = material.getEmissiveColor(sWrapperProvider);
+        meshMaterial.setVec4("emissive_color", emissiveColor.getRed(),
+                emissiveColor.getGreen(), emissiveColor.getBlue(),
+                emissiveColor.getAlpha());
+
+
+        /* Specular Exponent */
+        float specularExponent = material.getShininess();
+        meshMaterial.setFloat("specular_exponent", specularExponent);
+
+        /* Diffuse Texture */
+        loadTextures(assetRequest, material, meshMaterial, context);
+        return meshMaterial;
+    }
+
     private void recurseAssimpNodes(
-        GVRAssetLoader.AssetRequest request,
         GVRSceneObject parentSceneObject,
-        AiScene scene,
         AiNode node,
+        List<AiMesh> aiMeshes,
+        GVRMesh[][] meshes,
+        ResolvedMaterial[] materials,
         Hashtable<String,
-        GVRLightBase> lightlist) throws IOException {
+        GVRLightBase> lightlist) {
         final GVRSceneObject sceneObject;
         final GVRContext context = parentSceneObject.getGVRContext();
 
@@ -377,12 +847,12 @@ public class GVRJassimpAdapter {
             parentSceneObject.addChildObject(sceneObject);
         } else if (node.getNumMeshes() == 1) {
             // add the scene object to the scene graph
-            sceneObject = createSubSceneObject(request, parentSceneObject, scene, node, 0);
+            sceneObject = createSubSceneObject(parentSceneObject, node, 0, aiMeshes, meshes, materials);
         } else {
             sceneObject = createSceneObject(context, node);
             parentSceneObject.addChildObject(sceneObject);
             for (int i = 0; i < node.getNumMeshes(); i++) {
-                GVRSceneObject childSceneObject = createSubSceneObject(request, sceneObject, scene, node, i);
+                GVRSceneObject childSceneObject = createSubSceneObject(sceneObject, node, i, aiMeshes, meshes, materials);
             }
         }
 
@@ -392,7 +862,7 @@ public class GVRJassimpAdapter {
         }
         attachLights(lightlist, sceneObject);
         for (AiNode child : node.getChildren()) {
-            recurseAssimpNodes(request, sceneObject, scene, child, lightlist);
+            recurseAssimpNodes(sceneObject, child, aiMeshes, meshes, materials, lightlist);
         }
 
         context.runOnTheFrameworkThread(new Runnable() {
@@ -420,14 +890,7 @@ public class GVRJassimpAdapter {
 
     /**
      * Helper method to create a new {@link GVRSceneObject} with the mesh at the
-     * index {@link index} of the node mesh array with a color or texture
-     * material.
-     *
-     * @param assetRelativeFilename
-     *            A filename, relative to the {@code assets} directory. The file
-     *            can be in a sub-directory of the {@code assets} directory:
-     *            {@code "foo/bar.png"} will open the file
-     *            {@code assets/foo/bar.png}
+     * index {@link index} of the node mesh array and its material.
      *
      * @param node
      *            A reference to the AiNode for which we want to recurse all its
@@ -436,77 +899,52 @@ public class GVRJassimpAdapter {
      * @param index
      *            The index of the mesh in the array of meshes for that node.
      *
-     * @param wrapperProvider
-     *            AiWrapperProvider for unwrapping Jassimp properties.
+     * @param meshes
+     *            The converted meshes of the scene. A mesh with more than one
+     *            part becomes one child scene object per part.
+     *
+     * @param materials
+     *            The materials of the scene. Each scene object gets its own
+     *            copy of its material.
      *
      * @return The new {@link GVRSceneObject} with the mesh at the index
      *         {@link index} for the node {@link node}
-     *
-     * @throws IOException
-     *             File does not exist or cannot be read
      */
     private GVRSceneObject createSubSceneObject(
-            GVRAssetLoader.AssetRequest assetRequest,
             GVRSceneObject parent,
-            AiScene scene,
             AiNode node,
-            int index)
-            throws IOException {
+            int index,
+            List<AiMesh> aiMeshes,
+            GVRMesh[][] meshes,
+            ResolvedMaterial[] materials) {
         final GVRContext context = parent.getGVRContext();
-        AiMesh aiMesh = scene.getMeshes().get(node.getMeshes()[index]);
-        FutureWrapper<GVRMesh> futureMesh = new FutureWrapper<GVRMesh>(
-                createMesh(parent.getGVRContext(), aiMesh));
-        AiMaterial material = scene.getMaterials().get(aiMesh.getMaterialIndex());
-        final GVRMaterial meshMaterial = new GVRMaterial(context, GVRMaterial.GVRShaderType.BeingGenerated.ID);
+        final int meshIndex = node.getMeshes()[index];
+        final GVRMesh[] parts = meshes[meshIndex];
+        final ResolvedMaterial meshMaterial = materials[aiMeshes.get(meshIndex).getMaterialIndex()];
 
-        /* Diffuse color & Opacity */
-        AiColor diffuseColor = material.getDiffuseColor(sWrapperProvider);        /* Opacity */
-        float opacity = diffuseColor.getAlpha();
-        if (material.getOpacity() > 0) {
-            opacity *= material.getOpacity();
+        GVRSceneObject sceneObject = createSceneObject(context, node);
+        if (parts.length == 1) {
+            attachMesh(context, sceneObject, parts[0], meshMaterial.newInstance(context));
+        } else {
+            for (int i = 0; i < parts.length; ++i) {
+                GVRSceneObject partObject = new GVRSceneObject(context);
+                partObject.setName(node.getName() + "-" + i);
+                attachMesh(context, partObject, parts[i], meshMaterial.newInstance(context));
+                sceneObject.addChildObject(partObject);
+            }
         }
-        meshMaterial.setVec4("diffuse_color",diffuseColor.getRed(),
-                diffuseColor.getGreen(), diffuseColor.getBlue(), opacity);
-
-        /* Specular color */
-        AiColor specularColor = material.getSpecularColor(sWrapperProvider);
-        meshMaterial.setSpecularColor(specularColor.getRed(),
-                specularColor.getGreen(), specularColor.getBlue(),
-                specularColor.getAlpha());
-
-
-        /* Ambient color */
-        AiColor ambientColor = material.getAmbientColor(sWrapperProvider);
-        meshMaterial.setAmbientColor(ambientColor.getRed(),
-                ambientColor.getGreen(), ambientColor.getBlue(),
-                ambientColor.getAlpha());
-
-
-        /* Emissive color */
-        AiColor emissiveColor = material.getEmissiveColor(sWrapperProvider);
-        meshMaterial.setVec4("emissive_color", emissiveColor.getRed(),
-                emissiveColor.getGreen(), emissiveColor.getBlue(),
-                emissiveColor.getAlpha());
-
-
-        /* Specular Exponent */
-        float specularExponent = material.getShininess();
-        meshMaterial.setSpecularExponent(specularExponent);
-
-        /* Diffuse Texture */
-        loadTextures(assetRequest, material, meshMaterial, context);
 
+        parent.addChildObject(sceneObject);
+        return sceneObject;
+    }
 
-        GVRSceneObject sceneObject = createSceneObject(context, node);
+    private void attachMesh(GVRContext context, GVRSceneObject sceneObject, GVRMesh mesh, GVRMaterial material) {
         GVRRenderData sceneObjectRenderData = new GVRRenderData(context);
-        sceneObjectRenderData.setMesh(futureMesh);
+        sceneObjectRenderData.setMesh(new FutureWrapper<GVRMesh>(mesh));
 
-        sceneObjectRenderData.setMaterial(meshMaterial);
+        sceneObjectRenderData.setMaterial(material);
         sceneObjectRenderData.setShaderTemplate(GVRPhongShader.class);
         sceneObject.attachRenderData(sceneObjectRenderData);
-
-        parent.addChildObject(sceneObject);
-        return sceneObject;
     }
 
     private static final Map<AiTextureType, String> textureMap;
@@ -536,7 +974,7 @@ public class GVRJassimpAdapter {
 
     }
 
-    private void loadTextures(GVRAssetLoader.AssetRequest assetRequest, AiMaterial material, final GVRMaterial meshMaterial, final GVRContext context) throws IOException{
+    private void loadTextures(GVRAssetLoader.AssetRequest assetRequest, AiMaterial material, final ResolvedMaterial meshMaterial, final GVRContext context) throws IOException{
         for (final AiTextureType texType : AiTextureType.values())
         {
             if (texType == AiTextureType.UNKNOWN) {
@@ -567,12 +1005,89 @@ public class GVRJassimpAdapter {
                 GVRTextureParameters texParams = new GVRTextureParameters(context);
                 texParams.setWrapSType(wrapModeMap.get(material.getTextureMapModeU(texType,i)));
                 texParams.setWrapTType(wrapModeMap.get(material.getTextureMapModeV(texType,i)));
-                GVRAssetLoader.TextureRequest texRequest = new GVRAssetLoader.MaterialTextureRequest(assetRequest.getContext(), texFileName, meshMaterial, textureKey,texParams);
+                GVRAssetLoader.TextureRequest texRequest = new ResolvedTextureRequest(assetRequest.getContext(), texFileName, meshMaterial, textureKey, texParams);
                 assetRequest.loadTexture(texRequest);
             }
         }
     }
 
+    /**
+     * The properties and textures of one Assimp material, read and loaded
+     * once. Every scene object using the material gets its own
+     * {@link GVRMaterial} with a copy of them, because the shader variant
+     * stored in a material depends on the mesh and render data it is
+     * rendered with. Textures that finish loading later are set on every
+     * copy made so far.
+     */
+    private static final class ResolvedMaterial {
+        private final Map<String, float[]> mUniforms = new LinkedHashMap<String, float[]>();
+        private final Map<String, String[]> mTexCoords = new LinkedHashMap<String, String[]>();
+        private final Map<String, GVRTexture> mTextures = new LinkedHashMap<String, GVRTexture>();
+        private final List<GVRMaterial> mInstances = new ArrayList<GVRMaterial>();
+
+        void setFloat(String key, float value) {
+            mUniforms.put(key, new float[] { value });
+        }
+
+        void setVec4(String key, float x, float y, float z, float w) {
+            mUniforms.put(key, new float[] { x, y, z, w });
+        }
+
+        void setTexCoord(String texName, String texCoordAttr, String shaderVarName) {
+            mTexCoords.put(texName, new String[] { texCoordAttr, shaderVarName });
+        }
+
+        synchronized void setTexture(String key, GVRTexture texture) {
+            mTextures.put(key, texture);
+            for (GVRMaterial material : mInstances) {
+                material.setTexture(key, texture);
+            }
+        }
+
+        synchronized GVRMaterial newInstance(GVRContext context) {
+            GVRMaterial material = new GVRMaterial(context, GVRMaterial.GVRShaderType.BeingGenerated.ID);
+            for (Map.Entry<String, float[]> uniform : mUniforms.entrySet()) {
+                float[] v = uniform.getValue();
+                if (v.length == 1) {
+                    material.setFloat(uniform.getKey(), v[0]);
+                } else {
+                    material.setVec4(uniform.getKey(), v[0], v[1], v[2], v[3]);
+                }
+            }
+            for (Map.Entry<String, String[]> texCoord : mTexCoords.entrySet()) {
+                material.setTexCoord(texCoord.getKey(), texCoord.getValue()[0], texCoord.getValue()[1]);
+            }
+            for (Map.Entry<String, GVRTexture> texture : mTextures.entrySet()) {
+                material.setTexture(texture.getKey(), texture.getValue());
+            }
+            mInstances.add(material);
+            return material;
+        }
+    }
+
+    /**
+     * Texture load callback that binds the texture to every copy of a
+     * {@link ResolvedMaterial}.
+     */
+    private static final class ResolvedTextureRequest extends GVRAssetLoader.TextureRequest {
+        private final ResolvedMaterial mMaterial;
+        private final String mTextureName;
+
+        ResolvedTextureRequest(GVRContext context, String texFile, ResolvedMaterial material,
+                String textureName, GVRTextureParameters texParams) {
+            super(context, texFile, texParams);
+            mMaterial = material;
+            mTextureName = textureName;
+            mMaterial.setTexture(textureName, null);
+        }
+
+        @Override
+        public void loaded(GVRTexture texture, GVRAndroidResource ignored) {
+            mMaterial.setTexture(mTextureName, texture);
+            super.loaded(texture, ignored);
+        }
+    }
+
     private void importLights(final GVRContext context, List<AiLight> lights, Hashtable<String, GVRLightBase> lightlist){
         for(AiLight light: lights){
             AiLightType type = light.getType();
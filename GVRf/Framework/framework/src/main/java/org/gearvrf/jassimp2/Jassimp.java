@@ -384,13 +384,39 @@ public final class Jassimp {
 
     static {
         // System.loadLibrary("jassimp");
-    	NATIVE_AIVEKTORKEY_SIZE = getVKeysize();
-    	NATIVE_AIQUATKEY_SIZE = getQKeysize();
-    	NATIVE_AIVEKTOR3D_SIZE = getV3Dsize();
-    	NATIVE_FLOAT_SIZE = getfloatsize();
-    	NATIVE_INT_SIZE = getintsize();
-    	NATIVE_UINT_SIZE = getuintsize();
-    	NATIVE_DOUBLE_SIZE = getdoublesize();
-    	NATIVE_LONG_SIZE = getlongsize();
+        int vectorKeySize, quatKeySize, vector3DSize, floatSize, intSize,
+                uintSize, doubleSize, longSize;
+        try {
+            vectorKeySize = getVKeysize();
+            quatKeySize = getQKeysize();
+            vector3DSize = getV3Dsize();
+            floatSize = getfloatsize();
+            intSize = getintsize();
+            uintSize = getuintsize();
+            doubleSize = getdoublesize();
+            longSize = getlongsize();
+        } catch (UnsatisfiedLinkError e) {
+            /*
+             * No native library, as in unit tests on a desktop JVM: assume
+             * the layout of a 64-bit build, so scenes built in Java can
+             * still be used. Importing needs the library and fails anyway.
+             */
+            vectorKeySize = 24;
+            quatKeySize = 24;
+            vector3DSize = 12;
+            floatSize = 4;
+            intSize = 4;
+            uintSize = 4;
+            doubleSize = 8;
+            longSize = 8;
+        }
+        NATIVE_AIVEKTORKEY_SIZE = vectorKeySize;
+        NATIVE_AIQUATKEY_SIZE = quatKeySize;
+        NATIVE_AIVEKTOR3D_SIZE = vector3DSize;
+        NATIVE_FLOAT_SIZE = floatSize;
+        NATIVE_INT_SIZE = intSize;
+        NATIVE_UINT_SIZE = uintSize;
+        NATIVE_DOUBLE_SIZE = doubleSize;
+        NATIVE_LONG_SIZE = longSize;
     }
 }
@@ -0,0 +1,731 @@
+/* Copyright 2015 Samsung Electronics Co., LTD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gearvrf.jassimp2;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Saves an imported {@link AiScene} to a file and maps it back in.
+ *
+ * Parsing and post-processing a model in Assimp takes far longer than
+ * reading back the result. A cache file holds everything
+ * {@link GVRJassimpAdapter} uses from a scene: meshes with their bones,
+ * materials with their texture references, animation channels, lights,
+ * cameras and the node tree.
+ *
+ * <p>
+ * Vertex data, indices and animation keys are stored in native byte order.
+ * {@link #read(File, byte[])} memory-maps the file and gives the scene
+ * slices of the mapping, so this data is neither parsed nor copied onto the
+ * Java heap. A file written for other source content, with another byte
+ * order or another Assimp key layout is rejected.
+ *
+ * <p>
+ * The source content is every file the import read: the model and the
+ * files it refers to, such as an OBJ's material library. A cache file
+ * records their names, and {@link #readSources(File)} returns them so the
+ * caller can hash their current content.
+ *
+ * <p>
+ * Colors, vectors and matrices must have been wrapped by
+ * {@link GVRNewWrapperProvider}, as they are when {@code GVRAssetLoader}
+ * imports a model.
+ */
+public final class JassimpSceneCache {
+    private static final int MAGIC = 0x4a534331; // "JSC1"
+    private static final int VERSION = 2;
+
+    // Kinds of material property data
+    private static final int DATA_NULL = 0;
+    private static final int DATA_STRING = 1;
+    private static final int DATA_INTEGER = 2;
+    private static final int DATA_FLOAT = 3;
+    private static final int DATA_COLOR = 4;
+    private static final int DATA_BUFFER = 5;
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final GVRNewWrapperProvider sWrapperProvider = GVRJassimpAdapter.sWrapperProvider;
+
+    private JassimpSceneCache() {
+    }
+
+    /**
+     * Writes a scene to a cache file. The file is written under a temporary
+     * name and renamed when complete, so readers never see a partial file.
+     *
+     * @param scene
+     *            the imported scene
+     * @param file
+     *            the cache file
+     * @param sources
+     *            names of the files the import read, returned by
+     *            {@link #readSources(File)}
+     * @param sourceHash
+     *            hash of the content of {@code sources}, checked by
+     *            {@link #read(File, byte[])}
+     * @throws IOException
+     *             if the file cannot be written
+     */
+    public static void write(AiScene scene, File file, List<String> sources, byte[] sourceHash)
+            throws IOException {
+        File temp = new File(file.getPath() + ".tmp");
+        boolean written = false;
+        Writer out = new Writer(new FileOutputStream(temp).getChannel());
+        try {
+            out.putInt(MAGIC);
+            out.putInt(VERSION);
+            out.putInt(Jassimp.NATIVE_AIVEKTORKEY_SIZE);
+            out.putInt(Jassimp.NATIVE_AIQUATKEY_SIZE);
+            out.putInt(sources.size());
+            for (String source : sources) {
+                out.putString(source);
+            }
+            out.putBytes(sourceHash);
+
+            out.putInt(scene.getNumMeshes());
+            for (AiMesh mesh : scene.getMeshes()) {
+                writeMesh(out, mesh);
+            }
+            out.putInt(scene.getNumMaterials());
+            for (AiMaterial material : scene.getMaterials()) {
+                writeMaterial(out, material);
+            }
+            out.putInt(scene.getNumAnimations());
+            for (AiAnimation animation : scene.getAnimations()) {
+                writeAnimation(out, animation);
+            }
+            out.putInt(scene.getNumLights());
+            for (AiLight light : scene.getLights()) {
+                writeLight(out, light);
+            }
+            out.putInt(scene.getNumCameras());
+            for (AiCamera camera : scene.getCameras()) {
+                writeCamera(out, camera);
+            }
+            writeNode(out, scene.getSceneRoot(sWrapperProvider));
+            out.close();
+            written = true;
+        } finally {
+            if (!written) {
+                out.closeQuietly();
+                temp.delete();
+            }
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Cannot rename " + temp + " to " + file);
+        }
+    }
+
+    /**
+     * Reads the names of the files a cache file was written from.
+     *
+     * @param file
+     *            the cache file
+     * @return the names, or {@code null} if the file does not exist or was
+     *         written for another device
+     * @throws IOException
+     *             if the file cannot be read or is corrupt
+     */
+    public static List<String> readSources(File file) throws IOException {
+        ByteBuffer in = map(file);
+        try {
+            return (in == null) ? null : readHeader(in);
+        } catch (RuntimeException e) {
+            throw new IOException("Corrupt model cache file " + file, e);
+        }
+    }
+
+    /**
+     * Maps a cache file and rebuilds the scene it holds.
+     *
+     * @param file
+     *            the cache file
+     * @param sourceHash
+     *            hash of the current content of the
+     *            {@linkplain #readSources(File) source files}
+     * @return the scene, or {@code null} if the file does not exist or was
+     *         written for other content or another device
+     * @throws IOException
+     *             if the file cannot be read or is corrupt
+     */
+    public static AiScene read(File file, byte[] sourceHash) throws IOException {
+        ByteBuffer in = map(file);
+        if (in == null) {
+            return null;
+        }
+        try {
+            if (readHeader(in) == null || !Arrays.equals(getBytes(in), sourceHash)) {
+                return null;
+            }
+
+            AiScene scene = new AiScene();
+            for (int i = in.getInt(); i > 0; --i) {
+                scene.getMeshes().add(readMesh(in));
+            }
+            for (int i = in.getInt(); i > 0; --i) {
+                scene.getMaterials().add(readMaterial(in));
+            }
+            for (int i = in.getInt(); i > 0; --i) {
+                scene.getAnimations().add(readAnimation(in));
+            }
+            for (int i = in.getInt(); i > 0; --i) {
+                scene.getLights().add(readLight(in));
+            }
+            for (int i = in.getInt(); i > 0; --i) {
+                scene.getCameras().add(readCamera(in));
+            }
+            scene.setSceneRoot(readNode(in, null));
+            return scene;
+        } catch (RuntimeException e) {
+            throw new IOException("Corrupt model cache file " + file, e);
+        }
+    }
+
+    private static void writeMesh(Writer out, AiMesh mesh) throws IOException {
+        out.putInt(AiPrimitiveType.toRawValue(mesh.getPrimitiveTypes()));
+        out.putInt(mesh.getNumVertices());
+        out.putInt(mesh.getNumFaces());
+        out.putInt(mesh.getMaterialIndex());
+        out.putString(mesh.getName());
+        out.putFloats(mesh.getPositionBuffer());
+        out.putInts(mesh.getFaceBuffer());
+        out.putInts(mesh.getFaceOffsets());
+        out.putFloats(mesh.getNormalBuffer());
+        out.putFloats(mesh.getTangentBuffer());
+        out.putFloats(mesh.getBitangentBuffer());
+        for (int i = 0; i < JassimpConfig.MAX_NUMBER_COLORSETS; ++i) {
+            out.putFloats(mesh.getColorBuffer(i));
+        }
+        for (int i = 0; i < JassimpConfig.MAX_NUMBER_TEXCOORDS; ++i) {
+            out.putInt(mesh.getNumUVComponents(i));
+            out.putFloats(mesh.getTexCoordBuffer(i));
+        }
+
+        List<AiBone> bones = mesh.getBones();
+        out.putInt(bones.size());
+        for (AiBone bone : bones) {
+            out.putString(bone.getName());
+            out.putMatrix(bone.getOffsetMatrix(sWrapperProvider));
+            List<AiBoneWeight> weights = bone.getBoneWeights();
+            out.putInt(weights.size());
+            for (AiBoneWeight weight : weights) {
+                out.putInt(weight.getVertexId());
+                out.putFloat(weight.getWeight());
+            }
+        }
+    }
+
+    private static AiMesh readMesh(ByteBuffer in) {
+        int primitiveTypes = in.getInt();
+        int numVertices = in.getInt();
+        int numFaces = in.getInt();
+        int materialIndex = in.getInt();
+        String name = getString(in);
+        ByteBuffer vertices = getBuffer(in);
+        ByteBuffer faces = getBuffer(in);
+        ByteBuffer faceOffsets = getBuffer(in);
+        ByteBuffer normals = getBuffer(in);
+        ByteBuffer tangents = getBuffer(in);
+        ByteBuffer bitangents = getBuffer(in);
+        ByteBuffer[] colorsets = new ByteBuffer[JassimpConfig.MAX_NUMBER_COLORSETS];
+        for (int i = 0; i < colorsets.length; ++i) {
+            colorsets[i] = getBuffer(in);
+        }
+        int[] numUVComponents = new int[JassimpConfig.MAX_NUMBER_TEXCOORDS];
+        ByteBuffer[] texcoords = new ByteBuffer[JassimpConfig.MAX_NUMBER_TEXCOORDS];
+        for (int i = 0; i < texcoords.length; ++i) {
+            numUVComponents[i] = in.getInt();
+            texcoords[i] = getBuffer(in);
+        }
+        AiMesh mesh = new AiMesh(primitiveTypes, numVertices, numFaces, materialIndex, name,
+                vertices, faces, faceOffsets, normals, tangents, bitangents,
+                colorsets, numUVComponents, texcoords);
+
+        for (int i = in.getInt(); i > 0; --i) {
+            AiBone bone = new AiBone(getString(in), getMatrix(in));
+            List<AiBoneWeight> weights = bone.getBoneWeights();
+            for (int w = in.getInt(); w > 0; --w) {
+                weights.add(new AiBoneWeight(in.getInt(), in.getFloat()));
+            }
+            mesh.getBones().add(bone);
+        }
+        return mesh;
+    }
+
+    private static void writeMaterial(Writer out, AiMaterial material) throws IOException {
+        List<AiMaterial.Property> properties = material.getProperties();
+        out.putInt(properties.size());
+        for (AiMaterial.Property property : properties) {
+            out.putString(property.getKey());
+            out.putInt(property.getSemantic());
+            out.putInt(property.getIndex());
+            out.putInt(AiMaterial.PropertyType.toRawValue(property.getType()));
+
+            Object data = property.getData();
+            if (data == null) {
+                out.putInt(DATA_NULL);
+            } else if (data instanceof String) {
+                out.putInt(DATA_STRING);
+                out.putString((String) data);
+            } else if (data instanceof Integer) {
+                out.putInt(DATA_INTEGER);
+                out.putInt((Integer) data);
+            } else if (data instanceof Float) {
+                out.putInt(DATA_FLOAT);
+                out.putFloat((Float) data);
+            } else if (data instanceof AiColor) {
+                out.putInt(DATA_COLOR);
+                out.putColor((AiColor) data);
+            } else if (data instanceof ByteBuffer) {
+                out.putInt(DATA_BUFFER);
+                out.putBuffer((ByteBuffer) data);
+            } else {
+                throw new IOException("Cannot cache material property " + property.getKey());
+            }
+        }
+
+        // Assimp sets the number of every type of texture but UNKNOWN
+        AiTextureType[] types = AiTextureType.values();
+        out.putInt(types.length - 1);
+        for (AiTextureType type : types) {
+            if (type != AiTextureType.UNKNOWN) {
+                out.putInt(AiTextureType.toRawValue(type));
+                out.putInt(material.getNumTextures(type));
+            }
+        }
+    }
+
+    private static AiMaterial readMaterial(ByteBuffer in) {
+        AiMaterial material = new AiMaterial();
+        List<AiMaterial.Property> properties = material.getProperties();
+        for (int i = in.getInt(); i > 0; --i) {
+            String key = getString(in);
+            int semantic = in.getInt();
+            int index = in.getInt();
+            int type = in.getInt();
+            Object data;
+            switch (in.getInt()) {
+                case DATA_NULL:
+                    data = null;
+                    break;
+                case DATA_STRING:
+                    data = getString(in);
+                    break;
+                case DATA_INTEGER:
+                    data = in.getInt();
+                    break;
+                case DATA_FLOAT:
+                    data = in.getFloat();
+                    break;
+                case DATA_COLOR:
+                    data = getColor(in);
+                    break;
+                case DATA_BUFFER:
+                    data = getBuffer(in);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown property data for " + key);
+            }
+            properties.add(new AiMaterial.Property(key, semantic, index, type, data));
+        }
+        for (int i = in.getInt(); i > 0; --i) {
+            material.setTextureNumber(in.getInt(), in.getInt());
+        }
+        return material;
+    }
+
+    private static void writeAnimation(Writer out, AiAnimation animation) throws IOException {
+        out.putString(animation.getName());
+        out.putDouble(animation.getDuration());
+        out.putDouble(animation.getTicksPerSecond());
+
+        List<AiNodeAnim> channels = animation.getChannels();
+        out.putInt(channels.size());
+        for (AiNodeAnim channel : channels) {
+            out.putString(channel.getNodeName());
+            out.putInt(channel.getNumPosKeys());
+            out.putInt(channel.getNumRotKeys());
+            out.putInt(channel.getNumScaleKeys());
+            out.putInt(AiAnimBehavior.toRawValue(channel.getPreState()));
+            out.putInt(AiAnimBehavior.toRawValue(channel.getPostState()));
+            out.putBuffer(channel.getPosKeyBuffer());
+            out.putBuffer(channel.getRotKeyBuffer());
+            out.putBuffer(channel.getScaleKeyBuffer());
+        }
+    }
+
+    private static AiAnimation readAnimation(ByteBuffer in) {
+        String name = getString(in);
+        double duration = in.getDouble();
+        double ticksPerSecond = in.getDouble();
+        AiAnimation animation = new AiAnimation(name, duration, ticksPerSecond);
+
+        for (int i = in.getInt(); i > 0; --i) {
+            String nodeName = getString(in);
+            int numPosKeys = in.getInt();
+            int numRotKeys = in.getInt();
+            int numScaleKeys = in.getInt();
+            int preBehavior = in.getInt();
+            int postBehavior = in.getInt();
+            ByteBuffer posKeys = getBuffer(in);
+            ByteBuffer rotKeys = getBuffer(in);
+            ByteBuffer scaleKeys = getBuffer(in);
+            animation.getChannels().add(new AiNodeAnim(nodeName, numPosKeys, numRotKeys,
+                    numScaleKeys, preBehavior, postBehavior, posKeys, rotKeys, scaleKeys));
+        }
+        return animation;
+    }
+
+    private static void writeLight(Writer out, AiLight light) throws IOException {
+        out.putString(light.getName());
+        out.putInt(AiLightType.toRawValue(light.getType()));
+        out.putVector(light.getPosition(sWrapperProvider));
+        out.putVector(light.getDirection(sWrapperProvider));
+        out.putFloat(light.getAttenuationConstant());
+        out.putFloat(light.getAttenuationLinear());
+        out.putFloat(light.getAttenuationQuadratic());
+        out.putColor(light.getColorDiffuse(sWrapperProvider));
+        out.putColor(light.getColorSpecular(sWrapperProvider));
+        out.putColor(light.getColorAmbient(sWrapperProvider));
+        out.putFloat(light.getAngleInnerCone());
+        out.putFloat(light.getAngleOuterCone());
+    }
+
+    private static AiLight readLight(ByteBuffer in) {
+        String name = getString(in);
+        int type = in.getInt();
+        Object position = getVector(in);
+        Object direction = getVector(in);
+        float attenuationConstant = in.getFloat();
+        float attenuationLinear = in.getFloat();
+        float attenuationQuadratic = in.getFloat();
+        Object diffuse = getColor(in);
+        Object specular = getColor(in);
+        Object ambient = getColor(in);
+        float innerCone = in.getFloat();
+        float outerCone = in.getFloat();
+        return new AiLight(name, type, position, direction, attenuationConstant,
+                attenuationLinear, attenuationQuadratic, diffuse, specular, ambient,
+                innerCone, outerCone);
+    }
+
+    private static void writeCamera(Writer out, AiCamera camera) throws IOException {
+        out.putString(camera.getName());
+        out.putVector(camera.getPosition(sWrapperProvider));
+        out.putVector(camera.getUp(sWrapperProvider));
+        out.putVector(camera.getLookAt(sWrapperProvider));
+        out.putFloat(camera.getHorizontalFOV());
+        out.putFloat(camera.getClipPlaneNear());
+        out.putFloat(camera.getClipPlaneFar());
+        out.putFloat(camera.getAspect());
+    }
+
+    private static AiCamera readCamera(ByteBuffer in) {
+        String name = getString(in);
+        Object position = getVector(in);
+        Object up = getVector(in);
+        Object lookAt = getVector(in);
+        float horizontalFOV = in.getFloat();
+        float clipNear = in.getFloat();
+        float clipFar = in.getFloat();
+        float aspect = in.getFloat();
+        return new AiCamera(name, position, up, lookAt, horizontalFOV, clipNear, clipFar, aspect);
+    }
+
+    private static void writeNode(Writer out, AiNode node) throws IOException {
+        out.putString(node.getName());
+        out.putMatrix(node.getTransform(sWrapperProvider));
+        out.putIntArray(node.getMeshes());
+        out.putInt(node.getNumChildren());
+        for (AiNode child : node.getChildren()) {
+            writeNode(out, child);
+        }
+    }
+
+    private static Object readNode(ByteBuffer in, Object parent) {
+        String name = getString(in);
+        Object matrix = getMatrix(in);
+        int[] meshReferences = getIntArray(in);
+        Object node = Jassimp.wrapSceneNode(parent, matrix, meshReferences, name);
+        for (int i = in.getInt(); i > 0; --i) {
+            readNode(in, node);
+        }
+        return node;
+    }
+
+    private static ByteBuffer map(File file) throws IOException {
+        if (!file.isFile()) {
+            return null;
+        }
+        ByteBuffer in;
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            in = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+        } finally {
+            raf.close();
+        }
+        in.order(ByteOrder.nativeOrder());
+        return in;
+    }
+
+    /**
+     * Checks the format of a mapped cache file and reads the source names,
+     * leaving {@code in} at the source hash.
+     *
+     * @return the source names, or {@code null} if the format does not match
+     */
+    private static List<String> readHeader(ByteBuffer in) {
+        if (in.remaining() < 20 || in.getInt() != MAGIC || in.getInt() != VERSION
+                || in.getInt() != Jassimp.NATIVE_AIVEKTORKEY_SIZE
+                || in.getInt() != Jassimp.NATIVE_AIQUATKEY_SIZE) {
+            return null;
+        }
+        int count = in.getInt();
+        List<String> sources = new ArrayList<String>(count);
+        for (int i = 0; i < count; ++i) {
+            sources.add(getString(in));
+        }
+        return sources;
+    }
+
+    private static int padding(int length) {
+        return -length & 3;
+    }
+
+    private static String getString(ByteBuffer in) {
+        byte[] bytes = getBytes(in);
+        return bytes == null ? null : new String(bytes, UTF8);
+    }
+
+    private static byte[] getBytes(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        in.position(in.position() + padding(length));
+        return bytes;
+    }
+
+    /**
+     * Returns a native order slice of the mapped file, leaving {@code in}
+     * after the data.
+     */
+    private static ByteBuffer getBuffer(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        ByteBuffer slice = in.slice();
+        slice.limit(length);
+        slice.order(ByteOrder.nativeOrder());
+        in.position(in.position() + length + padding(length));
+        return slice;
+    }
+
+    private static int[] getIntArray(ByteBuffer in) {
+        int length = in.getInt();
+        if (length < 0) {
+            return null;
+        }
+        int[] array = new int[length];
+        in.asIntBuffer().get(array);
+        in.position(in.position() + length * 4);
+        return array;
+    }
+
+    private static Object getMatrix(ByteBuffer in) {
+        if (in.getInt() == 0) {
+            return null;
+        }
+        float[] data = new float[16];
+        in.asFloatBuffer().get(data);
+        in.position(in.position() + data.length * 4);
+        return Jassimp.wrapMatrix(data);
+    }
+
+    private static Object getVector(ByteBuffer in) {
+        return Jassimp.wrapVec3(in.getFloat(), in.getFloat(), in.getFloat());
+    }
+
+    private static Object getColor(ByteBuffer in) {
+        return Jassimp.wrapColor4(in.getFloat(), in.getFloat(), in.getFloat(), in.getFloat());
+    }
+
+    /**
+     * Writes native order data through a staging buffer. Every item is
+     * padded to a multiple of four bytes, so floats and ints in the mapped
+     * file are aligned.
+     */
+    private static final class Writer {
+        private final FileChannel mChannel;
+        private final ByteBuffer mBuffer = ByteBuffer.allocateDirect(64 * 1024)
+                .order(ByteOrder.nativeOrder());
+
+        Writer(FileChannel channel) {
+            mChannel = channel;
+        }
+
+        void putInt(int value) throws IOException {
+            reserve(4);
+            mBuffer.putInt(value);
+        }
+
+        void putFloat(float value) throws IOException {
+            reserve(4);
+            mBuffer.putFloat(value);
+        }
+
+        void putDouble(double value) throws IOException {
+            reserve(8);
+            mBuffer.putDouble(value);
+        }
+
+        void putString(String value) throws IOException {
+            putBytes(value == null ? null : value.getBytes(UTF8));
+        }
+
+        void putBytes(byte[] bytes) throws IOException {
+            if (bytes == null) {
+                putInt(-1);
+                return;
+            }
+            putBuffer(ByteBuffer.wrap(bytes));
+        }
+
+        void putIntArray(int[] array) throws IOException {
+            putInt(array == null ? -1 : array.length);
+            if (array != null) {
+                for (int value : array) {
+                    putInt(value);
+                }
+            }
+        }
+
+        /**
+         * Writes a 4x4 matrix in the row-major order Assimp uses, so it can
+         * be wrapped again like the data of a fresh import.
+         */
+        void putMatrix(float[] matrix) throws IOException {
+            putInt(matrix == null ? 0 : 1);
+            if (matrix != null) {
+                for (float value : GVRNewWrapperProvider.transpose(matrix)) {
+                    putFloat(value);
+                }
+            }
+        }
+
+        void putVector(float[] vector) throws IOException {
+            putFloat(vector[0]);
+            putFloat(vector[1]);
+            putFloat(vector[2]);
+        }
+
+        void putColor(AiColor color) throws IOException {
+            putFloat(color.getRed());
+            putFloat(color.getGreen());
+            putFloat(color.getBlue());
+            putFloat(color.getAlpha());
+        }
+
+        void putFloats(FloatBuffer data) throws IOException {
+            if (data == null) {
+                putInt(-1);
+                return;
+            }
+            FloatBuffer src = data.duplicate();
+            ByteBuffer bytes = ByteBuffer.allocateDirect(src.remaining() * 4)
+                    .order(ByteOrder.nativeOrder());
+            bytes.asFloatBuffer().put(src);
+            putBuffer(bytes);
+        }
+
+        void putInts(IntBuffer data) throws IOException {
+            if (data == null) {
+                putInt(-1);
+                return;
+            }
+            IntBuffer src = data.duplicate();
+            ByteBuffer bytes = ByteBuffer.allocateDirect(src.remaining() * 4)
+                    .order(ByteOrder.nativeOrder());
+            bytes.asIntBuffer().put(src);
+            putBuffer(bytes);
+        }
+
+        /**
+         * Writes the bytes between position and limit of {@code data},
+         * without moving its position.
+         */
+        void putBuffer(ByteBuffer data) throws IOException {
+            if (data == null) {
+                putInt(-1);
+                return;
+            }
+            ByteBuffer src = data.duplicate();
+            int length = src.remaining();
+            putInt(length);
+            flush();
+            while (src.hasRemaining()) {
+                mChannel.write(src);
+            }
+            int padding = padding(length);
+            reserve(padding);
+            for (int i = 0; i < padding; ++i) {
+                mBuffer.put((byte) 0);
+            }
+        }
+
+        void close() throws IOException {
+            flush();
+            mChannel.close();
+        }
+
+        void closeQuietly() {
+            try {
+                mChannel.close();
+            } catch (IOException e) {
+            }
+        }
+
+        private void reserve(int size) throws IOException {
+            if (mBuffer.remaining() < size) {
+                flush();
+            }
+        }
+
+        private void flush() throws IOException {
+            mBuffer.flip();
+            while (mBuffer.hasRemaining()) {
+                mChannel.write(mBuffer);
+            }
+            mBuffer.clear();
+        }
+    }
+}
@@ -15,11 +15,14 @@
 
 package org.gearvrf.periodic;
 
-import java.util.PriorityQueue;
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.gearvrf.GVRContext;
 import org.gearvrf.GVRDrawFrameListener;
 import org.gearvrf.GVRScript;
+import org.gearvrf.utility.Log;
 
 /**
  * Schedule {@linkplain Runnable runnables} to run on the GL thread at a future
@@ -55,18 +58,18 @@ import org.gearvrf.GVRScript;
  * something like a notification.
  * 
  * <p>
- * The engine maintains a priority queue of events, which it checks in a
- * {@linkplain GVRDrawFrameListener frame listener}; events run as
- * {@linkplain GVRContext#runOnGlThread(Runnable) run-once events.} Every frame,
- * GVRF runs any run-once events; then any frame listeners (including
- * animations); then your {@linkplain GVRScript#onStep() onStep() method;} and
- * then it renders the scene. This means that any periodic events that run on a
- * given frame will run before any animations. It also means that there is
- * always a one frame delay between the time an event is dequeued and the time
- * it actually runs. Scheduling an event from a point in the render pipeline
- * after the periodic engine will add an additional one frame delay. (The
- * periodic engine may run before the animation engine or after it - try not to
- * write code that depends on one running before the other.) Running at 60 fps,
+ * The engine keeps its events in a hashed timing wheel, which it checks in a
+ * {@linkplain GVRDrawFrameListener frame listener}; all events that are due
+ * run there, in one batch, in the order they were scheduled to run. Every
+ * frame, GVRF runs any {@linkplain GVRContext#runOnGlThread(Runnable) run-once
+ * events;} then any frame listeners (including animations and the periodic
+ * engine); then your {@linkplain GVRScript#onStep() onStep() method;} and then
+ * it renders the scene. Events can be scheduled, canceled and rescheduled from
+ * any thread without locking the engine; changes are picked up the next time
+ * the periodic engine runs, so making a change from a point in the render
+ * pipeline after the periodic engine adds a one frame delay. (The periodic
+ * engine may run before the animation engine or after it - try not to write
+ * code that depends on one running before the other.) Running at 60 fps,
  * each frame is normally 17 milliseconds apart, unless you add too many
  * callbacks or put too much code into your {@code onStep()}; Android garbage
  * collection can introduce additional delays.
@@ -84,9 +87,10 @@ public class GVRPeriodicEngine {
         });
     }
 
+    private static final String TAG = Log.tag(GVRPeriodicEngine.class);
+
     private final GVRContext mContext;
     private final DrawFrameListener mDrawFrameListener = new DrawFrameListener();
-    private final PriorityQueue<EventImplementation> mQueue = new PriorityQueue<EventImplementation>();
 
     protected GVRPeriodicEngine(GVRContext context) {
         mContext = context;
@@ -329,40 +333,155 @@ public class GVRPeriodicEngine {
         void runEvery(float delay, float period, KeepRunning callback);
     }
 
-    private interface EventImplementation extends PeriodicEvent,
-            Comparable<EventImplementation>, Runnable {
-        float getScheduledTime();
-    }
-
     /**
      * The periodic engine's time base.
      * 
-     * Unit is seconds.
+     * Unit is nanoseconds.
+     */
+    private static long now() {
+        return System.nanoTime();
+    }
+
+    private static long toNanos(float seconds) {
+        return (long) (seconds * 1e9);
+    }
+
+    /*
+     * Timing wheel.
+     * 
+     * Events are kept in WHEEL_SIZE buckets of TICK_NANOS each; an event lives
+     * in the bucket for its deadline tick, modulo the wheel size, as a node in
+     * an intrusive doubly-linked list. Events more than one revolution away
+     * simply stay put until a pass reaches their deadline tick. Linking,
+     * unlinking and firing are all constant time.
+     * 
+     * The wheel belongs to the GL thread. Other threads never touch it: they
+     * update an event's scheduling fields and push the event onto mInbox,
+     * which is drained at the start of every frame.
      */
-    private static float now() {
-        return System.nanoTime() / 1e9f;
+
+    private static final long TICK_NANOS = 4000000L; // 4 ms
+    private static final int WHEEL_SIZE = 512; // ~2 seconds per revolution
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+    private final Event[] mWheel = new Event[WHEEL_SIZE];
+    private final long mStartNanos = now();
+    private long mCurrentTick = 0;
+
+    private final ConcurrentLinkedQueue<Event> mInbox = new ConcurrentLinkedQueue<Event>();
+    private final ArrayList<Event> mDue = new ArrayList<Event>();
+
+    /** First tick at or after {@code time}, so events never fire early. */
+    private long tickAtOrAfter(long time) {
+        final long delta = time - mStartNanos;
+        return delta <= 0 ? 0 : (delta + TICK_NANOS - 1) / TICK_NANOS;
+    }
+
+    private void link(Event event, long deadlineTick) {
+        final int bucket = (int) (deadlineTick & WHEEL_MASK);
+        final Event head = mWheel[bucket];
+        event.mDeadlineTick = deadlineTick;
+        event.mBucket = bucket;
+        event.mPrev = null;
+        event.mNext = head;
+        if (head != null) {
+            head.mPrev = event;
+        }
+        mWheel[bucket] = event;
+    }
+
+    private void unlink(Event event) {
+        if (event.mBucket < 0) {
+            return;
+        }
+        if (event.mPrev != null) {
+            event.mPrev.mNext = event.mNext;
+        } else {
+            mWheel[event.mBucket] = event.mNext;
+        }
+        if (event.mNext != null) {
+            event.mNext.mPrev = event.mPrev;
+        }
+        event.mPrev = event.mNext = null;
+        event.mBucket = -1;
+    }
+
+    /** Moves every event that changed since the last frame to its bucket. */
+    private void drainInbox() {
+        Event event;
+        while ((event = mInbox.poll()) != null) {
+            // Clear first: a change made after this point queues it again
+            event.mInInbox.set(false);
+            unlink(event);
+
+            final long scheduledTime;
+            synchronized (event) {
+                if (event.mCanceled || !event.scheduled()) {
+                    continue;
+                }
+                scheduledTime = event.mScheduledTime;
+            }
+            link(event, Math.max(tickAtOrAfter(scheduledTime), mCurrentTick));
+        }
+    }
+
+    /**
+     * Unlinks every event whose deadline is at or before {@code targetTick},
+     * collecting them in {@link #mDue} in deadline order.
+     */
+    private void collectDue(long targetTick) {
+        final long first = mCurrentTick;
+        final long last = targetTick - first >= WHEEL_SIZE ? first + WHEEL_SIZE - 1 : targetTick;
+        for (long tick = first; tick <= last; ++tick) {
+            final int start = mDue.size();
+            Event event = mWheel[(int) (tick & WHEEL_MASK)];
+            while (event != null) {
+                final Event next = event.mNext;
+                if (event.mDeadlineTick <= targetTick) {
+                    unlink(event);
+                    mDue.add(event);
+                }
+                event = next;
+            }
+            sortByScheduledTime(mDue, start);
+        }
+        mCurrentTick = targetTick + 1;
+    }
+
+    /** Insertion sort: due lists are short and usually already in order. */
+    private static void sortByScheduledTime(ArrayList<Event> events, int start) {
+        for (int i = start + 1, size = events.size(); i < size; ++i) {
+            final Event event = events.get(i);
+            int j = i - 1;
+            while (j >= start && events.get(j).mScheduledTime > event.mScheduledTime) {
+                events.set(j + 1, events.get(j));
+                --j;
+            }
+            events.set(j + 1, event);
+        }
     }
 
     private class DrawFrameListener implements GVRDrawFrameListener {
 
         @Override
         public void onDrawFrame(float frameTime) {
-            float now = GVRPeriodicEngine.now();
-            synchronized (mQueue) {
-                for (EventImplementation //
-                first = mQueue.peek(); //
-                first != null && first.getScheduledTime() <= now; //
-                first = mQueue.peek() //
-                ) {
+            drainInbox();
 
-                    mContext.runOnGlThread(mQueue.poll());
+            final long targetTick = (now() - mStartNanos) / TICK_NANOS;
+            if (targetTick < mCurrentTick) {
+                return;
+            }
+            collectDue(targetTick);
 
-                }
+            final ArrayList<Event> due = mDue;
+            for (int i = 0, size = due.size(); i < size; ++i) {
+                due.get(i).run();
             }
+            due.clear();
         }
     }
 
-    private class Event implements EventImplementation {
+    private class Event implements PeriodicEvent {
 
         /*
          * Task, and run-count
@@ -379,107 +498,99 @@ public class GVRPeriodicEngine {
         private boolean mRunning = false;
 
         /*
-         * Queue management
+         * Wheel management: only touched on the GL thread.
          */
 
+        private Event mPrev;
+        private Event mNext;
+        private int mBucket = -1;
+        private long mDeadlineTick;
+
+        /** Set while this event is waiting in {@link #mInbox}. */
+        private final AtomicBoolean mInInbox = new AtomicBoolean();
+
         /**
          * Set by {@link #cancel()} to assure that events canceled from non-GL
          * thread during execution are not rescheduled.
          */
         private boolean mCanceled = false;
 
-        private void lockedEnqueue() {
-            if (mCanceled != true) {
-                mQueue.add(this);
-            }
-        }
-
-        private void lockedDequeue() {
-            mQueue.remove(this);
-        }
+        /**
+         * Bumped by every {@link #schedule(long)}, so {@link #run()} can tell
+         * whether the task rescheduled its own event.
+         */
+        private int mScheduleCount = 0;
 
         private void enqueue() {
-            synchronized (mQueue) {
-                lockedEnqueue();
-            }
-        }
-
-        @SuppressWarnings("unused")
-        private void dequeue() {
-            synchronized (mQueue) {
-                lockedDequeue();
+            if (mInInbox.compareAndSet(false, true)) {
+                mInbox.add(this);
             }
         }
 
         /*
-         * Scheduling fields.
+         * Scheduling fields, guarded by this event's monitor.
          * 
-         * A run-once event has an mPeriod == UNSCHEDULED.
+         * A run-once event has an mPeriod == 0.
          * 
          * We allow the user to change the scheduling at any time. To assure
          * consistency, neither constructors nor the rescheduling methods set
          * these fields directly: both go through setDelay() or setRepeat().
          */
 
-        private float mTimeBase;
-        private float mScheduledTime;
-        private float mPeriod;
+        private volatile long mScheduledTime;
+        private volatile boolean mScheduled;
+        private long mPeriod;
         private KeepRunning mCallback;
 
         private void setDelay(float delay) {
-            mTimeBase = now();
-            schedule(mTimeBase + delay);
-            mPeriod = UNSCHEDULED;
+            schedule(now() + toNanos(delay));
+            mPeriod = 0;
             mCallback = null;
         }
 
         private void setRepeat(float delay, float period, KeepRunning callback) {
-            mTimeBase = now();
-            schedule(mTimeBase + delay);
-            mPeriod = period;
+            schedule(now() + toNanos(delay));
+            mPeriod = toNanos(period);
             mCallback = callback;
         }
 
-        private void schedule(float time) {
+        private void schedule(long time) {
             mScheduledTime = time;
+            mScheduled = true;
             mCanceled = false;
+            mScheduleCount += 1;
         }
 
         private void deschedule() {
-            mScheduledTime = UNSCHEDULED;
+            mScheduled = false;
         }
 
         private void reschedule() {
-            if (repeats()) {
-                if (mCallback != null && mCallback.keepRunning(this) != true) {
-                    return; // Do NOT reschedule
+            final KeepRunning callback;
+            synchronized (this) {
+                if (!repeats() || mCanceled) {
+                    return;
                 }
-
-                float next = mTimeBase + (((now() - mTimeBase) / mPeriod) + 1)
-                        * mPeriod;
-                schedule(next);
-                enqueue();
+                callback = mCallback;
             }
-        }
-
-        private boolean enqueued() {
-            synchronized (mQueue) {
-                for (EventImplementation event : mQueue) {
-                    if (this == event) {
-                        return true;
-                    }
+            if (callback != null && callback.keepRunning(this) != true) {
+                return; // Do NOT reschedule
+            }
+            synchronized (this) {
+                if (mCanceled) {
+                    return;
                 }
+                schedule(now() + mPeriod);
             }
-            // else
-            return false;
+            enqueue();
         }
 
         private boolean scheduled() {
-            return mScheduledTime != UNSCHEDULED;
+            return mScheduled;
         }
 
         private boolean repeats() {
-            return mPeriod != UNSCHEDULED;
+            return mPeriod != 0;
         }
 
         /*
@@ -512,27 +623,26 @@ public class GVRPeriodicEngine {
 
         @Override
         public float getCurrentWait() {
-            return scheduled() ? mScheduledTime - now() : UNSCHEDULED;
+            return scheduled() ? (mScheduledTime - now()) / 1e9f : UNSCHEDULED;
         }
 
         @Override
         public void cancel() {
-            synchronized (mQueue) {
+            synchronized (this) {
                 deschedule();
-                lockedDequeue();
                 mCanceled = true;
             }
+            enqueue();
         }
 
         @Override
         public void runAfter(float delay) {
             validateDelay(delay);
 
-            synchronized (mQueue) {
-                lockedDequeue();
+            synchronized (this) {
                 setDelay(delay);
-                lockedEnqueue();
             }
+            enqueue();
         }
 
         @Override
@@ -551,53 +661,48 @@ public class GVRPeriodicEngine {
             validateDelay(delay);
             validatePeriod(period);
 
-            synchronized (mQueue) {
-                lockedDequeue();
+            synchronized (this) {
                 setRepeat(delay, period, callback);
-                lockedEnqueue();
             }
+            enqueue();
         }
 
-        /*
-         * EventImplementation
-         */
-
-        @Override
-        public float getScheduledTime() {
-            return mScheduledTime;
-        }
-
-        /*
-         * Comparable<EventImplementation>
-         */
-
-        @Override
-        public int compareTo(EventImplementation other) {
-            final float delta = getScheduledTime() - other.getScheduledTime();
-            return delta < 0 ? -1 : (delta == 0 ? 0 : 1);
-        }
-
-        /*
-         * Runnable
+        /**
+         * Runs the task, on the GL thread, once the event is due.
          */
+        private void run() {
+            final int scheduleCount;
+            synchronized (this) {
+                // An earlier task in the batch may have canceled or moved us
+                if (mCanceled || !scheduled() || mScheduledTime - now() > 0) {
+                    return;
+                }
+                scheduleCount = mScheduleCount;
+            }
 
-        @Override
-        public void run() {
             mRunning = true;
-            mTask.run();
+            try {
+                mTask.run();
+            } catch (final Exception exc) {
+                Log.e(TAG, "Periodic event %s threw %s", mTask, exc.toString());
+                exc.printStackTrace();
+            }
             mRunning = false;
             mRunCount += 1;
 
             /*
-             * Normally, the event will NOT be enqueued at this point. But, if
-             * the event has rescheduled itself (using the PeriodicEvent
-             * returned when it was created) then it WILL be enqueued, and we
-             * shouldn't re-enqueue it.
+             * Normally, the event will NOT have been scheduled again at this
+             * point. But, if the event has rescheduled itself (using the
+             * PeriodicEvent returned when it was created) then it WILL be
+             * queued, and we shouldn't re-queue it.
              */
-            if (enqueued() != true) {
+            synchronized (this) {
+                if (mScheduleCount != scheduleCount) {
+                    return;
+                }
                 deschedule();
-                reschedule();
             }
+            reschedule();
         }
 
     }
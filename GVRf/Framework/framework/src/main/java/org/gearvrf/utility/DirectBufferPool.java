@@ -0,0 +1,134 @@
+/* Copyright 2015 Samsung Electronics Co., LTD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gearvrf.utility;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+
+/**
+ * Recycles direct {@link ByteBuffer}s, for example the staging buffers that
+ * texture decoders fill before the pixels are uploaded.
+ *
+ * Allocating a direct buffer is much more expensive than allocating an array,
+ * and the memory is only returned when the buffer is garbage collected.
+ * {@link #acquire(int)} hands out a buffer whose capacity is the requested
+ * size rounded up to a power of two; {@link #release(ByteBuffer)} keeps it
+ * for the next request of a similar size, as long as the pool holds no more
+ * than its byte budget. Thread-safe.
+ */
+public class DirectBufferPool {
+    // Larger buffers are allocated to size, and never pooled
+    private static final int MAX_POOLED_SHIFT = 30;
+
+    private final long mMaxPooled;
+    private long mPooled;
+    // Free buffers by log2(capacity); guarded by this
+    @SuppressWarnings("unchecked")
+    private final ArrayList<ByteBuffer>[] mFree = new ArrayList[MAX_POOLED_SHIFT + 1];
+
+    /**
+     * @param maxPooled
+     *            the most bytes of free buffers to keep
+     */
+    public DirectBufferPool(long maxPooled) {
+        mMaxPooled = maxPooled;
+    }
+
+    /**
+     * Gets a direct buffer in native byte order, with position 0 and limit
+     * {@code size}. Its content is undefined.
+     *
+     * @param size
+     *            number of bytes needed
+     * @return a direct buffer with at least {@code size} bytes of capacity
+     */
+    public ByteBuffer acquire(int size) {
+        if (size < 0) {
+            throw Exceptions.IllegalArgument("Negative buffer size %d", size);
+        }
+        int shift = shiftFor(size);
+        ByteBuffer buffer = null;
+        if (shift <= MAX_POOLED_SHIFT) {
+            synchronized (this) {
+                ArrayList<ByteBuffer> free = mFree[shift];
+                if (free != null && !free.isEmpty()) {
+                    buffer = free.remove(free.size() - 1);
+                    mPooled -= buffer.capacity();
+                }
+            }
+            if (buffer == null) {
+                buffer = ByteBuffer.allocateDirect(1 << shift);
+            }
+        } else {
+            buffer = ByteBuffer.allocateDirect(size);
+        }
+        buffer.clear();
+        buffer.limit(size);
+        return buffer.order(ByteOrder.nativeOrder());
+    }
+
+    /**
+     * Returns a buffer from {@link #acquire(int)} to the pool. The caller must
+     * not use it afterwards. Buffers that did not come from a pool are
+     * ignored.
+     *
+     * @param buffer
+     *            the buffer to recycle
+     */
+    public void release(ByteBuffer buffer) {
+        int capacity = buffer.capacity();
+        if (!buffer.isDirect() || capacity == 0 || Integer.bitCount(capacity) != 1) {
+            return;
+        }
+        int shift = Integer.numberOfTrailingZeros(capacity);
+        if (shift > MAX_POOLED_SHIFT) {
+            return;
+        }
+        synchronized (this) {
+            if (mPooled + capacity > mMaxPooled) {
+                return;
+            }
+            ArrayList<ByteBuffer> free = mFree[shift];
+            if (free == null) {
+                free = mFree[shift] = new ArrayList<ByteBuffer>();
+            }
+            free.add(buffer);
+            mPooled += capacity;
+        }
+    }
+
+    /**
+     * Drops all free buffers.
+     */
+    public synchronized void clear() {
+        for (int i = 0; i < mFree.length; ++i) {
+            mFree[i] = null;
+        }
+        mPooled = 0;
+    }
+
+    /**
+     * @return bytes held by free buffers
+     */
+    public synchronized long getPooledSize() {
+        return mPooled;
+    }
+
+    private static int shiftFor(int size) {
+        return size <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(size - 1);
+    }
+}
@@ -0,0 +1,408 @@
+/* Copyright 2015 Samsung Electronics Co., LTD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gearvrf.utility;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * Random access to the entries of a memory-mapped zip archive.
+ *
+ * The central directory is read once, when the archive is opened; no entry
+ * data is read until it is asked for. Stored (uncompressed) entries are
+ * returned as read-only slices of the mapping, without copying. Deflated
+ * entries are inflated on demand into a buffer of exactly their size.
+ * Entries do not share any state, so several threads can read or inflate
+ * entries of the same archive at the same time.
+ *
+ * <p>
+ * ZIP64 and encrypted archives are not supported, and checksums are not
+ * verified.
+ */
+public class MappedZipFile {
+    private static final int EOCD_SIGNATURE = 0x06054b50;
+    private static final int EOCD_SIZE = 22;
+    private static final int CENTRAL_SIGNATURE = 0x02014b50;
+    private static final int CENTRAL_SIZE = 46;
+    private static final int LOCAL_SIGNATURE = 0x04034b50;
+    private static final int LOCAL_SIZE = 30;
+    private static final int MAX_COMMENT = 0xffff;
+
+    private static final int STORED = 0;
+    private static final int DEFLATED = 8;
+    private static final int FLAG_ENCRYPTED = 1;
+    private static final int INFLATE_CHUNK = 64 * 1024;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final String mName;
+    private final ByteBuffer mBuffer;
+    private final Map<String, Entry> mEntries = new HashMap<String, Entry>();
+    private final List<String> mNames = new ArrayList<String>();
+
+    private static final class Entry {
+        final int method;
+        final int flags;
+        final int compressedSize;
+        final int size;
+        final int headerOffset;
+        // Found from the local header on first use; -1 until then
+        volatile int dataOffset = -1;
+
+        Entry(int method, int flags, int compressedSize, int size, int headerOffset) {
+            this.method = method;
+            this.flags = flags;
+            this.compressedSize = compressedSize;
+            this.size = size;
+            this.headerOffset = headerOffset;
+        }
+    }
+
+    /**
+     * Maps a zip file.
+     *
+     * @param file
+     *            the zip file
+     * @throws IOException
+     *             if the file cannot be read or is not a zip archive
+     */
+    public MappedZipFile(File file) throws IOException {
+        this(file.getPath(), map(file));
+    }
+
+    /**
+     * Maps a zip archive stored in part of a file, such as an uncompressed
+     * asset inside an APK. The mapping stays valid after {@code channel} is
+     * closed.
+     *
+     * @param name
+     *            name of the archive, for error messages
+     * @param channel
+     *            channel of the file holding the archive
+     * @param offset
+     *            position of the archive in the file
+     * @param length
+     *            size of the archive, in bytes
+     * @throws IOException
+     *             if the file cannot be read or is not a zip archive
+     */
+    public MappedZipFile(String name, FileChannel channel, long offset, long length)
+            throws IOException {
+        this(name, checkedMap(name, channel, offset, length));
+    }
+
+    private MappedZipFile(String name, ByteBuffer buffer) throws IOException {
+        mName = name;
+        mBuffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+        readCentralDirectory();
+    }
+
+    /**
+     * @return the name of the archive
+     */
+    public String getName() {
+        return mName;
+    }
+
+    /**
+     * @return the names of all entries, in central directory order
+     */
+    public List<String> getEntryNames() {
+        return Collections.unmodifiableList(mNames);
+    }
+
+    /**
+     * @param name
+     *            entry name, with {@code '/'} separators
+     * @return whether the archive has an entry with that name
+     */
+    public boolean contains(String name) {
+        return mEntries.containsKey(name);
+    }
+
+    /**
+     * @param name
+     *            entry name, with {@code '/'} separators
+     * @return the uncompressed size of the entry, in bytes
+     * @throws FileNotFoundException
+     *             if there is no such entry
+     */
+    public int getSize(String name) throws FileNotFoundException {
+        return getEntry(name).size;
+    }
+
+    /**
+     * Gets the content of an entry. Stored entries return a read-only slice
+     * of the mapping; deflated entries are inflated into a new buffer.
+     *
+     * @param name
+     *            entry name, with {@code '/'} separators
+     * @return the content of the entry
+     * @throws IOException
+     *             if there is no such entry or it cannot be read
+     */
+    public ByteBuffer getBuffer(String name) throws IOException {
+        Entry entry = getEntry(name);
+        if (entry.method == STORED) {
+            return getData(name, entry);
+        }
+        return ByteBuffer.wrap(inflate(name, entry));
+    }
+
+    /**
+     * Opens an entry for reading. The stream supports
+     * {@link InputStream#mark(int)} and {@link InputStream#reset()}.
+     *
+     * @param name
+     *            entry name, with {@code '/'} separators
+     * @return a stream over the content of the entry
+     * @throws IOException
+     *             if there is no such entry or it cannot be read
+     */
+    public InputStream openStream(String name) throws IOException {
+        Entry entry = getEntry(name);
+        if (entry.method == STORED) {
+            return new BufferInputStream(getData(name, entry));
+        }
+        return new ByteArrayInputStream(inflate(name, entry));
+    }
+
+    private Entry getEntry(String name) throws FileNotFoundException {
+        Entry entry = mEntries.get(name);
+        if (entry == null) {
+            throw new FileNotFoundException(name + " not found in " + mName);
+        }
+        return entry;
+    }
+
+    private ByteBuffer getData(String name, Entry entry) throws IOException {
+        if ((entry.flags & FLAG_ENCRYPTED) != 0) {
+            throw new ZipException(name + " in " + mName + " is encrypted");
+        }
+        if (entry.method != STORED && entry.method != DEFLATED) {
+            throw new ZipException(String.format("%s in %s uses unsupported method %d",
+                    name, mName, entry.method));
+        }
+
+        int dataOffset = entry.dataOffset;
+        if (dataOffset < 0) {
+            int header = entry.headerOffset;
+            if (header > mBuffer.limit() - LOCAL_SIZE
+                    || mBuffer.getInt(header) != LOCAL_SIGNATURE) {
+                throw new ZipException("Bad local header for " + name + " in " + mName);
+            }
+            dataOffset = header + LOCAL_SIZE + getUnsignedShort(header + 26)
+                    + getUnsignedShort(header + 28);
+            entry.dataOffset = dataOffset;
+        }
+        int length = (entry.method == STORED) ? entry.size : entry.compressedSize;
+        if (dataOffset > mBuffer.limit() - length) {
+            throw new ZipException(name + " in " + mName + " is truncated");
+        }
+
+        ByteBuffer data = mBuffer.duplicate();
+        data.limit(dataOffset + length).position(dataOffset);
+        return data.slice().asReadOnlyBuffer();
+    }
+
+    private byte[] inflate(String name, Entry entry) throws IOException {
+        ByteBuffer source = getData(name, entry);
+        byte[] output = new byte[entry.size];
+        byte[] input = new byte[Math.min(INFLATE_CHUNK, Math.max(entry.compressedSize, 1))];
+        Inflater inflater = new Inflater(true);
+        try {
+            int done = 0;
+            while (done < output.length) {
+                if (inflater.needsInput()) {
+                    if (!source.hasRemaining()) {
+                        throw new ZipException(name + " in " + mName + " is truncated");
+                    }
+                    int count = Math.min(input.length, source.remaining());
+                    source.get(input, 0, count);
+                    inflater.setInput(input, 0, count);
+                }
+                int count = inflater.inflate(output, done, output.length - done);
+                if (count == 0 && (inflater.finished() || inflater.needsDictionary())) {
+                    throw new ZipException(name + " in " + mName + " is shorter than its size");
+                }
+                done += count;
+            }
+            return output;
+        } catch (DataFormatException e) {
+            throw new ZipException(name + " in " + mName + ": " + e.getMessage());
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private void readCentralDirectory() throws IOException {
+        int eocd = findEndOfCentralDirectory();
+        int count = getUnsignedShort(eocd + 10);
+        long directorySize = getUnsignedInt(eocd + 12);
+        long directoryOffset = getUnsignedInt(eocd + 16);
+        if (count == 0xffff || directoryOffset == 0xffffffffL) {
+            throw new ZipException(mName + " is a ZIP64 archive");
+        }
+        if (directoryOffset + directorySize > eocd) {
+            throw new ZipException(mName + " has a bad central directory");
+        }
+
+        int position = (int) directoryOffset;
+        for (int i = 0; i < count; ++i) {
+            if (position > eocd - CENTRAL_SIZE || mBuffer.getInt(position) != CENTRAL_SIGNATURE) {
+                throw new ZipException(mName + " has a bad central directory");
+            }
+            int flags = getUnsignedShort(position + 8);
+            int method = getUnsignedShort(position + 10);
+            long compressedSize = getUnsignedInt(position + 20);
+            long size = getUnsignedInt(position + 24);
+            int nameLength = getUnsignedShort(position + 28);
+            int extraLength = getUnsignedShort(position + 30);
+            int commentLength = getUnsignedShort(position + 32);
+            long headerOffset = getUnsignedInt(position + 42);
+            if (compressedSize > Integer.MAX_VALUE || size > Integer.MAX_VALUE
+                    || headerOffset > Integer.MAX_VALUE) {
+                throw new ZipException(mName + " is a ZIP64 archive");
+            }
+            if (position + CENTRAL_SIZE + nameLength > eocd) {
+                throw new ZipException(mName + " has a bad central directory");
+            }
+
+            byte[] nameBytes = new byte[nameLength];
+            ByteBuffer names = mBuffer.duplicate();
+            names.position(position + CENTRAL_SIZE);
+            names.get(nameBytes);
+            String name = new String(nameBytes, UTF_8);
+
+            if (mEntries.put(name, new Entry(method, flags, (int) compressedSize, (int) size,
+                    (int) headerOffset)) == null) {
+                mNames.add(name);
+            }
+            position += CENTRAL_SIZE + nameLength + extraLength + commentLength;
+        }
+    }
+
+    private int findEndOfCentralDirectory() throws ZipException {
+        int last = mBuffer.limit() - EOCD_SIZE;
+        int first = Math.max(0, last - MAX_COMMENT);
+        for (int position = last; position >= first; --position) {
+            if (mBuffer.getInt(position) == EOCD_SIGNATURE
+                    && position + EOCD_SIZE + getUnsignedShort(position + 20) == mBuffer.limit()) {
+                return position;
+            }
+        }
+        throw new ZipException(mName + " is not a zip archive");
+    }
+
+    private int getUnsignedShort(int position) {
+        return mBuffer.getShort(position) & 0xffff;
+    }
+
+    private long getUnsignedInt(int position) {
+        return mBuffer.getInt(position) & 0xffffffffL;
+    }
+
+    private static ByteBuffer map(File file) throws IOException {
+        FileInputStream in = new FileInputStream(file);
+        try {
+            FileChannel channel = in.getChannel();
+            return checkedMap(file.getPath(), channel, 0, channel.size());
+        } finally {
+            in.close();
+        }
+    }
+
+    private static ByteBuffer checkedMap(String name, FileChannel channel, long offset,
+            long length) throws IOException {
+        if (length > Integer.MAX_VALUE) {
+            throw new ZipException(name + " is too large to map");
+        }
+        return channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+    }
+
+    /**
+     * A stream over a buffer, with mark and reset.
+     */
+    private static final class BufferInputStream extends InputStream {
+        private final ByteBuffer mData;
+        private int mMark;
+
+        BufferInputStream(ByteBuffer data) {
+            mData = data;
+        }
+
+        @Override
+        public int read() {
+            return mData.hasRemaining() ? (mData.get() & 0xff) : -1;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int count) {
+            if (count == 0) {
+                return 0;
+            }
+            if (!mData.hasRemaining()) {
+                return -1;
+            }
+            count = Math.min(count, mData.remaining());
+            mData.get(buffer, offset, count);
+            return count;
+        }
+
+        @Override
+        public long skip(long count) {
+            int skipped = (int) Math.max(0, Math.min(count, mData.remaining()));
+            mData.position(mData.position() + skipped);
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return mData.remaining();
+        }
+
+        @Override
+        public boolean markSupported() {
+            return true;
+        }
+
+        @Override
+        public void mark(int readLimit) {
+            mMark = mData.position();
+        }
+
+        @Override
+        public void reset() {
+            mData.position(mMark);
+        }
+    }
+}
@@ -0,0 +1,557 @@
+/* Copyright 2015 Samsung Electronics Co., LTD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gearvrf.utility;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Keeps local copies of network assets in a directory.
+ *
+ * {@link #get(URL)} returns a file holding the content of a URL, downloading
+ * it if there is no local copy. A copy is trusted for
+ * {@linkplain #setMaxAge(long) a while}; after that it is revalidated with a
+ * conditional request ({@code If-None-Match} / {@code If-Modified-Since}),
+ * so an unchanged asset is not downloaded again. If revalidation fails, for
+ * example because the device is offline, the local copy is used.
+ *
+ * <p>
+ * Copies are evicted in least recently used order once they add up to more
+ * than the size budget. Concurrent requests for the same URL share one
+ * download, and at most a fixed number of downloads run at the same time.
+ * Downloads are written to a temporary file and renamed into place, so a
+ * reader never sees a partial file.
+ *
+ * <p>
+ * The cache owns its directory: files it does not know about are deleted.
+ * Use only one instance per directory.
+ */
+public class NetworkAssetCache {
+    private static final String TAG = Log.tag(NetworkAssetCache.class);
+
+    /** How long a local copy is used without revalidation, by default. */
+    public static final long DEFAULT_MAX_AGE = 5 * 60 * 1000;
+
+    private static final String META_SUFFIX = ".meta";
+    private static final String TEMP_SUFFIX = ".tmp";
+    // A UUID plus META_SUFFIX; data files are named UUID-filename
+    private static final int META_NAME_LENGTH = 36 + META_SUFFIX.length();
+    private static final long TRANSFER_CHUNK = 64 * 1024;
+
+    private static final String KEY_URL = "url";
+    private static final String KEY_FILE = "file";
+    private static final String KEY_ETAG = "etag";
+    private static final String KEY_LAST_MODIFIED = "lastModified";
+
+    private final File mDirectory;
+    private final Semaphore mDownloads;
+    private final ConcurrentMap<String, FutureTask<File>> mPending //
+            = new ConcurrentHashMap<String, FutureTask<File>>();
+
+    // Local copies in least recently used order; guarded by itself
+    private final LinkedHashMap<String, Entry> mEntries //
+            = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+    private boolean mLoaded;
+    private long mMaxSize;
+    private long mSize;
+    private volatile long mMaxAge = DEFAULT_MAX_AGE;
+
+    private static final class Entry {
+        final String key;
+        final String url;
+        final String fileName;
+        long size;
+        String etag;
+        String lastModified;
+        // When the copy was last known to be current; 0 if never checked
+        volatile long validated;
+        long accessed;
+
+        Entry(String key, String url, String fileName) {
+            this.key = key;
+            this.url = url;
+            this.fileName = fileName;
+        }
+    }
+
+    /**
+     * @param directory
+     *            directory for the local copies; created if it does not
+     *            exist
+     * @param maxSize
+     *            size budget, in bytes
+     * @param maxDownloads
+     *            maximum number of simultaneous downloads
+     */
+    public NetworkAssetCache(File directory, long maxSize, int maxDownloads) {
+        if (maxSize < 0) {
+            throw Exceptions.IllegalArgument("Negative cache size %d", maxSize);
+        }
+        if (maxDownloads <= 0) {
+            throw Exceptions.IllegalArgument("Download limit must be positive");
+        }
+        mDirectory = directory;
+        mMaxSize = maxSize;
+        mDownloads = new Semaphore(maxDownloads, true);
+    }
+
+    /**
+     * @return the directory holding the local copies
+     */
+    public File getDirectory() {
+        return mDirectory;
+    }
+
+    /**
+     * Changes the size budget, evicting local copies if needed.
+     *
+     * @param maxSize
+     *            size budget, in bytes
+     */
+    public void setMaxSize(long maxSize) {
+        if (maxSize < 0) {
+            throw Exceptions.IllegalArgument("Negative cache size %d", maxSize);
+        }
+        synchronized (mEntries) {
+            mMaxSize = maxSize;
+            trim(null);
+        }
+    }
+
+    /**
+     * @return the size budget, in bytes
+     */
+    public long getMaxSize() {
+        synchronized (mEntries) {
+            return mMaxSize;
+        }
+    }
+
+    /**
+     * @return the total size of the local copies, in bytes
+     */
+    public long getSize() {
+        synchronized (mEntries) {
+            return mSize;
+        }
+    }
+
+    /**
+     * Sets how long a local copy is used before it is revalidated. Zero
+     * revalidates on every {@link #get(URL)}.
+     *
+     * @param millis
+     *            time in milliseconds
+     */
+    public void setMaxAge(long millis) {
+        mMaxAge = millis;
+    }
+
+    /**
+     * @return how long a local copy is used before it is revalidated, in
+     *         milliseconds
+     */
+    public long getMaxAge() {
+        return mMaxAge;
+    }
+
+    /**
+     * Gets a local copy of a URL, downloading or revalidating it if
+     * necessary. The returned file stays readable once opened, even if it is
+     * evicted or replaced afterwards.
+     *
+     * @param url
+     *            the asset to get
+     * @return a file with the content of {@code url}
+     * @throws IOException
+     *             if the asset cannot be downloaded and there is no local
+     *             copy
+     */
+    public File get(final URL url) throws IOException {
+        loadEntries();
+        final String key = getKey(url);
+
+        Entry entry;
+        synchronized (mEntries) {
+            entry = mEntries.get(key);
+        }
+        if (entry != null && isFresh(entry)) {
+            File file = new File(mDirectory, entry.fileName);
+            if (file.exists()) {
+                file.setLastModified(System.currentTimeMillis());
+                return file;
+            }
+        }
+
+        FutureTask<File> task = new FutureTask<File>(new Callable<File>() {
+            @Override
+            public File call() throws IOException {
+                return fetch(url, key);
+            }
+        });
+        FutureTask<File> pending = mPending.putIfAbsent(key, task);
+        if (pending == null) {
+            pending = task;
+            try {
+                task.run();
+            } finally {
+                mPending.remove(key);
+            }
+        }
+
+        try {
+            return pending.get();
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException("Interrupted while downloading " + url);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * Deletes all local copies.
+     */
+    public void clear() {
+        loadEntries();
+        synchronized (mEntries) {
+            for (Iterator<Entry> it = mEntries.values().iterator(); it.hasNext();) {
+                Entry entry = it.next();
+                if (!mPending.containsKey(entry.key)) {
+                    it.remove();
+                    delete(entry);
+                }
+            }
+        }
+    }
+
+    private boolean isFresh(Entry entry) {
+        long validated = entry.validated;
+        return validated != 0
+                && System.currentTimeMillis() - validated < mMaxAge;
+    }
+
+    private File fetch(URL url, String key) throws IOException {
+        Entry entry;
+        synchronized (mEntries) {
+            entry = mEntries.get(key);
+        }
+        if (entry != null) {
+            File file = new File(mDirectory, entry.fileName);
+            if (!file.exists()) {
+                remove(entry);
+                entry = null;
+            } else if (isFresh(entry)) {
+                return file;
+            }
+        }
+
+        try {
+            mDownloads.acquire();
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException("Interrupted while waiting to download " + url);
+        }
+        try {
+            return download(url, key, entry);
+        } catch (IOException e) {
+            if (entry == null) {
+                throw e;
+            }
+            Log.w(TAG, "Cannot revalidate %s, using local copy: %s", url, e);
+            return new File(mDirectory, entry.fileName);
+        } finally {
+            mDownloads.release();
+        }
+    }
+
+    private File download(URL url, String key, Entry entry) throws IOException {
+        URLConnection connection = url.openConnection();
+        HttpURLConnection http = (connection instanceof HttpURLConnection)
+                ? (HttpURLConnection) connection : null;
+        try {
+            if (http != null) {
+                if (entry != null) {
+                    if (entry.etag != null) {
+                        http.setRequestProperty("If-None-Match", entry.etag);
+                    }
+                    if (entry.lastModified != null) {
+                        http.setRequestProperty("If-Modified-Since", entry.lastModified);
+                    }
+                }
+                int status = http.getResponseCode();
+                if (status == HttpURLConnection.HTTP_NOT_MODIFIED && entry != null) {
+                    Log.d(TAG, "Not modified: %s", url);
+                    File file = new File(mDirectory, entry.fileName);
+                    entry.validated = System.currentTimeMillis();
+                    file.setLastModified(entry.validated);
+                    return file;
+                }
+                if (status != HttpURLConnection.HTTP_OK) {
+                    throw new IOException(String.format("HTTP %d %s: %s", status,
+                            http.getResponseMessage(), url));
+                }
+            }
+
+            Log.d(TAG, "Downloading %s", url);
+            Entry updated = new Entry(key, url.toString(),
+                    key + "-" + FileNameUtils.getURLFilename(url.toString()));
+            updated.etag = connection.getHeaderField("ETag");
+            updated.lastModified = connection.getHeaderField("Last-Modified");
+
+            File temp = new File(mDirectory, key + TEMP_SUFFIX);
+            InputStream in = connection.getInputStream();
+            try {
+                updated.size = transfer(in, temp, connection.getContentLength());
+            } catch (IOException e) {
+                temp.delete();
+                throw e;
+            } finally {
+                in.close();
+            }
+
+            // Without its metadata a copy is discarded on the next start, so
+            // a crash between these steps cannot pair old metadata with new
+            // content. The rename replaces the old copy atomically.
+            if (entry != null) {
+                forget(entry);
+                getMetaFile(entry).delete();
+            }
+            File file = new File(mDirectory, updated.fileName);
+            if (!temp.renameTo(file)) {
+                temp.delete();
+                throw new IOException("Cannot store download in " + file);
+            }
+            writeMeta(updated);
+            updated.validated = System.currentTimeMillis();
+            updated.accessed = updated.validated;
+            synchronized (mEntries) {
+                mEntries.put(key, updated);
+                mSize += updated.size;
+                trim(key);
+            }
+            return file;
+        } finally {
+            if (http != null) {
+                http.disconnect();
+            }
+        }
+    }
+
+    private static long transfer(InputStream in, File dest, int expectedSize) throws IOException {
+        ReadableByteChannel source = Channels.newChannel(in);
+        FileOutputStream out = new FileOutputStream(dest);
+        try {
+            FileChannel channel = out.getChannel();
+            long position = 0;
+            long count;
+            while ((count = channel.transferFrom(source, position, TRANSFER_CHUNK)) > 0) {
+                position += count;
+            }
+            if (expectedSize >= 0 && position != expectedSize) {
+                throw new IOException(String.format(
+                        "Download ended after %d of %d bytes", position, expectedSize));
+            }
+            return position;
+        } finally {
+            out.close();
+        }
+    }
+
+    /*
+     * Index
+     */
+
+    private void loadEntries() {
+        synchronized (mEntries) {
+            if (mLoaded) {
+                return;
+            }
+            mLoaded = true;
+            if (!mDirectory.isDirectory() && !mDirectory.mkdirs()) {
+                Log.e(TAG, "Cannot create cache directory %s", mDirectory);
+                return;
+            }
+
+            File[] files = mDirectory.listFiles();
+            if (files == null) {
+                return;
+            }
+            List<Entry> entries = new ArrayList<Entry>();
+            Set<String> known = new HashSet<String>();
+            for (File file : files) {
+                String name = file.getName();
+                if (name.length() != META_NAME_LENGTH || !name.endsWith(META_SUFFIX)) {
+                    continue;
+                }
+                Entry entry = readMeta(file);
+                File data = (entry != null) ? new File(mDirectory, entry.fileName) : null;
+                if (data == null || !data.isFile()) {
+                    file.delete();
+                    continue;
+                }
+                entry.size = data.length();
+                entry.accessed = data.lastModified();
+                entries.add(entry);
+                known.add(name);
+                known.add(entry.fileName);
+            }
+            for (File file : files) {
+                if (!known.contains(file.getName())) {
+                    file.delete();
+                }
+            }
+
+            Collections.sort(entries, new Comparator<Entry>() {
+                @Override
+                public int compare(Entry lhs, Entry rhs) {
+                    return lhs.accessed < rhs.accessed ? -1
+                            : (lhs.accessed == rhs.accessed ? 0 : 1);
+                }
+            });
+            for (Entry entry : entries) {
+                mEntries.put(entry.key, entry);
+                mSize += entry.size;
+            }
+            trim(null);
+        }
+    }
+
+    private Entry readMeta(File file) {
+        Properties meta = new Properties();
+        try {
+            InputStream in = new FileInputStream(file);
+            try {
+                meta.load(in);
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Cannot read %s: %s", file, e);
+            return null;
+        }
+
+        String url = meta.getProperty(KEY_URL);
+        String fileName = meta.getProperty(KEY_FILE);
+        if (url == null || fileName == null) {
+            return null;
+        }
+        String name = file.getName();
+        Entry entry = new Entry(name.substring(0, name.length() - META_SUFFIX.length()),
+                url, fileName);
+        entry.etag = meta.getProperty(KEY_ETAG);
+        entry.lastModified = meta.getProperty(KEY_LAST_MODIFIED);
+        return entry;
+    }
+
+    private void writeMeta(Entry entry) throws IOException {
+        Properties meta = new Properties();
+        meta.setProperty(KEY_URL, entry.url);
+        meta.setProperty(KEY_FILE, entry.fileName);
+        if (entry.etag != null) {
+            meta.setProperty(KEY_ETAG, entry.etag);
+        }
+        if (entry.lastModified != null) {
+            meta.setProperty(KEY_LAST_MODIFIED, entry.lastModified);
+        }
+
+        File temp = new File(mDirectory, entry.key + META_SUFFIX + TEMP_SUFFIX);
+        FileOutputStream out = new FileOutputStream(temp);
+        try {
+            meta.store(out, null);
+        } finally {
+            out.close();
+        }
+        if (!temp.renameTo(getMetaFile(entry))) {
+            temp.delete();
+            throw new IOException("Cannot store metadata of " + entry.url);
+        }
+    }
+
+    private File getMetaFile(Entry entry) {
+        return new File(mDirectory, entry.key + META_SUFFIX);
+    }
+
+    private void remove(Entry entry) {
+        forget(entry);
+        delete(entry);
+    }
+
+    private void forget(Entry entry) {
+        synchronized (mEntries) {
+            if (mEntries.get(entry.key) == entry) {
+                mEntries.remove(entry.key);
+                mSize -= entry.size;
+            }
+        }
+    }
+
+    private void delete(Entry entry) {
+        getMetaFile(entry).delete();
+        new File(mDirectory, entry.fileName).delete();
+    }
+
+    // Evicts least recently used copies until the total size is within the
+    // budget. Skips the copy just stored and copies being downloaded.
+    private void trim(String keep) {
+        Iterator<Entry> it = mEntries.values().iterator();
+        while (mSize > mMaxSize && it.hasNext()) {
+            Entry entry = it.next();
+            if (entry.key.equals(keep) || mPending.containsKey(entry.key)) {
+                continue;
+            }
+            Log.d(TAG, "Evicting %s", entry.url);
+            it.remove();
+            mSize -= entry.size;
+            delete(entry);
+        }
+    }
+
+    private static String getKey(URL url) {
+        return UUID.nameUUIDFromBytes(url.toString().getBytes()).toString();
+    }
+}
@@ -35,9 +35,41 @@ import org.gearvrf.GVRTexture;
  * 
  * @since 2.0.2
  */
-public class ResourceCache<T extends GVRHybridObject> extends ResourceCacheBase {
+public class ResourceCache<T extends GVRHybridObject> extends ResourceCacheBase<T> {
     private static final String TAG = Log.tag(ResourceCache.class);
 
+    /**
+     * Default size of a texture whose {@linkplain GVRTexture#getSizeEstimate()
+     * size is not known}: a 512x512 RGBA image.
+     */
+    public static final long DEFAULT_TEXTURE_SIZE = 512 * 512 * 4;
+
+    /** Sizes a texture by its {@linkplain GVRTexture#getSizeEstimate() estimate}. */
+    public static final SizeEstimator<GVRTexture> TEXTURE_SIZE = new SizeEstimator<GVRTexture>() {
+        @Override
+        public long sizeOf(GVRTexture texture) {
+            long size = texture.getSizeEstimate();
+            return size > 0 ? size : DEFAULT_TEXTURE_SIZE;
+        }
+    };
+
+    /** Creates a cache that holds only weak references. */
+    public ResourceCache() {
+    }
+
+    /**
+     * Creates a cache that also keeps recently used resources in memory.
+     *
+     * @param maxSize
+     *            how many bytes of resources to keep, as measured by
+     *            {@code estimator}; 0 keeps only weak references
+     * @param estimator
+     *            estimates the size of a resource
+     */
+    public ResourceCache(long maxSize, SizeEstimator<? super T> estimator) {
+        super(maxSize, estimator);
+    }
+
     /** Save a weak reference to the resource */
     public void put(GVRAndroidResource androidResource, T resource) {
         Log.d(TAG, "put resource %s to cache", androidResource);
@@ -47,7 +79,7 @@ public class ResourceCache<T extends GVRHybridObject> extends ResourceCacheBase
 
     /** Get the cached resource, or {@code null} */
     public T get(GVRAndroidResource androidResource) {
-        return (T) super.get(androidResource);
+        return super.get(androidResource);
     }
 
     /**
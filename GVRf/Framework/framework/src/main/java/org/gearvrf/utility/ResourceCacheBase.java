@@ -18,8 +18,10 @@ package org.gearvrf.utility;
 import org.gearvrf.GVRAndroidResource;
 
 import java.lang.ref.WeakReference;
-import java.util.Map;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * Basic cache-by-resource-description.
@@ -27,38 +29,291 @@ import java.util.concurrent.ConcurrentHashMap;
  * Keeps system from reloading resources, so long as a previous copy is still in
  * memory.
  *
+ * <p>
+ * Every resource is held by a weak reference, so it stays cached only as long
+ * as something else uses it. A cache created with a
+ * {@linkplain #ResourceCacheBase(long, SizeEstimator) size budget} also keeps
+ * strong references to the most recently used resources, up to that many
+ * (estimated) bytes, so they survive garbage collection. Resources that drop
+ * out of the budget fall back to their weak reference.
+ *
+ * <p>
+ * Entries are keyed by the resource description only. A resource whose
+ * content can change, such as a file, should be cached with a
+ * {@linkplain #put(GVRAndroidResource, Object, long) stamp} of its content
+ * so an entry for older content is not returned.
+ *
  * @since 2.0.2
  */
 public class ResourceCacheBase<T> {
     private static final String TAG = Log.tag(ResourceCacheBase.class);
 
-    private final Map<GVRAndroidResource, WeakReference<T>> cache //
-            = new ConcurrentHashMap<GVRAndroidResource, WeakReference<T>>();
+    /**
+     * Estimates how much memory a cached resource holds on to.
+     */
+    public interface SizeEstimator<T> {
+        /**
+         * @param resource
+         *            a cached resource
+         * @return its estimated size, in bytes
+         */
+        long sizeOf(T resource);
+    }
+
+    /** Sizes a {@link GVRByteArray} by the length of its data. */
+    public static final SizeEstimator<GVRByteArray> BYTE_ARRAY_SIZE = new SizeEstimator<GVRByteArray>() {
+        @Override
+        public long sizeOf(GVRByteArray resource) {
+            byte[] data = resource.getByteArray();
+            return data == null ? 0 : data.length;
+        }
+    };
+
+    private final ConcurrentMap<GVRAndroidResource, Stamped<T>> cache //
+            = new ConcurrentHashMap<GVRAndroidResource, Stamped<T>>();
+
+    // Strong references in least recently used order; guarded by itself
+    private final LinkedHashMap<GVRAndroidResource, Sized<T>> mRecent //
+            = new LinkedHashMap<GVRAndroidResource, Sized<T>>(16, 0.75f, true);
+    private final SizeEstimator<? super T> mEstimator;
+    private long mMaxSize;
+    private long mSize;
+    private long mHits;
+    private long mMisses;
+    private long mEvictions;
+
+    private static final class Sized<T> {
+        final T resource;
+        final long size;
+        final long stamp;
+
+        Sized(T resource, long size, long stamp) {
+            this.resource = resource;
+            this.size = size;
+            this.stamp = stamp;
+        }
+    }
+
+    private static final class Stamped<T> extends WeakReference<T> {
+        final long stamp;
+
+        Stamped(T resource, long stamp) {
+            super(resource);
+            this.stamp = stamp;
+        }
+    }
+
+    /** Creates a cache that holds only weak references. */
+    public ResourceCacheBase() {
+        mEstimator = null;
+    }
+
+    /**
+     * Creates a cache that also keeps recently used resources in memory.
+     *
+     * @param maxSize
+     *            how many bytes of resources to keep, as measured by
+     *            {@code estimator}; 0 keeps only weak references
+     * @param estimator
+     *            estimates the size of a resource
+     */
+    public ResourceCacheBase(long maxSize, SizeEstimator<? super T> estimator) {
+        if (estimator == null) {
+            throw new IllegalArgumentException("estimator may not be null");
+        }
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("maxSize may not be negative");
+        }
+        mEstimator = estimator;
+        mMaxSize = maxSize;
+    }
 
     /** Save a weak reference to the resource */
     public void put(GVRAndroidResource androidResource, T resource) {
+        put(androidResource, resource, 0);
+    }
+
+    /**
+     * Saves a resource with a stamp of the content it was loaded from.
+     *
+     * @param stamp
+     *            identifies the content, for example a file's modification
+     *            time and length; {@link #get(GVRAndroidResource, long)}
+     *            only returns the resource for the same stamp
+     */
+    public void put(GVRAndroidResource androidResource, T resource, long stamp) {
         Log.d(TAG, "put resource %s to cache", androidResource);
 
-        cache.put(androidResource, new WeakReference<T>(resource));
+        cache.put(androidResource, new Stamped<T>(resource, stamp));
+        keep(androidResource, resource, stamp);
     }
 
     /** Get the cached resource, or {@code null} */
     public T get(GVRAndroidResource androidResource) {
-        WeakReference<T> reference = cache.get(androidResource);
-        if (reference == null) {
-            // Not in map
-            // Log.d(TAG, "get(%s) returning %s", androidResource, null);
-            return null;
-        }
-        T cached = reference.get();
-        if (cached == null) {
-            // In map, but not in memory
-            cache.remove(androidResource);
-        } else {
+        return get(androidResource, 0);
+    }
+
+    /**
+     * Gets a cached resource if it was loaded from the same content.
+     *
+     * @param stamp
+     *            stamp of the current content; an entry with another stamp
+     *            is dropped
+     * @return the cached resource, or {@code null}
+     */
+    public T get(GVRAndroidResource androidResource, long stamp) {
+        T cached = null;
+        synchronized (mRecent) {
+            Sized<T> recent = mRecent.get(androidResource);
+            if (recent != null) {
+                if (recent.stamp == stamp) {
+                    cached = recent.resource;
+                    ++mHits;
+                } else {
+                    mRecent.remove(androidResource);
+                    mSize -= recent.size;
+                }
+            }
+        }
+        if (cached != null) {
+            // No one will ever read this stream
+            androidResource.closeStream();
+            return cached;
+        }
+
+        Stamped<T> reference = cache.get(androidResource);
+        if (reference != null) {
+            cached = (reference.stamp == stamp) ? reference.get() : null;
+            if (cached == null) {
+                // In map, but not in memory or out of date
+                cache.remove(androidResource, reference);
+            }
+        }
+        synchronized (mRecent) {
+            if (cached == null) {
+                ++mMisses;
+            } else {
+                ++mHits;
+            }
+        }
+        if (cached != null) {
             // No one will ever read this stream
             androidResource.closeStream();
+            keep(androidResource, cached, stamp);
         }
         // Log.d(TAG, "get(%s) returning %s", androidResource, cached);
         return cached;
     }
+
+    /**
+     * Changes how many bytes of recently used resources are kept in memory,
+     * evicting resources as needed.
+     *
+     * @param maxSize
+     *            the new budget, in bytes; 0 keeps only weak references
+     * @throws IllegalStateException
+     *             if the cache was created without a {@link SizeEstimator}
+     */
+    public void setMaxSize(long maxSize) {
+        if (mEstimator == null) {
+            throw new IllegalStateException("Cache has no size estimator");
+        }
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("maxSize may not be negative");
+        }
+        synchronized (mRecent) {
+            mMaxSize = maxSize;
+            trim();
+        }
+    }
+
+    /**
+     * @return how many bytes of recently used resources are kept in memory
+     */
+    public long getMaxSize() {
+        synchronized (mRecent) {
+            return mMaxSize;
+        }
+    }
+
+    /**
+     * @return estimated size of the resources kept in memory, in bytes
+     */
+    public long getSize() {
+        synchronized (mRecent) {
+            return mSize;
+        }
+    }
+
+    /**
+     * @return number of {@link #get(GVRAndroidResource)} calls that found
+     *         the resource
+     */
+    public long getHitCount() {
+        synchronized (mRecent) {
+            return mHits;
+        }
+    }
+
+    /**
+     * @return number of {@link #get(GVRAndroidResource)} calls that did not
+     *         find the resource
+     */
+    public long getMissCount() {
+        synchronized (mRecent) {
+            return mMisses;
+        }
+    }
+
+    /**
+     * @return number of resources dropped from memory to stay within the
+     *         size budget
+     */
+    public long getEvictionCount() {
+        synchronized (mRecent) {
+            return mEvictions;
+        }
+    }
+
+    /**
+     * Drops the strong references to all resources. Resources still in use
+     * elsewhere stay cached through their weak references.
+     */
+    public void trimToWeak() {
+        synchronized (mRecent) {
+            mRecent.clear();
+            mSize = 0;
+        }
+    }
+
+    private void keep(GVRAndroidResource androidResource, T resource, long stamp) {
+        if (mEstimator == null) {
+            return;
+        }
+        long size = mEstimator.sizeOf(resource);
+        synchronized (mRecent) {
+            if (size > mMaxSize) {
+                Sized<T> previous = mRecent.remove(androidResource);
+                if (previous != null) {
+                    mSize -= previous.size;
+                }
+                return;
+            }
+            Sized<T> previous = mRecent.put(androidResource, new Sized<T>(resource, size, stamp));
+            if (previous != null) {
+                mSize -= previous.size;
+            }
+            mSize += size;
+            trim();
+        }
+    }
+
+    private void trim() {
+        Iterator<Sized<T>> eldest = mRecent.values().iterator();
+        while (mSize > mMaxSize && eldest.hasNext()) {
+            mSize -= eldest.next().size;
+            eldest.remove();
+            ++mEvictions;
+        }
+    }
 }
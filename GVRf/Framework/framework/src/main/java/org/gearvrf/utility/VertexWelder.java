@@ -0,0 +1,204 @@
+/* Copyright 2015 Samsung Electronics Co., LTD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gearvrf.utility;
+
+import java.util.Arrays;
+
+/**
+ * Merges identical vertices while a mesh is being imported.
+ *
+ * A vertex is a fixed number ({@linkplain #getStride() stride}) of floats,
+ * for example position, normal and texture coordinate packed together.
+ * {@link #add(float[], int)} returns the index of the first vertex with the
+ * same bits, or appends the vertex if there is none. Vertices are compared
+ * bit for bit, so {@code 0.0f} and {@code -0.0f} are different vertices.
+ *
+ * <p>
+ * Vertices are kept in one packed {@code float} array and looked up through
+ * an open-addressing hash table of {@code int}s, so welding creates no
+ * objects per vertex. A welder can be {@linkplain #clear() cleared} and
+ * reused for the next mesh. It is not thread-safe.
+ */
+public final class VertexWelder {
+    private static final int EMPTY = -1;
+
+    private final int mStride;
+    private float[] mVertices;
+    private int[] mHashes;
+    private int mSize;
+
+    // Vertex index per slot, or EMPTY; kept at most half full
+    private int[] mTable;
+    private int mMask;
+
+    /**
+     * @param stride
+     *            number of floats per vertex
+     */
+    public VertexWelder(int stride) {
+        this(stride, 64);
+    }
+
+    /**
+     * @param stride
+     *            number of floats per vertex
+     * @param expectedVertices
+     *            number of unique vertices to make room for
+     */
+    public VertexWelder(int stride, int expectedVertices) {
+        if (stride <= 0) {
+            throw new IllegalArgumentException("Stride must be positive");
+        }
+        mStride = stride;
+        int capacity = Math.max(expectedVertices, 16);
+        mVertices = new float[capacity * stride];
+        mHashes = new int[capacity];
+        int tableSize = Integer.highestOneBit(capacity * 2 - 1) << 1;
+        mTable = new int[tableSize];
+        Arrays.fill(mTable, EMPTY);
+        mMask = tableSize - 1;
+    }
+
+    /**
+     * @return number of floats per vertex
+     */
+    public int getStride() {
+        return mStride;
+    }
+
+    /**
+     * @return number of unique vertices
+     */
+    public int size() {
+        return mSize;
+    }
+
+    /**
+     * Finds or adds a vertex.
+     *
+     * @param vertex
+     *            array holding the vertex
+     * @param offset
+     *            index of the vertex's first float in {@code vertex}
+     * @return index of the unique vertex
+     */
+    public int add(float[] vertex, int offset) {
+        final int stride = mStride;
+        int hash = 1;
+        for (int i = 0; i < stride; ++i) {
+            hash = 31 * hash + Float.floatToRawIntBits(vertex[offset + i]);
+        }
+        hash ^= hash >>> 16;
+        hash *= 0x45d9f3b;
+        hash ^= hash >>> 16;
+
+        final float[] vertices = mVertices;
+        int slot = hash & mMask;
+        int index;
+        while ((index = mTable[slot]) != EMPTY) {
+            if (mHashes[index] == hash && equal(vertices, index * stride, vertex, offset)) {
+                return index;
+            }
+            slot = (slot + 1) & mMask;
+        }
+
+        index = mSize++;
+        if (index == mHashes.length) {
+            grow();
+        }
+        System.arraycopy(vertex, offset, mVertices, index * stride, stride);
+        mHashes[index] = hash;
+        if (mSize * 2 > mTable.length) {
+            rehash(mTable.length * 2);
+        } else {
+            mTable[slot] = index;
+        }
+        return index;
+    }
+
+    /**
+     * Reads one float of a unique vertex.
+     *
+     * @param index
+     *            index of the vertex
+     * @param component
+     *            index of the float within the vertex
+     * @return the value
+     */
+    public float get(int index, int component) {
+        return mVertices[index * mStride + component];
+    }
+
+    /**
+     * Copies one attribute of every unique vertex into a new packed array.
+     * For vertices made of position, normal and texture coordinate,
+     * {@code getAttribute(3, 3)} returns the normals.
+     *
+     * @param offset
+     *            index of the attribute's first float within a vertex
+     * @param size
+     *            number of floats in the attribute
+     * @return {@code size} floats per unique vertex
+     */
+    public float[] getAttribute(int offset, int size) {
+        if (offset < 0 || size < 0 || offset + size > mStride) {
+            throw new IllegalArgumentException("Attribute is outside the vertex");
+        }
+        final float[] dest = new float[mSize * size];
+        final float[] vertices = mVertices;
+        for (int i = 0, src = offset, dst = 0; i < mSize; ++i, src += mStride, dst += size) {
+            System.arraycopy(vertices, src, dest, dst, size);
+        }
+        return dest;
+    }
+
+    /**
+     * Removes all vertices, keeping the allocated storage.
+     */
+    public void clear() {
+        Arrays.fill(mTable, EMPTY);
+        mSize = 0;
+    }
+
+    private boolean equal(float[] vertices, int start, float[] vertex, int offset) {
+        for (int i = 0; i < mStride; ++i) {
+            if (Float.floatToRawIntBits(vertices[start + i])
+                    != Float.floatToRawIntBits(vertex[offset + i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void grow() {
+        int capacity = mHashes.length * 2;
+        mVertices = Arrays.copyOf(mVertices, capacity * mStride);
+        mHashes = Arrays.copyOf(mHashes, capacity);
+    }
+
+    private void rehash(int tableSize) {
+        mTable = new int[tableSize];
+        Arrays.fill(mTable, EMPTY);
+        mMask = tableSize - 1;
+        for (int i = 0; i < mSize; ++i) {
+            int slot = mHashes[i] & mMask;
+            while (mTable[slot] != EMPTY) {
+                slot = (slot + 1) & mMask;
+            }
+            mTable[slot] = i;
+        }
+    }
+}
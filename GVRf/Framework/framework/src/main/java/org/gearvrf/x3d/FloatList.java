@@ -0,0 +1,99 @@
+/* Copyright 2016 Samsung Electronics Co., LTD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gearvrf.x3d;
+
+import java.util.Arrays;
+
+/**
+ * Growable array of {@code float}s, used while parsing geometry so
+ * large X3D files do not box every number.
+ */
+final class FloatList
+{
+  private float[] data;
+  private int size = 0;
+
+  FloatList()
+  {
+    this(64);
+  }
+
+  FloatList(int capacity)
+  {
+    data = new float[Math.max(capacity, 1)];
+  }
+
+  int size()
+  {
+    return size;
+  }
+
+  float get(int index)
+  {
+    return data[index];
+  }
+
+  void set(int index, float value)
+  {
+    data[index] = value;
+  }
+
+  void add(float value)
+  {
+    if (size == data.length)
+    {
+      data = Arrays.copyOf(data, size * 2);
+    }
+    data[size++] = value;
+  }
+
+  void ensureCapacity(int capacity)
+  {
+    if (capacity > data.length)
+    {
+      data = Arrays.copyOf(data, Math.max(capacity, data.length * 2));
+    }
+  }
+
+  /**
+   * Drops values past {@code newSize}.
+   */
+  void truncate(int newSize)
+  {
+    if (newSize < size)
+    {
+      size = newSize;
+    }
+  }
+
+  void clear()
+  {
+    size = 0;
+  }
+
+  /**
+   * The backing array; only the first {@link #size()} values are valid.
+   */
+  float[] array()
+  {
+    return data;
+  }
+
+  float[] toArray()
+  {
+    return Arrays.copyOf(data, size);
+  }
+}
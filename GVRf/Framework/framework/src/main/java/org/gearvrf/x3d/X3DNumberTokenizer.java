@@ -0,0 +1,275 @@
+/* Copyright 2016 Samsung Electronics Co., LTD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gearvrf.x3d;
+
+/**
+ * Reads the numbers in an X3D attribute value, such as the point
+ * list of a Coordinate node or the coordIndex of an IndexedFaceSet.
+ *
+ * Numbers may be separated by white space, commas or anything else
+ * that cannot start a number, and may have a sign, a fraction and an
+ * 'e' or 'E' exponent (as exported by 3DSMax). The tokenizer works
+ * directly on the attribute string and creates no objects, so parsing
+ * hundreds of thousands of numbers costs no more than the arrays they
+ * end up in.
+ */
+final class X3DNumberTokenizer
+{
+  // Powers of ten that are exact as doubles
+  private static final double[] POWERS_OF_TEN =
+  {
+      1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+      1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+  };
+
+  // More significant digits than a long holds are dropped
+  private static final int MAX_DIGITS = 18;
+
+  private final String text;
+  private final int length;
+  private int position = 0;
+
+  X3DNumberTokenizer(String text)
+  {
+    this.text = text;
+    this.length = text.length();
+  }
+
+  /**
+   * Skips to the next number.
+   *
+   * @return true if there is another number to read
+   */
+  boolean hasNext()
+  {
+    while (position < length)
+    {
+      if (isNumberStart(position))
+      {
+        return true;
+      }
+      ++position;
+    }
+    return false;
+  }
+
+  /**
+   * Reads the next number as a float. Call {@link #hasNext()} first.
+   */
+  float nextFloat()
+  {
+    int i = position;
+    char c = text.charAt(i);
+    boolean negative = false;
+    if ((c == '-') || (c == '+'))
+    {
+      negative = (c == '-');
+      ++i;
+    }
+
+    long mantissa = 0;
+    int digits = 0;
+    int exponent = 0;
+    while ((i < length) && isDigit(c = text.charAt(i)))
+    {
+      if (digits < MAX_DIGITS)
+      {
+        mantissa = mantissa * 10 + (c - '0');
+        if (mantissa != 0)
+        {
+          ++digits;
+        }
+      }
+      else
+      {
+        ++exponent;
+      }
+      ++i;
+    }
+    if ((i < length) && (text.charAt(i) == '.'))
+    {
+      ++i;
+      while ((i < length) && isDigit(c = text.charAt(i)))
+      {
+        if (digits < MAX_DIGITS)
+        {
+          mantissa = mantissa * 10 + (c - '0');
+          if (mantissa != 0)
+          {
+            ++digits;
+          }
+          --exponent;
+        }
+        ++i;
+      }
+    }
+    if ((i < length) && (((c = text.charAt(i)) == 'e') || (c == 'E')))
+    {
+      int j = i + 1;
+      boolean negativeExponent = false;
+      if ((j < length) && (((c = text.charAt(j)) == '-') || (c == '+')))
+      {
+        negativeExponent = (c == '-');
+        ++j;
+      }
+      if ((j < length) && isDigit(text.charAt(j)))
+      {
+        int e = 0;
+        while ((j < length) && isDigit(c = text.charAt(j)))
+        {
+          if (e < 1000)
+          {
+            e = e * 10 + (c - '0');
+          }
+          ++j;
+        }
+        exponent += negativeExponent ? -e : e;
+        i = j;
+      }
+    }
+    position = i;
+
+    double value = mantissa;
+    if ((exponent != 0) && (mantissa != 0))
+    {
+      value = (exponent > 0) ? value * powerOfTen(exponent)
+          : value / powerOfTen(-exponent);
+    }
+    return (float) (negative ? -value : value);
+  }
+
+  /**
+   * Reads the next number as an int, truncating any fraction.
+   * Call {@link #hasNext()} first.
+   */
+  int nextInt()
+  {
+    final int start = position;
+    int i = start;
+    char c = text.charAt(i);
+    boolean negative = false;
+    if ((c == '-') || (c == '+'))
+    {
+      negative = (c == '-');
+      ++i;
+    }
+    int value = 0;
+    while ((i < length) && isDigit(c = text.charAt(i)))
+    {
+      value = value * 10 + (c - '0');
+      ++i;
+    }
+    if ((i < length) && (((c = text.charAt(i)) == '.') || (c == 'e') || (c == 'E')))
+    {
+      // Not a plain integer
+      position = start;
+      return (int) nextFloat();
+    }
+    position = i;
+    return negative ? -value : value;
+  }
+
+  /**
+   * Appends all the numbers in {@code text} to {@code dest}.
+   *
+   * @return number of values added
+   */
+  static int parseFloats(String text, FloatList dest)
+  {
+    X3DNumberTokenizer tokenizer = new X3DNumberTokenizer(text);
+    dest.ensureCapacity(dest.size() + text.length() / 4);
+    int count = 0;
+    while (tokenizer.hasNext())
+    {
+      dest.add(tokenizer.nextFloat());
+      ++count;
+    }
+    return count;
+  }
+
+  /**
+   * Reads up to {@code count} numbers from {@code text} into {@code dest}.
+   * Missing values are left as they were.
+   *
+   * @return number of values read
+   */
+  static int parseFloats(String text, float[] dest, int count)
+  {
+    X3DNumberTokenizer tokenizer = new X3DNumberTokenizer(text);
+    int i = 0;
+    while ((i < count) && tokenizer.hasNext())
+    {
+      dest[i++] = tokenizer.nextFloat();
+    }
+    return i;
+  }
+
+  /**
+   * Appends all the integers in {@code text} to {@code dest}, leaving
+   * out -1, which separates the polygons of an index list.
+   *
+   * @return number of values added
+   */
+  static int parseIndices(String text, IntList dest)
+  {
+    X3DNumberTokenizer tokenizer = new X3DNumberTokenizer(text);
+    dest.ensureCapacity(dest.size() + text.length() / 3);
+    int count = 0;
+    while (tokenizer.hasNext())
+    {
+      int value = tokenizer.nextInt();
+      if (value != -1)
+      {
+        dest.add(value);
+        ++count;
+      }
+    }
+    return count;
+  }
+
+  private boolean isNumberStart(int i)
+  {
+    char c = text.charAt(i);
+    if (isDigit(c))
+    {
+      return true;
+    }
+    if ((c == '-') || (c == '+'))
+    {
+      if (++i >= length)
+      {
+        return false;
+      }
+      c = text.charAt(i);
+      if (isDigit(c))
+      {
+        return true;
+      }
+    }
+    return (c == '.') && (i + 1 < length) && isDigit(text.charAt(i + 1));
+  }
+
+  private static boolean isDigit(char c)
+  {
+    return (c >= '0') && (c <= '9');
+  }
+
+  private static double powerOfTen(int exponent)
+  {
+    return (exponent < POWERS_OF_TEN.length) ? POWERS_OF_TEN[exponent]
+        : Math.pow(10, exponent);
+  }
+}
@@ -16,9 +16,6 @@
 package org.gearvrf.x3d;
 
 import java.util.ArrayList;
-import java.util.LinkedHashMap;
-import java.util.List;
-import java.util.Map;
 import java.util.Vector;
 
 import java.util.concurrent.Future;
@@ -73,6 +70,7 @@ import org.gearvrf.scene_objects.GVRCubeSceneObject;
 import org.gearvrf.scene_objects.GVRCylinderSceneObject;
 import org.gearvrf.scene_objects.GVRSphereSceneObject;
 import org.gearvrf.scene_objects.GVRTextViewSceneObject;
+import org.gearvrf.utility.VertexWelder;
 
 
 import org.joml.Vector3f;
@@ -92,9 +90,6 @@ import java.io.InputStream;
 import java.io.StreamTokenizer;
 import java.io.StringReader;
 import java.util.ArrayList;
-import java.util.LinkedHashMap;
-import java.util.List;
-import java.util.Map;
 import java.util.Vector;
 import java.util.concurrent.Future;
 
@@ -198,19 +193,21 @@ public class X3Dobject
   private GVRTextureParameters gvrTextureParameters = null;
   private Future<GVRTexture> gvrTexture = null;
 
-  private Vector<Vertex> vertices = new Vector<Vertex>(); // vertices
-  private Vector<VertexNormal> vertexNormal = new Vector<VertexNormal>();
-  private Vector<TextureValues> textureCoord = new Vector<TextureValues>();
+  // Parsed numbers are kept flat: x, y, z per vertex or normal, u, v per
+  // texture coordinate and three indices per triangle
+  private FloatList vertices = new FloatList(); // vertices
+  private FloatList vertexNormal = new FloatList();
+  private FloatList textureCoord = new FloatList();
 
-  private Vector<Coordinates> indexedFaceSet = new Vector<Coordinates>();
-  private Vector<Coordinates> indexedVertexNormals = new Vector<Coordinates>();
-  private Vector<TextureCoordinates> indexedTextureCoord = new Vector<TextureCoordinates>();
-  private ArrayList<Integer> texcoordIndices = new ArrayList<Integer>();
-  private ArrayList<Integer> normalIndices = new ArrayList<Integer>();
+  private IntList indexedFaceSet = new IntList();
+  private IntList indexedVertexNormals = new IntList();
+  private IntList indexedTextureCoord = new IntList();
+  private IntList texcoordIndices = new IntList();
+  private IntList normalIndices = new IntList();
 
-  private Vector<Key> keys = new Vector<Key>();
-  private Vector<KeyValue> keyValues = new Vector<KeyValue>();
-  private Vector<Float> floatArray = new Vector<Float>();
+  private FloatList keys = new FloatList();
+  private FloatList keyValues = new FloatList();
+  private FloatList floatArray = new FloatList();
 
   private Vector<TimeSensor> timeSensors = new Vector<TimeSensor>();
   private Vector<Interpolator> interpolators = new Vector<Interpolator>();
@@ -297,78 +294,6 @@ public class X3Dobject
   /*********************************************/
 
 
-  private void AddKeys(float key)
-
-  {
-    Key newKey = new Key(key);
-    keys.add(newKey);
-  }
-
-
-  private void AddKeyValues(float[] values)
-
-  {
-    KeyValue newKeyValue = new KeyValue(values);
-    keyValues.add(newKeyValue);
-  }
-
-
-  private void AddVertex(float[] values)
-
-  {
-    Vertex newVertex = new Vertex(values);
-    vertices.add(newVertex);
-  }
-
-
-  private void AddVertexNormal(float[] vn)
-
-  {
-    VertexNormal newVertex = new VertexNormal(vn);
-    vertexNormal.add(newVertex);
-  }
-
-
-  private void AddTextureCoord(float[] tc)
-
-  {
-    TextureValues newTextureCoord = new TextureValues(tc);
-    textureCoord.add(newTextureCoord);
-  }
-
-
-  private void AddIndexedFaceSet(short[] coord)
-  {
-    Coordinates newCoordinates = new Coordinates(coord);
-    indexedFaceSet.add(newCoordinates);
-  }
-
-  private void AddTextureCoordinateSet(short[] tc)
-  {
-    TextureCoordinates newCoordinates = new TextureCoordinates(tc);
-    indexedTextureCoord.add(newCoordinates);
-  }
-
-  private TextureCoordinates GetTexturedCoordSet(int index)
-
-  {
-    return indexedTextureCoord.get(index);
-  }
-
-
-  private void AddIndexedVertexNormals(short[] normalIndex)
-  {
-    Coordinates newCoordinates = new Coordinates(normalIndex);
-    indexedVertexNormals.add(newCoordinates);
-  }
-
-  private Coordinates GetIndexedVertexNormals(int index)
-
-  {
-    return indexedVertexNormals.get(index);
-  }
-
-
   /**
    *
    * @author m1.williams
@@ -382,85 +307,23 @@ public class X3Dobject
     private float[] parseFixedLengthFloatString(String numberString,
                                                 int componentCount, boolean constrained0to1, boolean zeroOrGreater)
     {
-      StringReader sr = new StringReader(numberString);
-      StreamTokenizer st = new StreamTokenizer(sr);
-      st.parseNumbers();
-      int tokenType;
       float componentFloat[] = new float[componentCount];
-      try
+      X3DNumberTokenizer.parseFloats(numberString, componentFloat,
+              componentCount);
+      for (int i = 0; i < componentCount; i++)
       {
-        for (int i = 0; i < componentCount; i++)
+        if (constrained0to1)
         {
-          if ((tokenType = st.nextToken()) == StreamTokenizer.TT_NUMBER)
-          {
-            componentFloat[i] = (float) st.nval;
-          }
-          else
-          { // check for an exponent 'e'
-            if (tokenType == StreamTokenizer.TT_WORD)
-            {
-              String word = st.sval;
-              if (word.startsWith("e-"))
-              { // negative exponent
-                String exponentString = word.substring(2, word.length());
-                try
-                {
-                  --i; // with this exponent, we are still working with the
-                  // previous number
-                  Integer exponentInt = Integer.parseInt(exponentString);
-                  componentFloat[i] *= (float) Math
-                          .pow(10, -exponentInt.intValue());
-                }
-                catch (NumberFormatException e)
-                {
-                  Log.e(TAG,
-                          "parsing fixed length string, exponent number conversion error: "
-                                  + exponentString);
-                }
-              }
-              else if (word.equalsIgnoreCase("e"))
-              { // exponent with plus sign
-                tokenType = st.nextToken();
-                if (tokenType == 43)
-                { // "+" plus sign
-                  if ((tokenType = st.nextToken()) == StreamTokenizer.TT_NUMBER)
-                  {
-                    --i; // with this exponent, we are still working with the
-                    // previous number
-                    float exponent = (float) st.nval;
-                    componentFloat[i] *= (float) Math.pow(10, exponent);
-                  }
-                  else
-                  {
-                    st.pushBack();
-                    Log.e(TAG,
-                            "Error: exponent in X3D parser with fixed length float");
-                  }
-                }
-                else
-                  st.pushBack();
-              }
-              else
-                st.pushBack();
-            }
-          } // end check for 'e' exponent
-          if (constrained0to1)
-          {
-            if (componentFloat[i] < 0)
-              componentFloat[i] = 0;
-            else if (componentFloat[i] > 1)
-              componentFloat[i] = 1;
-          }
-          else if (zeroOrGreater)
-          {
-            if (componentFloat[i] < 0)
-              componentFloat[i] = 0;
-          }
-        } // end for-loop
-      } // end 'try'
-      catch (IOException e)
-      {
-        Log.d(TAG, "Error parsing fixed length float string: " + e);
+          if (componentFloat[i] < 0)
+            componentFloat[i] = 0;
+          else if (componentFloat[i] > 1)
+            componentFloat[i] = 1;
+        }
+        else if (zeroOrGreater)
+        {
+          if (componentFloat[i] < 0)
+            componentFloat[i] = 0;
+        }
       }
       return componentFloat;
     } // end parseFixedLengthFloatString
@@ -538,134 +401,48 @@ public class X3Dobject
     private void parseNumbersString(String numberString, int componentType,
                                     int componentCount)
     {
-      StringReader sr = new StringReader(numberString);
-      StreamTokenizer st = new StreamTokenizer(sr);
-      st.parseNumbers();
-      int tokenType;
-      short componentShort[] = new short[componentCount];
-      float componentFloat[] = new float[componentCount];
-      try
+      // Indices (with -1 face separators skipped) go to an IntList, the
+      // rest to a FloatList. Only complete groups of componentCount values
+      // are kept, as with the earlier per-tuple parsing.
+      if ((componentType == X3Dobject.indexedFaceSetComponent)
+              || (componentType == X3Dobject.textureIndexComponent)
+              || (componentType == X3Dobject.normalIndexComponent))
+      {
+        IntList dest;
+        if (componentType == X3Dobject.indexedFaceSetComponent)
+          dest = indexedFaceSet;
+        else if (componentType == X3Dobject.textureIndexComponent)
+          dest = indexedTextureCoord;
+        else
+          dest = indexedVertexNormals;
+        int start = dest.size();
+        int count = X3DNumberTokenizer.parseIndices(numberString, dest);
+        dest.truncate(start + count - (count % componentCount));
+      }
+      else
       {
-        int index = 0;
-        while ((tokenType = st.nextToken()) != StreamTokenizer.TT_EOF)
+        FloatList dest;
+        if (componentType == X3Dobject.verticesComponent)
+          dest = vertices;
+        else if (componentType == X3Dobject.textureCoordComponent)
+          dest = textureCoord;
+        else if (componentType == X3Dobject.normalsComponent)
+          dest = vertexNormal;
+        else if ((componentType == X3Dobject.interpolatorKeyComponent)
+                || (componentType == X3Dobject.LODComponent))
+          dest = keys;
+        else if (componentType == X3Dobject.interpolatorKeyValueComponent)
+          dest = keyValues;
+        else if (componentType == X3Dobject.elevationGridHeight)
         {
-          if (tokenType == StreamTokenizer.TT_NUMBER)
-          {
-
-            // first componentType's parse for short values
-            // (integers) and will have no exponents
-
-            if (componentType == X3Dobject.indexedFaceSetComponent)
-            {
-              if ((short) st.nval != -1)
-              {
-                componentShort[index] = (short) st.nval;
-                index++;
-                if (index == componentCount)
-                {
-                  AddIndexedFaceSet(componentShort);
-                  index = 0;
-                }
-              }
-            }
-            else if (componentType == X3Dobject.textureIndexComponent)
-            {
-              if ((short) st.nval != -1)
-              {
-                componentShort[index] = (short) st.nval;
-                index++;
-                if (index == componentCount)
-                {
-                  AddTextureCoordinateSet(componentShort);
-                  index = 0;
-                }
-              }
-            }
-            else if (componentType == X3Dobject.normalIndexComponent)
-            {
-              if ((short) st.nval != -1)
-              {
-                componentShort[index] = (short) st.nval;
-                index++;
-                if (index == componentCount)
-                {
-                  AddIndexedVertexNormals(componentShort);
-                  index = 0;
-                }
-              }
-            }
-
-            // The rest of these will be parsing floats that could
-            // have 'e' exponent value.  3DSMax will export X3D/VRML
-            // with the 'e' exponent
-            //TODO: check for 'e' exponent values.
-
-            else if (componentType == X3Dobject.verticesComponent)
-            {
-              componentFloat[index] = (float) (st.nval);
-              index++;
-              if (index == componentCount)
-              {
-                AddVertex(componentFloat);
-                index = 0;
-              }
-            }
-            else if (componentType == X3Dobject.textureCoordComponent)
-            {
-              componentFloat[index] = (float) st.nval;
-              index++;
-              if (index == componentCount)
-              {
-                AddTextureCoord(componentFloat);
-                index = 0;
-              }
-            }
-            else if (componentType == X3Dobject.normalsComponent)
-            {
-              componentFloat[index] = (float) st.nval;
-              index++;
-              if (index == componentCount)
-              {
-                AddVertexNormal(componentFloat);
-                index = 0;
-              }
-            }
-            else if (componentType == X3Dobject.interpolatorKeyComponent)
-            {
-              componentFloat[index] = (float) st.nval;
-              index++;
-              if (index == componentCount)
-              {
-                AddKeys(componentFloat[0]);
-                index = 0;
-              }
-            }
-            else if (componentType == X3Dobject.interpolatorKeyValueComponent)
-            {
-              componentFloat[index] = (float) st.nval;
-              index++;
-              if (index == componentCount)
-              {
-                AddKeyValues(componentFloat);
-                index = 0;
-              }
-            }
-            else if (componentType == X3Dobject.LODComponent)
-            {
-              componentFloat[index] = (float) st.nval;
-              AddKeys(componentFloat[0]);
-            }
-            else if (componentType == X3Dobject.elevationGridHeight)
-            {
-              floatArray.add(new Float((float) st.nval));
-            }
-
-          } // end if token = number
-        } // end while loop
-      } // end try statement
-      catch (IOException e)
-      {
-        Log.e(TAG, "Error: parseNumbersString - " + e);
+          X3DNumberTokenizer.parseFloats(numberString, floatArray);
+          return;
+        }
+        else
+          return;
+        int start = dest.size();
+        int count = X3DNumberTokenizer.parseFloats(numberString, dest);
+        dest.truncate(start + count - (count % componentCount));
       }
     } // parseNumbersString
 
@@ -1392,17 +1169,11 @@ public class X3Dobject
             parseNumbersString(coordIndexAttribute,
                     X3Dobject.indexedFaceSetComponent, 3);
 
-            char[] ifs = new char[indexedFaceSet.size() * 3];
+            char[] ifs = new char[indexedFaceSet.size()];
 
-            for (int i = 0; i < indexedFaceSet.size(); i++)
+            for (int i = 0; i < ifs.length; i++)
             {
-
-              Coordinates coordinate = indexedFaceSet.get(i);
-              for (int j = 0; j < 3; j++)
-              {
-                ifs[i * 3 + j] = (char) coordinate.getCoordinate(j);
-
-              }
+              ifs[i] = (char) indexedFaceSet.get(i);
             }
             gvrMesh.setIndices(ifs);
             reorganizeVerts = true;
@@ -1466,18 +1237,7 @@ public class X3Dobject
           {
             parseNumbersString(pointAttribute, X3Dobject.verticesComponent, 3);
 
-            float[] vertexList = new float[vertices.size() * 3];
-            for (int i = 0; i < vertices.size(); i++)
-            {
-              Vertex vertex = vertices.get(i);
-              for (int j = 0; j < 3; j++)
-              {
-
-                vertexList[i * 3 + j] = vertex.getVertexCoord(j);
-
-              }
-            }
-            gvrMesh.setVertices(vertexList);
+            gvrMesh.setVertices(vertices.toArray());
           }
         } // end NOT a USE Coordinates condition
 
@@ -1538,29 +1298,12 @@ public class X3Dobject
             if (indexedTextureCoord.size() != 0)
             {
               // current indexedFaceSet has a textureCoordIndex.
-              texcoordIndices.ensureCapacity(indexedTextureCoord.size() * 3);
-              for (int i = 0; i < indexedTextureCoord.size(); i++)
-              {
-                TextureCoordinates tcIndex = GetTexturedCoordSet(i);
-
-                for (int j = 0; j < 3; j++)
-                {
-                  texcoordIndices.add((int) tcIndex.coords[j]);
-                }
-              }
+              texcoordIndices.addAll(indexedTextureCoord);
             }
             else
             {
               // use the coordIndex if there is no indexedTextureCoord.
-              texcoordIndices.ensureCapacity(indexedFaceSet.size() * 3);
-              for (int i = 0; i < indexedFaceSet.size(); i++)
-              {
-                Coordinates coordinate = indexedFaceSet.get(i);
-                for (int j = 0; j < 3; j++)
-                {
-                  texcoordIndices.add((int) coordinate.getCoordinate(j));
-                }
-              }
+              texcoordIndices.addAll(indexedFaceSet);
             }
           }
 
@@ -1626,28 +1369,12 @@ public class X3Dobject
               // current indexedFaceSet has a normalIndex.
               // We may need to reorganize the order of the texture coordinates
 
-              normalIndices.ensureCapacity(indexedVertexNormals.size() * 3);
-              for (int i = 0; i < indexedVertexNormals.size(); i++)
-              {
-                Coordinates vnIndex = GetIndexedVertexNormals(i);
-                for (int j = 0; j < 3; j++)
-                {
-                  normalIndices.add((int) vnIndex.getCoordinate(j));
-                }
-              }
+              normalIndices.addAll(indexedVertexNormals);
             }
             else
             {
               // use the coordIndex if there is no normalIndex.
-              normalIndices.ensureCapacity(indexedFaceSet.size() * 3);
-              for (int i = 0; i < indexedFaceSet.size(); i++)
-              {
-                Coordinates coordinate = indexedFaceSet.get(i);
-                for (int j = 0; j < 3; j++)
-                {
-                  normalIndices.add((int) coordinate.getCoordinate(j));
-                }
-              }
+              normalIndices.addAll(indexedFaceSet);
             }
           }
         } // end NOT a USE Normals condition
@@ -2265,11 +1992,7 @@ public class X3Dobject
             parseNumbersString(attributeValue, X3Dobject.interpolatorKeyComponent,
                     1);
 
-            keysList = new float[keys.size()];
-            for (int i = 0; i < keysList.length; i++) {
-              Key keyObject = keys.get(i);
-              keysList[i] = keyObject.key;
-            }
+            keysList = keys.toArray();
             keys.clear();
           }
           attributeValue = attributes.getValue("keyValue");
@@ -2277,13 +2000,7 @@ public class X3Dobject
             parseNumbersString(attributeValue,
                     X3Dobject.interpolatorKeyValueComponent, 3);
 
-            keyValuesList = new float[keyValues.size() * 3];
-            for (int i = 0; i < keyValues.size(); i++) {
-              KeyValue keyValueObject = keyValues.get(i);
-              for (int j = 0; j < 3; j++) {
-                keyValuesList[i * 3 + j] = keyValueObject.keyValues[j];
-              }
-            }
+            keyValuesList = keyValues.toArray();
             keyValues.clear();
           }
           Interpolator newInterporlator = new Interpolator(name, keysList,
@@ -2308,11 +2025,7 @@ public class X3Dobject
             parseNumbersString(attributeValue, X3Dobject.interpolatorKeyComponent,
                     1);
 
-            keysList = new float[keys.size()];
-            for (int i = 0; i < keysList.length; i++) {
-              Key keyObject = keys.get(i);
-              keysList[i] = keyObject.key;
-            }
+            keysList = keys.toArray();
             keys.clear();
           }
           attributeValue = attributes.getValue("keyValue");
@@ -2320,13 +2033,7 @@ public class X3Dobject
             parseNumbersString(attributeValue,
                     X3Dobject.interpolatorKeyValueComponent, 4);
 
-            keyValuesList = new float[keyValues.size() * 4];
-            for (int i = 0; i < keyValues.size(); i++) {
-              KeyValue keyValueObject = keyValues.get(i);
-              for (int j = 0; j < 4; j++) {
-                keyValuesList[i * 4 + j] = keyValueObject.keyValues[j];
-              }
-            }
+            keyValuesList = keyValues.toArray();
             keyValues.clear();
           }
           Interpolator newInterporlator = new Interpolator(name, keysList,
@@ -2732,8 +2439,7 @@ public class X3Dobject
             range = new float[keys.size() + 2];
             range[0] = 0;
             for (int i = 0; i < keys.size(); i++) {
-              Key keyObject = keys.get(i);
-              range[i + 1] = keyObject.key;
+              range[i + 1] = keys.get(i);
             }
             range[range.length - 1] = Float.MAX_VALUE;
             keys.clear();
@@ -3513,10 +3219,9 @@ public class X3Dobject
         }
         gvrRenderData.setMesh(gvrMesh);
         gvrMesh = null;
-        indexedFaceSet.clear(); // clean up this Vector<coordinates> list.
-        indexedVertexNormals.clear(); // clean up this Vector<coordinates> list
-        indexedTextureCoord.clear(); // clean up this Vector<textureCoordinates>
-        // ist
+        indexedFaceSet.clear(); // clean up the index lists
+        indexedVertexNormals.clear();
+        indexedTextureCoord.clear();
         texcoordIndices.clear();
         normalIndices.clear();
         vertices.clear();
@@ -3525,15 +3230,15 @@ public class X3Dobject
       }
       else if (qName.equalsIgnoreCase("Coordinate"))
       {
-        // vertices.clear(); // clean up this Vector<Vertex> list.
+        // vertices.clear(); // clean up the vertex list.
       }
       else if (qName.equalsIgnoreCase("TextureCoordinate"))
       {
-        // textureCoord.clear(); // clean up this Vector<TextureValues> list.
+        // textureCoord.clear(); // clean up the texture coordinate list.
       }
       else if (qName.equalsIgnoreCase("Normal"))
       {
-        // vertexNormal.clear(); // clean up this Vector<VertexNormal> list.
+        // vertexNormal.clear(); // clean up the normal list.
       }
       else if (qName.equalsIgnoreCase("DirectionalLight"))
       {
@@ -3710,26 +3415,24 @@ public class X3Dobject
     // normals shared by this vertex
     private void generateNormals() {
       try {
-        Vector3f[] polygonNormal = new Vector3f[indexedFaceSet.size()];
+        float[] vertexList = vertices.array();
+        int[] polygonIFS = indexedFaceSet.array();
+        int faceCount = indexedFaceSet.size() / 3;
+        Vector3f[] polygonNormal = new Vector3f[faceCount];
         for (int i = 0; i < polygonNormal.length; i++ ) {
           polygonNormal[i] = new Vector3f();
         }
-        Coordinates[] polygonVertices = new Coordinates[3];
-        short[] polygonIFS = new short[3];
         try {
-          Vertex[] polygonVertex = new Vertex[3];
-          for (int f = 0; f < indexedFaceSet.size(); f++) {
-            Coordinates coordinate = indexedFaceSet.get(f);
-            polygonIFS = coordinate.getCoordinates();
-            for (int i = 0; i < 3; i++ ) {
-              polygonVertex[i] = vertices.get(polygonIFS[i]);
-            }
-            // get the sides of 2 lines of this polygons
-            Vector3f side0 = new Vector3f();
-            Vector3f side1 = new Vector3f();;
+          // get the sides of 2 lines of this polygons
+          Vector3f side0 = new Vector3f();
+          Vector3f side1 = new Vector3f();
+          for (int f = 0; f < faceCount; f++) {
+            int v0 = polygonIFS[f * 3] * 3;
+            int v1 = polygonIFS[f * 3 + 1] * 3;
+            int v2 = polygonIFS[f * 3 + 2] * 3;
             for (int i = 0; i < 3; i++) {
-              side0.set(i, (polygonVertex[0].getVertexCoord(i) - polygonVertex[1].getVertexCoord(i)) );
-              side1.set(i, (polygonVertex[1].getVertexCoord(i) - polygonVertex[2].getVertexCoord(i)) );
+              side0.set(i, (vertexList[v0 + i] - vertexList[v1 + i]) );
+              side1.set(i, (vertexList[v1 + i] - vertexList[v2 + i]) );
             }
             side0.cross(side1, polygonNormal[f]);
             polygonNormal[f].normalize();
@@ -3740,46 +3443,31 @@ public class X3Dobject
         }
         // Calculate the vertex normals by summing & normalizing all the
         // polygon normals who share this vertex.
-        Vector3f[] vertexNormals = new Vector3f[vertices.size()];
+        Vector3f[] vertexNormals = new Vector3f[vertices.size() / 3];
+        for (int i = 0; i < vertexNormals.length; i++) {
+          vertexNormals[i] = new Vector3f();
+        }
         try {
-          for (int i = 0; i < vertexNormals.length; i++) {
-            vertexNormals[i] = new Vector3f();
-            try {
-              for (char f = 0; f < indexedFaceSet.size(); f++) {
-                Coordinates coordinate = indexedFaceSet.get(f);
-                polygonIFS = coordinate.getCoordinates();
-                for (int j = 0; j < 3; j++) {
-                  if (i == polygonIFS[j]) {
-                    // this polygon touches the currentvertex
-                    //   we are finding the normal
-                    vertexNormals[i].add(polygonNormal[f]);
-                  }
-                }
-              }
-            }
-            catch (Exception e) {
-              Log.e(TAG, e.toString() );
+          for (int f = 0; f < faceCount; f++) {
+            for (int j = 0; j < 3; j++) {
+              // this polygon touches the vertex we are finding the normal
+              vertexNormals[polygonIFS[f * 3 + j]].add(polygonNormal[f]);
             }
-            vertexNormals[i].normalize();
           }
         }
         catch (Exception e) {
           Log.e(TAG, e.toString() );
         }
-        // Calculate the vertex normals by summing & normalizing all the
-        // Add the vertex normals to the existing 'vertexNormal' array list
+        // Add the vertex normals to the existing 'vertexNormal' list
         //   and add the normal indices to the IndexedFaceSet
+        vertexNormal.ensureCapacity(vertexNormal.size() + vertexNormals.length * 3);
         for (Vector3f vns : vertexNormals) {
-          float[] vn = new float[]{vns.x, vns.y, vns.z};
-          AddVertexNormal(vn);
-        }
-        for (char f = 0; f < indexedFaceSet.size(); f++) {
-          Coordinates coordinate = indexedFaceSet.get(f);
-          polygonIFS = coordinate.getCoordinates();
-          for (int i = 0; i < 3; i++) {
-            normalIndices.add((int) polygonIFS[i]);
-          }
+          vns.normalize();
+          vertexNormal.add(vns.x);
+          vertexNormal.add(vns.y);
+          vertexNormal.add(vns.z);
         }
+        normalIndices.addAll(indexedFaceSet);
       }
       catch (Exception e) {
         Log.e(TAG, e.toString() );
@@ -3790,11 +3478,7 @@ public class X3Dobject
     {
       boolean hasNormals = normalIndices.size() > 0;
       boolean hasTexcoords = texcoordIndices.size() > 0;
-      Map<String, Integer> vertexMap = new LinkedHashMap<String, Integer>();
-      char[] newIndices = new char[indexedFaceSet.size() * 3];
-      List<Float> gvrVerts = new ArrayList<Float>();
-      List<Float> gvrNormals = new ArrayList<Float>();
-      List<Float> gvrTexcoords = new ArrayList<Float>();
+      int[] newIndices = new int[indexedFaceSet.size()];
       float minYtextureCoordinate = Float.MAX_VALUE;
       float maxYtextureCoordinate = Float.MIN_VALUE;
 
@@ -3802,120 +3486,86 @@ public class X3Dobject
         generateNormals();
         hasNormals = true;
       }
+      // Each vertex is position, normal, texture coordinate packed together
+      final int normalOffset = 3;
+      final int texcoordOffset = hasNormals ? 6 : 3;
+      final int stride = hasTexcoords ? texcoordOffset + 2 : texcoordOffset;
+      VertexWelder welder = new VertexWelder(stride, vertices.size() / 3);
+      float[] vertex = new float[stride];
+      float[] vertexList = vertices.array();
+      float[] normalList = vertexNormal.array();
+      float[] texcoordList = textureCoord.array();
       //
       // Scan all the faces and compose the set of unique vertices
       //
-      for (char f = 0; f < indexedFaceSet.size(); f++)
-      {
-        Coordinates coordinate = indexedFaceSet.get(f);
-        float x;
-        float y;
-        float z;
-        float nx = 0;
-        float ny = 0;
-        float nz = 0;
-        float u = 0;
-        float v = 0;
-
-        for (char j = 0; j < 3; j++)
+      for (int findex = 0; findex < newIndices.length; findex++)
+      {
+        int vindex = indexedFaceSet.get(findex) * 3;
+        vertex[0] = vertexList[vindex];
+        vertex[1] = vertexList[vindex + 1];
+        vertex[2] = vertexList[vindex + 2];
+        if (hasNormals)
         {
-          int findex = f * 3 + j;
-          int vindex = coordinate.getCoordinate(j);
-          Vertex srcVert = vertices.get(vindex);
-          String key = "";
-
-          x = srcVert.getVertexCoord(0);
-          y = srcVert.getVertexCoord(1);
-          z = srcVert.getVertexCoord(2);
-          key += String.valueOf(x) + String.valueOf(y) + String.valueOf(z);
-          if (hasNormals)
-          {
-            int nindex = normalIndices.get(findex);
-            VertexNormal nml = vertexNormal.get(nindex);
-            nx = nml.getVertexNormalCoord(0);
-            ny  = nml.getVertexNormalCoord(1);
-            nz = nml.getVertexNormalCoord(2);
-            key += String.valueOf(nx) + String.valueOf(ny) + String.valueOf(nz);
-          }
-          if (hasTexcoords)
+          int nindex = normalIndices.get(findex) * 3;
+          vertex[normalOffset] = normalList[nindex];
+          vertex[normalOffset + 1] = normalList[nindex + 1];
+          vertex[normalOffset + 2] = normalList[nindex + 2];
+        }
+        if (hasTexcoords)
+        {
+          int tindex = texcoordIndices.get(findex) * 2;
+          vertex[texcoordOffset] = texcoordList[tindex];
+          vertex[texcoordOffset + 1] = texcoordList[tindex + 1];
+        }
+        int count = welder.size();
+        int newindex = welder.add(vertex, 0);
+        if (hasTexcoords && (newindex == count))
+        {
+          float u = vertex[texcoordOffset];
+          float v = vertex[texcoordOffset + 1];
+          if (v < minYtextureCoordinate)
           {
-            int tindex = texcoordIndices.get(findex);
-            TextureValues tv = textureCoord.get(tindex);
-            u = tv.coord[0];
-            v = tv.coord[1];
-            key += String.valueOf(u) + String.valueOf(v);
-          }
-          Integer newindex = vertexMap.get(key);
-          if (newindex == null)
+            minYtextureCoordinate = v;
+          }
+          if (u > maxYtextureCoordinate)
           {
-            newindex = vertexMap.size();
-            vertexMap.put(key, newindex);
-            gvrVerts.add(x);
-            gvrVerts.add(y);
-            gvrVerts.add(z);
-            if (hasNormals)
-            {
-              gvrNormals.add(nx);
-              gvrNormals.add(ny);
-              gvrNormals.add(nz);
-            }
-            if (hasTexcoords)
-            {
-              gvrTexcoords.add(u);
-              gvrTexcoords.add(v);
-              if (v < minYtextureCoordinate)
-              {
-                minYtextureCoordinate = v;
-              }
-              if (u > maxYtextureCoordinate)
-              {
-                maxYtextureCoordinate = u;
-              }
-            }
+            maxYtextureCoordinate = u;
           }
-          newIndices[findex] = (char) (int) newindex;
         }
+        newIndices[findex] = newindex;
       }
     //
     // Copy the new vertex data into the GVRMesh
     //
-      int nverts = gvrVerts.size() / 3;
-      float[] newVertices = new float[nverts * 3];
-      float[] newNormals = hasNormals ? new float[nverts * 3] : null;
-      float[] newTexcoords = hasTexcoords ? new float[nverts * 2] : null;
-      int maxMinDiff = (int) Math.round((float) Math
-              .ceil(maxYtextureCoordinate - minYtextureCoordinate));
-
-      for (int i = 0; i < nverts; ++i)
-      {
-        int t = 3 * i;
-        newVertices[t] = gvrVerts.get(t++);
-        newVertices[t] = gvrVerts.get(t++);
-        newVertices[t] = gvrVerts.get(t++);
-        if (hasNormals)
-        {
-          t = 3 * i;
-          newNormals[t] = gvrNormals.get(t++);
-          newNormals[t] = gvrNormals.get(t++);
-          newNormals[t] = gvrNormals.get(t++);
-        }
-        if (hasTexcoords) // flip the Y texture coordinate
+      mesh.setVertices(welder.getAttribute(0, 3));
+      if (hasNormals)
+      {
+        mesh.setNormals(welder.getAttribute(normalOffset, 3));
+      }
+      if (hasTexcoords) // flip the Y texture coordinate
+      {
+        int maxMinDiff = (int) Math.round((float) Math
+                .ceil(maxYtextureCoordinate - minYtextureCoordinate));
+        float[] newTexcoords = welder.getAttribute(texcoordOffset, 2);
+        for (int t = 1; t < newTexcoords.length; t += 2)
         {
-          t = 2 * i;
-          newTexcoords[t] = gvrTexcoords.get(t++);
-          newTexcoords[t] = maxMinDiff - gvrTexcoords.get(t);
+          newTexcoords[t] = maxMinDiff - newTexcoords[t];
         }
+        mesh.setTexCoords(newTexcoords);
       }
-      mesh.setVertices(newVertices);
-      if (newNormals != null)
+      if (welder.size() > GVRMesh.MAX_CHAR_INDEXED_VERTICES)
       {
-        mesh.setNormals(newNormals);
+        mesh.setIntIndices(newIndices);
       }
-      if (newTexcoords != null)
+      else
       {
-        mesh.setTexCoords(newTexcoords);
+        char[] charIndices = new char[newIndices.length];
+        for (int i = 0; i < newIndices.length; i++)
+        {
+          charIndices[i] = (char) newIndices[i];
+        }
+        mesh.setIndices(charIndices);
       }
-      mesh.setIndices(newIndices);
     }
 
     @Override
@@ -63,7 +63,7 @@ Mesh* AssimpImporter::getMesh(int index) {
         mesh->setVec2Vector(std::string("a_texcoord"),tex_coords);
     }
 
-    std::vector<unsigned short> triangles;
+    std::vector<unsigned int> triangles;
     for (int i = 0; i < ai_mesh->mNumFaces; ++i) {
         if (ai_mesh->mFaces[i].mNumIndices == 3) {
             triangles.push_back(ai_mesh->mFaces[i].mIndices[0]);
@@ -79,7 +79,13 @@ Mesh* AssimpImporter::getMesh(int index) {
             triangles.push_back(ai_mesh->mFaces[i].mIndices[0]);
         }
     }
-    mesh->set_triangles(std::move(triangles));
+    // 16-bit indices cannot address more than 64k vertices
+    if (ai_mesh->mNumVertices > 65536) {
+        mesh->set_int_indices(std::move(triangles));
+    } else {
+        std::vector<unsigned short> short_triangles(triangles.begin(), triangles.end());
+        mesh->set_triangles(std::move(short_triangles));
+    }
 
     return mesh;
 }
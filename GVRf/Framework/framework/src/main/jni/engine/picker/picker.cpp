@@ -47,10 +47,50 @@ Picker::~Picker() {
  */
 void Picker::pickScene(Scene* scene, std::vector<ColliderData>& picklist, Transform* t,
          float ox, float oy, float oz, float dx, float dy, float dz) {
+    const std::vector<Component*>& colliders = scene->lockColliders();
+
+    pickColliders(colliders, picklist, t, ox, oy, oz, dx, dy, dz);
+    scene->unlockColliders();
+ }
+
+/*
+ * Intersects all the colliders in the scene with several rays,
+ * locking the colliders only once. The collisions for each ray are
+ * appended to the list sorted by distance, and counts[i] receives
+ * the number of collisions for ray i. Each ray is six floats:
+ * origin then direction, in the coordinate system of transforms[i]
+ * (or the main camera if that is NULL).
+ *
+ * This function is not thread-safe because it relies on a static
+ * array of colliders which could be updated by a different thread.
+ */
+void Picker::pickScene(Scene* scene, std::vector<ColliderData>& picklist,
+        Transform* const* transforms, const float* rays, int numRays, int* counts) {
+    const std::vector<Component*>& colliders = scene->lockColliders();
+    Transform* head = scene->main_camera_rig()->getHeadTransform();
+
+    for (int i = 0; i < numRays; ++i) {
+        const float* ray = rays + i * 6;
+        Transform* t = (transforms[i] != NULL) ? transforms[i] : head;
+        size_t first = picklist.size();
+
+        pickColliders(colliders, picklist, t, ray[0], ray[1], ray[2], ray[3], ray[4], ray[5]);
+        counts[i] = picklist.size() - first;
+    }
+    scene->unlockColliders();
+}
+
+/*
+ * Intersects a list of colliders with the input ray and appends the
+ * collisions to the list, sorted by distance.
+ */
+void Picker::pickColliders(const std::vector<Component*>& colliders,
+        std::vector<ColliderData>& picklist, Transform* t,
+        float ox, float oy, float oz, float dx, float dy, float dz) {
     glm::vec3 ray_start(ox, oy, oz);
     glm::vec3 ray_dir(dx, dy, dz);
-    const std::vector<Component*>& colliders = scene->lockColliders();
     const glm::mat4& model_matrix = t->getModelMatrix();
+    size_t first = picklist.size();
 
     Collider::transformRay(model_matrix, ray_start, ray_dir);
     for (auto it = colliders.begin(); it != colliders.end(); ++it) {
@@ -66,9 +106,8 @@ void Picker::pickScene(Scene* scene, std::vector<ColliderData>& picklist, Transf
             }
         }
     }
-    std::sort(picklist.begin(), picklist.end(), compareColliderData);
-    scene->unlockColliders();
- }
+    std::sort(picklist.begin() + first, picklist.end(), compareColliderData);
+}
 
 void Picker::pickScene(Scene* scene, std::vector<ColliderData>& pickList) {
     Transform* t = scene->main_camera_rig()->getHeadTransform();
@@ -46,12 +46,24 @@ public:
             Transform* t,
             float ox, float oy, float oz,
             float dx, float dy, float dz);
+    static void pickScene(
+            Scene* scene, std::vector<ColliderData>& pickList,
+            Transform* const* transforms, const float* rays,
+            int numRays, int* counts);
     static float pickSceneObject(
             const SceneObject* scene_object,
             const CameraRig* camera_rig);
     static glm::vec3 pickSceneObjectAgainstBoundingBox(
             const SceneObject* scene_object, float ox, float oy, float oz,
             float dx, float dy, float dz);
+
+private:
+    static void pickColliders(
+            const std::vector<Component*>& colliders,
+            std::vector<ColliderData>& pickList,
+            Transform* t,
+            float ox, float oy, float oz,
+            float dx, float dy, float dz);
 };
 
 }
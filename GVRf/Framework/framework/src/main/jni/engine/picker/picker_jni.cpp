@@ -34,6 +34,10 @@ extern "C" {
     Java_org_gearvrf_NativePicker_pickObjects(JNIEnv * env,
             jobject obj, jlong jscene, jlong jtransform, jfloat ox, jfloat oy, jfloat oz, jfloat dx,
             jfloat dy, jfloat dz);
+    JNIEXPORT jint JNICALL
+    Java_org_gearvrf_NativePicker_pickObjectsBatch(JNIEnv * env,
+            jobject obj, jlong jscene, jlongArray jtransforms, jfloatArray jrays, jint numRays,
+            jintArray jcounts, jobjectArray jhitBuffers);
     JNIEXPORT jfloat JNICALL
     Java_org_gearvrf_NativePicker_pickSceneObject(JNIEnv * env,
             jobject obj, jlong jscene_object, jlong jcamera_rig);
@@ -104,6 +108,70 @@ Java_org_gearvrf_NativePicker_pickObjects(JNIEnv * env,
     return pickList;
 }
 
+/*
+ * Picks several rays at once. The results are written into arrays
+ * owned by the caller, held in jhitBuffers: the collider pointer of
+ * each hit in the long[] at index 0 and its distance and hit position
+ * in the float[] at index 1 (4 floats per hit). If they are too small,
+ * they are replaced by larger arrays. The hits for ray i follow those
+ * for ray i - 1 and jcounts[i] receives how many there are. Returns
+ * the total number of hits.
+ */
+JNIEXPORT jint JNICALL
+Java_org_gearvrf_NativePicker_pickObjectsBatch(JNIEnv * env,
+        jobject obj, jlong jscene, jlongArray jtransforms, jfloatArray jrays, jint numRays,
+        jintArray jcounts, jobjectArray jhitBuffers)
+{
+    Scene* scene = reinterpret_cast<Scene*>(jscene);
+    std::vector<jlong> transformPtrs(numRays);
+    std::vector<Transform*> transforms(numRays);
+    std::vector<float> rays(numRays * 6);
+    std::vector<jint> counts(numRays);
+    std::vector<ColliderData> colliders;
+
+    env->GetLongArrayRegion(jtransforms, 0, numRays, transformPtrs.data());
+    env->GetFloatArrayRegion(jrays, 0, numRays * 6, rays.data());
+    for (int i = 0; i < numRays; ++i) {
+        transforms[i] = reinterpret_cast<Transform*>(transformPtrs[i]);
+    }
+    Picker::pickScene(scene, colliders, transforms.data(), rays.data(), numRays, counts.data());
+    env->SetIntArrayRegion(jcounts, 0, numRays, counts.data());
+
+    int total = colliders.size();
+    jlongArray jcolliders = static_cast<jlongArray>(env->GetObjectArrayElement(jhitBuffers, 0));
+    jfloatArray jhits = static_cast<jfloatArray>(env->GetObjectArrayElement(jhitBuffers, 1));
+    if (total > env->GetArrayLength(jcolliders)) {
+        // Leave room to grow so this rarely happens again
+        env->DeleteLocalRef(jcolliders);
+        env->DeleteLocalRef(jhits);
+        jcolliders = env->NewLongArray(total * 2);
+        jhits = env->NewFloatArray(total * 2 * 4);
+        env->SetObjectArrayElement(jhitBuffers, 0, jcolliders);
+        env->SetObjectArrayElement(jhitBuffers, 1, jhits);
+    }
+    if (total == 0) {
+        env->DeleteLocalRef(jcolliders);
+        env->DeleteLocalRef(jhits);
+        return 0;
+    }
+    jlong* colliderPtrs = env->GetLongArrayElements(jcolliders, 0);
+    jfloat* hitData = env->GetFloatArrayElements(jhits, 0);
+    jfloat* hits = hitData;
+    for (int i = 0; i < total; ++i) {
+        const ColliderData& data = colliders[i];
+        colliderPtrs[i] = reinterpret_cast<jlong>(data.ColliderHit);
+        *hits++ = data.Distance;
+        *hits++ = data.HitPosition.x;
+        *hits++ = data.HitPosition.y;
+        *hits++ = data.HitPosition.z;
+    }
+    env->ReleaseFloatArrayElements(jhits, hitData, 0);
+    env->ReleaseLongArrayElements(jcolliders, colliderPtrs, 0);
+    env->DeleteLocalRef(jcolliders);
+    env->DeleteLocalRef(jhits);
+    return total;
+}
+
 JNIEXPORT jfloat JNICALL
 Java_org_gearvrf_NativePicker_pickSceneObject(JNIEnv * env,
         jobject obj, jlong jscene_object, jlong jcamera_rig) {
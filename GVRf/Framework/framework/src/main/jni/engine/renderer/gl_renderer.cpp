@@ -518,11 +518,11 @@ void GLRenderer::renderMaterialShader(RenderState& rstate, RenderData* render_da
     //there is no program associated with EXTERNAL_RENDERER_SHADER
     if (-1 != programId) {
         glBindVertexArray(mesh->getVAOId(programId));
-        if (mesh->indices().size() > 0) {
+        if (mesh->getIndexCount() > 0) {
             if(use_multiview) {
-                glDrawElementsInstanced(render_data->draw_mode(), mesh->indices().size(), GL_UNSIGNED_SHORT, NULL, 2 );
+                glDrawElementsInstanced(render_data->draw_mode(), mesh->getIndexCount(), mesh->getIndexType(), NULL, 2 );
             } else {
-                glDrawElements(render_data->draw_mode(), mesh->indices().size(), GL_UNSIGNED_SHORT, 0);
+                glDrawElements(render_data->draw_mode(), mesh->getIndexCount(), mesh->getIndexType(), 0);
             }
         } else {
             if(use_multiview) {
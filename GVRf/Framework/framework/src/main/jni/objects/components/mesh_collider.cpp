@@ -129,11 +129,12 @@ ColliderData MeshCollider::isHit(const Mesh& mesh, const glm::vec3& rayStart, co
     ColliderData data;
     if (vertices.size() > 0)
     {
-        for (int i = 0; i < mesh.triangles().size(); i += 3)
+        size_t indexCount = mesh.getIndexCount();
+        for (size_t i = 0; i < indexCount; i += 3)
         {
-            glm::vec3 V1(vertices[mesh.triangles()[i]]);
-            glm::vec3 V2(vertices[mesh.triangles()[i + 1]]);
-            glm::vec3 V3(vertices[mesh.triangles()[i + 2]]);
+            glm::vec3 V1(vertices[mesh.getIndex(i)]);
+            glm::vec3 V2(vertices[mesh.getIndex(i + 1)]);
+            glm::vec3 V3(vertices[mesh.getIndex(i + 2)]);
 
             /*
              * Compute the point where the ray penetrates the mesh in
@@ -131,6 +131,14 @@ public:
         invalidate(true);
     }
 
+    void set_trs(const glm::vec3& position, const glm::quat& rotation,
+            const glm::vec3& scale) {
+        position_ = position;
+        rotation_ = rotation;
+        scale_ = scale;
+        invalidate(true);
+    }
+
     const glm::vec3& scale() const {
         return scale_;
     }
@@ -20,6 +20,8 @@
 
 #include "transform.h"
 
+#include <cstring>
+
 #include "util/gvr_jni.h"
 #include "util/gvr_log.h"
 #include "glm/gtc/type_ptr.hpp"
@@ -114,6 +116,30 @@ JNIEXPORT jfloatArray JNICALL
 Java_org_gearvrf_NativeTransform_getLocalModelMatrix(JNIEnv * env,
         jobject obj, jlong jtransform);
 
+JNIEXPORT void JNICALL
+Java_org_gearvrf_NativeTransform_copyModelMatrix(JNIEnv * env,
+        jobject obj, jlong jtransform, jfloatArray jmatrix);
+
+JNIEXPORT void JNICALL
+Java_org_gearvrf_NativeTransform_copyLocalModelMatrix(JNIEnv * env,
+        jobject obj, jlong jtransform, jfloatArray jmatrix);
+
+JNIEXPORT void JNICALL
+Java_org_gearvrf_NativeTransform_setTRSBatch(JNIEnv * env,
+        jobject obj, jlongArray jtransforms, jint count, jobject jdata);
+
+JNIEXPORT void JNICALL
+Java_org_gearvrf_NativeTransform_setModelMatrixBatch(JNIEnv * env,
+        jobject obj, jlongArray jtransforms, jint count, jobject jdata);
+
+JNIEXPORT void JNICALL
+Java_org_gearvrf_NativeTransform_getModelMatrixBatch(JNIEnv * env,
+        jobject obj, jlongArray jtransforms, jint count, jobject jdata);
+
+JNIEXPORT void JNICALL
+Java_org_gearvrf_NativeTransform_getLocalModelMatrixBatch(JNIEnv * env,
+        jobject obj, jlongArray jtransforms, jint count, jobject jdata);
+
 JNIEXPORT void JNICALL
 Java_org_gearvrf_NativeTransform_setModelMatrix(JNIEnv * env,
         jobject obj, jlong jtransform, jfloatArray mat);
@@ -346,6 +372,91 @@ Java_org_gearvrf_NativeTransform_getLocalModelMatrix(JNIEnv * env,
     return jmatrix;
 }
 
+JNIEXPORT void JNICALL
+Java_org_gearvrf_NativeTransform_copyModelMatrix(JNIEnv * env,
+        jobject obj, jlong jtransform, jfloatArray jmatrix) {
+    Transform* transform = reinterpret_cast<Transform*>(jtransform);
+    glm::mat4 matrix = transform->getModelMatrix();
+    env->SetFloatArrayRegion(jmatrix, 0, 16, glm::value_ptr(matrix));
+}
+
+JNIEXPORT void JNICALL
+Java_org_gearvrf_NativeTransform_copyLocalModelMatrix(JNIEnv * env,
+        jobject obj, jlong jtransform, jfloatArray jmatrix) {
+    Transform* transform = reinterpret_cast<Transform*>(jtransform);
+    glm::mat4 matrix = transform->getLocalModelMatrix();
+    env->SetFloatArrayRegion(jmatrix, 0, 16, glm::value_ptr(matrix));
+}
+
+JNIEXPORT void JNICALL
+Java_org_gearvrf_NativeTransform_setTRSBatch(JNIEnv * env,
+        jobject obj, jlongArray jtransforms, jint count, jobject jdata) {
+    const float* data = static_cast<const float*>(env->GetDirectBufferAddress(jdata));
+    if (nullptr == data) {
+        LOGE("setTRSBatch: data is not a direct buffer");
+        return;
+    }
+    jlong* transforms = env->GetLongArrayElements(jtransforms, 0);
+    for (int i = 0; i < count; ++i, data += 10) {
+        Transform* transform = reinterpret_cast<Transform*>(transforms[i]);
+        // Java stores quaternions as x, y, z, w; glm::quat takes w first
+        transform->set_trs(glm::vec3(data[0], data[1], data[2]),
+                glm::quat(data[6], data[3], data[4], data[5]),
+                glm::vec3(data[7], data[8], data[9]));
+    }
+    env->ReleaseLongArrayElements(jtransforms, transforms, JNI_ABORT);
+}
+
+JNIEXPORT void JNICALL
+Java_org_gearvrf_NativeTransform_setModelMatrixBatch(JNIEnv * env,
+        jobject obj, jlongArray jtransforms, jint count, jobject jdata) {
+    const float* data = static_cast<const float*>(env->GetDirectBufferAddress(jdata));
+    if (nullptr == data) {
+        LOGE("setModelMatrixBatch: data is not a direct buffer");
+        return;
+    }
+    jlong* transforms = env->GetLongArrayElements(jtransforms, 0);
+    for (int i = 0; i < count; ++i, data += 16) {
+        Transform* transform = reinterpret_cast<Transform*>(transforms[i]);
+        transform->setModelMatrix(glm::make_mat4x4(data));
+    }
+    env->ReleaseLongArrayElements(jtransforms, transforms, JNI_ABORT);
+}
+
+JNIEXPORT void JNICALL
+Java_org_gearvrf_NativeTransform_getModelMatrixBatch(JNIEnv * env,
+        jobject obj, jlongArray jtransforms, jint count, jobject jdata) {
+    float* data = static_cast<float*>(env->GetDirectBufferAddress(jdata));
+    if (nullptr == data) {
+        LOGE("getModelMatrixBatch: data is not a direct buffer");
+        return;
+    }
+    jlong* transforms = env->GetLongArrayElements(jtransforms, 0);
+    for (int i = 0; i < count; ++i, data += 16) {
+        Transform* transform = reinterpret_cast<Transform*>(transforms[i]);
+        glm::mat4 matrix = transform->getModelMatrix();
+        memcpy(data, glm::value_ptr(matrix), sizeof(matrix));
+    }
+    env->ReleaseLongArrayElements(jtransforms, transforms, JNI_ABORT);
+}
+
+JNIEXPORT void JNICALL
+Java_org_gearvrf_NativeTransform_getLocalModelMatrixBatch(JNIEnv * env,
+        jobject obj, jlongArray jtransforms, jint count, jobject jdata) {
+    float* data = static_cast<float*>(env->GetDirectBufferAddress(jdata));
+    if (nullptr == data) {
+        LOGE("getLocalModelMatrixBatch: data is not a direct buffer");
+        return;
+    }
+    jlong* transforms = env->GetLongArrayElements(jtransforms, 0);
+    for (int i = 0; i < count; ++i, data += 16) {
+        Transform* transform = reinterpret_cast<Transform*>(transforms[i]);
+        glm::mat4 matrix = transform->getLocalModelMatrix();
+        memcpy(data, glm::value_ptr(matrix), sizeof(matrix));
+    }
+    env->ReleaseLongArrayElements(jtransforms, transforms, JNI_ABORT);
+}
+
 JNIEXPORT void JNICALL
 Java_org_gearvrf_NativeTransform_setModelMatrix(JNIEnv * env,
 		jobject obj, jlong jtransform, jfloatArray mat){
@@ -374,10 +374,16 @@ void Mesh::generateVAO(int programId) {
 
     glBindVertexArray(vaoID_);
     glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, triangle_vboID_);
-    glBufferData(GL_ELEMENT_ARRAY_BUFFER,
-            sizeof(unsigned short) * indices_.size(), &indices_[0],
-            GL_STATIC_DRAW);
-    numTriangles_ = indices_.size() / 3;
+    if (hasIntIndices()) {
+        glBufferData(GL_ELEMENT_ARRAY_BUFFER,
+                sizeof(unsigned int) * int_indices_.size(), &int_indices_[0],
+                GL_STATIC_DRAW);
+    } else {
+        glBufferData(GL_ELEMENT_ARRAY_BUFFER,
+                sizeof(unsigned short) * indices_.size(), &indices_[0],
+                GL_STATIC_DRAW);
+    }
+    numTriangles_ = getIndexCount() / 3;
 
     attrMapping.clear();
     int totalStride;
@@ -44,7 +44,7 @@ namespace gvr {
 class Mesh: public HybridObject {
 public:
     Mesh() :
-            vertices_(), normals_(), indices_(), float_vectors_(), vec2_vectors_(), vec3_vectors_(), vec4_vectors_(),
+            vertices_(), normals_(), indices_(), int_indices_(), float_vectors_(), vec2_vectors_(), vec3_vectors_(), vec4_vectors_(),
                     have_bounding_volume_(false), vao_dirty_(true), listener_(new Listener()),
                     boneVboID_(GVR_INVALID), vertexBoneData_(this), bone_data_dirty_(true), regenerate_vao_(true)
     {
@@ -61,6 +61,8 @@ public:
         normals.swap(normals_);
         std::vector<unsigned short> indices;
         indices.swap(indices_);
+        std::vector<unsigned int> int_indices;
+        int_indices.swap(int_indices_);
 
         deleteVaos();
     }
@@ -134,12 +136,14 @@ public:
 
     void set_triangles(const std::vector<unsigned short>& triangles) {
         indices_ = triangles;
+        int_indices_.clear();
         vao_dirty_ = true;
         listener_->notify_listeners(true);
     }
 
     void set_triangles(std::vector<unsigned short>&& triangles) {
         indices_ = std::move(triangles);
+        int_indices_.clear();
         vao_dirty_ = true;
         listener_->notify_listeners(true);
     }
@@ -150,16 +154,60 @@ public:
 
     void set_indices(const std::vector<unsigned short>& indices) {
         indices_ = indices;
+        int_indices_.clear();
         vao_dirty_ = true;
         listener_->notify_listeners(true);
     }
 
     void set_indices(std::vector<unsigned short>&& indices) {
         indices_ = std::move(indices);
+        int_indices_.clear();
         vao_dirty_ = true;
         listener_->notify_listeners(true);
     }
 
+    /*
+     * 32-bit indices, for meshes with more than 65535 vertices.
+     * A mesh has either 16-bit or 32-bit indices; setting one
+     * kind clears the other.
+     */
+    const std::vector<unsigned int>& int_indices() const {
+        return int_indices_;
+    }
+
+    void set_int_indices(const std::vector<unsigned int>& indices) {
+        int_indices_ = indices;
+        indices_.clear();
+        vao_dirty_ = true;
+        listener_->notify_listeners(true);
+    }
+
+    void set_int_indices(std::vector<unsigned int>&& indices) {
+        int_indices_ = std::move(indices);
+        indices_.clear();
+        vao_dirty_ = true;
+        listener_->notify_listeners(true);
+    }
+
+    bool hasIntIndices() const {
+        return int_indices_.size() > 0;
+    }
+
+    /*
+     * Number of indices of either kind, for glDrawElements.
+     */
+    size_t getIndexCount() const {
+        return hasIntIndices() ? int_indices_.size() : indices_.size();
+    }
+
+    GLenum getIndexType() const {
+        return hasIntIndices() ? GL_UNSIGNED_INT : GL_UNSIGNED_SHORT;
+    }
+
+    unsigned int getIndex(size_t i) const {
+        return hasIntIndices() ? int_indices_[i] : indices_[i];
+    }
+
     bool hasAttribute(std::string key) const {
         if (vec3_vectors_.find(key) != vec3_vectors_.end()) {
             return true;
@@ -220,6 +268,13 @@ public:
         vao_dirty_ = true;
     }
 
+    void setVec2Vector(std::string key, std::vector<glm::vec2>&& vector) {
+        vec2_vectors_[key] = std::move(vector);
+        if(strstr((key.c_str()),"a_texcoord"))
+            listener_->notify_listeners(true);
+        vao_dirty_ = true;
+    }
+
     const std::vector<glm::vec3>& getVec3Vector(std::string key) const {
         auto it = vec3_vectors_.find(key);
         if (it != vec3_vectors_.end()) {
@@ -235,6 +290,11 @@ public:
         vao_dirty_ = true;
     }
 
+    void setVec3Vector(std::string key, std::vector<glm::vec3>&& vector) {
+        vec3_vectors_[key] = std::move(vector);
+        vao_dirty_ = true;
+    }
+
     const std::vector<glm::vec4>& getVec4Vector(std::string key) const {
         auto it = vec4_vectors_.find(key);
         if (it != vec4_vectors_.end()) {
@@ -374,6 +434,7 @@ private:
     std::map<std::string, std::vector<glm::vec3>> vec3_vectors_;
     std::map<std::string, std::vector<glm::vec4>> vec4_vectors_;
     std::vector<unsigned short> indices_;
+    std::vector<unsigned int> int_indices_;
 
     // add location slot map
     std::map<int, std::string> attribute_float_keys_;
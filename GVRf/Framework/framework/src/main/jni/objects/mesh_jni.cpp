@@ -20,6 +20,8 @@
 
 #include "mesh.h"
 
+#include <algorithm>
+
 #include "util/gvr_log.h"
 #include "util/gvr_jni.h"
 #include "android/asset_manager_jni.h"
@@ -60,6 +62,35 @@ extern "C" {
     Java_org_gearvrf_NativeMesh_setIndices(JNIEnv * env,
             jobject obj, jlong jmesh, jcharArray indices);
 
+    JNIEXPORT jint JNICALL
+    Java_org_gearvrf_NativeMesh_getVertexCount(JNIEnv * env,
+            jobject obj, jlong jmesh);
+
+    JNIEXPORT void JNICALL
+    Java_org_gearvrf_NativeMesh_setVerticesBuffer(JNIEnv * env,
+            jobject obj, jlong jmesh, jobject vertices, jint offset, jint count);
+    JNIEXPORT void JNICALL
+    Java_org_gearvrf_NativeMesh_setNormalsBuffer(JNIEnv * env,
+            jobject obj, jlong jmesh, jobject normals, jint offset, jint count);
+    JNIEXPORT void JNICALL
+    Java_org_gearvrf_NativeMesh_setVec2Buffer(JNIEnv * env,
+            jobject obj, jlong jmesh, jstring key, jobject vec2_buffer,
+            jint offset, jint count, jint stride);
+    JNIEXPORT void JNICALL
+    Java_org_gearvrf_NativeMesh_setVec3Buffer(JNIEnv * env,
+            jobject obj, jlong jmesh, jstring key, jobject vec3_buffer,
+            jint offset, jint count);
+    JNIEXPORT void JNICALL
+    Java_org_gearvrf_NativeMesh_setIndicesBuffer(JNIEnv * env,
+            jobject obj, jlong jmesh, jobject indices, jint offset, jint count);
+
+    JNIEXPORT jintArray JNICALL
+    Java_org_gearvrf_NativeMesh_getIntIndices(JNIEnv * env,
+            jobject obj, jlong jmesh);
+    JNIEXPORT void JNICALL
+    Java_org_gearvrf_NativeMesh_setIntIndices(JNIEnv * env,
+            jobject obj, jlong jmesh, jintArray indices);
+
     JNIEXPORT void JNICALL
     Java_org_gearvrf_NativeMesh_setFloatVector(JNIEnv * env,
             jobject obj, jlong jmesh, jstring key, jfloatArray float_vector);
@@ -200,11 +231,8 @@ Java_org_gearvrf_NativeMesh_getTexCoords(JNIEnv * env,
 JNIEXPORT jcharArray JNICALL
 Java_org_gearvrf_NativeMesh_getTriangles(JNIEnv * env,
         jobject obj, jlong jmesh) {
-    Mesh* mesh = reinterpret_cast<Mesh*>(jmesh);
-    const std::vector<unsigned short>& triangles = mesh->triangles();
-    jcharArray jtriangles = env->NewCharArray(triangles.size());
-    env->SetCharArrayRegion(jtriangles, 0, triangles.size(), triangles.data());
-    return jtriangles;
+    // Same data as getIndices, including meshes with 32-bit indices
+    return Java_org_gearvrf_NativeMesh_getIndices(env, obj, jmesh);
 }
 
 JNIEXPORT void JNICALL
@@ -227,6 +255,14 @@ JNIEXPORT jcharArray JNICALL
 Java_org_gearvrf_NativeMesh_getIndices(JNIEnv * env,
         jobject obj, jlong jmesh) {
     Mesh* mesh = reinterpret_cast<Mesh*>(jmesh);
+    if (mesh->hasIntIndices()) {
+        // 32-bit indices are truncated, as documented in GVRMesh.getIndices
+        const std::vector<unsigned int>& int_indices = mesh->int_indices();
+        std::vector<jchar> narrowed(int_indices.begin(), int_indices.end());
+        jcharArray jindices = env->NewCharArray(narrowed.size());
+        env->SetCharArrayRegion(jindices, 0, narrowed.size(), narrowed.data());
+        return jindices;
+    }
     const std::vector<unsigned short>& indices = mesh->indices();
     jcharArray jindices = env->NewCharArray(indices.size());
     env->SetCharArrayRegion(jindices, 0, indices.size(), indices.data());
@@ -249,6 +285,33 @@ Java_org_gearvrf_NativeMesh_setIndices(JNIEnv * env,
     env->ReleaseCharArrayElements(indices, jindices_pointer, 0);
 }
 
+JNIEXPORT jintArray JNICALL
+Java_org_gearvrf_NativeMesh_getIntIndices(JNIEnv * env,
+        jobject obj, jlong jmesh) {
+    Mesh* mesh = reinterpret_cast<Mesh*>(jmesh);
+    size_t count = mesh->getIndexCount();
+    jintArray jindices = env->NewIntArray(count);
+    if (mesh->hasIntIndices()) {
+        env->SetIntArrayRegion(jindices, 0, count,
+                reinterpret_cast<const jint*>(mesh->int_indices().data()));
+    } else {
+        std::vector<jint> widened(mesh->indices().begin(), mesh->indices().end());
+        env->SetIntArrayRegion(jindices, 0, count, widened.data());
+    }
+    return jindices;
+}
+
+JNIEXPORT void JNICALL
+Java_org_gearvrf_NativeMesh_setIntIndices(JNIEnv * env,
+        jobject obj, jlong jmesh, jintArray indices) {
+    Mesh* mesh = reinterpret_cast<Mesh*>(jmesh);
+    int indices_length = env->GetArrayLength(indices);
+    std::vector<unsigned int> native_indices(indices_length);
+    env->GetIntArrayRegion(indices, 0, indices_length,
+            reinterpret_cast<jint*>(native_indices.data()));
+    mesh->set_int_indices(std::move(native_indices));
+}
+
 JNIEXPORT jfloatArray JNICALL
 Java_org_gearvrf_NativeMesh_getFloatVector(JNIEnv * env,
         jobject obj, jlong jmesh, jstring key) {
@@ -429,4 +492,84 @@ Java_org_gearvrf_NativeMesh_getSphereBound(JNIEnv * env,
     sphere[3] = bvol.radius();
     env->SetFloatArrayRegion(jsphere, 0, 4, sphere);
 }
+/*
+ * The *Buffer setters read direct, native-order buffers in place, so
+ * imported data reaches the mesh without a Java heap copy. Offsets and
+ * counts are in floats (or ints) and elements respectively.
+ */
+static std::vector<glm::vec3> readVec3Buffer(JNIEnv * env, jobject buffer,
+        jint offset, jint count) {
+    const glm::vec3* data = reinterpret_cast<const glm::vec3*>(
+            static_cast<const jfloat*>(env->GetDirectBufferAddress(buffer)) + offset);
+    return std::vector<glm::vec3>(data, data + count);
+}
+
+JNIEXPORT jint JNICALL
+Java_org_gearvrf_NativeMesh_getVertexCount(JNIEnv * env,
+        jobject obj, jlong jmesh) {
+    Mesh* mesh = reinterpret_cast<Mesh*>(jmesh);
+    return static_cast<jint>(mesh->vertices().size());
+}
+
+JNIEXPORT void JNICALL
+Java_org_gearvrf_NativeMesh_setVerticesBuffer(JNIEnv * env,
+        jobject obj, jlong jmesh, jobject vertices, jint offset, jint count) {
+    Mesh* mesh = reinterpret_cast<Mesh*>(jmesh);
+    mesh->set_vertices(readVec3Buffer(env, vertices, offset, count));
+}
+
+JNIEXPORT void JNICALL
+Java_org_gearvrf_NativeMesh_setNormalsBuffer(JNIEnv * env,
+        jobject obj, jlong jmesh, jobject normals, jint offset, jint count) {
+    Mesh* mesh = reinterpret_cast<Mesh*>(jmesh);
+    mesh->set_normals(readVec3Buffer(env, normals, offset, count));
+}
+
+JNIEXPORT void JNICALL
+Java_org_gearvrf_NativeMesh_setVec2Buffer(JNIEnv * env,
+        jobject obj, jlong jmesh, jstring key, jobject vec2_buffer,
+        jint offset, jint count, jint stride) {
+    Mesh* mesh = reinterpret_cast<Mesh*>(jmesh);
+    const jfloat* data =
+            static_cast<const jfloat*>(env->GetDirectBufferAddress(vec2_buffer)) + offset;
+    std::vector<glm::vec2> native_vec2_vector;
+    native_vec2_vector.reserve(count);
+    for (int i = 0; i < count; ++i, data += stride) {
+        native_vec2_vector.push_back(glm::vec2(data[0], data[1]));
+    }
+    const char* char_key = env->GetStringUTFChars(key, 0);
+    std::string native_key = std::string(char_key);
+    mesh->setVec2Vector(native_key, std::move(native_vec2_vector));
+    env->ReleaseStringUTFChars(key, char_key);
+}
+
+JNIEXPORT void JNICALL
+Java_org_gearvrf_NativeMesh_setVec3Buffer(JNIEnv * env,
+        jobject obj, jlong jmesh, jstring key, jobject vec3_buffer,
+        jint offset, jint count) {
+    Mesh* mesh = reinterpret_cast<Mesh*>(jmesh);
+    const char* char_key = env->GetStringUTFChars(key, 0);
+    std::string native_key = std::string(char_key);
+    mesh->setVec3Vector(native_key, readVec3Buffer(env, vec3_buffer, offset, count));
+    env->ReleaseStringUTFChars(key, char_key);
+}
+
+JNIEXPORT void JNICALL
+Java_org_gearvrf_NativeMesh_setIndicesBuffer(JNIEnv * env,
+        jobject obj, jlong jmesh, jobject indices, jint offset, jint count) {
+    Mesh* mesh = reinterpret_cast<Mesh*>(jmesh);
+    const unsigned int* data = reinterpret_cast<const unsigned int*>(
+            static_cast<const jint*>(env->GetDirectBufferAddress(indices)) + offset);
+    unsigned int max_index = 0;
+    for (int i = 0; i < count; ++i) {
+        max_index = std::max(max_index, data[i]);
+    }
+    // Keep 16-bit indices whenever they are enough
+    if (max_index <= 0xFFFF) {
+        mesh->set_indices(std::vector<unsigned short>(data, data + count));
+    } else {
+        mesh->set_int_indices(std::vector<unsigned int>(data, data + count));
+    }
+}
+
 }
@@ -0,0 +1,173 @@
+/* Copyright 2015 Samsung Electronics Co., LTD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gearvrf;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Checks the tree against testing every box, after inserts, moves and
+ * removes.
+ */
+public class BoundingBoxTreeTest {
+    private static final int COUNT = 500;
+
+    private final Random mRandom = new Random(42);
+    private final BoundingBoxTree<Integer> mTree = new BoundingBoxTree<Integer>();
+    private final float[][] mBoxes = new float[COUNT][];
+    private final int[] mLeaves = new int[COUNT];
+
+    @Test
+    public void findsEverythingTouched() {
+        fill();
+        for (int i = 0; i < COUNT; i += 3) {
+            mBoxes[i] = randomBox();
+            mTree.move(mLeaves[i], mBoxes[i]);
+        }
+        for (int i = 1; i < COUNT; i += 5) {
+            mTree.remove(mLeaves[i]);
+            mBoxes[i] = null;
+        }
+        checkQueries();
+    }
+
+    @Test
+    public void smallMovesKeepTheTree() {
+        float[] box = { 0, 0, 0, 1, 1, 1 };
+        int leaf = mTree.insert(7, box);
+        assertFalse(mTree.move(leaf, new float[] { 0.05f, 0, 0, 1.05f, 1, 1 }));
+        assertTrue(mTree.move(leaf, new float[] { 5, 0, 0, 6, 1, 1 }));
+        assertEquals(Integer.valueOf(7), mTree.getObject(leaf));
+    }
+
+    @Test
+    public void batchesRays() {
+        fill();
+        final int rays = BoundingBoxTree.MAX_RAYS;
+        float[] directions = new float[rays * 3];
+        for (int i = 0; i < directions.length; ++i) {
+            directions[i] = mRandom.nextFloat() * 2 - 1;
+        }
+        final List<Set<Integer>> found = new ArrayList<Set<Integer>>();
+        for (int ray = 0; ray < rays; ++ray) {
+            found.add(new HashSet<Integer>());
+        }
+        mTree.intersectRays(1, 2, 3, directions, rays, new BoundingBoxTree.RayVisitor<Integer>() {
+            @Override
+            public void visit(Integer object, int ray) {
+                assertTrue(found.get(ray).add(object));
+            }
+        });
+        for (int ray = 0; ray < rays; ++ray) {
+            List<Integer> single = new ArrayList<Integer>();
+            mTree.intersectRay(1, 2, 3, directions[ray * 3], directions[ray * 3 + 1],
+                    directions[ray * 3 + 2], single);
+            assertEquals(new HashSet<Integer>(single), found.get(ray));
+        }
+    }
+
+    @Test
+    public void emptyTreeFindsNothing() {
+        List<Integer> result = new ArrayList<Integer>();
+        mTree.intersectSphere(0, 0, 0, 100, result);
+        assertTrue(result.isEmpty());
+        assertNull(mTree.findNearest(0, 0, 0, 100));
+
+        mTree.insert(1, randomBox());
+        mTree.clear();
+        assertEquals(0, mTree.size());
+        mTree.intersectRay(0, 0, 0, 1, 0, 0, result);
+        assertTrue(result.isEmpty());
+    }
+
+    private void fill() {
+        for (int i = 0; i < COUNT; ++i) {
+            mBoxes[i] = randomBox();
+            mLeaves[i] = mTree.insert(i, mBoxes[i]);
+        }
+        assertEquals(COUNT, mTree.size());
+    }
+
+    private void checkQueries() {
+        for (int query = 0; query < 50; ++query) {
+            float x = randomCoordinate();
+            float y = randomCoordinate();
+            float z = randomCoordinate();
+            float radius = mRandom.nextFloat() * 20;
+
+            List<Integer> result = new ArrayList<Integer>();
+            mTree.intersectSphere(x, y, z, radius, result);
+            assertContainsTouched(result, x, y, z, radius);
+
+            result.clear();
+            mTree.intersectBox(x - radius, y - radius, z - radius, x + radius, y + radius,
+                    z + radius, result);
+            assertContainsTouched(result, x, y, z, 0);
+
+            Integer nearest = mTree.findNearest(x, y, z, Float.MAX_VALUE);
+            float best = Float.MAX_VALUE;
+            for (float[] box : mBoxes) {
+                if (box != null) {
+                    best = Math.min(best, distance(box, x, y, z));
+                }
+            }
+            // Stored boxes are a little larger than the given ones
+            assertTrue(distance(mBoxes[nearest], x, y, z) <= best + 2.0f);
+        }
+    }
+
+    private void assertContainsTouched(List<Integer> result, float x, float y, float z,
+            float radius) {
+        Set<Integer> found = new HashSet<Integer>(result);
+        assertEquals(result.size(), found.size());
+        for (int i = 0; i < COUNT; ++i) {
+            if (mBoxes[i] == null) {
+                assertFalse(found.contains(i));
+            } else if (distance(mBoxes[i], x, y, z) <= radius) {
+                assertTrue(found.contains(i));
+            }
+        }
+    }
+
+    private static float distance(float[] box, float x, float y, float z) {
+        float dx = Math.max(0, Math.max(box[0] - x, x - box[3]));
+        float dy = Math.max(0, Math.max(box[1] - y, y - box[4]));
+        float dz = Math.max(0, Math.max(box[2] - z, z - box[5]));
+        return (float) Math.sqrt(dx * dx + dy * dy + dz * dz);
+    }
+
+    private float[] randomBox() {
+        float x = randomCoordinate();
+        float y = randomCoordinate();
+        float z = randomCoordinate();
+        float size = mRandom.nextFloat() * 5;
+        return new float[] { x, y, z, x + size, y + size, z + size };
+    }
+
+    private float randomCoordinate() {
+        return mRandom.nextFloat() * 200 - 100;
+    }
+}
@@ -0,0 +1,115 @@
+/* Copyright 2015 Samsung Electronics Co., LTD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gearvrf;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that the shader variant store stays within its size limit by
+ * deleting the least recently used variants.
+ */
+public class ShaderVariantStoreTest {
+    // Each variant file takes a little over 1000 bytes
+    private static final int SOURCE_LENGTH = 500;
+    private static final long MAX_SIZE = 3500;
+
+    private File mDirectory;
+
+    @Before
+    public void setUp() throws IOException {
+        mDirectory = File.createTempFile("shader", "variants");
+        mDirectory.delete();
+        mDirectory.mkdirs();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = mDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        mDirectory.delete();
+    }
+
+    @Test
+    public void readsWhatWasWritten() {
+        ShaderVariantStore store = new ShaderVariantStore(mDirectory, MAX_SIZE);
+        store.write("a", source('v'), source('f'));
+
+        assertArrayEquals(new String[] { source('v'), source('f') }, store.read("a"));
+        assertNull(store.read("b"));
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() {
+        ShaderVariantStore store = new ShaderVariantStore(mDirectory, MAX_SIZE);
+        store.write("a", source('a'), source('a'));
+        store.write("b", source('b'), source('b'));
+        store.write("c", source('c'), source('c'));
+        store.read("a");
+        store.write("d", source('d'), source('d'));
+
+        assertNull(store.read("b"));
+        assertStored("a", "c", "d");
+        assertTrue(store.getSize() <= MAX_SIZE);
+    }
+
+    @Test
+    public void trimsWhenOpened() {
+        ShaderVariantStore store = new ShaderVariantStore(mDirectory, 10 * MAX_SIZE);
+        for (char key = 'a'; key <= 'e'; ++key) {
+            store.write(String.valueOf(key), source(key), source(key));
+            // Oldest first, in whole seconds for coarse file times
+            new File(mDirectory, key + ".glsl").setLastModified(1000000000000L + key * 1000);
+        }
+        File temp = new File(mDirectory, "e.7.tmp");
+        assertTrue(new File(mDirectory, "e.glsl").renameTo(temp));
+
+        store = new ShaderVariantStore(mDirectory, MAX_SIZE);
+        assertTrue(store.getSize() <= MAX_SIZE);
+        assertFalse(temp.exists());
+        assertStored("b", "c", "d");
+    }
+
+    private void assertStored(String... keys) {
+        String[] names = mDirectory.list();
+        Arrays.sort(names);
+        String[] expected = new String[keys.length];
+        for (int i = 0; i < keys.length; ++i) {
+            expected[i] = keys[i] + ".glsl";
+        }
+        assertArrayEquals(expected, names);
+    }
+
+    private static String source(char c) {
+        char[] chars = new char[SOURCE_LENGTH];
+        Arrays.fill(chars, c);
+        return new String(chars);
+    }
+}
@@ -0,0 +1,156 @@
+/* Copyright 2015 Samsung Electronics Co., LTD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gearvrf;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.gearvrf.utility.Benchmark;
+import org.junit.Test;
+
+/**
+ * The tree behind {@link GVRSpatialIndex} with 1,000, 10,000 and 100,000
+ * objects: building it, and a frame in which 1% of the objects move and
+ * then 32 rays and 32 spheres are queried, against testing every box.
+ */
+public class SpatialIndexBenchmark {
+    private static final int[] SIZES = { 1000, 10000, 100000 };
+    private static final int QUERIES = 32;
+    private static final int WARMUPS = 3;
+    private static final int ITERATIONS = 10;
+
+    @Test
+    public void buildAndQuery() {
+        for (int size : SIZES) {
+            run(size);
+        }
+    }
+
+    private void run(final int size) {
+        final Random random = new Random(size);
+        final float[][] boxes = new float[size][];
+        for (int i = 0; i < size; ++i) {
+            boxes[i] = box(random);
+        }
+        final float[] queries = new float[QUERIES * 6];
+        for (int i = 0; i < queries.length; ++i) {
+            queries[i] = random.nextFloat() * 200 - 100;
+        }
+
+        Benchmark.run(size + " objects, build", WARMUPS, ITERATIONS, new Runnable() {
+            @Override
+            public void run() {
+                BoundingBoxTree<Integer> tree = new BoundingBoxTree<Integer>();
+                for (int i = 0; i < size; ++i) {
+                    tree.insert(i, boxes[i]);
+                }
+                assertEquals(size, tree.size());
+            }
+        });
+
+        final BoundingBoxTree<Integer> tree = new BoundingBoxTree<Integer>();
+        final int[] leaves = new int[size];
+        for (int i = 0; i < size; ++i) {
+            leaves[i] = tree.insert(i, boxes[i]);
+        }
+        final List<Integer> result = new ArrayList<Integer>();
+        final int[] treeHits = new int[1];
+        final int[] scanHits = new int[1];
+
+        Benchmark.run(size + " objects, frame with tree", WARMUPS, ITERATIONS, new Runnable() {
+            @Override
+            public void run() {
+                moveSome(random, boxes);
+                for (int i = 0; i < size; i += 100) {
+                    tree.move(leaves[i], boxes[i]);
+                }
+                result.clear();
+                for (int q = 0; q < QUERIES * 6; q += 6) {
+                    tree.intersectRay(queries[q], queries[q + 1], queries[q + 2],
+                            queries[q + 3], queries[q + 4], queries[q + 5], result);
+                    tree.intersectSphere(queries[q], queries[q + 1], queries[q + 2], 5, result);
+                }
+                treeHits[0] = result.size();
+            }
+        });
+        Benchmark.run(size + " objects, frame with scan", WARMUPS, ITERATIONS, new Runnable() {
+            @Override
+            public void run() {
+                moveSome(random, boxes);
+                result.clear();
+                for (int q = 0; q < QUERIES * 6; q += 6) {
+                    for (int i = 0; i < size; ++i) {
+                        if (rayHits(boxes[i], queries, q)) {
+                            result.add(i);
+                        }
+                    }
+                    for (int i = 0; i < size; ++i) {
+                        if (distanceSquared(boxes[i], queries, q) <= 25) {
+                            result.add(i);
+                        }
+                    }
+                }
+                scanHits[0] = result.size();
+            }
+        });
+        System.out.println(String.format("%d objects: %d candidates from the tree, %d hits by scan",
+                size, treeHits[0], scanHits[0]));
+    }
+
+    /*
+     * Moves every hundredth box a little.
+     */
+    private static void moveSome(Random random, float[][] boxes) {
+        for (int i = 0; i < boxes.length; i += 100) {
+            float dx = random.nextFloat() - 0.5f;
+            boxes[i][0] += dx;
+            boxes[i][3] += dx;
+        }
+    }
+
+    private static float[] box(Random random) {
+        float x = random.nextFloat() * 200 - 100;
+        float y = random.nextFloat() * 200 - 100;
+        float z = random.nextFloat() * 200 - 100;
+        float size = random.nextFloat() * 2;
+        return new float[] { x, y, z, x + size, y + size, z + size };
+    }
+
+    private static boolean rayHits(float[] box, float[] ray, int q) {
+        float near = 0;
+        float far = Float.POSITIVE_INFINITY;
+        for (int axis = 0; axis < 3; ++axis) {
+            float t0 = (box[axis] - ray[q + axis]) / ray[q + 3 + axis];
+            float t1 = (box[axis + 3] - ray[q + axis]) / ray[q + 3 + axis];
+            near = Math.max(near, Math.min(t0, t1));
+            far = Math.min(far, Math.max(t0, t1));
+        }
+        return near <= far;
+    }
+
+    private static float distanceSquared(float[] box, float[] point, int q) {
+        float result = 0;
+        for (int axis = 0; axis < 3; ++axis) {
+            float d = Math.max(0, Math.max(box[axis] - point[q + axis],
+                    point[q + axis] - box[axis + 3]));
+            result += d * d;
+        }
+        return result;
+    }
+}
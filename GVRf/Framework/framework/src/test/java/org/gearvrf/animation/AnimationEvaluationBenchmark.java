@@ -0,0 +1,163 @@
+/* Copyright 2015 Samsung Electronics Co., LTD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gearvrf.animation;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.gearvrf.GVRHybridObject;
+import org.gearvrf.animation.keyframe.GVRPackedKeyFrames;
+import org.gearvrf.animation.keyframe.TestChannels;
+import org.gearvrf.utility.Benchmark;
+import org.joml.Matrix4f;
+import org.junit.Test;
+
+/**
+ * Frame time of 1, 10 and 100 animated rigs, evaluated serially on one
+ * thread (as the animation engine does without evaluation threads) and by a
+ * {@link ParallelAnimationEvaluator}, the way
+ * {@link GVRAnimationEngine#setEvaluationThreads(int)} runs them.
+ *
+ * The rigs do what a keyframe animation does off the GL thread: sample
+ * packed keys, then walk the skeleton. {@code apply()} stands in for the
+ * GL-thread writes.
+ */
+public class AnimationEvaluationBenchmark {
+    private static final int[] RIGS = { 1, 10, 100 };
+    private static final int BONES = 60;
+    private static final int KEYS = 100;
+    private static final float FRAME_TIME = 1 / 60f;
+    private static final int WARMUPS = 200;
+    private static final int FRAMES = 300;
+
+    @Test
+    public void frameTimeByRigCount() {
+        int threads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+        ParallelAnimationEvaluator evaluator = new ParallelAnimationEvaluator(threads);
+        try {
+            for (int rigs : RIGS) {
+                final List<GVRAnimation> serial = makeRigs(rigs);
+                Benchmark.run(String.format("%3d rigs, serial", rigs), WARMUPS, FRAMES,
+                        new Frame(serial, null));
+
+                final List<GVRAnimation> parallel = makeRigs(rigs);
+                Benchmark.run(String.format("%3d rigs, %d evaluation threads", rigs, threads),
+                        WARMUPS, FRAMES, new Frame(parallel, evaluator));
+
+                // Both ran the same number of frames, so the poses must match
+                for (int i = 0; i < rigs; ++i) {
+                    assertArrayEquals(((Rig) serial.get(i)).mOutput,
+                            ((Rig) parallel.get(i)).mOutput, 0);
+                }
+            }
+        } finally {
+            evaluator.shutdown();
+        }
+    }
+
+    private static List<GVRAnimation> makeRigs(int count) {
+        List<GVRAnimation> rigs = new ArrayList<GVRAnimation>(count);
+        for (int i = 0; i < count; ++i) {
+            rigs.add(new Rig(new GVRPackedKeyFrames(TestChannels.make(BONES, KEYS, i))));
+        }
+        return rigs;
+    }
+
+    /*
+     * One frame of GVRAnimationEngine's draw frame listener.
+     */
+    private static final class Frame implements Runnable {
+        private final List<GVRAnimation> mAnimations;
+        private final ParallelAnimationEvaluator mEvaluator;
+
+        Frame(List<GVRAnimation> animations, ParallelAnimationEvaluator evaluator) {
+            mAnimations = animations;
+            mEvaluator = evaluator;
+        }
+
+        @Override
+        public void run() {
+            final boolean deferred = mEvaluator != null;
+            for (int i = 0, n = mAnimations.size(); i < n; ++i) {
+                GVRAnimation animation = mAnimations.get(i);
+                animation.setDeferred(deferred);
+                animation.onDrawFrame(FRAME_TIME);
+            }
+            if (deferred) {
+                mEvaluator.evaluate(mAnimations);
+                for (int i = 0, n = mAnimations.size(); i < n; ++i) {
+                    mAnimations.get(i).apply();
+                }
+            }
+        }
+    }
+
+    /*
+     * A skinned rig without a scene graph: channel sampling, a parent-first
+     * walk of a binary skeleton, and a copy of the pose for apply().
+     */
+    private static final class Rig extends GVRAnimation {
+        private final GVRPackedKeyFrames mKeys;
+        private final int[] mParents = new int[BONES];
+        private final Matrix4f[] mLocals = new Matrix4f[BONES];
+        private final Matrix4f[] mGlobals = new Matrix4f[BONES];
+        private final float[] mOutput = new float[BONES * 16];
+        private float mTick = Float.NaN;
+
+        Rig(GVRPackedKeyFrames keys) {
+            super(null, (KEYS - 1) / 30f);
+            setRepeatCount(-1);
+            mKeys = keys;
+            for (int i = 0; i < BONES; ++i) {
+                mParents[i] = (i - 1) / 2;
+                mLocals[i] = new Matrix4f();
+                mGlobals[i] = new Matrix4f();
+            }
+        }
+
+        @Override
+        protected void animate(GVRHybridObject target, float ratio) {
+            mTick = ratio * (KEYS - 1);
+            if (!isDeferred()) {
+                evaluate();
+                apply();
+            }
+        }
+
+        @Override
+        protected boolean isParallelizable() {
+            return true;
+        }
+
+        @Override
+        protected void evaluate() {
+            mKeys.sample(mTick, mLocals);
+            mGlobals[0].set(mLocals[0]);
+            for (int i = 1; i < BONES; ++i) {
+                mGlobals[mParents[i]].mul(mLocals[i], mGlobals[i]);
+            }
+        }
+
+        @Override
+        protected void apply() {
+            for (int i = 0; i < BONES; ++i) {
+                mGlobals[i].get(mOutput, i * 16);
+            }
+        }
+    }
+}
@@ -0,0 +1,131 @@
+/* Copyright 2015 Samsung Electronics Co., LTD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gearvrf.animation.keyframe;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import org.joml.Matrix4f;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Counts the bytes allocated while a skinned rig is animated for many
+ * frames. Keyframe evaluation must not allocate once it is set up, not even
+ * in an occasional frame.
+ */
+public class KeyFrameAllocationTest {
+    private static final int BONES = 60;
+    private static final int KEYS = 120;
+    private static final int FRAMES = 2000;
+    private static final float TICKS_PER_FRAME = 0.37f;
+
+    private com.sun.management.ThreadMXBean mThreads;
+    private long mOverhead;
+
+    @Before
+    public void setUp() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        assumeTrue(threads instanceof com.sun.management.ThreadMXBean);
+        mThreads = (com.sun.management.ThreadMXBean) threads;
+        assumeTrue(mThreads.isThreadAllocatedMemorySupported());
+        mThreads.setThreadAllocatedMemoryEnabled(true);
+
+        // What reading the counter twice costs by itself
+        long start = allocatedBytes();
+        mOverhead = allocatedBytes() - start;
+    }
+
+    @Test
+    public void channelAnimateDoesNotAllocate() {
+        final List<GVRAnimationChannel> channels = TestChannels.make(BONES, KEYS, 1);
+        final Matrix4f[] pose = newPose(BONES);
+        final float[] packed = new float[BONES * 16];
+
+        Frame frame = new Frame() {
+            @Override
+            public void run(float time) {
+                for (int c = 0; c < BONES; ++c) {
+                    channels.get(c).animate(time, pose[c]);
+                    channels.get(c).animate(time, packed, c * 16);
+                }
+            }
+        };
+        assertEquals("bytes allocated in " + FRAMES + " frames", 0, bytesAllocated(frame));
+    }
+
+    @Test
+    public void packedSampleDoesNotAllocate() {
+        final GVRPackedKeyFrames keys = new GVRPackedKeyFrames(TestChannels.make(BONES, KEYS, 2));
+        final Matrix4f[] pose = newPose(BONES);
+        final float[] matrices = new float[BONES * GVRPackedKeyFrames.MATRIX_SIZE];
+        final float[] trs = new float[BONES * GVRPackedKeyFrames.TRS_SIZE];
+
+        Frame frame = new Frame() {
+            @Override
+            public void run(float time) {
+                keys.sample(time, pose);
+                keys.sample(time, matrices);
+                keys.sampleTRS(time, trs);
+            }
+        };
+        assertEquals("bytes allocated in " + FRAMES + " frames", 0, bytesAllocated(frame));
+    }
+
+    private interface Frame {
+        void run(float time);
+    }
+
+    /*
+     * Runs the frame over the whole clip once to warm up, then counts what
+     * FRAMES more frames allocate in total. Time wraps, as a looping
+     * animation does.
+     */
+    private long bytesAllocated(Frame frame) {
+        float time = 0;
+        for (int i = 0; i < FRAMES; ++i) {
+            frame.run(time);
+            time = nextTime(time);
+        }
+
+        long start = allocatedBytes();
+        for (int i = 0; i < FRAMES; ++i) {
+            frame.run(time);
+            time = nextTime(time);
+        }
+        return Math.max(0, allocatedBytes() - start - mOverhead);
+    }
+
+    private static float nextTime(float time) {
+        time += TICKS_PER_FRAME;
+        return time < KEYS ? time : 0;
+    }
+
+    private long allocatedBytes() {
+        return mThreads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static Matrix4f[] newPose(int bones) {
+        Matrix4f[] pose = new Matrix4f[bones];
+        for (int i = 0; i < bones; ++i) {
+            pose[i] = new Matrix4f();
+        }
+        return pose;
+    }
+}
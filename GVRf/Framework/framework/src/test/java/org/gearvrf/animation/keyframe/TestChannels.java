@@ -0,0 +1,59 @@
+/* Copyright 2015 Samsung Electronics Co., LTD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gearvrf.animation.keyframe;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.joml.Quaternionf;
+import org.joml.Vector3f;
+
+/**
+ * Synthetic animation channels for keyframe tests.
+ */
+public final class TestChannels {
+    private TestChannels() {
+    }
+
+    /**
+     * Makes channels with random keys, one key per tick.
+     *
+     * @param numChannels number of channels (bones)
+     * @param numKeys number of position, rotation and scale keys per channel
+     * @param seed random seed
+     */
+    public static List<GVRAnimationChannel> make(int numChannels, int numKeys, long seed) {
+        Random random = new Random(seed);
+        List<GVRAnimationChannel> channels = new ArrayList<GVRAnimationChannel>(numChannels);
+        Vector3f v = new Vector3f();
+        Quaternionf q = new Quaternionf();
+        for (int c = 0; c < numChannels; ++c) {
+            GVRAnimationChannel channel = new GVRAnimationChannel("bone" + c, numKeys, numKeys,
+                    numKeys, GVRAnimationBehavior.DEFAULT, GVRAnimationBehavior.DEFAULT);
+            for (int k = 0; k < numKeys; ++k) {
+                v.set(random.nextFloat(), random.nextFloat(), random.nextFloat());
+                channel.setPosKeyVector(k, k, v);
+                q.rotationXYZ(random.nextFloat(), random.nextFloat(), random.nextFloat());
+                channel.setRotKeyQuaternion(k, k, q);
+                v.set(0.5f + random.nextFloat(), 0.5f + random.nextFloat(), 0.5f + random.nextFloat());
+                channel.setScaleKeyVector(k, k, v);
+            }
+            channels.add(channel);
+        }
+        return channels;
+    }
+}
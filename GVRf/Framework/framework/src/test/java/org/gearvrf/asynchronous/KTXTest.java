@@ -0,0 +1,163 @@
+/* Copyright 2015 Samsung Electronics Co., LTD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gearvrf.asynchronous;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import org.gearvrf.asynchronous.GVRCompressedTextureLoader.Reader;
+import org.gearvrf.asynchronous.KTX.KtxCompressedTexture;
+import org.gearvrf.asynchronous.TgaDecoderTest.TrickleInputStream;
+import org.gearvrf.utility.DirectBufferPool;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class KTXTest {
+    private static final int GL_COMPRESSED_RGB8_ETC2 = 0x9274;
+    private static final byte[] LEVEL_0 = { 1, 2, 3, 4, 5, 6 };
+    private static final byte[] LEVEL_1 = { 7, 8, 9 };
+
+    private final KTX mLoader = new KTX();
+    private final DirectBufferPool mPool = new DirectBufferPool(1024 * 1024);
+
+    @BeforeClass
+    public static void registerLoaders() {
+        // The factory loaders register themselves when the base class is
+        // initialized, which has to happen before KTX is
+        GVRCompressedTextureLoader.getLoaders();
+    }
+
+    @Test
+    public void sniffsSignature() {
+        byte[] file = file(ByteOrder.LITTLE_ENDIAN, 8, 4, 0, LEVEL_0);
+        assertTrue(mLoader.sniff(file, new Reader(file)));
+        file[3] = 0;
+        assertFalse(mLoader.sniff(file, new Reader(file)));
+    }
+
+    @Test
+    public void streamsLevelsIntoPooledBuffers() throws IOException {
+        byte[] file = file(ByteOrder.LITTLE_ENDIAN, 8, 4, 8, LEVEL_0, LEVEL_1);
+        KtxCompressedTexture texture = stream(file, mLoader.headerLength(), false);
+
+        assertEquals(GL_COMPRESSED_RGB8_ETC2, texture.internalformat);
+        assertEquals(8, texture.width);
+        assertEquals(4, texture.height);
+        assertEquals(2, texture.levels);
+        assertTrue(texture.getLevel(0).isDirect());
+        assertArrayEquals(LEVEL_0, bytes(texture.getLevel(0)));
+        assertArrayEquals(LEVEL_1, bytes(texture.getLevel(1)));
+    }
+
+    @Test
+    public void streamsBigEndianFiles() throws IOException {
+        byte[] file = file(ByteOrder.BIG_ENDIAN, 16, 16, 4, LEVEL_1, LEVEL_0);
+        KtxCompressedTexture texture = stream(file, mLoader.headerLength(), false);
+
+        assertEquals(16, texture.width);
+        assertArrayEquals(LEVEL_1, bytes(texture.getLevel(0)));
+        assertArrayEquals(LEVEL_0, bytes(texture.getLevel(1)));
+    }
+
+    @Test
+    public void usesBytesReadPastTheHeader() throws IOException {
+        // As when another loader needs a longer header for sniffing
+        byte[] file = file(ByteOrder.LITTLE_ENDIAN, 8, 4, 8, LEVEL_0, LEVEL_1);
+        KtxCompressedTexture texture = stream(file, mLoader.headerLength() + 13, true);
+
+        assertArrayEquals(LEVEL_0, bytes(texture.getLevel(0)));
+        assertArrayEquals(LEVEL_1, bytes(texture.getLevel(1)));
+    }
+
+    @Test
+    public void matchesByteArrayParse() throws IOException {
+        byte[] file = file(ByteOrder.LITTLE_ENDIAN, 8, 4, 8, LEVEL_0, LEVEL_1);
+        KtxCompressedTexture streamed = stream(file, mLoader.headerLength(), false);
+        KtxCompressedTexture parsed = (KtxCompressedTexture) mLoader.parse(file, new Reader(file));
+
+        assertEquals(streamed.levels, parsed.levels);
+        for (int level = 0; level < parsed.levels; ++level) {
+            assertArrayEquals(bytes(parsed.getLevel(level)), bytes(streamed.getLevel(level)));
+        }
+    }
+
+    @Test
+    public void releasesLevelsWhenTruncated() throws IOException {
+        byte[] file = file(ByteOrder.LITTLE_ENDIAN, 8, 4, 0, LEVEL_0, LEVEL_1);
+        try {
+            stream(Arrays.copyOf(file, file.length - 3), mLoader.headerLength(), false);
+            fail("Truncated file parsed");
+        } catch (EOFException e) {
+            // Both levels, rounded up to 8 and 4 bytes
+            assertEquals(12, mPool.getPooledSize());
+        }
+    }
+
+    private KtxCompressedTexture stream(byte[] file, int headerLength, boolean trickle)
+            throws IOException {
+        byte[] header = Arrays.copyOf(file, headerLength);
+        byte[] rest = Arrays.copyOfRange(file, headerLength, file.length);
+        InputStream in = trickle ? new TrickleInputStream(rest, 3) : new ByteArrayInputStream(rest);
+        return (KtxCompressedTexture) mLoader.parse(header, in, mPool);
+    }
+
+    private static byte[] bytes(ByteBuffer buffer) {
+        byte[] result = new byte[buffer.remaining()];
+        buffer.duplicate().get(result);
+        return result;
+    }
+
+    /*
+     * A KTX file with the given levels of ETC2 data, each padded to four
+     * bytes, after keyValueBytes of key-value data.
+     */
+    static byte[] file(ByteOrder order, int width, int height, int keyValueBytes,
+            byte[]... levels) {
+        int size = 64 + keyValueBytes;
+        for (byte[] level : levels) {
+            size += 4 + (level.length + 3) / 4 * 4;
+        }
+        ByteBuffer file = ByteBuffer.allocate(size).order(order);
+        file.put(new byte[] { (byte) 0xAB, 'K', 'T', 'X', ' ', '1', '1', (byte) 0xBB, '\r', '\n',
+                0x1A, '\n' });
+        file.putInt(0x04030201);
+        // glType, glTypeSize, glFormat
+        file.putInt(0).putInt(1).putInt(0);
+        file.putInt(GL_COMPRESSED_RGB8_ETC2).putInt(0x1907);
+        file.putInt(width).putInt(height);
+        // pixelDepth, numberOfArrayElements, numberOfFaces
+        file.putInt(0).putInt(0).putInt(1);
+        file.putInt(levels.length).putInt(keyValueBytes);
+        file.position(file.position() + keyValueBytes);
+        for (byte[] level : levels) {
+            file.putInt(level.length);
+            file.put(level);
+            file.position(file.position() + (4 - (level.length & 3)) % 4);
+        }
+        return file.array();
+    }
+}
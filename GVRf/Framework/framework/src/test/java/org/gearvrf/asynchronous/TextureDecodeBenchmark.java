@@ -0,0 +1,149 @@
+/* Copyright 2015 Samsung Electronics Co., LTD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gearvrf.asynchronous;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import org.gearvrf.asynchronous.GVRCompressedTextureLoader.Reader;
+import org.gearvrf.asynchronous.KTX.KtxCompressedTexture;
+import org.gearvrf.asynchronous.TgaDecoderTest.TgaFile;
+import org.gearvrf.utility.Benchmark;
+import org.gearvrf.utility.DirectBufferPool;
+import org.gearvrf.utility.ResourceReader;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Decode time of 4096 x 4096 textures: TGA (uncompressed and run-length
+ * encoded) through {@link TgaDecoder}, and a KTX file with a full mipmap
+ * chain streamed into pooled buffers, each against first reading the whole
+ * file into a {@code byte[]}, as the loaders used to.
+ */
+public class TextureDecodeBenchmark {
+    private static final int SIZE = 4096;
+    private static final int WARMUPS = 2;
+    private static final int ITERATIONS = 5;
+
+    private final DirectBufferPool mPool = new DirectBufferPool(128 * 1024 * 1024);
+
+    @BeforeClass
+    public static void registerLoaders() {
+        GVRCompressedTextureLoader.getLoaders();
+    }
+
+    @Test
+    public void decode4KTga() {
+        TgaFile tga = new TgaFile(2, SIZE, SIZE, 24, 0);
+        byte[] row = new byte[SIZE * 3];
+        for (int x = 0; x < row.length; ++x) {
+            row[x] = (byte) (x * 31);
+        }
+        for (int y = 0; y < SIZE; ++y) {
+            tga.bytes(row);
+        }
+        decodeTga("4K TGA", tga.toByteArray());
+    }
+
+    @Test
+    public void decode4KRleTga() {
+        TgaFile tga = new TgaFile(10, SIZE, SIZE, 24, 0);
+        // Alternating runs and raw packets of 16 pixels
+        for (int packet = 0; packet < SIZE * SIZE / 16; ++packet) {
+            if (packet % 2 == 0) {
+                tga.bytes(0x8F, packet, packet >> 8, packet >> 16);
+            } else {
+                tga.bytes(0x0F);
+                for (int i = 0; i < 16; ++i) {
+                    tga.bytes(i, packet, 255 - i);
+                }
+            }
+        }
+        decodeTga("4K RLE TGA", tga.toByteArray());
+    }
+
+    @Test
+    public void parse4KKtx() {
+        // ETC2 has 8 bytes per 4x4 block
+        byte[][] levels = new byte[13][];
+        for (int level = 0; level < levels.length; ++level) {
+            int blocks = Math.max(1, (SIZE >> level) / 4);
+            levels[level] = new byte[blocks * blocks * 8];
+            Arrays.fill(levels[level], (byte) level);
+        }
+        final byte[] file = KTXTest.file(ByteOrder.LITTLE_ENDIAN, SIZE, SIZE, 0, levels);
+        final KTX loader = new KTX();
+        final int headerLength = loader.headerLength();
+
+        Benchmark.run("4K KTX, whole file", WARMUPS, ITERATIONS, new Runnable() {
+            @Override
+            public void run() {
+                byte[] data = ResourceReader.readStream(new ByteArrayInputStream(file));
+                KtxCompressedTexture texture = (KtxCompressedTexture) loader.parse(data,
+                        new Reader(data));
+                assertEquals(SIZE * SIZE / 2, texture.getLevel(0).remaining());
+            }
+        });
+        Benchmark.run("4K KTX, streamed", WARMUPS, ITERATIONS, new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    ByteArrayInputStream in = new ByteArrayInputStream(file);
+                    byte[] header = new byte[headerLength];
+                    in.read(header);
+                    KtxCompressedTexture texture = (KtxCompressedTexture) loader.parse(header, in,
+                            mPool);
+                    assertEquals(SIZE * SIZE / 2, texture.getLevel(0).remaining());
+                    for (int level = 0; level < texture.levels; ++level) {
+                        mPool.release(texture.getLevel(level));
+                    }
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        });
+    }
+
+    private void decodeTga(String name, final byte[] file) {
+        Benchmark.run(name + ", whole file", WARMUPS, ITERATIONS, new Runnable() {
+            @Override
+            public void run() {
+                byte[] data = ResourceReader.readStream(new ByteArrayInputStream(file));
+                decode(data);
+            }
+        });
+        Benchmark.run(name + ", streamed", WARMUPS, ITERATIONS, new Runnable() {
+            @Override
+            public void run() {
+                decode(file);
+            }
+        });
+    }
+
+    private void decode(byte[] file) {
+        try {
+            TgaDecoder.Image image = TgaDecoder.decode(new ByteArrayInputStream(file), mPool);
+            assertEquals(SIZE * SIZE * 4, image.pixels.remaining());
+            mPool.release(image.pixels);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
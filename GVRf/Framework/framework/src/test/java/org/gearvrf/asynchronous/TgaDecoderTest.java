@@ -0,0 +1,228 @@
+/* Copyright 2015 Samsung Electronics Co., LTD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gearvrf.asynchronous;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.gearvrf.utility.DirectBufferPool;
+import org.junit.Test;
+
+public class TgaDecoderTest {
+    // BGR in the file, RGBA once decoded
+    private static final byte[] A = { 1, 2, 3 };
+    private static final byte[] B = { 4, 5, 6 };
+    private static final byte[] C = { 7, 8, 9 };
+
+    private final DirectBufferPool mPool = new DirectBufferPool(1024 * 1024);
+
+    @Test
+    public void decodesBottomUpTrueColor() throws IOException {
+        TgaFile tga = new TgaFile(2, 3, 2, 24, 0);
+        // Bottom row first
+        tga.pixels(A, B, C).pixels(C, B, A);
+
+        TgaDecoder.Image image = decode(tga.toByteArray());
+        assertEquals(3, image.width);
+        assertEquals(2, image.height);
+        assertArrayEquals(rgba(C, B, A, A, B, C), pixels(image));
+    }
+
+    @Test
+    public void decodesTopDownRightToLeftWithAlpha() throws IOException {
+        TgaFile tga = new TgaFile(2, 2, 1, 32, 0x30);
+        tga.bytes(1, 2, 3, 4, 5, 6, 7, 8);
+
+        assertArrayEquals(new byte[] { 7, 6, 5, 8, 3, 2, 1, 4 }, pixels(decode(tga.toByteArray())));
+    }
+
+    @Test
+    public void decodesRunsThatCrossRows() throws IOException {
+        TgaFile tga = new TgaFile(10, 3, 2, 24, 0);
+        // A run of four A, then two raw pixels
+        tga.bytes(0x83).pixels(A).bytes(0x01).pixels(B, C);
+
+        assertArrayEquals(rgba(A, B, C, A, A, A), pixels(decode(tga.toByteArray())));
+    }
+
+    @Test
+    public void decodesGrayscale() throws IOException {
+        TgaFile tga = new TgaFile(11, 2, 1, 16, 0x20);
+        // A raw packet of two gray + alpha pixels
+        tga.bytes(0x01, 10, 20, 30, 40);
+
+        assertArrayEquals(new byte[] { 10, 10, 10, 20, 30, 30, 30, 40 },
+                pixels(decode(tga.toByteArray())));
+    }
+
+    @Test
+    public void skipsIdAndColorMap() throws IOException {
+        TgaFile tga = new TgaFile(2, 1, 1, 24, 0);
+        tga.header[0] = 5;
+        tga.header[1] = 1;
+        // Three 24-bit color map entries
+        tga.header[5] = 3;
+        tga.header[7] = 24;
+        tga.bytes(new byte[5 + 9]).pixels(B);
+
+        assertArrayEquals(rgba(B), pixels(decode(tga.toByteArray())));
+    }
+
+    @Test
+    public void readsThroughShortReads() throws IOException {
+        TgaFile tga = new TgaFile(10, 64, 64, 24, 0);
+        for (int i = 0; i < 64 * 64; ++i) {
+            tga.bytes(0x80).pixels(i % 2 == 0 ? A : B);
+        }
+        byte[] file = tga.toByteArray();
+
+        byte[] expected = pixels(decode(file));
+        TgaDecoder.Image image = TgaDecoder.decode(new TrickleInputStream(file, 7), mPool);
+        assertArrayEquals(expected, pixels(image));
+    }
+
+    @Test
+    public void rejectsUnsupportedFiles() throws IOException {
+        try {
+            decode(new TgaFile(1, 1, 1, 8, 0).bytes(0).toByteArray());
+            fail("Color-mapped image decoded");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("image type"));
+        }
+        try {
+            decode(new TgaFile(2, 1, 1, 16, 0).bytes(0, 0).toByteArray());
+            fail("16-bit color image decoded");
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("16 bit"));
+        }
+    }
+
+    @Test
+    public void releasesBufferWhenTruncated() throws IOException {
+        TgaFile tga = new TgaFile(2, 4, 4, 24, 0);
+        tga.pixels(A, B, C);
+        try {
+            decode(tga.toByteArray());
+            fail("Truncated image decoded");
+        } catch (EOFException e) {
+            // The pixel buffer went back to the pool
+            assertEquals(64, mPool.getPooledSize());
+        }
+    }
+
+    private TgaDecoder.Image decode(byte[] file) throws IOException {
+        return TgaDecoder.decode(new ByteArrayInputStream(file), mPool);
+    }
+
+    private byte[] pixels(TgaDecoder.Image image) {
+        byte[] result = new byte[image.width * image.height * 4];
+        assertEquals(result.length, image.pixels.remaining());
+        image.pixels.get(result);
+        mPool.release(image.pixels);
+        return result;
+    }
+
+    private static byte[] rgba(byte[]... bgr) {
+        byte[] result = new byte[bgr.length * 4];
+        for (int i = 0; i < bgr.length; ++i) {
+            result[i * 4] = bgr[i][2];
+            result[i * 4 + 1] = bgr[i][1];
+            result[i * 4 + 2] = bgr[i][0];
+            result[i * 4 + 3] = (byte) 0xFF;
+        }
+        return result;
+    }
+
+    /*
+     * Builds a TGA file: an 18-byte header, then whatever is appended.
+     */
+    static final class TgaFile {
+        final byte[] header = new byte[18];
+        private final ByteArrayOutputStream mBody = new ByteArrayOutputStream();
+
+        TgaFile(int type, int width, int height, int depth, int descriptor) {
+            header[2] = (byte) type;
+            header[12] = (byte) width;
+            header[13] = (byte) (width >> 8);
+            header[14] = (byte) height;
+            header[15] = (byte) (height >> 8);
+            header[16] = (byte) depth;
+            header[17] = (byte) descriptor;
+        }
+
+        TgaFile bytes(int... values) {
+            for (int value : values) {
+                mBody.write(value);
+            }
+            return this;
+        }
+
+        TgaFile bytes(byte[] values) {
+            mBody.write(values, 0, values.length);
+            return this;
+        }
+
+        TgaFile pixels(byte[]... bgr) {
+            for (byte[] pixel : bgr) {
+                bytes(pixel);
+            }
+            return this;
+        }
+
+        byte[] toByteArray() {
+            byte[] body = mBody.toByteArray();
+            byte[] file = Arrays.copyOf(header, header.length + body.length);
+            System.arraycopy(body, 0, file, header.length, body.length);
+            return file;
+        }
+    }
+
+    /*
+     * Returns at most a few bytes per read, like a slow network stream.
+     */
+    static final class TrickleInputStream extends FilterInputStream {
+        private final int mMaxRead;
+
+        TrickleInputStream(byte[] data, int maxRead) {
+            super(new ByteArrayInputStream(data));
+            mMaxRead = maxRead;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int count) throws IOException {
+            return super.read(buffer, offset, Math.min(count, mMaxRead));
+        }
+
+        @Override
+        public long skip(long count) throws IOException {
+            return super.skip(Math.min(count, mMaxRead));
+        }
+
+        @Override
+        public int available() {
+            return 0;
+        }
+    }
+}
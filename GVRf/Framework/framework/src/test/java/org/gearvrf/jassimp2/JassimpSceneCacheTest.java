@@ -0,0 +1,412 @@
+/* Copyright 2015 Samsung Electronics Co., LTD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gearvrf.jassimp2;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Writes a scene built in Java to a cache file, reads it back and compares
+ * the two, and checks that stale, foreign and truncated files are rejected.
+ */
+public class JassimpSceneCacheTest {
+    private static final GVRNewWrapperProvider sProvider = GVRJassimpAdapter.sWrapperProvider;
+    private static final List<String> SOURCES = Arrays.asList("model.obj", "model.mtl");
+    private static final byte[] HASH = { 1, 2, 3, 4, 5 };
+
+    private File mFile;
+
+    @Before
+    public void setUp() throws IOException {
+        Jassimp.setWrapperProvider(sProvider);
+        mFile = File.createTempFile("scene", ".cache");
+        mFile.delete();
+    }
+
+    @After
+    public void tearDown() {
+        mFile.delete();
+    }
+
+    @Test
+    public void readsBackWhatWasWritten() throws IOException {
+        AiScene scene = createScene();
+        JassimpSceneCache.write(scene, mFile, SOURCES, HASH);
+
+        assertEquals(SOURCES, JassimpSceneCache.readSources(mFile));
+        assertScenesEqual(scene, JassimpSceneCache.read(mFile, HASH));
+    }
+
+    @Test
+    public void rejectsStaleHash() throws IOException {
+        JassimpSceneCache.write(createScene(), mFile, SOURCES, HASH);
+
+        assertNull(JassimpSceneCache.read(mFile, new byte[] { 1, 2, 3, 4, 6 }));
+    }
+
+    @Test
+    public void rejectsOtherVersion() throws IOException {
+        JassimpSceneCache.write(createScene(), mFile, SOURCES, HASH);
+        RandomAccessFile raf = new RandomAccessFile(mFile, "rw");
+        try {
+            // The version follows the magic number
+            ByteBuffer version = ByteBuffer.allocate(4).order(ByteOrder.nativeOrder());
+            version.putInt(0, 1000);
+            raf.seek(4);
+            raf.write(version.array());
+        } finally {
+            raf.close();
+        }
+
+        assertNull(JassimpSceneCache.readSources(mFile));
+        assertNull(JassimpSceneCache.read(mFile, HASH));
+    }
+
+    @Test
+    public void rejectsTruncatedFile() throws IOException {
+        JassimpSceneCache.write(createScene(), mFile, SOURCES, HASH);
+        RandomAccessFile raf = new RandomAccessFile(mFile, "rw");
+        try {
+            raf.setLength(raf.length() - 100);
+        } finally {
+            raf.close();
+        }
+
+        try {
+            JassimpSceneCache.read(mFile, HASH);
+            fail("read a truncated file");
+        } catch (IOException e) {
+        }
+    }
+
+    @Test
+    public void missingFileIsNotCached() throws IOException {
+        assertNull(JassimpSceneCache.readSources(mFile));
+        assertNull(JassimpSceneCache.read(mFile, HASH));
+    }
+
+    private static AiScene createScene() {
+        AiScene scene = new AiScene();
+        scene.getMeshes().add(createTriangleMesh());
+        scene.getMeshes().add(createPolygonMesh());
+        scene.getMaterials().add(createMaterial());
+        scene.getAnimations().add(createAnimation());
+        scene.getLights().add(new AiLight("sun", AiLightType.toRawValue(AiLightType.SPOT),
+                new float[] { 1, 2, 3 }, new float[] { 0, -1, 0 }, 1, 0.5f, 0.25f,
+                color(1, 1, 0.5f, 1), color(1, 1, 1, 1), color(0.1f, 0.1f, 0.1f, 1), 0.5f, 0.75f));
+        scene.getCameras().add(new AiCamera("eye", new float[] { 0, 1, 5 },
+                new float[] { 0, 1, 0 }, new float[] { 0, 0, -1 }, 1.2f, 0.1f, 100, 1.5f));
+
+        AiNode root = new AiNode(null, matrix(0), new int[] { 0, 1 }, "root");
+        AiNode arm = new AiNode(root, matrix(1), new int[0], "arm");
+        new AiNode(arm, matrix(2), new int[] { 1 }, "hand");
+        new AiNode(root, matrix(3), null, null);
+        scene.setSceneRoot(root);
+        return scene;
+    }
+
+    /*
+     * A skinned triangle mesh with more vertices than 16-bit indices reach.
+     */
+    private static AiMesh createTriangleMesh() {
+        int numVertices = 70000;
+        int numFaces = 2;
+        ByteBuffer[] colorsets = new ByteBuffer[JassimpConfig.MAX_NUMBER_COLORSETS];
+        colorsets[0] = floats(numVertices * 4, 3);
+        int[] numUVComponents = new int[JassimpConfig.MAX_NUMBER_TEXCOORDS];
+        ByteBuffer[] texcoords = new ByteBuffer[JassimpConfig.MAX_NUMBER_TEXCOORDS];
+        numUVComponents[0] = 2;
+        texcoords[0] = floats(numVertices * 2, 4);
+        int primitiveTypes = AiPrimitiveType.toRawValue(EnumSet.of(AiPrimitiveType.TRIANGLE));
+        AiMesh mesh = new AiMesh(primitiveTypes, numVertices, numFaces, 0, "body",
+                floats(numVertices * 3, 1), ints(0, 65535, 65536, 69999, 1, 68000), null,
+                floats(numVertices * 3, 2), null, null, colorsets, numUVComponents, texcoords);
+
+        for (int b = 0; b < 2; ++b) {
+            AiBone bone = new AiBone("bone" + b, matrix(10 + b));
+            for (int w = 0; w < 3; ++w) {
+                bone.getBoneWeights().add(new AiBoneWeight(66000 + w * 1000 + b, 0.25f * (w + 1)));
+            }
+            mesh.getBones().add(bone);
+        }
+        return mesh;
+    }
+
+    private static AiMesh createPolygonMesh() {
+        int numVertices = 5;
+        ByteBuffer[] colorsets = new ByteBuffer[JassimpConfig.MAX_NUMBER_COLORSETS];
+        int[] numUVComponents = new int[JassimpConfig.MAX_NUMBER_TEXCOORDS];
+        ByteBuffer[] texcoords = new ByteBuffer[JassimpConfig.MAX_NUMBER_TEXCOORDS];
+        numUVComponents[1] = 3;
+        texcoords[1] = floats(numVertices * 3, 5);
+        int primitiveTypes = AiPrimitiveType.toRawValue(
+                EnumSet.of(AiPrimitiveType.TRIANGLE, AiPrimitiveType.POLYGON));
+        return new AiMesh(primitiveTypes, numVertices, 2, 0, null, floats(numVertices * 3, 6),
+                ints(0, 1, 2, 3, 1, 4, 2), ints(0, 4), null, floats(numVertices * 3, 7),
+                floats(numVertices * 3, 8), colorsets, numUVComponents, texcoords);
+    }
+
+    private static AiMaterial createMaterial() {
+        AiMaterial material = new AiMaterial();
+        List<AiMaterial.Property> properties = material.getProperties();
+        properties.add(new AiMaterial.Property("?mat.name", 0, 0,
+                AiMaterial.PropertyType.toRawValue(AiMaterial.PropertyType.STRING), "skin"));
+        properties.add(new AiMaterial.Property("$tex.file", 1, 0,
+                AiMaterial.PropertyType.toRawValue(AiMaterial.PropertyType.STRING), "skin.png"));
+        properties.add(new AiMaterial.Property("$mat.twosided", 0, 0,
+                AiMaterial.PropertyType.toRawValue(AiMaterial.PropertyType.INTEGER), 1));
+        properties.add(new AiMaterial.Property("$mat.shininess", 0, 0,
+                AiMaterial.PropertyType.toRawValue(AiMaterial.PropertyType.FLOAT), 12.5f));
+        properties.add(new AiMaterial.Property("$clr.diffuse", 0, 0,
+                AiMaterial.PropertyType.toRawValue(AiMaterial.PropertyType.FLOAT),
+                color(0.25f, 0.5f, 0.75f, 1)));
+        properties.add(new AiMaterial.Property("$raw.data", 0, 2,
+                AiMaterial.PropertyType.toRawValue(AiMaterial.PropertyType.BUFFER), floats(3, 9)));
+        properties.add(new AiMaterial.Property("$raw.none", 0, 0,
+                AiMaterial.PropertyType.toRawValue(AiMaterial.PropertyType.BUFFER), null));
+        // Like Assimp, set the number of every type of texture but UNKNOWN
+        for (AiTextureType type : AiTextureType.values()) {
+            if (type != AiTextureType.UNKNOWN) {
+                material.setTextureNumber(AiTextureType.toRawValue(type), 0);
+            }
+        }
+        material.setTextureNumber(AiTextureType.toRawValue(AiTextureType.DIFFUSE), 1);
+        material.setTextureNumber(AiTextureType.toRawValue(AiTextureType.NORMALS), 2);
+        return material;
+    }
+
+    private static AiAnimation createAnimation() {
+        AiAnimation animation = new AiAnimation("walk", 48, 24);
+        animation.getChannels().add(new AiNodeAnim("arm", 3, 2, 1,
+                AiAnimBehavior.toRawValue(AiAnimBehavior.CONSTANT),
+                AiAnimBehavior.toRawValue(AiAnimBehavior.REPEAT),
+                keys(3 * Jassimp.NATIVE_AIVEKTORKEY_SIZE, 11),
+                keys(2 * Jassimp.NATIVE_AIQUATKEY_SIZE, 12),
+                keys(Jassimp.NATIVE_AIVEKTORKEY_SIZE, 13)));
+        animation.getChannels().add(new AiNodeAnim("hand", 0, 1, 0, 0, 0,
+                keys(0, 14), keys(Jassimp.NATIVE_AIQUATKEY_SIZE, 15), keys(0, 16)));
+        return animation;
+    }
+
+    private static void assertScenesEqual(AiScene expected, AiScene actual) {
+        assertEquals(expected.getNumMeshes(), actual.getNumMeshes());
+        for (int i = 0; i < expected.getNumMeshes(); ++i) {
+            assertMeshesEqual(expected.getMeshes().get(i), actual.getMeshes().get(i));
+        }
+        assertEquals(expected.getNumMaterials(), actual.getNumMaterials());
+        for (int i = 0; i < expected.getNumMaterials(); ++i) {
+            assertMaterialsEqual(expected.getMaterials().get(i), actual.getMaterials().get(i));
+        }
+        assertEquals(expected.getNumAnimations(), actual.getNumAnimations());
+        for (int i = 0; i < expected.getNumAnimations(); ++i) {
+            assertAnimationsEqual(expected.getAnimations().get(i), actual.getAnimations().get(i));
+        }
+        assertEquals(expected.getNumLights(), actual.getNumLights());
+        for (int i = 0; i < expected.getNumLights(); ++i) {
+            assertLightsEqual(expected.getLights().get(i), actual.getLights().get(i));
+        }
+        assertEquals(expected.getNumCameras(), actual.getNumCameras());
+        for (int i = 0; i < expected.getNumCameras(); ++i) {
+            assertCamerasEqual(expected.getCameras().get(i), actual.getCameras().get(i));
+        }
+        assertNodesEqual(expected.getSceneRoot(sProvider), actual.getSceneRoot(sProvider));
+    }
+
+    private static void assertMeshesEqual(AiMesh expected, AiMesh actual) {
+        assertEquals(expected.getPrimitiveTypes(), actual.getPrimitiveTypes());
+        assertEquals(expected.getNumVertices(), actual.getNumVertices());
+        assertEquals(expected.getNumFaces(), actual.getNumFaces());
+        assertEquals(expected.getMaterialIndex(), actual.getMaterialIndex());
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getPositionBuffer(), actual.getPositionBuffer());
+        assertEquals(expected.getFaceBuffer(), actual.getFaceBuffer());
+        assertEquals(expected.getFaceOffsets(), actual.getFaceOffsets());
+        assertEquals(expected.getNormalBuffer(), actual.getNormalBuffer());
+        assertEquals(expected.getTangentBuffer(), actual.getTangentBuffer());
+        assertEquals(expected.getBitangentBuffer(), actual.getBitangentBuffer());
+        for (int i = 0; i < JassimpConfig.MAX_NUMBER_COLORSETS; ++i) {
+            assertEquals(expected.getColorBuffer(i), actual.getColorBuffer(i));
+        }
+        for (int i = 0; i < JassimpConfig.MAX_NUMBER_TEXCOORDS; ++i) {
+            assertEquals(expected.getNumUVComponents(i), actual.getNumUVComponents(i));
+            assertEquals(expected.getTexCoordBuffer(i), actual.getTexCoordBuffer(i));
+        }
+
+        List<AiBone> expectedBones = expected.getBones();
+        List<AiBone> actualBones = actual.getBones();
+        assertEquals(expectedBones.size(), actualBones.size());
+        for (int b = 0; b < expectedBones.size(); ++b) {
+            AiBone expectedBone = expectedBones.get(b);
+            AiBone actualBone = actualBones.get(b);
+            assertEquals(expectedBone.getName(), actualBone.getName());
+            assertArrayEquals(expectedBone.getOffsetMatrix(sProvider),
+                    actualBone.getOffsetMatrix(sProvider), 0);
+            assertEquals(expectedBone.getNumWeights(), actualBone.getNumWeights());
+            for (int w = 0; w < expectedBone.getNumWeights(); ++w) {
+                AiBoneWeight expectedWeight = expectedBone.getBoneWeights().get(w);
+                AiBoneWeight actualWeight = actualBone.getBoneWeights().get(w);
+                assertEquals(expectedWeight.getVertexId(), actualWeight.getVertexId());
+                assertEquals(expectedWeight.getWeight(), actualWeight.getWeight(), 0);
+            }
+        }
+    }
+
+    private static void assertMaterialsEqual(AiMaterial expected, AiMaterial actual) {
+        List<AiMaterial.Property> expectedProperties = expected.getProperties();
+        List<AiMaterial.Property> actualProperties = actual.getProperties();
+        assertEquals(expectedProperties.size(), actualProperties.size());
+        for (int i = 0; i < expectedProperties.size(); ++i) {
+            AiMaterial.Property expectedProperty = expectedProperties.get(i);
+            AiMaterial.Property actualProperty = actualProperties.get(i);
+            assertEquals(expectedProperty.getKey(), actualProperty.getKey());
+            assertEquals(expectedProperty.getSemantic(), actualProperty.getSemantic());
+            assertEquals(expectedProperty.getIndex(), actualProperty.getIndex());
+            assertEquals(expectedProperty.getType(), actualProperty.getType());
+
+            Object expectedData = expectedProperty.getData();
+            Object actualData = actualProperty.getData();
+            if (expectedData instanceof AiColor) {
+                assertColorsEqual((AiColor) expectedData, (AiColor) actualData);
+            } else {
+                assertEquals(expectedData, actualData);
+            }
+        }
+        for (AiTextureType type : AiTextureType.values()) {
+            if (type != AiTextureType.UNKNOWN) {
+                assertEquals(expected.getNumTextures(type), actual.getNumTextures(type));
+            }
+        }
+    }
+
+    private static void assertAnimationsEqual(AiAnimation expected, AiAnimation actual) {
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getDuration(), actual.getDuration(), 0);
+        assertEquals(expected.getTicksPerSecond(), actual.getTicksPerSecond(), 0);
+        assertEquals(expected.getNumChannels(), actual.getNumChannels());
+        for (int i = 0; i < expected.getNumChannels(); ++i) {
+            AiNodeAnim expectedChannel = expected.getChannels().get(i);
+            AiNodeAnim actualChannel = actual.getChannels().get(i);
+            assertEquals(expectedChannel.getNodeName(), actualChannel.getNodeName());
+            assertEquals(expectedChannel.getNumPosKeys(), actualChannel.getNumPosKeys());
+            assertEquals(expectedChannel.getNumRotKeys(), actualChannel.getNumRotKeys());
+            assertEquals(expectedChannel.getNumScaleKeys(), actualChannel.getNumScaleKeys());
+            assertEquals(expectedChannel.getPreState(), actualChannel.getPreState());
+            assertEquals(expectedChannel.getPostState(), actualChannel.getPostState());
+            assertEquals(expectedChannel.getPosKeyBuffer(), actualChannel.getPosKeyBuffer());
+            assertEquals(expectedChannel.getRotKeyBuffer(), actualChannel.getRotKeyBuffer());
+            assertEquals(expectedChannel.getScaleKeyBuffer(), actualChannel.getScaleKeyBuffer());
+        }
+    }
+
+    private static void assertLightsEqual(AiLight expected, AiLight actual) {
+        assertEquals(expected.getName(), actual.getName());
+        assertEquals(expected.getType(), actual.getType());
+        assertArrayEquals(expected.getPosition(sProvider), actual.getPosition(sProvider), 0);
+        assertArrayEquals(expected.getDirection(sProvider), actual.getDirection(sProvider), 0);
+        assertEquals(expected.getAttenuationConstant(), actual.getAttenuationConstant(), 0);
+        assertEquals(expected.getAttenuationLinear(), actual.getAttenuationLinear(), 0);
+        assertEquals(expected.getAttenuationQuadratic(), actual.getAttenuationQuadratic(), 0);
+        assertColorsEqual(expected.getColorDiffuse(sProvider), actual.getColorDiffuse(sProvider));
+        assertColorsEqual(expected.getColorSpecular(sProvider), actual.getColorSpecular(sProvider));
+        assertColorsEqual(expected.getColorAmbient(sProvider), actual.getColorAmbient(sProvider));
+        assertEquals(expected.getAngleInnerCone(), actual.getAngleInnerCone(), 0);
+        assertEquals(expected.getAngleOuterCone(), actual.getAngleOuterCone(), 0);
+    }
+
+    private static void assertCamerasEqual(AiCamera expected, AiCamera actual) {
+        assertEquals(expected.getName(), actual.getName());
+        assertArrayEquals(expected.getPosition(sProvider), actual.getPosition(sProvider), 0);
+        assertArrayEquals(expected.getUp(sProvider), actual.getUp(sProvider), 0);
+        assertArrayEquals(expected.getLookAt(sProvider), actual.getLookAt(sProvider), 0);
+        assertEquals(expected.getHorizontalFOV(), actual.getHorizontalFOV(), 0);
+        assertEquals(expected.getClipPlaneNear(), actual.getClipPlaneNear(), 0);
+        assertEquals(expected.getClipPlaneFar(), actual.getClipPlaneFar(), 0);
+        assertEquals(expected.getAspect(), actual.getAspect(), 0);
+    }
+
+    private static void assertNodesEqual(AiNode expected, AiNode actual) {
+        assertEquals(expected.getName(), actual.getName());
+        assertArrayEquals(expected.getTransform(sProvider), actual.getTransform(sProvider), 0);
+        assertArrayEquals(expected.getMeshes(), actual.getMeshes());
+        assertEquals(expected.getNumChildren(), actual.getNumChildren());
+        for (int i = 0; i < expected.getNumChildren(); ++i) {
+            AiNode child = actual.getChildren().get(i);
+            assertEquals(actual, child.getParent());
+            assertNodesEqual(expected.getChildren().get(i), child);
+        }
+    }
+
+    private static void assertColorsEqual(AiColor expected, AiColor actual) {
+        assertEquals(expected.getRed(), actual.getRed(), 0);
+        assertEquals(expected.getGreen(), actual.getGreen(), 0);
+        assertEquals(expected.getBlue(), actual.getBlue(), 0);
+        assertEquals(expected.getAlpha(), actual.getAlpha(), 0);
+    }
+
+    private static ByteBuffer floats(int count, int seed) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(count * 4).order(ByteOrder.nativeOrder());
+        for (int i = 0; i < count; ++i) {
+            buffer.putFloat(i * 4, seed + i * 0.125f);
+        }
+        return buffer;
+    }
+
+    private static ByteBuffer ints(int... values) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(values.length * 4)
+                .order(ByteOrder.nativeOrder());
+        buffer.asIntBuffer().put(values);
+        return buffer;
+    }
+
+    private static ByteBuffer keys(int size, int seed) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(size).order(ByteOrder.nativeOrder());
+        for (int i = 0; i < size; ++i) {
+            buffer.put(i, (byte) (seed * 31 + i));
+        }
+        return buffer;
+    }
+
+    private static AiColor color(float red, float green, float blue, float alpha) {
+        return (AiColor) Jassimp.wrapColor4(red, green, blue, alpha);
+    }
+
+    /*
+     * A distinct 4x4 matrix, in the column-major order of the wrapper
+     * provider.
+     */
+    private static float[] matrix(int seed) {
+        float[] matrix = new float[16];
+        for (int i = 0; i < matrix.length; ++i) {
+            matrix[i] = seed + i * 0.5f;
+        }
+        return matrix;
+    }
+}
@@ -0,0 +1,168 @@
+/* Copyright 2015 Samsung Electronics Co., LTD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gearvrf.jassimp2;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.util.List;
+
+import org.gearvrf.GVRMesh;
+import org.gearvrf.jassimp2.GVRJassimpAdapter.MeshData;
+import org.gearvrf.utility.Benchmark;
+import org.junit.Test;
+
+/**
+ * Load time of the mesh conversion stage of an Assimp import over a
+ * synthetic 500-mesh scene, prepared one mesh after the other and by
+ * {@link GVRJassimpAdapter#runInParallel}, the way processScene converts
+ * meshes. Meshes come unindexed, as Assimp returns them without
+ * JOIN_IDENTICAL_VERTICES, so each is welded; one is large enough to be
+ * split.
+ *
+ * Creating the native GVRMesh objects needs the device and is not
+ * measured.
+ */
+public class MeshImportBenchmark {
+    private static final int MESHES = 500;
+    private static final int GRID = 16;
+    private static final int LARGE_GRID = 300;
+    private static final int WARMUPS = 3;
+    private static final int ITERATIONS = 10;
+
+    @Test
+    public void loadTimeOf500Meshes() throws IOException {
+        final SourceMesh[] scene = new SourceMesh[MESHES];
+        for (int i = 0; i < MESHES; ++i) {
+            scene[i] = new SourceMesh(i == 0 ? LARGE_GRID : GRID);
+        }
+
+        final MeshData[][] serial = new MeshData[MESHES][];
+        Benchmark.run(MESHES + " meshes, one thread", WARMUPS, ITERATIONS, new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < MESHES; ++i) {
+                    serial[i] = prepare(scene[i]);
+                }
+            }
+        });
+
+        final MeshData[][] parallel = new MeshData[MESHES][];
+        Benchmark.run(MESHES + " meshes, runInParallel", WARMUPS, ITERATIONS, new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    GVRJassimpAdapter.runInParallel(MESHES, new GVRJassimpAdapter.IndexedTask() {
+                        @Override
+                        public void run(int i) {
+                            parallel[i] = prepare(scene[i]);
+                        }
+                    });
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        });
+
+        for (int i = 0; i < MESHES; ++i) {
+            assertEquals(serial[i].length, parallel[i].length);
+            for (int p = 0; p < serial[i].length; ++p) {
+                assertEquals(serial[i][p].numVertices, parallel[i][p].numVertices);
+                assertArrayEquals(serial[i][p].indices, parallel[i][p].indices);
+            }
+        }
+        assertEquals((GRID + 1) * (GRID + 1), serial[1][0].numVertices);
+        assertTrue(serial[0].length > 1);
+        for (MeshData part : serial[0]) {
+            assertTrue(part.numVertices <= GVRMesh.MAX_CHAR_INDEXED_VERTICES);
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void runInParallelRethrows() throws IOException {
+        GVRJassimpAdapter.runInParallel(100, new GVRJassimpAdapter.IndexedTask() {
+            @Override
+            public void run(int i) {
+                if (i == 42) {
+                    throw new IllegalStateException();
+                }
+            }
+        });
+    }
+
+    private static MeshData[] prepare(SourceMesh mesh) {
+        MeshData data = new MeshData();
+        data.numVertices = mesh.numVertices;
+        data.buffers[MeshData.POSITIONS] = mesh.positions;
+        data.buffers[MeshData.NORMALS] = mesh.normals;
+        data.buffers[MeshData.TEXCOORDS] = mesh.texCoords;
+        data.components[MeshData.POSITIONS] = 3;
+        data.components[MeshData.NORMALS] = 3;
+        // Assimp texture coordinates have 3 components unless told otherwise
+        data.components[MeshData.TEXCOORDS] = 3;
+        data.indexBuffer = mesh.indices;
+        List<MeshData> parts = GVRJassimpAdapter.prepareMesh(data, false, true);
+        return parts.toArray(new MeshData[parts.size()]);
+    }
+
+    /*
+     * A height field of grid x grid quads in direct buffers, with one
+     * vertex per triangle corner.
+     */
+    private static final class SourceMesh {
+        final int numVertices;
+        final FloatBuffer positions;
+        final FloatBuffer normals;
+        final FloatBuffer texCoords;
+        final IntBuffer indices;
+
+        SourceMesh(int grid) {
+            numVertices = grid * grid * 6;
+            positions = allocate(numVertices * 3).asFloatBuffer();
+            normals = allocate(numVertices * 3).asFloatBuffer();
+            texCoords = allocate(numVertices * 3).asFloatBuffer();
+            indices = allocate(numVertices).asIntBuffer();
+            final int[] corners = { 0, 0, 1, 0, 1, 1, 0, 0, 1, 1, 0, 1 };
+            for (int y = 0; y < grid; ++y) {
+                for (int x = 0; x < grid; ++x) {
+                    for (int c = 0; c < corners.length; c += 2) {
+                        float u = (float) (x + corners[c]) / grid;
+                        float v = (float) (y + corners[c + 1]) / grid;
+                        float h = (float) Math.sin(u * 7) * (float) Math.cos(v * 5);
+                        positions.put(u).put(v).put(h);
+                        normals.put(0).put(h).put(1);
+                        texCoords.put(u).put(v).put(0);
+                        indices.put(indices.position());
+                    }
+                }
+            }
+            positions.flip();
+            normals.flip();
+            texCoords.flip();
+            indices.flip();
+        }
+
+        private static ByteBuffer allocate(int count) {
+            return ByteBuffer.allocateDirect(count * 4).order(ByteOrder.nativeOrder());
+        }
+    }
+}
@@ -0,0 +1,93 @@
+/* Copyright 2015 Samsung Electronics Co., LTD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gearvrf.utility;
+
+import java.util.Arrays;
+
+/**
+ * A small JMH-style harness for benchmarks that run as JVM unit tests:
+ * warm-up iterations whose times are discarded, then measured iterations
+ * reported as mean, standard deviation, minimum and median.
+ *
+ * Benchmarks are meant to be read, not asserted on: results go to standard
+ * output, one line per case. Set the system property
+ * {@code gvrf.benchmark.scale} to a value above 1 for longer runs.
+ */
+public final class Benchmark {
+    private static final float SCALE = Float.parseFloat(System.getProperty("gvrf.benchmark.scale", "1"));
+
+    private Benchmark() {
+    }
+
+    /** Timings of one benchmark case, in nanoseconds per iteration. */
+    public static final class Result {
+        public final String name;
+        public final double mean;
+        public final double deviation;
+        public final long min;
+        public final long median;
+
+        Result(String name, long[] times) {
+            this.name = name;
+            long[] sorted = times.clone();
+            Arrays.sort(sorted);
+            double sum = 0;
+            for (long t : sorted) {
+                sum += t;
+            }
+            double mean = sum / sorted.length;
+            double squares = 0;
+            for (long t : sorted) {
+                squares += (t - mean) * (t - mean);
+            }
+            this.mean = mean;
+            this.deviation = Math.sqrt(squares / sorted.length);
+            this.min = sorted[0];
+            this.median = sorted[sorted.length / 2];
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-48s %12.3f ms/op  +- %8.3f  (min %.3f, median %.3f)", name,
+                    mean / 1e6, deviation / 1e6, min / 1e6, median / 1e6);
+        }
+    }
+
+    /**
+     * Runs {@code body} {@code warmups} times, then {@code iterations} more
+     * times while timing each run, and prints the result.
+     */
+    public static Result run(String name, int warmups, int iterations, Runnable body) {
+        warmups = scaled(warmups);
+        iterations = scaled(iterations);
+        for (int i = 0; i < warmups; ++i) {
+            body.run();
+        }
+        long[] times = new long[iterations];
+        for (int i = 0; i < iterations; ++i) {
+            long start = System.nanoTime();
+            body.run();
+            times[i] = System.nanoTime() - start;
+        }
+        Result result = new Result(name, times);
+        System.out.println(result);
+        return result;
+    }
+
+    private static int scaled(int count) {
+        return Math.max(1, Math.round(count * SCALE));
+    }
+}
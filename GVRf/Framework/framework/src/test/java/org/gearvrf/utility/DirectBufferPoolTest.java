@@ -0,0 +1,86 @@
+/* Copyright 2015 Samsung Electronics Co., LTD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gearvrf.utility;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.junit.Test;
+
+public class DirectBufferPoolTest {
+    @Test
+    public void roundsCapacityUpToPowerOfTwo() {
+        DirectBufferPool pool = new DirectBufferPool(1024);
+        ByteBuffer buffer = pool.acquire(100);
+
+        assertTrue(buffer.isDirect());
+        assertEquals(128, buffer.capacity());
+        assertEquals(0, buffer.position());
+        assertEquals(100, buffer.limit());
+        assertEquals(ByteOrder.nativeOrder(), buffer.order());
+        assertEquals(1, pool.acquire(0).capacity());
+        assertEquals(64, pool.acquire(64).capacity());
+    }
+
+    @Test
+    public void reusesReleasedBuffers() {
+        DirectBufferPool pool = new DirectBufferPool(1024);
+        ByteBuffer buffer = pool.acquire(100);
+        buffer.position(10);
+        pool.release(buffer);
+        assertEquals(128, pool.getPooledSize());
+
+        ByteBuffer again = pool.acquire(120);
+        assertSame(buffer, again);
+        assertEquals(0, again.position());
+        assertEquals(120, again.limit());
+        assertEquals(0, pool.getPooledSize());
+        // Another size class gets a new buffer
+        assertNotSame(buffer, pool.acquire(60));
+    }
+
+    @Test
+    public void keepsWithinBudget() {
+        DirectBufferPool pool = new DirectBufferPool(200);
+        ByteBuffer a = pool.acquire(128);
+        ByteBuffer b = pool.acquire(128);
+        pool.release(a);
+        pool.release(b);
+        assertEquals(128, pool.getPooledSize());
+
+        pool.clear();
+        assertEquals(0, pool.getPooledSize());
+        assertNotSame(a, pool.acquire(128));
+    }
+
+    @Test
+    public void ignoresForeignBuffers() {
+        DirectBufferPool pool = new DirectBufferPool(1024);
+        pool.release(ByteBuffer.allocate(64));
+        pool.release(ByteBuffer.allocateDirect(100));
+        assertEquals(0, pool.getPooledSize());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsNegativeSize() {
+        new DirectBufferPool(1024).acquire(-1);
+    }
+}
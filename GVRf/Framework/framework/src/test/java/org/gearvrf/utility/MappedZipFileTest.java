@@ -0,0 +1,313 @@
+/* Copyright 2015 Samsung Electronics Co., LTD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gearvrf.utility;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipException;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Reads archives written by {@link ZipOutputStream}, and checks that
+ * truncated and corrupt archives fail with a {@link ZipException}.
+ */
+public class MappedZipFileTest {
+    private static final byte[] STORED = bytes(1000, 1);
+    private static final byte[] DEFLATED = text(200000);
+    private static final byte[] EMPTY = new byte[0];
+
+    private File mFile;
+
+    @Before
+    public void setUp() throws IOException {
+        mFile = File.createTempFile("mapped", ".zip");
+    }
+
+    @After
+    public void tearDown() {
+        mFile.delete();
+    }
+
+    @Test
+    public void readsStoredSlices() throws IOException {
+        write(archive(null));
+        MappedZipFile zip = new MappedZipFile(mFile);
+
+        assertEquals(Arrays.asList("stored.bin", "dir/deflated.txt", "empty"),
+                zip.getEntryNames());
+        assertTrue(zip.contains("stored.bin"));
+        assertFalse(zip.contains("missing"));
+        assertEquals(STORED.length, zip.getSize("stored.bin"));
+
+        ByteBuffer slice = zip.getBuffer("stored.bin");
+        assertTrue(slice.isReadOnly());
+        assertTrue(slice.isDirect());
+        assertArrayEquals(STORED, toArray(slice));
+        assertArrayEquals(STORED, readAll(zip.openStream("stored.bin")));
+        assertArrayEquals(EMPTY, toArray(zip.getBuffer("empty")));
+    }
+
+    @Test
+    public void inflatesDeflatedEntries() throws IOException {
+        write(archive(null));
+        MappedZipFile zip = new MappedZipFile(mFile);
+
+        assertEquals(DEFLATED.length, zip.getSize("dir/deflated.txt"));
+        assertArrayEquals(DEFLATED, toArray(zip.getBuffer("dir/deflated.txt")));
+        assertArrayEquals(DEFLATED, readAll(zip.openStream("dir/deflated.txt")));
+    }
+
+    @Test
+    public void streamsMarkAndReset() throws IOException {
+        write(archive(null));
+        MappedZipFile zip = new MappedZipFile(mFile);
+
+        for (String name : new String[] { "stored.bin", "dir/deflated.txt" }) {
+            InputStream in = zip.openStream(name);
+            assertTrue(in.markSupported());
+            assertEquals(10, in.skip(10));
+            in.mark(100);
+            byte[] first = new byte[50];
+            assertEquals(50, in.read(first));
+            in.reset();
+            byte[] again = new byte[50];
+            assertEquals(50, in.read(again));
+            assertArrayEquals(first, again);
+            in.close();
+        }
+    }
+
+    @Test
+    public void readsArchiveWithComment() throws IOException {
+        write(archive("a comment at the end of the archive"));
+        MappedZipFile zip = new MappedZipFile(mFile);
+
+        assertArrayEquals(STORED, toArray(zip.getBuffer("stored.bin")));
+        assertArrayEquals(DEFLATED, toArray(zip.getBuffer("dir/deflated.txt")));
+    }
+
+    @Test
+    public void readsArchiveInsideFile() throws IOException {
+        byte[] archive = archive("comment");
+        byte[] prefix = bytes(333, 2);
+        byte[] file = new byte[prefix.length + archive.length + 17];
+        System.arraycopy(prefix, 0, file, 0, prefix.length);
+        System.arraycopy(archive, 0, file, prefix.length, archive.length);
+        write(file);
+
+        FileInputStream in = new FileInputStream(mFile);
+        MappedZipFile zip;
+        try {
+            zip = new MappedZipFile("part", in.getChannel(), prefix.length, archive.length);
+        } finally {
+            in.close();
+        }
+        assertEquals("part", zip.getName());
+        assertArrayEquals(STORED, toArray(zip.getBuffer("stored.bin")));
+        assertArrayEquals(DEFLATED, readAll(zip.openStream("dir/deflated.txt")));
+    }
+
+    @Test(expected = FileNotFoundException.class)
+    public void missingEntry() throws IOException {
+        write(archive(null));
+        new MappedZipFile(mFile).getBuffer("missing");
+    }
+
+    @Test
+    public void rejectsTruncatedArchives() throws IOException {
+        byte[] archive = archive(null);
+        // Without the end of central directory record
+        assertNotZip(Arrays.copyOf(archive, archive.length - 10));
+        assertNotZip(Arrays.copyOf(archive, 10));
+        assertNotZip(EMPTY);
+    }
+
+    @Test
+    public void rejectsBadCentralDirectory() throws IOException {
+        byte[] archive = archive(null);
+        int central = find(archive, 0x02014b50);
+
+        // A name that runs past the central directory
+        byte[] longName = archive.clone();
+        putShort(longName, central + 28, 0xffff);
+        assertNotZip(longName);
+
+        // A central directory past the end of central directory record
+        byte[] badOffset = archive.clone();
+        int eocd = find(archive, 0x06054b50);
+        putShort(badOffset, eocd + 18, 0x7fff);
+        assertNotZip(badOffset);
+
+        byte[] badSignature = archive.clone();
+        badSignature[central] = 0;
+        assertNotZip(badSignature);
+    }
+
+    @Test
+    public void rejectsCorruptEntries() throws IOException {
+        byte[] archive = archive(null);
+
+        // The first local header, of "stored.bin"
+        byte[] badHeader = archive.clone();
+        badHeader[0] = 0;
+        write(badHeader);
+        MappedZipFile zip = new MappedZipFile(mFile);
+        assertZipException(zip, "stored.bin");
+        assertArrayEquals(DEFLATED, toArray(zip.getBuffer("dir/deflated.txt")));
+
+        // Garbage in the middle of the deflated data
+        byte[] badData = archive.clone();
+        int data = find(archive, 0x04034b50, 2) + 30 + "dir/deflated.txt".length();
+        Arrays.fill(badData, data + 20, data + 60, (byte) 0xff);
+        write(badData);
+        assertZipException(new MappedZipFile(mFile), "dir/deflated.txt");
+    }
+
+    private void assertNotZip(byte[] archive) throws IOException {
+        write(archive);
+        try {
+            new MappedZipFile(mFile);
+            fail("opened a corrupt archive");
+        } catch (ZipException e) {
+        }
+    }
+
+    private static void assertZipException(MappedZipFile zip, String name) throws IOException {
+        try {
+            zip.getBuffer(name);
+            fail("read a corrupt entry");
+        } catch (ZipException e) {
+        }
+    }
+
+    private void write(byte[] content) throws IOException {
+        FileOutputStream out = new FileOutputStream(mFile);
+        try {
+            out.write(content);
+        } finally {
+            out.close();
+        }
+    }
+
+    private static byte[] archive(String comment) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ZipOutputStream out = new ZipOutputStream(bytes);
+        if (comment != null) {
+            out.setComment(comment);
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(STORED);
+        ZipEntry stored = new ZipEntry("stored.bin");
+        stored.setMethod(ZipEntry.STORED);
+        stored.setSize(STORED.length);
+        stored.setCompressedSize(STORED.length);
+        stored.setCrc(crc.getValue());
+        stored.setExtra(new byte[] { (byte) 0xfe, (byte) 0xca, 2, 0, 7, 7 });
+        out.putNextEntry(stored);
+        out.write(STORED);
+        out.closeEntry();
+
+        ZipEntry deflated = new ZipEntry("dir/deflated.txt");
+        deflated.setComment("compressed");
+        out.putNextEntry(deflated);
+        out.write(DEFLATED);
+        out.closeEntry();
+
+        out.putNextEntry(new ZipEntry("empty"));
+        out.closeEntry();
+        out.close();
+        return bytes.toByteArray();
+    }
+
+    /*
+     * Position of the nth little-endian signature in an archive.
+     */
+    private static int find(byte[] archive, int signature) {
+        return find(archive, signature, 1);
+    }
+
+    private static int find(byte[] archive, int signature, int nth) {
+        for (int i = 0; i <= archive.length - 4; ++i) {
+            int value = (archive[i] & 0xff) | (archive[i + 1] & 0xff) << 8
+                    | (archive[i + 2] & 0xff) << 16 | (archive[i + 3] & 0xff) << 24;
+            if (value == signature && --nth == 0) {
+                return i;
+            }
+        }
+        throw new AssertionError("signature not found");
+    }
+
+    private static void putShort(byte[] archive, int position, int value) {
+        archive[position] = (byte) value;
+        archive[position + 1] = (byte) (value >> 8);
+    }
+
+    private static byte[] toArray(ByteBuffer buffer) {
+        byte[] array = new byte[buffer.remaining()];
+        buffer.duplicate().get(array);
+        return array;
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[777];
+        int count;
+        while ((count = in.read(buffer)) >= 0) {
+            out.write(buffer, 0, count);
+        }
+        in.close();
+        return out.toByteArray();
+    }
+
+    private static byte[] bytes(int count, long seed) {
+        byte[] bytes = new byte[count];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+
+    /*
+     * Random letters; they deflate to more than one chunk of inflater input.
+     */
+    private static byte[] text(int count) {
+        Random random = new Random(3);
+        byte[] bytes = new byte[count];
+        for (int i = 0; i < count; ++i) {
+            bytes[i] = (byte) ('a' + random.nextInt(20));
+        }
+        return bytes;
+    }
+}
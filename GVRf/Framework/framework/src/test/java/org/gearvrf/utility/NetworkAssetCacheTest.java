@@ -0,0 +1,270 @@
+/* Copyright 2015 Samsung Electronics Co., LTD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gearvrf.utility;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Runs {@link NetworkAssetCache} against a local HTTP server that serves one
+ * asset with an ETag and a Last-Modified date and answers conditional
+ * requests.
+ */
+public class NetworkAssetCacheTest {
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    private static final String LAST_MODIFIED = "Wed, 21 Oct 2015 07:28:00 GMT";
+
+    private Server mServer;
+    private File mDirectory;
+    private NetworkAssetCache mCache;
+
+    @Before
+    public void setUp() throws IOException {
+        mServer = new Server();
+        mDirectory = File.createTempFile("network", "cache");
+        mDirectory.delete();
+        mCache = new NetworkAssetCache(mDirectory, 1024 * 1024, 4);
+    }
+
+    @After
+    public void tearDown() {
+        mServer.stop();
+        File[] files = mDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        mDirectory.delete();
+    }
+
+    @Test
+    public void downloadsOnceWhileFresh() throws IOException {
+        mServer.setContent("first", "\"1\"", null);
+        assertEquals("first", read(mCache.get(mServer.url("model.obj"))));
+        assertEquals("first", read(mCache.get(mServer.url("model.obj"))));
+        assertEquals(1, mServer.requests.get());
+        assertTrue(mCache.get(mServer.url("model.obj")).getName().endsWith("model.obj"));
+    }
+
+    @Test
+    public void revalidatesWithETag() throws IOException {
+        mCache.setMaxAge(0);
+        mServer.setContent("first", "\"1\"", null);
+        mCache.get(mServer.url("a.png"));
+        File copy = mCache.get(mServer.url("a.png"));
+
+        assertEquals(2, mServer.requests.get());
+        assertEquals(1, mServer.downloads.get());
+        assertEquals("\"1\"", mServer.lastIfNoneMatch);
+        assertEquals("first", read(copy));
+
+        mServer.setContent("second", "\"2\"", null);
+        assertEquals("second", read(mCache.get(mServer.url("a.png"))));
+        assertEquals(2, mServer.downloads.get());
+        assertEquals("second".length(), mCache.getSize());
+    }
+
+    @Test
+    public void revalidatesWithLastModified() throws IOException {
+        mCache.setMaxAge(0);
+        mServer.setContent("first", null, LAST_MODIFIED);
+        mCache.get(mServer.url("a.png"));
+        assertEquals("first", read(mCache.get(mServer.url("a.png"))));
+
+        assertEquals(2, mServer.requests.get());
+        assertEquals(1, mServer.downloads.get());
+        assertNull(mServer.lastIfNoneMatch);
+        assertEquals(LAST_MODIFIED, mServer.lastIfModifiedSince);
+    }
+
+    @Test
+    public void concurrentRequestsShareOneDownload() throws Exception {
+        mServer.setContent("shared", "\"1\"", null);
+        mServer.gate = new CountDownLatch(1);
+        final URL url = mServer.url("big.bin");
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<File>> results = new ArrayList<Future<File>>();
+            for (int i = 0; i < 8; ++i) {
+                results.add(executor.submit(new Callable<File>() {
+                    @Override
+                    public File call() throws IOException {
+                        return mCache.get(url);
+                    }
+                }));
+            }
+            // Hold the download until the other requests have had time to
+            // join it
+            assertTrue(mServer.started.await(10, TimeUnit.SECONDS));
+            Thread.sleep(200);
+            mServer.gate.countDown();
+
+            for (Future<File> result : results) {
+                assertEquals("shared", read(result.get(10, TimeUnit.SECONDS)));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, mServer.requests.get());
+    }
+
+    @Test
+    public void usesLocalCopyWhenOffline() throws IOException {
+        mCache.setMaxAge(0);
+        mServer.setContent("kept", "\"1\"", null);
+        URL url = mServer.url("a.png");
+        mCache.get(url);
+        mServer.stop();
+        assertEquals("kept", read(mCache.get(url)));
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() throws IOException {
+        mCache.setMaxSize(10);
+        mServer.setContent("12345", null, null);
+        File a = mCache.get(mServer.url("a"));
+        mCache.get(mServer.url("b"));
+        mCache.get(mServer.url("a"));
+        mCache.get(mServer.url("c"));
+
+        assertEquals(10, mCache.getSize());
+        assertTrue(a.exists());
+        // b was the least recently used, so it was downloaded again
+        mCache.get(mServer.url("b"));
+        assertEquals(4, mServer.downloads.get());
+    }
+
+    private static String read(File file) throws IOException {
+        RandomAccessFile in = new RandomAccessFile(file, "r");
+        try {
+            byte[] data = new byte[(int) in.length()];
+            in.readFully(data);
+            return new String(data, UTF8);
+        } finally {
+            in.close();
+        }
+    }
+
+    /*
+     * Serves the same content at every path, with optional validators.
+     */
+    private static final class Server implements HttpHandler {
+        final AtomicInteger requests = new AtomicInteger();
+        final AtomicInteger downloads = new AtomicInteger();
+        final CountDownLatch started = new CountDownLatch(1);
+        volatile CountDownLatch gate;
+        volatile String lastIfNoneMatch;
+        volatile String lastIfModifiedSince;
+
+        private final HttpServer mServer;
+        private volatile byte[] mContent;
+        private volatile String mETag;
+        private volatile String mLastModified;
+        private boolean mStopped;
+
+        Server() throws IOException {
+            mServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+            mServer.createContext("/", this);
+            mServer.setExecutor(Executors.newCachedThreadPool());
+            mServer.start();
+        }
+
+        void setContent(String content, String etag, String lastModified) {
+            mContent = content.getBytes(UTF8);
+            mETag = etag;
+            mLastModified = lastModified;
+        }
+
+        URL url(String path) throws IOException {
+            return new URL("http", "127.0.0.1", mServer.getAddress().getPort(), "/" + path);
+        }
+
+        synchronized void stop() {
+            if (!mStopped) {
+                mStopped = true;
+                mServer.stop(0);
+            }
+        }
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            requests.incrementAndGet();
+            started.countDown();
+            CountDownLatch gate = this.gate;
+            if (gate != null) {
+                try {
+                    gate.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+            String ifModifiedSince = exchange.getRequestHeaders().getFirst("If-Modified-Since");
+            lastIfNoneMatch = ifNoneMatch;
+            lastIfModifiedSince = ifModifiedSince;
+            if (mETag != null) {
+                exchange.getResponseHeaders().set("ETag", mETag);
+            }
+            if (mLastModified != null) {
+                exchange.getResponseHeaders().set("Last-Modified", mLastModified);
+            }
+
+            boolean notModified = (ifNoneMatch != null)
+                    ? ifNoneMatch.equals(mETag)
+                    : (ifModifiedSince != null && ifModifiedSince.equals(mLastModified));
+            if (notModified) {
+                exchange.sendResponseHeaders(304, -1);
+            } else {
+                downloads.incrementAndGet();
+                byte[] content = mContent;
+                exchange.sendResponseHeaders(200, content.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(content);
+                out.close();
+            }
+            exchange.close();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+/* Copyright 2015 Samsung Electronics Co., LTD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gearvrf.utility;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.io.FileNotFoundException;
+
+import org.gearvrf.GVRAndroidResource;
+import org.junit.Test;
+
+public class ResourceCacheBaseTest {
+    @Test
+    public void keepsRecentResourcesWithinBudget() throws FileNotFoundException {
+        ResourceCacheBase<GVRByteArray> cache = new ResourceCacheBase<GVRByteArray>(100,
+                ResourceCacheBase.BYTE_ARRAY_SIZE);
+        GVRAndroidResource a = new GVRAndroidResource("/a");
+        GVRAndroidResource b = new GVRAndroidResource("/b");
+        GVRAndroidResource c = new GVRAndroidResource("/c");
+        GVRByteArray bytesA = GVRByteArray.wrap(new byte[40]);
+        cache.put(a, bytesA);
+        cache.put(b, GVRByteArray.wrap(new byte[40]));
+        // Touch a, so b is the least recently used
+        assertSame(bytesA, cache.get(a));
+        cache.put(c, GVRByteArray.wrap(new byte[40]));
+
+        assertEquals(80, cache.getSize());
+        assertEquals(1, cache.getEvictionCount());
+        assertSame(bytesA, cache.get(new GVRAndroidResource("/a")));
+        assertEquals(2, cache.getHitCount());
+    }
+
+    @Test
+    public void missesForAnotherStamp() throws FileNotFoundException {
+        ResourceCacheBase<GVRByteArray> cache = new ResourceCacheBase<GVRByteArray>(100,
+                ResourceCacheBase.BYTE_ARRAY_SIZE);
+        GVRAndroidResource file = new GVRAndroidResource("/model.mtl");
+        GVRByteArray old = GVRByteArray.wrap(new byte[10]);
+        cache.put(file, old, 1);
+
+        assertSame(old, cache.get(file, 1));
+        assertNull(cache.get(file, 2));
+        assertEquals(0, cache.getSize());
+        // The out-of-date entry is gone, not just skipped
+        assertNull(cache.get(file, 1));
+        assertEquals(2, cache.getMissCount());
+    }
+}
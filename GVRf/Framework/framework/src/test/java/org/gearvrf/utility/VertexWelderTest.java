@@ -0,0 +1,118 @@
+/* Copyright 2015 Samsung Electronics Co., LTD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gearvrf.utility;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class VertexWelderTest {
+    @Test
+    public void mergesIdenticalVertices() {
+        VertexWelder welder = new VertexWelder(3);
+        float[] vertices = {
+                0, 0, 0,
+                1, 0, 0,
+                0, 0, 0,
+                1, 0, 0,
+                0, 1, 0 };
+        int[] indices = new int[5];
+        for (int i = 0; i < indices.length; ++i) {
+            indices[i] = welder.add(vertices, i * 3);
+        }
+        assertArrayEquals(new int[] { 0, 1, 0, 1, 2 }, indices);
+        assertEquals(3, welder.size());
+        assertArrayEquals(new float[] { 0, 0, 0, 1, 0, 0, 0, 1, 0 }, welder.getAttribute(0, 3), 0);
+    }
+
+    @Test
+    public void comparesBits() {
+        VertexWelder welder = new VertexWelder(1);
+        assertEquals(0, welder.add(new float[] { 0.0f }, 0));
+        assertEquals(1, welder.add(new float[] { -0.0f }, 0));
+        assertEquals(2, welder.add(new float[] { Float.NaN }, 0));
+        assertEquals(2, welder.add(new float[] { Float.NaN }, 0));
+        assertEquals(3, welder.size());
+    }
+
+    @Test
+    public void splitsAttributes() {
+        VertexWelder welder = new VertexWelder(5);
+        welder.add(new float[] { 1, 2, 3, 0.25f, 0.75f }, 0);
+        welder.add(new float[] { 4, 5, 6, 0.5f, 1 }, 0);
+        assertArrayEquals(new float[] { 1, 2, 3, 4, 5, 6 }, welder.getAttribute(0, 3), 0);
+        assertArrayEquals(new float[] { 0.25f, 0.75f, 0.5f, 1 }, welder.getAttribute(3, 2), 0);
+        assertEquals(6, welder.get(1, 2), 0);
+    }
+
+    @Test
+    public void matchesHashMapWhileGrowing() {
+        // Few distinct values, so most added vertices are duplicates
+        Random random = new Random(3);
+        VertexWelder welder = new VertexWelder(4, 1);
+        Map<List<Float>, Integer> expected = new HashMap<List<Float>, Integer>();
+        float[] vertex = new float[4];
+        for (int i = 0; i < 50000; ++i) {
+            for (int c = 0; c < vertex.length; ++c) {
+                vertex[c] = random.nextInt(12) / 4f;
+            }
+            List<Float> key = Arrays.asList(vertex[0], vertex[1], vertex[2], vertex[3]);
+            Integer index = expected.get(key);
+            if (index == null) {
+                index = expected.size();
+                expected.put(key, index);
+            }
+            assertEquals(index.intValue(), welder.add(vertex, 0));
+        }
+        assertEquals(expected.size(), welder.size());
+        for (Map.Entry<List<Float>, Integer> entry : expected.entrySet()) {
+            for (int c = 0; c < 4; ++c) {
+                assertEquals(entry.getKey().get(c), welder.get(entry.getValue(), c), 0);
+            }
+        }
+    }
+
+    @Test
+    public void clearKeepsWorking() {
+        VertexWelder welder = new VertexWelder(2);
+        for (int i = 0; i < 100; ++i) {
+            welder.add(new float[] { i, i }, 0);
+        }
+        welder.clear();
+        assertEquals(0, welder.size());
+        assertEquals(0, welder.add(new float[] { 50, 50 }, 0));
+        assertNotEquals(0, welder.add(new float[] { 0, 0 }, 0));
+        assertEquals(0, welder.add(new float[] { 50, 50 }, 0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsEmptyVertices() {
+        new VertexWelder(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsAttributeOutsideVertex() {
+        new VertexWelder(3).getAttribute(2, 2);
+    }
+}
@@ -0,0 +1,160 @@
+/* Copyright 2016 Samsung Electronics Co., LTD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gearvrf.x3d;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class X3DNumberTokenizerTest
+{
+  @Test
+  public void parsesSeparatedNumbers()
+  {
+    assertFloats("1 2 3", 1, 2, 3);
+    assertFloats("1,2,3", 1, 2, 3);
+    assertFloats("  1.5,\n\t-2.25 , +3  ", 1.5f, -2.25f, 3);
+    assertFloats("0 0.0 -0 .5 -.5", 0, 0, -0f, 0.5f, -0.5f);
+    assertFloats("");
+    assertFloats(" , \n ");
+  }
+
+  @Test
+  public void parsesExponents()
+  {
+    assertFloats("1e3 1E3 1e+3 1.5e-3 -2.5E-2", 1000, 1000, 1000, 0.0015f, -0.025f);
+    assertFloats("3.4028235e38 1.4e-45", Float.MAX_VALUE, Float.MIN_VALUE);
+    // An 'e' without digits is not part of the number
+    assertFloats("2e 3", 2, 3);
+    assertFloats("2e- 3", 2, 3);
+  }
+
+  @Test
+  public void skipsWhatCannotStartANumber()
+  {
+    assertFloats("[1 2] (3; x4)", 1, 2, 3, 4);
+    assertFloats("- + . 5", 5);
+  }
+
+  @Test
+  public void handlesLongMantissas()
+  {
+    assertFloats("123456789012345678901234567890", 1.2345679e29f);
+    assertFloats("0.000000000000000000000000123456789", 1.2345679e-25f);
+    assertFloats("3.14159265358979323846264338327950288", (float) Math.PI);
+  }
+
+  @Test
+  public void matchesFloatParseFloat()
+  {
+    Random random = new Random(11);
+    StringBuilder text = new StringBuilder();
+    float[] expected = new float[20000];
+    for (int i = 0; i < expected.length; ++i)
+    {
+      String number;
+      switch (i % 4)
+      {
+      case 0:
+        number = Float.toString((random.nextFloat() - 0.5f) * 1000);
+        break;
+      case 1:
+        number = String.format(Locale.US, "%.6f", random.nextGaussian());
+        break;
+      case 2:
+        number = String.format(Locale.US, "%.5e", random.nextGaussian() * Math.pow(10, random.nextInt(40) - 20));
+        break;
+      default:
+        number = Integer.toString(random.nextInt(200000) - 100000);
+        break;
+      }
+      expected[i] = Float.parseFloat(number);
+      text.append(number).append(i % 3 == 2 ? ", " : " ");
+    }
+
+    FloatList parsed = new FloatList();
+    assertEquals(expected.length, X3DNumberTokenizer.parseFloats(text.toString(), parsed));
+    for (int i = 0; i < expected.length; ++i)
+    {
+      // Scaling in double and then narrowing may round differently from
+      // parseFloat by one unit in the last place
+      assertEquals("value " + i, expected[i], parsed.get(i), Math.ulp(expected[i]));
+    }
+  }
+
+  @Test
+  public void parsesIndicesWithoutSeparators()
+  {
+    IntList indices = new IntList();
+    assertEquals(8, X3DNumberTokenizer.parseIndices("0 1 2 -1 2, 3 0 -1\n4 5 -1", indices));
+    assertArrayEquals(new int[] { 0, 1, 2, 2, 3, 0, 4, 5 }, indices.toArray());
+
+    // Fractions are truncated, as the (int) cast of the old parser did
+    indices.clear();
+    X3DNumberTokenizer.parseIndices("7.0 8.9 1e1", indices);
+    assertArrayEquals(new int[] { 7, 8, 10 }, indices.toArray());
+  }
+
+  @Test
+  public void appendsToExistingValues()
+  {
+    FloatList values = new FloatList(1);
+    X3DNumberTokenizer.parseFloats("1 2", values);
+    X3DNumberTokenizer.parseFloats("3", values);
+    assertArrayEquals(new float[] { 1, 2, 3 }, values.toArray(), 0);
+  }
+
+  @Test
+  public void readsFixedCount()
+  {
+    float[] dest = { 9, 9, 9, 9 };
+    assertEquals(2, X3DNumberTokenizer.parseFloats("1 2", dest, 3));
+    assertArrayEquals(new float[] { 1, 2, 9, 9 }, dest, 0);
+
+    assertEquals(3, X3DNumberTokenizer.parseFloats("4 5 6 7", dest, 3));
+    assertArrayEquals(new float[] { 4, 5, 6, 9 }, dest, 0);
+  }
+
+  @Test
+  public void tokenizerReadsIntsAndFloats()
+  {
+    X3DNumberTokenizer tokenizer = new X3DNumberTokenizer("12 -3 4.5");
+    assertTrue(tokenizer.hasNext());
+    assertEquals(12, tokenizer.nextInt());
+    assertTrue(tokenizer.hasNext());
+    assertEquals(-3, tokenizer.nextInt());
+    assertTrue(tokenizer.hasNext());
+    assertEquals(4.5f, tokenizer.nextFloat(), 0);
+    assertEquals(false, tokenizer.hasNext());
+  }
+
+  private static void assertFloats(String text, float... expected)
+  {
+    FloatList parsed = new FloatList();
+    assertEquals(text, expected.length, X3DNumberTokenizer.parseFloats(text, parsed));
+    for (int i = 0; i < expected.length; ++i)
+    {
+      // Compare bits, so -0 and 0 differ
+      assertEquals(text + " [" + i + "]", Float.floatToIntBits(expected[i]),
+          Float.floatToIntBits(parsed.get(i)));
+    }
+  }
+}
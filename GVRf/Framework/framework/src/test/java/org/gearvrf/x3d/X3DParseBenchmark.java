@@ -0,0 +1,297 @@
+/* Copyright 2016 Samsung Electronics Co., LTD
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.gearvrf.x3d;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StreamTokenizer;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Locale;
+import java.util.Random;
+
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.gearvrf.utility.Benchmark;
+import org.gearvrf.utility.VertexWelder;
+import org.junit.Test;
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Parse time of synthetic X3D files of increasing size: one
+ * IndexedFaceSet grid per file, read through SAX, its numbers parsed and its
+ * vertices welded. The baseline reads numbers the way X3Dobject did before
+ * X3DNumberTokenizer, with a StreamTokenizer and an array per vertex.
+ */
+public class X3DParseBenchmark
+{
+  private static final int[] GRID_SIZES = { 16, 64, 256 };
+  private static final int WARMUPS = 5;
+  private static final int ITERATIONS = 10;
+
+  @Test
+  public void parseTimeByFileSize() throws Exception
+  {
+    final SAXParser parser = SAXParserFactory.newInstance().newSAXParser();
+    for (int grid : GRID_SIZES)
+    {
+      final byte[] file = makeFile(grid);
+      final int vertices = (grid + 1) * (grid + 1);
+      final String size = String.format(Locale.US, "%6d vertices, %5d KB", vertices,
+          file.length / 1024);
+
+      final TokenizerHandler tokenizer = new TokenizerHandler();
+      Benchmark.run(size + ", tokenizer", WARMUPS, ITERATIONS, new Runnable()
+      {
+        public void run()
+        {
+          parse(parser, file, tokenizer);
+        }
+      });
+
+      final BaselineHandler baseline = new BaselineHandler();
+      Benchmark.run(size + ", StreamTokenizer", WARMUPS, ITERATIONS, new Runnable()
+      {
+        public void run()
+        {
+          parse(parser, file, baseline);
+        }
+      });
+
+      // Both must read the same mesh
+      assertEquals(vertices, tokenizer.mWelded);
+      assertEquals(baseline.mPoints.size(), tokenizer.mPoints.size() / 3);
+      for (int i = 0; i < baseline.mPoints.size(); ++i)
+      {
+        float[] expected = baseline.mPoints.get(i);
+        assertArrayEquals(expected, new float[] { tokenizer.mPoints.get(i * 3),
+            tokenizer.mPoints.get(i * 3 + 1), tokenizer.mPoints.get(i * 3 + 2) }, 0);
+      }
+      assertEquals(baseline.mIndices.size(), tokenizer.mIndices.size());
+    }
+  }
+
+  private static void parse(SAXParser parser, byte[] file, DefaultHandler handler)
+  {
+    try
+    {
+      parser.parse(new ByteArrayInputStream(file), handler);
+    }
+    catch (Exception e)
+    {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /*
+   * A grid of grid x grid quads, two triangles each, with points,
+   * normals and texture coordinates in the layout exporters write.
+   */
+  private static byte[] makeFile(int grid)
+  {
+    Random random = new Random(grid);
+    StringBuilder points = new StringBuilder();
+    StringBuilder normals = new StringBuilder();
+    StringBuilder texcoords = new StringBuilder();
+    for (int y = 0; y <= grid; ++y)
+    {
+      for (int x = 0; x <= grid; ++x)
+      {
+        points.append(String.format(Locale.US, "%.6f %.6f %.6f, ", (float) x / grid,
+            (float) y / grid, random.nextFloat() * 0.1f));
+        normals.append(String.format(Locale.US, "%.5f %.5f %.5f, ",
+            random.nextFloat() * 0.1f, random.nextFloat() * 0.1f, 1.0f));
+        texcoords.append(String.format(Locale.US, "%.5f %.5f, ", (float) x / grid,
+            (float) y / grid));
+      }
+    }
+    StringBuilder indices = new StringBuilder();
+    for (int y = 0; y < grid; ++y)
+    {
+      for (int x = 0; x < grid; ++x)
+      {
+        int i = y * (grid + 1) + x;
+        int j = i + grid + 1;
+        indices.append(i).append(' ').append(i + 1).append(' ').append(j + 1)
+            .append(" -1 ").append(i).append(' ').append(j + 1).append(' ').append(j)
+            .append(" -1\n");
+      }
+    }
+    String x3d = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+        + "<X3D profile=\"Interchange\" version=\"3.3\"><Scene><Transform><Shape>\n"
+        + "<IndexedFaceSet coordIndex=\"" + indices + "\" normalIndex=\"" + indices
+        + "\" texCoordIndex=\"" + indices + "\">\n"
+        + "<Coordinate point=\"" + points + "\"/>\n"
+        + "<Normal vector=\"" + normals + "\"/>\n"
+        + "<TextureCoordinate point=\"" + texcoords + "\"/>\n"
+        + "</IndexedFaceSet></Shape></Transform></Scene></X3D>\n";
+    return x3d.getBytes(Charset.forName("UTF-8"));
+  }
+
+  /*
+   * Reads geometry with X3DNumberTokenizer and welds vertices, as
+   * X3Dobject does.
+   */
+  private static final class TokenizerHandler extends DefaultHandler
+  {
+    final FloatList mPoints = new FloatList();
+    final FloatList mNormals = new FloatList();
+    final FloatList mTexcoords = new FloatList();
+    final IntList mIndices = new IntList();
+    final VertexWelder mWelder = new VertexWelder(8);
+    final float[] mVertex = new float[8];
+    int mWelded;
+
+    @Override
+    public void startDocument()
+    {
+      mPoints.clear();
+      mNormals.clear();
+      mTexcoords.clear();
+      mIndices.clear();
+      mWelder.clear();
+    }
+
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes attributes)
+    {
+      if (qName.equals("IndexedFaceSet"))
+      {
+        X3DNumberTokenizer.parseIndices(attributes.getValue("coordIndex"), mIndices);
+      }
+      else if (qName.equals("Coordinate"))
+      {
+        X3DNumberTokenizer.parseFloats(attributes.getValue("point"), mPoints);
+      }
+      else if (qName.equals("Normal"))
+      {
+        X3DNumberTokenizer.parseFloats(attributes.getValue("vector"), mNormals);
+      }
+      else if (qName.equals("TextureCoordinate"))
+      {
+        X3DNumberTokenizer.parseFloats(attributes.getValue("point"), mTexcoords);
+      }
+    }
+
+    @Override
+    public void endDocument()
+    {
+      for (int i = 0; i < mIndices.size(); ++i)
+      {
+        int index = mIndices.get(i);
+        for (int c = 0; c < 3; ++c)
+        {
+          mVertex[c] = mPoints.get(index * 3 + c);
+          mVertex[3 + c] = mNormals.get(index * 3 + c);
+        }
+        mVertex[6] = mTexcoords.get(index * 2);
+        mVertex[7] = mTexcoords.get(index * 2 + 1);
+        mWelder.add(mVertex, 0);
+      }
+      mWelded = mWelder.size();
+    }
+  }
+
+  /*
+   * Reads geometry the old way: StreamTokenizer, with one array per
+   * vertex in a list.
+   */
+  private static final class BaselineHandler extends DefaultHandler
+  {
+    final ArrayList<float[]> mPoints = new ArrayList<float[]>();
+    final ArrayList<float[]> mNormals = new ArrayList<float[]>();
+    final ArrayList<float[]> mTexcoords = new ArrayList<float[]>();
+    final ArrayList<Integer> mIndices = new ArrayList<Integer>();
+
+    @Override
+    public void startDocument()
+    {
+      mPoints.clear();
+      mNormals.clear();
+      mTexcoords.clear();
+      mIndices.clear();
+    }
+
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes attributes)
+    {
+      if (qName.equals("IndexedFaceSet"))
+      {
+        for (float value : parse(attributes.getValue("coordIndex"), 1))
+        {
+          mIndices.add((int) value);
+        }
+      }
+      else if (qName.equals("Coordinate"))
+      {
+        split(parse(attributes.getValue("point"), 3), 3, mPoints);
+      }
+      else if (qName.equals("Normal"))
+      {
+        split(parse(attributes.getValue("vector"), 3), 3, mNormals);
+      }
+      else if (qName.equals("TextureCoordinate"))
+      {
+        split(parse(attributes.getValue("point"), 2), 2, mTexcoords);
+      }
+    }
+
+    private static ArrayList<Float> parse(String numberString, int size)
+    {
+      ArrayList<Float> values = new ArrayList<Float>();
+      StreamTokenizer st = new StreamTokenizer(new StringReader(numberString));
+      st.parseNumbers();
+      st.whitespaceChars(',', ',');
+      try
+      {
+        while (st.nextToken() != StreamTokenizer.TT_EOF)
+        {
+          if (st.ttype == StreamTokenizer.TT_NUMBER)
+          {
+            if (size != 1 || st.nval != -1)
+            {
+              values.add((float) st.nval);
+            }
+          }
+        }
+      }
+      catch (IOException e)
+      {
+        throw new RuntimeException(e);
+      }
+      return values;
+    }
+
+    private static void split(ArrayList<Float> values, int size, ArrayList<float[]> dest)
+    {
+      for (int i = 0; i + size <= values.size(); i += size)
+      {
+        float[] vertex = new float[size];
+        for (int c = 0; c < size; ++c)
+        {
+          vertex[c] = values.get(i + c);
+        }
+        dest.add(vertex);
+      }
+    }
+  }
+}